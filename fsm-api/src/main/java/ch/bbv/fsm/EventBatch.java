@@ -0,0 +1,169 @@
+package ch.bbv.fsm;
+
+import java.util.Arrays;
+
+/**
+ * A batch of events fired at once with
+ * {@link StateMachine#fireAll(EventBatch, boolean)}. The events are kept in
+ * arrays that grow as needed, so a batch can be cleared and filled again
+ * without allocating.
+ *
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public final class EventBatch<TEvent extends Enum<?>> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private Object[] eventIds;
+
+	/**
+	 * The arguments of each event, <code>null</code> for an event with a
+	 * <code>long</code> argument.
+	 */
+	private Object[][] eventArguments;
+
+	private long[] longArguments;
+
+	private int size;
+
+	/**
+	 * Creates an empty batch.
+	 */
+	public EventBatch() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param capacity
+	 *            the number of events the batch holds before it grows.
+	 */
+	public EventBatch(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+		}
+		this.eventIds = new Object[capacity];
+		this.eventArguments = new Object[capacity][];
+		this.longArguments = new long[capacity];
+	}
+
+	/**
+	 * Adds an event.
+	 *
+	 * @param eventId
+	 *            the event.
+	 * @param arguments
+	 *            the event arguments.
+	 * @return this batch.
+	 */
+	public EventBatch<TEvent> add(final TEvent eventId, final Object... arguments) {
+		final int index = next(eventId);
+		eventArguments[index] = arguments == null ? NO_ARGUMENTS : arguments;
+		return this;
+	}
+
+	/**
+	 * Adds an event with a single <code>long</code> argument, which is passed
+	 * to the actions and guards like {@link StateMachine#fireLong(Enum, long)}.
+	 *
+	 * @param eventId
+	 *            the event.
+	 * @param argument
+	 *            the event argument.
+	 * @return this batch.
+	 */
+	public EventBatch<TEvent> addLong(final TEvent eventId, final long argument) {
+		final int index = next(eventId);
+		eventArguments[index] = null;
+		longArguments[index] = argument;
+		return this;
+	}
+
+	private int next(final TEvent eventId) {
+		if (eventId == null) {
+			throw new IllegalArgumentException("eventId must not be null.");
+		}
+		if (size == eventIds.length) {
+			final int capacity = size * 2;
+			eventIds = Arrays.copyOf(eventIds, capacity);
+			eventArguments = Arrays.copyOf(eventArguments, capacity);
+			longArguments = Arrays.copyOf(longArguments, capacity);
+		}
+		eventIds[size] = eventId;
+		return size++;
+	}
+
+	/**
+	 * Returns the number of events in this batch.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all events, the capacity is kept.
+	 */
+	public void clear() {
+		Arrays.fill(eventIds, 0, size, null);
+		Arrays.fill(eventArguments, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Returns an event.
+	 *
+	 * @param index
+	 *            the index of the event in the batch.
+	 * @return the event.
+	 */
+	@SuppressWarnings("unchecked")
+	public TEvent getEventId(final int index) {
+		return (TEvent) eventIds[checkIndex(index)];
+	}
+
+	/**
+	 * Returns <code>true</code> if an event was added with a single
+	 * <code>long</code> argument.
+	 *
+	 * @param index
+	 *            the index of the event in the batch.
+	 */
+	public boolean hasLongArgument(final int index) {
+		return eventArguments[checkIndex(index)] == null;
+	}
+
+	/**
+	 * Returns the <code>long</code> argument of an event.
+	 *
+	 * @param index
+	 *            the index of the event in the batch.
+	 * @return the argument, 0 if the event has no <code>long</code> argument.
+	 */
+	public long getLongArgument(final int index) {
+		return longArguments[checkIndex(index)];
+	}
+
+	/**
+	 * Returns the arguments of an event that was not added with a single
+	 * <code>long</code> argument.
+	 *
+	 * @param index
+	 *            the index of the event in the batch.
+	 * @return the arguments, <code>null</code> for an event with a
+	 *         <code>long</code> argument.
+	 */
+	public Object[] getEventArguments(final int index) {
+		return eventArguments[checkIndex(index)];
+	}
+
+	private int checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " of a batch of " + size + " events");
+		}
+		return index;
+	}
+}
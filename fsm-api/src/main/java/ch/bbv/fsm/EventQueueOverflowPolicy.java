@@ -0,0 +1,33 @@
+package ch.bbv.fsm;
+
+/**
+ * What an active state machine with a bounded event queue does with an event
+ * fired while the queue is full. Priority events are not bounded.
+ */
+public enum EventQueueOverflowPolicy {
+
+	/**
+	 * The event is rejected: {@link StateMachine#fire(Enum, Object...)} throws
+	 * an {@link IllegalStateException} and
+	 * {@link StateMachine#offer(Enum, Object...)} returns <code>false</code>.
+	 */
+	REJECT,
+
+	/**
+	 * The firing thread waits until the queue has room or the block timeout
+	 * elapsed, then the event is rejected like with {@link #REJECT}.
+	 */
+	BLOCK,
+
+	/**
+	 * The oldest queued event is dropped to make room for the new one.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The new event is dropped, {@link StateMachine#fire(Enum, Object...)}
+	 * returns silently and {@link StateMachine#offer(Enum, Object...)} returns
+	 * <code>false</code>.
+	 */
+	DROP_NEWEST
+}
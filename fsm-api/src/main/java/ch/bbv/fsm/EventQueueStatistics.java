@@ -0,0 +1,57 @@
+package ch.bbv.fsm;
+
+/**
+ * Statistics about the events queued and dispatched by a state machine. The values are
+ * cumulated since the state machine was created.
+ */
+public interface EventQueueStatistics {
+
+	/**
+	 * Returns the number of events dispatched to the state machine.
+	 */
+	long getDispatchedEvents();
+
+	/**
+	 * Returns the sum of the times the dispatched events waited in the queue, in nanoseconds.
+	 */
+	long getTotalDispatchLatencyNanos();
+
+	/**
+	 * Returns the longest time an event waited in the queue before it was dispatched, in
+	 * nanoseconds.
+	 */
+	long getMaxDispatchLatencyNanos();
+
+	/**
+	 * Returns the average time an event waited in the queue before it was dispatched, in
+	 * nanoseconds. Returns 0 if no event was dispatched yet.
+	 */
+	double getAverageDispatchLatencyNanos();
+
+	/**
+	 * Returns the number of times the worker of an active state machine was woken up to process
+	 * queued events. Always 0 for passive state machines.
+	 */
+	long getWakeups();
+
+	/**
+	 * Returns the number of events dropped because the bounded queue of an active state machine
+	 * was full, see {@link EventQueueOverflowPolicy}.
+	 */
+	long getDroppedEvents();
+
+	/**
+	 * Returns the number of events rejected because the bounded queue of an active state machine
+	 * was full, see {@link EventQueueOverflowPolicy}.
+	 */
+	long getRejectedEvents();
+
+	/**
+	 * Returns the number of events that replaced a pending event of the same conflated type
+	 * instead of being queued. Always 0 unless events are conflated, which is also what
+	 * implementations written before conflation existed report.
+	 */
+	default long getConflatedEvents() {
+		return 0;
+	}
+}
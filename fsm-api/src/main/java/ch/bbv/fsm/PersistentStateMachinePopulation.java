@@ -0,0 +1,25 @@
+package ch.bbv.fsm;
+
+import java.io.Closeable;
+
+/**
+ * A population stored in a memory-mapped file. Each machine has a fixed-width
+ * record of its current state and history ordinals which is updated in place
+ * by every transition. Reopening the file restores all machines without
+ * running any action.
+ * 
+ * @param <TState>
+ *            the enumeration type of the states.
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public interface PersistentStateMachinePopulation<TState extends Enum<?>, TEvent extends Enum<?>>
+		extends StateMachinePopulation<TState, TEvent>, Closeable {
+
+	/**
+	 * Forces the changes of the records to the storage device. Without it, the
+	 * changes are written by the operating system in the background and
+	 * survive a crash of the VM, but not of the operating system.
+	 */
+	void force();
+}
@@ -19,6 +19,7 @@
 package ch.bbv.fsm;
 
 import ch.bbv.fsm.memento.StateMachineMemento;
+import ch.bbv.fsm.tracing.TransitionTracer;
 
 /**
  * Interface for all finite state machines.
@@ -48,6 +49,70 @@ public interface StateMachine<TState extends Enum<?>, TEvent extends Enum<?>> {
 	 */
 	void fire(TEvent eventId, Object... eventArguments);
 
+	/**
+	 * Fires the specified event with a single argument. The argument is
+	 * passed to the actions and guards without creating an array.
+	 * 
+	 * @param eventId
+	 *            the event
+	 * @param eventArgument
+	 *            the event argument
+	 */
+	void fire(TEvent eventId, Object eventArgument);
+
+	/**
+	 * Fires the specified event with a single <code>long</code> argument. The
+	 * argument is passed to {@link ch.bbv.fsm.action.FsmActionLong} actions and
+	 * {@link ch.bbv.fsm.guard.FunctionLong} guards without boxing, the other
+	 * actions and guards receive a {@link Long}.
+	 * 
+	 * @param eventId
+	 *            the event
+	 * @param eventArgument
+	 *            the event argument
+	 */
+	void fireLong(TEvent eventId, long eventArgument);
+
+	/**
+	 * Fires the specified event with a single <code>int</code> argument. The
+	 * argument is passed to {@link ch.bbv.fsm.action.FsmActionLong} actions and
+	 * {@link ch.bbv.fsm.guard.FunctionLong} guards without boxing, the other
+	 * actions and guards receive an {@link Integer}.
+	 * 
+	 * @param eventId
+	 *            the event
+	 * @param eventArgument
+	 *            the event argument
+	 */
+	void fireInt(TEvent eventId, int eventArgument);
+
+	/**
+	 * Fires the specified event unless the bounded queue of an active state
+	 * machine has no room for it. Instead of throwing, the event is handled
+	 * according to the {@link EventQueueOverflowPolicy} of the machine.
+	 *
+	 * @param eventId
+	 *            the event
+	 * @param eventArguments
+	 *            the event arguments
+	 * @return <code>false</code> if the event was rejected or dropped.
+	 */
+	boolean offer(TEvent eventId, Object... eventArguments);
+
+	/**
+	 * Fires a batch of events. The events are queued at once, no event fired
+	 * by another thread is executed between them, and they are executed in
+	 * one run. The batch may be reused as soon as this method returns.
+	 *
+	 * @param events
+	 *            the events.
+	 * @param coalesceNotifications
+	 *            <code>true</code> to notify the event handlers only of the
+	 *            transition of the last event of the batch. Thrown exceptions
+	 *            and the events fired by actions are notified in any case.
+	 */
+	void fireAll(EventBatch<TEvent> events, boolean coalesceNotifications);
+
 	/**
 	 * Fires the specified priority event. The event will be handled before any
 	 * already queued event.
@@ -71,6 +136,21 @@ public interface StateMachine<TState extends Enum<?>, TEvent extends Enum<?>> {
 	 */
 	int numberOfQueuedEvents();
 
+	/**
+	 * Returns the statistics about the queued and dispatched events.
+	 */
+	EventQueueStatistics getEventQueueStatistics();
+
+	/**
+	 * Attaches a tracer to this state machine. The tracer replaces the
+	 * previously attached one and may be changed while the state machine is
+	 * running.
+	 * 
+	 * @param tracer
+	 *            the tracer, <code>null</code> to disable tracing.
+	 */
+	void setTransitionTracer(TransitionTracer<TState, TEvent> tracer);
+
 	/**
 	 * Returns <code>true</code> if the state machine is running and all events
 	 * are processed.
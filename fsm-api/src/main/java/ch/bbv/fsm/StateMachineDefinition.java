@@ -18,6 +18,11 @@
  *******************************************************************************/
 package ch.bbv.fsm;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
 import ch.bbv.fsm.dsl.EntryActionSyntax;
 import ch.bbv.fsm.events.StateMachineEventHandler;
 import ch.bbv.fsm.model.StateMachineModel;
@@ -87,6 +92,44 @@ public interface StateMachineDefinition<TStateMachine extends StateMachine<TStat
 	void addEventHandler(
 			StateMachineEventHandler<TStateMachine, TState, TEvent> handler);
 
+	/**
+	 * Adds an event handler that is only called for the callbacks of the
+	 * interest mask. The arguments passed to the handler are a single view
+	 * reused for all callbacks of a state machine and are only valid during
+	 * the callback.
+	 * 
+	 * @param handler
+	 *            the event handler
+	 * @param interests
+	 *            the callbacks, a mask of {@link ch.bbv.fsm.events.EventInterest}
+	 */
+	void addEventHandler(
+			StateMachineEventHandler<TStateMachine, TState, TEvent> handler,
+			int interests);
+
+	/**
+	 * Adds an event handler that is only called for the callbacks of the
+	 * interest mask and for transitions from the given states on the given
+	 * events. Exceptions thrown outside of a transition are passed to the
+	 * handler regardless of the filters. The arguments passed to the handler
+	 * are a single view reused for all callbacks of a state machine and are
+	 * only valid during the callback.
+	 * 
+	 * @param handler
+	 *            the event handler
+	 * @param interests
+	 *            the callbacks, a mask of {@link ch.bbv.fsm.events.EventInterest}
+	 * @param states
+	 *            the source states of the transitions, <code>null</code> or
+	 *            empty for all states
+	 * @param events
+	 *            the events of the transitions, <code>null</code> or empty
+	 *            for all events
+	 */
+	void addEventHandler(
+			StateMachineEventHandler<TStateMachine, TState, TEvent> handler,
+			int interests, Set<TState> states, Set<TEvent> events);
+
 	/**
 	 * Removes the given event handler.
 	 * 
@@ -115,6 +158,93 @@ public interface StateMachineDefinition<TStateMachine extends StateMachine<TStat
 	 */
 	TStateMachine createActiveStateMachine(String name);
 
+	/**
+	 * Creates an active state-machine from this definition that is scheduled
+	 * on the given executor. The machine does not own a thread: it is
+	 * submitted to the executor only while it has queued events, so many
+	 * machines can share a few threads. The events of one machine are always
+	 * processed one after the other in the order they were queued.
+	 * 
+	 * @param name
+	 *            the state machine's name
+	 * @param initialState
+	 *            The state to which the state machine is initialized.
+	 * @param executor
+	 *            the executor shared by the state machines
+	 */
+	TStateMachine createActiveStateMachine(String name, TState initialState,
+			Executor executor);
+
+	/**
+	 * Creates an active state-machine from this definition with the default
+	 * initial state that is scheduled on the given executor. See
+	 * {@link #createActiveStateMachine(String, Enum, Executor)}.
+	 * 
+	 * @param name
+	 *            the state machine's name
+	 * @param executor
+	 *            the executor shared by the state machines
+	 */
+	TStateMachine createActiveStateMachine(String name, Executor executor);
+
+	/**
+	 * Creates an active state-machine from this definition whose events are
+	 * written into a ring of preallocated, recycled slots. The machine owns
+	 * its worker thread; firing an event with a single argument allocates
+	 * nothing. An event fired into the full ring is handled according to the
+	 * overflow policy of the definition, which must not be
+	 * {@link EventQueueOverflowPolicy#DROP_OLDEST}.
+	 * 
+	 * @param name
+	 *            the state machine's name
+	 * @param initialState
+	 *            The state to which the state machine is initialized.
+	 * @param capacity
+	 *            the number of slots, rounded up to the next power of two
+	 *            and at least two.
+	 */
+	TStateMachine createRingBufferStateMachine(String name,
+			TState initialState, int capacity);
+
+	/**
+	 * Creates a ring buffer state-machine from this definition with the
+	 * default initial state. See
+	 * {@link #createRingBufferStateMachine(String, Enum, int)}.
+	 * 
+	 * @param name
+	 *            the state machine's name
+	 * @param capacity
+	 *            the number of slots, rounded up to the next power of two
+	 *            and at least two.
+	 */
+	TStateMachine createRingBufferStateMachine(String name, int capacity);
+
+	/**
+	 * Creates an active state-machine from this definition whose events are
+	 * processed on virtual threads. Like the machines created with
+	 * {@link #createActiveStateMachine(String, Enum, Executor)} the machine
+	 * does not own a thread, and an action blocking on I/O does not block a
+	 * platform thread. On runtimes without virtual threads a shared pool of
+	 * platform threads is used instead.
+	 * 
+	 * @param name
+	 *            the state machine's name
+	 * @param initialState
+	 *            The state to which the state machine is initialized.
+	 */
+	TStateMachine createVirtualThreadStateMachine(String name,
+			TState initialState);
+
+	/**
+	 * Creates an active state-machine from this definition with the default
+	 * initial state whose events are processed on virtual threads. See
+	 * {@link #createVirtualThreadStateMachine(String, Enum)}.
+	 * 
+	 * @param name
+	 *            the state machine's name
+	 */
+	TStateMachine createVirtualThreadStateMachine(String name);
+
 	/**
 	 * Creates an passive state-machine from this definition.
 	 * 
@@ -134,6 +264,61 @@ public interface StateMachineDefinition<TStateMachine extends StateMachine<TStat
 	 */
 	TStateMachine createPassiveStateMachine(String name);
 
+	/**
+	 * Creates a passive flyweight state-machine from this frozen definition.
+	 * A flyweight keeps only its current state, the history of its super
+	 * states and its queued events; the states, transitions, event handlers
+	 * and tracer are shared with all other flyweights of the definition, and
+	 * so is the name used in the logs. Flyweights neither support their own
+	 * tracer nor record event queue statistics.
+	 * 
+	 * @param initialState
+	 *            The state to which the state machine is initialized.
+	 * @throws IllegalStateException
+	 *             if the definition is not frozen.
+	 */
+	TStateMachine createFlyweightStateMachine(TState initialState);
+
+	/**
+	 * Creates a passive flyweight state-machine from this frozen definition
+	 * with the default initial state, see
+	 * {@link #createFlyweightStateMachine(Enum)}.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the definition is not frozen.
+	 */
+	TStateMachine createFlyweightStateMachine();
+
+	/**
+	 * Creates an empty population of passive state-machines from this frozen
+	 * definition. The machines of the population start in the default initial
+	 * state and keep their current state and history in <code>int[]</code>
+	 * columns.
+	 * 
+	 * @param initialCapacity
+	 *            the number of machines the columns are allocated for, they
+	 *            grow when more machines are created.
+	 * @throws IllegalStateException
+	 *             if the definition is not frozen.
+	 */
+	StateMachinePopulation<TState, TEvent> createPopulation(int initialCapacity);
+
+	/**
+	 * Opens the population of this frozen definition stored in a
+	 * memory-mapped file, or creates the file if it doesn't exist. The
+	 * machines of the file keep their states without running any action.
+	 * 
+	 * @param file
+	 *            the file of the population.
+	 * @throws IOException
+	 *             if the file can't be opened or mapped.
+	 * @throws IllegalStateException
+	 *             if the definition is not frozen or the file was written for
+	 *             another definition.
+	 */
+	PersistentStateMachinePopulation<TState, TEvent> openPopulation(Path file)
+			throws IOException;
+
 	/**
 	 * Traverses the StateMachine Model.
 	 * 
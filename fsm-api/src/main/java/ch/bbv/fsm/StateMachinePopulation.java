@@ -0,0 +1,71 @@
+package ch.bbv.fsm;
+
+/**
+ * A population of passive state machines of one definition, identified by
+ * consecutive ids starting at 0. The current state and the history of each
+ * machine are stored as state ordinals in columns indexed by the id instead
+ * of one object graph per machine. Events are executed on the firing thread.
+ * 
+ * <p>
+ * The actions of the definition receive a state machine shared by the whole
+ * population. Its current state and the events fired on it refer to the
+ * machine whose event is being executed, see {@link #getCurrentMachine()}.
+ * 
+ * @param <TState>
+ *            the enumeration type of the states.
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public interface StateMachinePopulation<TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	/**
+	 * Returns the number of machines in this population.
+	 */
+	int size();
+
+	/**
+	 * Adds a machine and enters the initial state of the definition.
+	 * 
+	 * @return the id of the new machine.
+	 */
+	int create();
+
+	/**
+	 * Fires an event on a machine. Events fired while another event is
+	 * executed are queued and executed afterwards.
+	 * 
+	 * @param machine
+	 *            the id of the machine.
+	 * @param eventId
+	 *            the event.
+	 * @param eventArguments
+	 *            the event arguments.
+	 * @throws IllegalStateException
+	 *             if the machine is terminated.
+	 */
+	void fire(int machine, TEvent eventId, Object... eventArguments);
+
+	/**
+	 * Returns the current state of a machine.
+	 * 
+	 * @param machine
+	 *            the id of the machine.
+	 * @return the current state, <code>null</code> if the machine is
+	 *         terminated.
+	 */
+	TState getCurrentState(int machine);
+
+	/**
+	 * Exits all active states of a machine. Its id is not reused.
+	 * 
+	 * @param machine
+	 *            the id of the machine.
+	 */
+	void terminate(int machine);
+
+	/**
+	 * Returns the id of the machine whose event or state change is being
+	 * executed, -1 outside of an execution.
+	 */
+	int getCurrentMachine();
+}
@@ -0,0 +1,26 @@
+package ch.bbv.fsm.action;
+
+import ch.bbv.fsm.StateMachine;
+
+/**
+ * A functional interface that can execute actions with a <code>long</code>
+ * parameter. Events fired with a single <code>long</code> argument are passed
+ * to it without boxing.
+ *
+ * @param <TStateMachine>
+ * @param <TState>
+ * @param <TEvent>
+ */
+@FunctionalInterface
+public interface FsmActionLong<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	/**
+	 * The functional interface method.
+	 * 
+	 * @param fsm
+	 *            The instance of the FSM on which the method will be called.
+	 * @param p1
+	 *            The argument of the event.
+	 */
+	void exec(TStateMachine fsm, long p1);
+}
@@ -19,6 +19,7 @@ import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.action.FsmAction0;
 import ch.bbv.fsm.action.FsmAction1;
 import ch.bbv.fsm.action.FsmAction2;
+import ch.bbv.fsm.action.FsmActionLong;
 
 /**
  * Possibilities to execute an action.
@@ -64,4 +65,15 @@ public interface ExecuteSyntax<TStateMachine extends StateMachine<TState, TEvent
 	<T1, T2> ExecuteSyntax<TStateMachine, TState, TEvent> execute(
 			FsmAction2<TStateMachine, TState, TEvent, T1, T2> action);
 
+
+	/**
+	 * Defines an action to execute on a transition that receives the event
+	 * argument as a <code>long</code>.
+	 * 
+	 * @param action
+	 *            the action.
+	 * @return Execute syntax.
+	 */
+	ExecuteSyntax<TStateMachine, TState, TEvent> executeLong(
+			FsmActionLong<TStateMachine, TState, TEvent> action);
 }
@@ -20,6 +20,7 @@ package ch.bbv.fsm.dsl;
 
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.guard.Function;
+import ch.bbv.fsm.guard.FunctionLong;
 
 /**
  * Guard a transition.
@@ -44,4 +45,28 @@ public interface GuardSyntax<TStateMachine extends StateMachine<TState, TEvent>,
 	 */
 	EventSyntax<TStateMachine, TState, TEvent> onlyIf(
 			Function<TStateMachine, TState, TEvent, Object[], Boolean> guard);
+
+	/**
+	 * Defines a guard for a transition that receives the single argument of
+	 * the event.
+	 * 
+	 * @param <T>
+	 *            the type of the argument.
+	 * @param guard
+	 *            the guard.
+	 * @return Event syntax.
+	 */
+	<T> EventSyntax<TStateMachine, TState, TEvent> onlyIfArgument(
+			Function<TStateMachine, TState, TEvent, T, Boolean> guard);
+
+	/**
+	 * Defines a guard for a transition that receives the argument of the
+	 * event as a <code>long</code>.
+	 * 
+	 * @param guard
+	 *            the guard.
+	 * @return Event syntax.
+	 */
+	EventSyntax<TStateMachine, TState, TEvent> onlyIfLong(
+			FunctionLong<TStateMachine, TState, TEvent, Boolean> guard);
 }
@@ -0,0 +1,37 @@
+package ch.bbv.fsm.events;
+
+/**
+ * The callbacks of a {@link StateMachineEventHandler} a handler is registered
+ * for, combined into a mask with <code>|</code>.
+ */
+public final class EventInterest {
+
+	/**
+	 * {@link StateMachineEventHandler#onTransitionBegin(TransitionEventArgs)}.
+	 */
+	public static final int BEGIN = 1;
+
+	/**
+	 * {@link StateMachineEventHandler#onTransitionCompleted(TransitionCompletedEventArgs)}.
+	 */
+	public static final int COMPLETED = 1 << 1;
+
+	/**
+	 * {@link StateMachineEventHandler#onTransitionDeclined(TransitionEventArgs)}.
+	 */
+	public static final int DECLINED = 1 << 2;
+
+	/**
+	 * {@link StateMachineEventHandler#onExceptionThrown(ExceptionEventArgs)} and
+	 * {@link StateMachineEventHandler#onTransitionThrowsException(TransitionExceptionEventArgs)}.
+	 */
+	public static final int EXCEPTION = 1 << 3;
+
+	/**
+	 * All callbacks.
+	 */
+	public static final int ALL = BEGIN | COMPLETED | DECLINED | EXCEPTION;
+
+	private EventInterest() {
+	}
+}
@@ -0,0 +1,90 @@
+package ch.bbv.fsm.flow;
+
+import ch.bbv.fsm.StateMachine;
+
+/**
+ * A completed transition of a state machine, the item published to the subscribers of its
+ * transitions. Unlike the arguments passed to the event handlers, it may be kept.
+ *
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the enumeration type of the states.
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public final class CompletedTransition<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	private final TStateMachine stateMachine;
+
+	private final TState stateId;
+
+	private final TEvent eventId;
+
+	private final Object[] eventArguments;
+
+	private final TState newStateId;
+
+	/**
+	 * Creates a completed transition.
+	 *
+	 * @param stateMachine
+	 *            the state machine.
+	 * @param stateId
+	 *            the state the event was fired in.
+	 * @param eventId
+	 *            the event.
+	 * @param eventArguments
+	 *            the event arguments.
+	 * @param newStateId
+	 *            the new current state.
+	 */
+	public CompletedTransition(final TStateMachine stateMachine, final TState stateId, final TEvent eventId,
+			final Object[] eventArguments, final TState newStateId) {
+		this.stateMachine = stateMachine;
+		this.stateId = stateId;
+		this.eventId = eventId;
+		this.eventArguments = eventArguments;
+		this.newStateId = newStateId;
+	}
+
+	/**
+	 * Returns the state machine.
+	 */
+	public TStateMachine getStateMachine() {
+		return stateMachine;
+	}
+
+	/**
+	 * Returns the state the event was fired in.
+	 */
+	public TState getStateId() {
+		return stateId;
+	}
+
+	/**
+	 * Returns the event.
+	 */
+	public TEvent getEventId() {
+		return eventId;
+	}
+
+	/**
+	 * Returns the event arguments.
+	 */
+	public Object[] getEventArguments() {
+		return eventArguments;
+	}
+
+	/**
+	 * Returns the new current state.
+	 */
+	public TState getNewStateId() {
+		return newStateId;
+	}
+
+	@Override
+	public String toString() {
+		return stateId + " -" + eventId + "-> " + newStateId;
+	}
+}
@@ -0,0 +1,53 @@
+package ch.bbv.fsm.flow;
+
+import java.util.Arrays;
+
+/**
+ * An event with its arguments, the item a state machine subscribes to.
+ *
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public final class FiredEvent<TEvent extends Enum<?>> {
+
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private final TEvent eventId;
+
+	private final Object[] eventArguments;
+
+	/**
+	 * Creates an event.
+	 *
+	 * @param eventId
+	 *            the event.
+	 * @param eventArguments
+	 *            the event arguments.
+	 */
+	public FiredEvent(final TEvent eventId, final Object... eventArguments) {
+		if (eventId == null) {
+			throw new IllegalArgumentException("eventId must not be null.");
+		}
+		this.eventId = eventId;
+		this.eventArguments = eventArguments == null ? NO_ARGUMENTS : eventArguments;
+	}
+
+	/**
+	 * Returns the event.
+	 */
+	public TEvent getEventId() {
+		return eventId;
+	}
+
+	/**
+	 * Returns the event arguments.
+	 */
+	public Object[] getEventArguments() {
+		return eventArguments;
+	}
+
+	@Override
+	public String toString() {
+		return eventArguments.length == 0 ? eventId.toString() : eventId + Arrays.toString(eventArguments);
+	}
+}
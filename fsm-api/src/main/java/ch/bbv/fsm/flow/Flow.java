@@ -0,0 +1,88 @@
+package ch.bbv.fsm.flow;
+
+/**
+ * The interfaces of the Reactive Streams protocol, with the same methods and rules as
+ * <code>java.util.concurrent.Flow</code> and <code>org.reactivestreams</code>, which are not
+ * available on every supported runtime. Bridging them to either takes one delegating method per
+ * callback.
+ */
+public final class Flow {
+
+	private Flow() {
+	}
+
+	/**
+	 * A producer of items that are received by its subscribers as they demand them.
+	 *
+	 * @param <T>
+	 *            the type of the items.
+	 */
+	public interface Publisher<T> {
+
+		/**
+		 * Adds a subscriber, which is passed its subscription with
+		 * {@link Subscriber#onSubscribe(Subscription)}.
+		 *
+		 * @param subscriber
+		 *            the subscriber.
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * A receiver of items. The callbacks of a subscription are never called concurrently.
+	 *
+	 * @param <T>
+	 *            the type of the items.
+	 */
+	public interface Subscriber<T> {
+
+		/**
+		 * Called once before any other callback.
+		 *
+		 * @param subscription
+		 *            the subscription to request items with.
+		 */
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * Called with the next item, never more often than requested.
+		 *
+		 * @param item
+		 *            the item.
+		 */
+		void onNext(T item);
+
+		/**
+		 * Called when the publisher failed, no other callback follows.
+		 *
+		 * @param throwable
+		 *            the failure.
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * Called when the publisher has no more items, no other callback follows.
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * The link between a publisher and one of its subscribers.
+	 */
+	public interface Subscription {
+
+		/**
+		 * Adds to the number of items the subscriber is ready to receive.
+		 *
+		 * @param n
+		 *            the number of items, must be positive.
+		 */
+		void request(long n);
+
+		/**
+		 * Stops the delivery of items to the subscriber.
+		 */
+		void cancel();
+	}
+}
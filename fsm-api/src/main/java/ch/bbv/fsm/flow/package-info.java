@@ -0,0 +1,4 @@
+/**
+ * Demand-driven intake and output of state machines after the Reactive Streams protocol.
+ */
+package ch.bbv.fsm.flow;
@@ -0,0 +1,32 @@
+package ch.bbv.fsm.guard;
+
+import ch.bbv.fsm.StateMachine;
+
+/**
+ * Defines a function with a <code>long</code> parameter. Events fired with a
+ * single <code>long</code> argument are passed to it without boxing.
+ * 
+ * @param <ReturnType>
+ *            return type
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the state enumeration
+ * @param <TEvent>
+ *            the event enumeration
+ */
+@FunctionalInterface
+public interface FunctionLong<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>, ReturnType> {
+
+	/**
+	 * Executes the function.
+	 * 
+	 * @param stateMachine
+	 *            the calling state machine
+	 * @param parameter
+	 *            the parameter of the function.
+	 * @return the return value of the function.
+	 */
+	ReturnType execute(TStateMachine stateMachine, long parameter);
+
+}
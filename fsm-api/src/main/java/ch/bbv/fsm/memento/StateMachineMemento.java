@@ -17,6 +17,12 @@ public class StateMachineMemento<TState extends Enum<?>, TEvent extends Enum<?>>
 
 	private Map<TState, TState> savedHistoryStates = new HashMap<>();
 
+	/**
+	 * The history states indexed by the ordinal of the super state,
+	 * <code>null</code> while they are kept in {@link #savedHistoryStates}.
+	 */
+	private TState[] historyStates;
+
 	/**
 	 * Returns the state machine's current state.
 	 */
@@ -35,12 +41,32 @@ public class StateMachineMemento<TState extends Enum<?>, TEvent extends Enum<?>>
 	}
 
 	/**
-	 * Returns the stored history states.
+	 * Returns the stored history states. History states stored as an array
+	 * are moved to the map.
 	 */
 	public Map<TState, TState> getSavedHistoryStates() {
+		if (savedHistoryStates == null) {
+			savedHistoryStates = new HashMap<>();
+			if (historyStates != null) {
+				final Object[] stateIds = historyStates.getClass()
+						.getComponentType().getEnumConstants();
+				for (int ordinal = 0; ordinal < historyStates.length; ordinal++) {
+					if (historyStates[ordinal] != null) {
+						savedHistoryStates.put(stateId(stateIds[ordinal]),
+								historyStates[ordinal]);
+					}
+				}
+			}
+			historyStates = null;
+		}
 		return savedHistoryStates;
 	}
 
+	@SuppressWarnings("unchecked")
+	private TState stateId(final Object stateId) {
+		return (TState) stateId;
+	}
+
 	/**
 	 * Sets the stored history states.
 	 * 
@@ -50,6 +76,29 @@ public class StateMachineMemento<TState extends Enum<?>, TEvent extends Enum<?>>
 	public void setSavedHistoryStates(
 			final Map<TState, TState> savedHistoryStates) {
 		this.savedHistoryStates = savedHistoryStates;
+		this.historyStates = null;
+	}
+
+	/**
+	 * Returns the stored history states indexed by the ordinal of the super
+	 * state, <code>null</code> if they are stored as a map. State machines
+	 * passivate into and activate from the array without building map
+	 * entries.
+	 */
+	public TState[] getHistoryStates() {
+		return historyStates;
+	}
+
+	/**
+	 * Sets the stored history states, replacing the map.
+	 * 
+	 * @param historyStates
+	 *            the last active sub state of each super state, indexed by
+	 *            the ordinal of the super state.
+	 */
+	public void setHistoryStates(final TState[] historyStates) {
+		this.historyStates = historyStates;
+		this.savedHistoryStates = null;
 	}
 
 	/**
@@ -61,6 +110,6 @@ public class StateMachineMemento<TState extends Enum<?>, TEvent extends Enum<?>>
 	 *            the last used child
 	 */
 	public void putHistoryState(final TState parent, final TState child) {
-		savedHistoryStates.put(parent, child);
+		getSavedHistoryStates().put(parent, child);
 	}
 }
@@ -0,0 +1,48 @@
+package ch.bbv.fsm.table;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the states and transitions of a state machine definition so they
+ * can be compiled at build time. The annotation processor of the
+ * fsm-processor module generates a {@link StateMachineTable} named
+ * <code>&lt;Definition&gt;Table</code> next to the annotated definition, with
+ * a static <code>INSTANCE</code> that is passed to the table constructor of
+ * <code>AbstractStateMachineDefinition</code>.
+ * <p>
+ * States and events are given by the names of their enum constants; actions
+ * and guards by the names of methods of the state machine type. Actions take
+ * no parameter, guards return a boolean and take either no parameter or the
+ * <code>Object[]</code> event arguments.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface DefinitionTable {
+
+	/**
+	 * The hierarchies of the definition.
+	 * 
+	 * @return the hierarchies.
+	 */
+	Hierarchy[] hierarchies() default {};
+
+	/**
+	 * The entry and exit actions of the states.
+	 * 
+	 * @return the state actions.
+	 */
+	StateActions[] states() default {};
+
+	/**
+	 * The transitions of the definition, guarded transitions of the same
+	 * source and event are evaluated in declaration order.
+	 * 
+	 * @return the transitions.
+	 */
+	Transition[] transitions() default {};
+}
@@ -0,0 +1,46 @@
+package ch.bbv.fsm.table;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import ch.bbv.fsm.HistoryType;
+
+/**
+ * A super state and its sub states, the annotated form of
+ * <code>defineHierarchyOn</code>.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Hierarchy {
+
+	/**
+	 * The super state.
+	 * 
+	 * @return the name of the super state.
+	 */
+	String superState();
+
+	/**
+	 * The sub state entered when the super state is entered without history.
+	 * 
+	 * @return the name of the initial sub state.
+	 */
+	String initialSubState();
+
+	/**
+	 * The history behavior of the super state.
+	 * 
+	 * @return the history type.
+	 */
+	HistoryType history() default HistoryType.NONE;
+
+	/**
+	 * The sub states.
+	 * 
+	 * @return the names of the sub states.
+	 */
+	String[] subStates();
+}
@@ -0,0 +1,36 @@
+package ch.bbv.fsm.table;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The entry and exit actions of a state.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface StateActions {
+
+	/**
+	 * The state.
+	 * 
+	 * @return the name of the state.
+	 */
+	String state();
+
+	/**
+	 * The action executed when the state is entered.
+	 * 
+	 * @return the method name of the action, empty for none.
+	 */
+	String entry() default "";
+
+	/**
+	 * The action executed when the state is left.
+	 * 
+	 * @return the method name of the action, empty for none.
+	 */
+	String exit() default "";
+}
@@ -0,0 +1,119 @@
+package ch.bbv.fsm.table;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.action.FsmAction0;
+import ch.bbv.fsm.guard.Function;
+
+/**
+ * A state machine definition precomputed into flat arrays. Implementations are
+ * generated from classes annotated with {@link DefinitionTable}; states and
+ * events are referenced by their ordinal. The arrays are shared and must not
+ * be modified.
+ * 
+ * @param <TStateMachine>
+ *            the type of the state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public interface StateMachineTable<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	/**
+	 * Marks the absence of a state in the state arrays.
+	 */
+	int NO_STATE = -1;
+
+	/**
+	 * Returns the enumeration of the states.
+	 * 
+	 * @return the type of the states.
+	 */
+	Class<TState> getStateType();
+
+	/**
+	 * Returns the enumeration of the events.
+	 * 
+	 * @return the type of the events.
+	 */
+	Class<TEvent> getEventType();
+
+	/**
+	 * Returns the super state of each state.
+	 * 
+	 * @return the ordinal of the super state indexed by state,
+	 *         {@link #NO_STATE} for top level states.
+	 */
+	int[] getSuperStates();
+
+	/**
+	 * Returns the initial sub state of each state.
+	 * 
+	 * @return the ordinal of the initial sub state indexed by state,
+	 *         {@link #NO_STATE} for states without sub states.
+	 */
+	int[] getInitialSubStates();
+
+	/**
+	 * Returns the history type of each state.
+	 * 
+	 * @return the history type indexed by state.
+	 */
+	HistoryType[] getHistoryTypes();
+
+	/**
+	 * Returns the entry action of each state.
+	 * 
+	 * @return the entry action indexed by state, <code>null</code> if the
+	 *         state has none.
+	 */
+	FsmAction0<TStateMachine, TState, TEvent>[] getEntryActions();
+
+	/**
+	 * Returns the exit action of each state.
+	 * 
+	 * @return the exit action indexed by state, <code>null</code> if the
+	 *         state has none.
+	 */
+	FsmAction0<TStateMachine, TState, TEvent>[] getExitActions();
+
+	/**
+	 * Returns the source state of each transition. Transitions of the same
+	 * source and event are listed in the order their guards are evaluated.
+	 * 
+	 * @return the ordinal of the source state indexed by transition.
+	 */
+	int[] getTransitionSources();
+
+	/**
+	 * Returns the triggering event of each transition.
+	 * 
+	 * @return the ordinal of the event indexed by transition.
+	 */
+	int[] getTransitionEvents();
+
+	/**
+	 * Returns the target state of each transition.
+	 * 
+	 * @return the ordinal of the target state indexed by transition,
+	 *         {@link #NO_STATE} for internal transitions.
+	 */
+	int[] getTransitionTargets();
+
+	/**
+	 * Returns the guard of each transition.
+	 * 
+	 * @return the guard indexed by transition, <code>null</code> if the
+	 *         transition is unguarded.
+	 */
+	Function<TStateMachine, TState, TEvent, Object[], Boolean>[] getTransitionGuards();
+
+	/**
+	 * Returns the actions of each transition.
+	 * 
+	 * @return the actions indexed by transition, empty if the transition has
+	 *         none.
+	 */
+	FsmAction0<TStateMachine, TState, TEvent>[][] getTransitionActions();
+}
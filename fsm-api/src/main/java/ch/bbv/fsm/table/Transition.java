@@ -0,0 +1,51 @@
+package ch.bbv.fsm.table;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A transition, the annotated form of
+ * <code>in(source).on(event).goTo(target).execute(actions).onlyIf(guard)</code>.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Transition {
+
+	/**
+	 * The source state.
+	 * 
+	 * @return the name of the source state.
+	 */
+	String source();
+
+	/**
+	 * The triggering event.
+	 * 
+	 * @return the name of the event.
+	 */
+	String event();
+
+	/**
+	 * The target state.
+	 * 
+	 * @return the name of the target state, empty for an internal transition.
+	 */
+	String target() default "";
+
+	/**
+	 * The guard of the transition.
+	 * 
+	 * @return the method name of the guard, empty if unguarded.
+	 */
+	String guard() default "";
+
+	/**
+	 * The actions executed by the transition.
+	 * 
+	 * @return the method names of the actions.
+	 */
+	String[] actions() default {};
+}
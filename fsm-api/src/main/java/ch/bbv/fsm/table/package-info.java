@@ -0,0 +1,4 @@
+/**
+ * Definitions declared with annotations and compiled into static tables at build time.
+ */
+package ch.bbv.fsm.table;
@@ -0,0 +1,70 @@
+package ch.bbv.fsm.tracing;
+
+/**
+ * Traces the work of a state machine. A tracer is called synchronously on the
+ * thread processing the events, so implementations should return quickly and
+ * must not fire events on the state machine.
+ * 
+ * @param <TState>
+ *            the type of the states.
+ * @param <TEvent>
+ *            the type of the events.
+ */
+public interface TransitionTracer<TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	/**
+	 * Occurs when an event is fired on the state machine.
+	 * 
+	 * @param stateMachineName
+	 *            the name of the state machine.
+	 * @param currentState
+	 *            the current state.
+	 * @param eventId
+	 *            the event.
+	 * @param eventArguments
+	 *            the event arguments.
+	 */
+	void onEventFired(String stateMachineName, TState currentState, TEvent eventId, Object[] eventArguments);
+
+	/**
+	 * Occurs when a state is exited.
+	 * 
+	 * @param stateMachineName
+	 *            the name of the state machine.
+	 * @param state
+	 *            the exited state.
+	 */
+	void onStateExited(String stateMachineName, TState state);
+
+	/**
+	 * Occurs when a state is entered.
+	 * 
+	 * @param stateMachineName
+	 *            the name of the state machine.
+	 * @param state
+	 *            the entered state.
+	 */
+	void onStateEntered(String stateMachineName, TState state);
+
+	/**
+	 * Occurs when the state machine switched to a new current state.
+	 * 
+	 * @param stateMachineName
+	 *            the name of the state machine.
+	 * @param newState
+	 *            the new current state.
+	 */
+	void onStateSwitched(String stateMachineName, TState newState);
+
+	/**
+	 * Occurs when no transition of the current state accepted the event.
+	 * 
+	 * @param stateMachineName
+	 *            the name of the state machine.
+	 * @param currentState
+	 *            the current state.
+	 * @param eventId
+	 *            the declined event.
+	 */
+	void onTransitionDeclined(String stateMachineName, TState currentState, TEvent eventId);
+}
@@ -0,0 +1,4 @@
+/**
+ * Tracing of the transitions performed by the state machine.
+ */
+package ch.bbv.fsm.tracing;
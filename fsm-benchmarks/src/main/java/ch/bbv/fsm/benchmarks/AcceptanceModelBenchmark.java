@@ -0,0 +1,147 @@
+package ch.bbv.fsm.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.bbv.fsm.acceptance.elevator.ElevatorStateMachine;
+import ch.bbv.fsm.acceptance.elevator.ElevatorStateMachineDefinition;
+import ch.bbv.fsm.acceptance.radio.RadioStateMachine;
+import ch.bbv.fsm.acceptance.radio.RadioStateMachineDefinion;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachine;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachineDefinition;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachineDefinition.Events;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachineDefinition.States;
+
+/**
+ * Runs the elevator, radio and tennis acceptance models as realistic
+ * workloads, interpreted and compiled. Each benchmark fires the scenario of
+ * the corresponding acceptance test.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AcceptanceModelBenchmark {
+
+	@Param({ "false", "true" })
+	private boolean compiled;
+
+	private PrintStream out;
+
+	private ElevatorStateMachine elevator;
+
+	private RadioStateMachine radio;
+
+	private TennisStateMachineDefinition tennis;
+
+	/**
+	 * Creates and starts the state machines. The output of the elevator
+	 * actions is discarded.
+	 */
+	@Setup
+	public void setUp() {
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(final int b) {
+				// discarded
+			}
+		}));
+
+		final ElevatorStateMachineDefinition elevatorDefinition = new ElevatorStateMachineDefinition();
+		final RadioStateMachineDefinion radioDefinition = new RadioStateMachineDefinion();
+		tennis = new TennisStateMachineDefinition();
+		if (compiled) {
+			elevatorDefinition.compile();
+			radioDefinition.compile();
+			tennis.compile();
+		}
+
+		elevator = elevatorDefinition.createPassiveStateMachine("elevator", ElevatorStateMachineDefinition.State.OnFloor);
+		elevator.start();
+
+		radio = radioDefinition.createPassiveStateMachine("radio");
+		radio.start();
+	}
+
+	/**
+	 * Terminates the state machines and restores the output.
+	 */
+	@TearDown
+	public void tearDown() {
+		elevator.terminate();
+		radio.terminate();
+		System.setOut(out);
+	}
+
+	/**
+	 * Resets the elevator after an error, opens and closes the door and
+	 * moves up one floor.
+	 *
+	 * @return the current state
+	 */
+	@Benchmark
+	public ElevatorStateMachineDefinition.State elevator() {
+		elevator.fire(ElevatorStateMachineDefinition.Event.ErrorOccured);
+		elevator.fire(ElevatorStateMachineDefinition.Event.Reset);
+		elevator.fire(ElevatorStateMachineDefinition.Event.OpenDoor);
+		elevator.fire(ElevatorStateMachineDefinition.Event.CloseDoor);
+		elevator.fire(ElevatorStateMachineDefinition.Event.GoUp);
+		elevator.fire(ElevatorStateMachineDefinition.Event.Stop);
+		return elevator.getCurrentState();
+	}
+
+	/**
+	 * Switches the radio on, tunes an AM station, switches back to FM and
+	 * off again.
+	 *
+	 * @return the log of the actions
+	 */
+	@Benchmark
+	public String radio() {
+		radio.fire(RadioStateMachineDefinion.Event.TogglePower);
+		radio.fire(RadioStateMachineDefinion.Event.ToggleMode);
+		radio.fire(RadioStateMachineDefinion.Event.StationLost);
+		radio.fire(RadioStateMachineDefinion.Event.StationFound);
+		radio.fire(RadioStateMachineDefinion.Event.ToggleMode);
+		radio.fire(RadioStateMachineDefinion.Event.TogglePower);
+		return radio.consumeLog();
+	}
+
+	/**
+	 * Plays a game over deuce and advantage on a new scorer.
+	 *
+	 * @return the final score
+	 */
+	@Benchmark
+	public States tennis() {
+		final TennisStateMachine scorer = tennis.createPassiveStateMachine("tennis");
+		scorer.start();
+		for (int i = 0; i < 3; i++) {
+			scorer.fire(Events.A_Scores);
+			scorer.fire(Events.B_Scores);
+		}
+		scorer.fire(Events.A_Scores);
+		scorer.fire(Events.B_Scores);
+		scorer.fire(Events.A_Scores);
+		scorer.fire(Events.A_Scores);
+		scorer.terminate();
+		return scorer.getState();
+	}
+}
@@ -0,0 +1,124 @@
+package ch.bbv.fsm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.bbv.fsm.impl.SimpleStateMachine;
+import ch.bbv.fsm.impl.SimpleStateMachineDefinition;
+
+/**
+ * Compares the passive and the active driver. The throughput benchmark fires a
+ * batch of events and waits until the state machine is idle, the latency
+ * benchmark measures the time from firing a single event until it is
+ * processed.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DriverBenchmark {
+
+	/**
+	 * The states.
+	 */
+	public enum States {
+		A, B
+	}
+
+	/**
+	 * The events.
+	 */
+	public enum Events {
+		Toggle
+	}
+
+	/**
+	 * The driver of the state machine.
+	 */
+	public enum Driver {
+		PASSIVE, ACTIVE
+	}
+
+	private static final int BATCH = 1000;
+
+	@Param({ "PASSIVE", "ACTIVE" })
+	private Driver driver;
+
+	private SimpleStateMachine<States, Events> stateMachine;
+
+	/**
+	 * Creates and starts the state machine.
+	 */
+	@Setup
+	public void setUp() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"DriverBenchmark", States.A);
+		definition.in(States.A).on(Events.Toggle).goTo(States.B);
+		definition.in(States.B).on(Events.Toggle).goTo(States.A);
+
+		if (driver == Driver.ACTIVE) {
+			stateMachine = definition.createActiveStateMachine("DriverBenchmark");
+		} else {
+			stateMachine = definition.createPassiveStateMachine("DriverBenchmark");
+		}
+		stateMachine.start();
+	}
+
+	/**
+	 * Terminates the state machine.
+	 */
+	@TearDown
+	public void tearDown() {
+		stateMachine.terminate();
+	}
+
+	/**
+	 * Fires a batch of events and waits until all of them are processed.
+	 *
+	 * @return the current state
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@OperationsPerInvocation(BATCH)
+	public States fireThroughput() {
+		for (int i = 0; i < BATCH; i++) {
+			stateMachine.fire(Events.Toggle);
+		}
+		awaitIdle();
+		return stateMachine.getCurrentState();
+	}
+
+	/**
+	 * Fires a single event and waits until it is processed.
+	 *
+	 * @return the current state
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public States fireLatency() {
+		stateMachine.fire(Events.Toggle);
+		awaitIdle();
+		return stateMachine.getCurrentState();
+	}
+
+	private void awaitIdle() {
+		while (!stateMachine.isIdle()) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package ch.bbv.fsm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.events.TransitionEventArgs;
+import ch.bbv.fsm.impl.SimpleStateMachine;
+import ch.bbv.fsm.impl.SimpleStateMachineDefinition;
+
+/**
+ * Measures the cost of notifying registered event handlers about the
+ * transitions.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventHandlerBenchmark {
+
+	/**
+	 * The states.
+	 */
+	public enum States {
+		A, B
+	}
+
+	/**
+	 * The events.
+	 */
+	public enum Events {
+		Toggle
+	}
+
+	/**
+	 * Counts the notifications.
+	 */
+	private final class CountingHandler extends
+			StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events> {
+
+		@Override
+		public void onTransitionBegin(final TransitionEventArgs<SimpleStateMachine<States, Events>, States, Events> args) {
+			notifications++;
+		}
+
+		@Override
+		public void onTransitionCompleted(
+				final TransitionCompletedEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+			notifications++;
+		}
+	}
+
+	@Param({ "0", "1", "2", "5", "10" })
+	private int handlers;
+
+	private long notifications;
+
+	private SimpleStateMachine<States, Events> stateMachine;
+
+	/**
+	 * Creates and starts the state machine with the handlers registered.
+	 */
+	@Setup
+	public void setUp() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"EventHandlerBenchmark", States.A);
+		definition.in(States.A).on(Events.Toggle).goTo(States.B);
+		definition.in(States.B).on(Events.Toggle).goTo(States.A);
+		for (int i = 0; i < handlers; i++) {
+			definition.addEventHandler(new CountingHandler());
+		}
+
+		stateMachine = definition.createPassiveStateMachine("EventHandlerBenchmark");
+		stateMachine.start();
+	}
+
+	/**
+	 * Terminates the state machine.
+	 */
+	@TearDown
+	public void tearDown() {
+		stateMachine.terminate();
+	}
+
+	/**
+	 * Fires an event and notifies all handlers.
+	 *
+	 * @return the number of notifications
+	 */
+	@Benchmark
+	public long fire() {
+		stateMachine.fire(Events.Toggle);
+		return notifications;
+	}
+}
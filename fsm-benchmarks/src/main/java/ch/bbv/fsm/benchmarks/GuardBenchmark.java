@@ -0,0 +1,99 @@
+package ch.bbv.fsm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.bbv.fsm.impl.SimpleStateMachine;
+import ch.bbv.fsm.impl.SimpleStateMachineDefinition;
+
+/**
+ * Measures guard-heavy states. The state defines a number of candidate
+ * transitions for the same event, only the guard of the last one accepts the
+ * event, so all guards are evaluated on every fire.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GuardBenchmark {
+
+	/**
+	 * The states.
+	 */
+	public enum States {
+		A
+	}
+
+	/**
+	 * The events.
+	 */
+	public enum Events {
+		Check
+	}
+
+	@Param({ "1", "5", "10", "25", "50" })
+	private int candidates;
+
+	@Param({ "false", "true" })
+	private boolean compiled;
+
+	private int accepted;
+
+	private long executed;
+
+	private SimpleStateMachine<States, Events> stateMachine;
+
+	/**
+	 * Creates and starts the state machine.
+	 */
+	@Setup
+	public void setUp() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"GuardBenchmark", States.A);
+		for (int i = 0; i < candidates; i++) {
+			final int candidate = i;
+			definition.in(States.A).on(Events.Check).execute(sm -> executed++)
+					.onlyIf((sm, arguments) -> candidate == accepted);
+		}
+		accepted = candidates - 1;
+		if (compiled) {
+			definition.compile();
+		}
+
+		stateMachine = definition.createPassiveStateMachine("GuardBenchmark");
+		stateMachine.start();
+	}
+
+	/**
+	 * Terminates the state machine.
+	 */
+	@TearDown
+	public void tearDown() {
+		stateMachine.terminate();
+	}
+
+	/**
+	 * Fires the event, the last candidate transition is taken.
+	 *
+	 * @return the number of executed transitions
+	 */
+	@Benchmark
+	public long fire() {
+		stateMachine.fire(Events.Check);
+		return executed;
+	}
+}
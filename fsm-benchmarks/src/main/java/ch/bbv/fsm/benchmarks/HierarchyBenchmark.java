@@ -0,0 +1,115 @@
+package ch.bbv.fsm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.impl.SimpleStateMachine;
+import ch.bbv.fsm.impl.SimpleStateMachineDefinition;
+
+/**
+ * Measures transitions in nested hierarchies. The super states
+ * <code>L1</code> to <code>Ln</code> are nested into each other, the
+ * innermost one contains the leaf states <code>A</code> and <code>B</code>.
+ * Leaving <code>L1</code> exits the whole hierarchy, entering it again
+ * restores the leaf state by history.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HierarchyBenchmark {
+
+	/**
+	 * The states.
+	 */
+	public enum States {
+		Outside, L1, L2, L3, L4, L5, L6, L7, L8, L9, L10, A, B
+	}
+
+	/**
+	 * The events.
+	 */
+	public enum Events {
+		Toggle, Leave, Enter
+	}
+
+	@Param({ "1", "2", "4", "6", "8", "10" })
+	private int depth;
+
+	@Param({ "SHALLOW", "DEEP" })
+	private HistoryType history;
+
+	private SimpleStateMachine<States, Events> stateMachine;
+
+	/**
+	 * Creates and starts the state machine inside the hierarchy.
+	 */
+	@Setup
+	public void setUp() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"HierarchyBenchmark", States.L1);
+		for (int level = 1; level < depth; level++) {
+			definition.defineHierarchyOn(level(level), level(level + 1), history, level(level + 1));
+		}
+		definition.defineHierarchyOn(level(depth), States.A, history, States.A, States.B);
+
+		definition.in(States.A).on(Events.Toggle).goTo(States.B);
+		definition.in(States.B).on(Events.Toggle).goTo(States.A);
+		definition.in(States.L1).on(Events.Leave).goTo(States.Outside);
+		definition.in(States.Outside).on(Events.Enter).goTo(States.L1);
+
+		stateMachine = definition.createPassiveStateMachine("HierarchyBenchmark");
+		stateMachine.start();
+	}
+
+	/**
+	 * Terminates the state machine.
+	 */
+	@TearDown
+	public void tearDown() {
+		stateMachine.terminate();
+	}
+
+	/**
+	 * Switches between the leaf states.
+	 *
+	 * @return the current state
+	 */
+	@Benchmark
+	public States toggleLeaf() {
+		stateMachine.fire(Events.Toggle);
+		return stateMachine.getCurrentState();
+	}
+
+	/**
+	 * Leaves the hierarchy by a transition inherited from the outermost super
+	 * state and enters it again by history.
+	 *
+	 * @return the current state
+	 */
+	@Benchmark
+	public States leaveAndEnterByHistory() {
+		stateMachine.fire(Events.Leave);
+		stateMachine.fire(Events.Enter);
+		return stateMachine.getCurrentState();
+	}
+
+	private static States level(final int level) {
+		return States.valueOf("L" + level);
+	}
+}
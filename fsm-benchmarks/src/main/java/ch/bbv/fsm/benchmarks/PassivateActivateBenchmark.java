@@ -0,0 +1,64 @@
+package ch.bbv.fsm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.bbv.fsm.acceptance.radio.RadioStateMachine;
+import ch.bbv.fsm.acceptance.radio.RadioStateMachineDefinion;
+import ch.bbv.fsm.acceptance.radio.RadioStateMachineDefinion.Event;
+import ch.bbv.fsm.memento.StateMachineMemento;
+
+/**
+ * Measures passivating a radio with history and activating it again in a new
+ * state machine instance.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PassivateActivateBenchmark {
+
+	private RadioStateMachineDefinion definition;
+
+	private RadioStateMachine radio;
+
+	/**
+	 * Creates a radio and switches it into a nested state.
+	 */
+	@Setup
+	public void setUp() {
+		definition = new RadioStateMachineDefinion();
+		radio = definition.createPassiveStateMachine("PassivateActivateBenchmark");
+		radio.start();
+		radio.fire(Event.TogglePower);
+		radio.fire(Event.ToggleMode);
+		radio.fire(Event.StationLost);
+		radio.consumeLog();
+	}
+
+	/**
+	 * Passivates the radio into a memento and activates a new radio from it.
+	 *
+	 * @return the activated radio
+	 */
+	@Benchmark
+	public RadioStateMachine passivateAndActivate() {
+		final StateMachineMemento<RadioStateMachineDefinion.State, Event> memento = new StateMachineMemento<>();
+		radio.passivate(memento);
+		radio = definition.createPassiveStateMachine("PassivateActivateBenchmark");
+		radio.activate(memento);
+		return radio;
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * JMH benchmarks of the state machine implementation. Run them with
+ * <code>java -jar fsm-benchmarks/target/benchmarks.jar</code>.
+ */
+package ch.bbv.fsm.benchmarks;
@@ -1,7 +1,10 @@
 package ch.bbv.fsm.impl;
 
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.EventQueueStatistics;
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.memento.StateMachineMemento;
+import ch.bbv.fsm.tracing.TransitionTracer;
 
 /**
  * Base class for finite state machine implementations.
@@ -33,6 +36,31 @@ public class AbstractStateMachine<TStateMachine extends StateMachine<TState, TEv
 		driver.fire(eventId, eventArguments);
 	}
 
+	@Override
+	public final void fire(final TEvent eventId, final Object eventArgument) {
+		driver.fire(eventId, eventArgument);
+	}
+
+	@Override
+	public final void fireLong(final TEvent eventId, final long eventArgument) {
+		driver.fireLong(eventId, eventArgument);
+	}
+
+	@Override
+	public final void fireInt(final TEvent eventId, final int eventArgument) {
+		driver.fireInt(eventId, eventArgument);
+	}
+
+	@Override
+	public final boolean offer(final TEvent eventId, final Object... eventArguments) {
+		return driver.offer(eventId, eventArguments);
+	}
+
+	@Override
+	public final void fireAll(final EventBatch<TEvent> events, final boolean coalesceNotifications) {
+		driver.fireAll(events, coalesceNotifications);
+	}
+
 	@Override
 	public final void firePriority(final TEvent eventId,
 			final Object... eventArguments) {
@@ -44,6 +72,17 @@ public class AbstractStateMachine<TStateMachine extends StateMachine<TState, TEv
 		return driver.numberOfQueuedEvents();
 	}
 
+	@Override
+	public final EventQueueStatistics getEventQueueStatistics() {
+		return driver.getEventQueueStatistics();
+	}
+
+	@Override
+	public final void setTransitionTracer(
+			final TransitionTracer<TState, TEvent> tracer) {
+		driver.setTransitionTracer(tracer);
+	}
+
 	@Override
 	public final void start() {
 		driver.start();
@@ -1,30 +1,57 @@
 package ch.bbv.fsm.impl;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ch.bbv.fsm.EventQueueOverflowPolicy;
 import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.PersistentStateMachinePopulation;
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.StateMachineDefinition;
+import ch.bbv.fsm.StateMachinePopulation;
+import ch.bbv.fsm.action.FsmAction0;
 import ch.bbv.fsm.dsl.EntryActionSyntax;
 import ch.bbv.fsm.events.StateMachineEventHandler;
+import ch.bbv.fsm.guard.Function;
+import ch.bbv.fsm.impl.internal.action.FsmCall0;
+import ch.bbv.fsm.impl.internal.action.FsmGuardArguments;
+import ch.bbv.fsm.impl.internal.driver.AbstractStateMachineDriver;
 import ch.bbv.fsm.impl.internal.driver.ActiveStateMachineDriver;
 import ch.bbv.fsm.impl.internal.driver.Notifier;
 import ch.bbv.fsm.impl.internal.driver.PassiveStateMachineDriver;
+import ch.bbv.fsm.impl.internal.driver.RingBufferStateMachineDriver;
+import ch.bbv.fsm.impl.internal.driver.VirtualThreadExecutor;
 import ch.bbv.fsm.impl.internal.dsl.StateBuilder;
-import ch.bbv.fsm.impl.internal.statemachine.events.ExceptionEventArgsImpl;
-import ch.bbv.fsm.impl.internal.statemachine.events.TransitionEventArgsImpl;
-import ch.bbv.fsm.impl.internal.statemachine.events.TransitionExceptionEventArgsImpl;
+import ch.bbv.fsm.impl.internal.statemachine.FlyweightInterpreter;
+import ch.bbv.fsm.impl.internal.statemachine.FlyweightModel;
+import ch.bbv.fsm.impl.internal.statemachine.IntArrayPopulationStore;
+import ch.bbv.fsm.impl.internal.statemachine.MappedPopulationStore;
+import ch.bbv.fsm.impl.internal.statemachine.PersistentPopulationInterpreter;
+import ch.bbv.fsm.impl.internal.statemachine.PopulationInterpreter;
+import ch.bbv.fsm.impl.internal.statemachine.events.EventHandlers;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateDictionary;
 import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionImpl;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionTable;
+import ch.bbv.fsm.model.State;
 import ch.bbv.fsm.model.StateMachineModel;
 import ch.bbv.fsm.model.visitor.Visitor;
+import ch.bbv.fsm.table.StateMachineTable;
+import ch.bbv.fsm.tracing.TransitionTracer;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
 
 /**
  * Implementation of the definition of the finite state machine.
@@ -48,10 +75,61 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 	 */
 	private String name;
 
-	private final List<StateMachineEventHandler<TStateMachine, TState, TEvent>> eventHandler;
+	/**
+	 * The event handlers, immutable and replaced when a handler is added or
+	 * removed.
+	 */
+	private volatile EventHandlers<TStateMachine, TState, TEvent> eventHandler = EventHandlers
+			.empty();
 
 	private final SimpleStateMachineModel<TStateMachine, TState, TEvent> simpleStateMachineModel;
 
+	/**
+	 * The compiled transitions shared by all state machines of this definition.
+	 */
+	private final TransitionTable<TStateMachine, TState, TEvent> transitionTable;
+
+	/**
+	 * True if the state machines reuse a single transition context for all
+	 * events.
+	 */
+	private boolean reuseTransitionContexts;
+
+	/**
+	 * The tracer attached to the state machines when they are created,
+	 * <code>null</code> if they aren't traced.
+	 */
+	private TransitionTracer<TState, TEvent> transitionTracer;
+
+	/**
+	 * Capacity of the event queue of active state machines, 0 if unbounded.
+	 */
+	private int eventQueueCapacity;
+
+	/**
+	 * What the active state machines do with an event fired into their full
+	 * event queue.
+	 */
+	private EventQueueOverflowPolicy eventQueueOverflowPolicy = EventQueueOverflowPolicy.REJECT;
+
+	/**
+	 * How long a firing thread waits for room with
+	 * {@link EventQueueOverflowPolicy#BLOCK}, in nanoseconds.
+	 */
+	private long eventQueueBlockTimeoutNanos = Long.MAX_VALUE;
+
+	/**
+	 * The events of which the active state machines only execute the latest
+	 * pending one.
+	 */
+	private Set<TEvent> conflatedEvents = ImmutableSet.of();
+
+	/**
+	 * The models shared by the flyweight state machines, by initial state.
+	 */
+	private final ConcurrentMap<TState, FlyweightModel<TStateMachine, TState, TEvent>> flyweightModels = new MapMaker()
+			.makeMap();
+
 	/**
 	 * Initializes the passive state machine.
 	 * 
@@ -77,7 +155,28 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 		this.simpleStateMachineModel = new SimpleStateMachineModel<>(
 				new StateDictionary<>(),
 				initialState);
-		this.eventHandler = Lists.newArrayList();
+		this.transitionTable = new TransitionTable<>(
+				this.simpleStateMachineModel.getStates());
+	}
+
+	/**
+	 * Initializes the state machine from a table precomputed at build time,
+	 * see {@link ch.bbv.fsm.table.DefinitionTable}. The states and transitions
+	 * are created directly from the arrays of the table, the definition can be
+	 * extended with the DSL afterwards.
+	 * 
+	 * @param name
+	 *            the name of the state machine used in the logs.
+	 * @param initialState
+	 *            the initial state to use
+	 * @param table
+	 *            the generated table of this definition
+	 */
+	public AbstractStateMachineDefinition(final String name,
+			final TState initialState,
+			final StateMachineTable<TStateMachine, TState, TEvent> table) {
+		this(name, initialState);
+		load(table);
 	}
 
 	@Override
@@ -102,6 +201,8 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 	public void defineHierarchyOn(final TState superStateId,
 			final TState initialSubStateId, final HistoryType historyType,
 			@SuppressWarnings("unchecked") final TState... subStateIds) {
+		checkNotFrozen();
+		this.transitionTable.invalidate();
 		final InternalState<TStateMachine, TState, TEvent> superState = this.simpleStateMachineModel
 				.getStates().getState(superStateId);
 		superState.setHistoryType(historyType);
@@ -120,22 +221,232 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 	@Override
 	public EntryActionSyntax<TStateMachine, TState, TEvent> in(
 			final TState state) {
+		checkNotFrozen();
 		final InternalState<TStateMachine, TState, TEvent> newState = this.simpleStateMachineModel
 				.getStates().getState(state);
 		return new StateBuilder<>(newState,
-				this.simpleStateMachineModel.getStates());
+				this.simpleStateMachineModel.getStates(), this.transitionTable);
 	}
 
 	@Override
-	public void addEventHandler(
+	public synchronized void addEventHandler(
 			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler) {
-		this.eventHandler.add(handler);
+		checkNotFrozen();
+		this.eventHandler = this.eventHandler.with(handler);
 	}
 
 	@Override
-	public void removeEventHandler(
+	public void addEventHandler(
+			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler,
+			final int interests) {
+		addEventHandler(handler, interests, null, null);
+	}
+
+	@Override
+	public synchronized void addEventHandler(
+			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler,
+			final int interests, final Set<TState> states,
+			final Set<TEvent> events) {
+		checkNotFrozen();
+		this.eventHandler = this.eventHandler.with(handler, interests, states,
+				events);
+	}
+
+	@Override
+	public synchronized void removeEventHandler(
 			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler) {
-		this.eventHandler.remove(handler);
+		checkNotFrozen();
+		this.eventHandler = this.eventHandler.without(handler);
+	}
+
+	/**
+	 * Sets the capacity of the event queue of the active state machines created
+	 * afterwards. With a capacity of 0 (the default) the queue is unbounded,
+	 * otherwise a preallocated ring of the next power of two is used and an
+	 * event fired on a full queue is handled according to the
+	 * {@link #setEventQueueOverflowPolicy(EventQueueOverflowPolicy) overflow
+	 * policy}.
+	 * 
+	 * @param eventQueueCapacity
+	 *            the capacity, 0 for an unbounded queue.
+	 */
+	public void setEventQueueCapacity(final int eventQueueCapacity) {
+		Preconditions.checkArgument(eventQueueCapacity >= 0,
+				"The event queue capacity must not be negative.");
+		checkNotFrozen();
+		this.eventQueueCapacity = eventQueueCapacity;
+	}
+
+	/**
+	 * Returns the capacity of the event queue of active state machines.
+	 * 
+	 * @return the capacity, 0 if the queue is unbounded.
+	 */
+	public int getEventQueueCapacity() {
+		return eventQueueCapacity;
+	}
+
+	/**
+	 * Sets what the active state machines created afterwards do with an event
+	 * fired while their bounded event queue is full. The default is
+	 * {@link EventQueueOverflowPolicy#REJECT}.
+	 * 
+	 * @param overflowPolicy
+	 *            the overflow policy.
+	 */
+	public void setEventQueueOverflowPolicy(
+			final EventQueueOverflowPolicy overflowPolicy) {
+		Preconditions.checkNotNull(overflowPolicy);
+		checkNotFrozen();
+		this.eventQueueOverflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Returns what the active state machines do with an event fired while
+	 * their bounded event queue is full.
+	 * 
+	 * @return the overflow policy.
+	 */
+	public EventQueueOverflowPolicy getEventQueueOverflowPolicy() {
+		return eventQueueOverflowPolicy;
+	}
+
+	/**
+	 * Sets how long a thread firing an event waits for room in a full event
+	 * queue with {@link EventQueueOverflowPolicy#BLOCK}. By default it waits
+	 * until the event is queued.
+	 * 
+	 * @param timeout
+	 *            the timeout.
+	 * @param unit
+	 *            the unit of the timeout.
+	 */
+	public void setEventQueueBlockTimeout(final long timeout,
+			final TimeUnit unit) {
+		Preconditions.checkArgument(timeout >= 0,
+				"The block timeout must not be negative.");
+		checkNotFrozen();
+		this.eventQueueBlockTimeoutNanos = unit.toNanos(timeout);
+	}
+
+	/**
+	 * Sets the events the active state machines created afterwards conflate.
+	 * While an event of a conflated type is pending, firing another one of the
+	 * type replaces the pending event instead of queuing a new one; the latest
+	 * event is executed in the place of the first. Events fired in a batch and
+	 * priority events are not conflated.
+	 * 
+	 * @param events
+	 *            the conflated events, empty to queue all events.
+	 */
+	public void setConflatedEvents(final Set<TEvent> events) {
+		Preconditions.checkNotNull(events);
+		checkNotFrozen();
+		this.conflatedEvents = ImmutableSet.copyOf(events);
+	}
+
+	/**
+	 * Returns the events the active state machines conflate.
+	 * 
+	 * @return the conflated events.
+	 */
+	public Set<TEvent> getConflatedEvents() {
+		return conflatedEvents;
+	}
+
+	/**
+	 * Sets whether the state machines created afterwards reuse a single
+	 * transition context for all events. Firing an event then doesn't allocate
+	 * unless an exception occurs, event handlers are notified or the
+	 * transitions are logged. The event arguments passed to event handlers are
+	 * only valid during the notification.
+	 * 
+	 * @param reuseTransitionContexts
+	 *            true to reuse the transition contexts.
+	 */
+	public void setReuseTransitionContexts(final boolean reuseTransitionContexts) {
+		checkNotFrozen();
+		this.reuseTransitionContexts = reuseTransitionContexts;
+	}
+
+	/**
+	 * Returns true if the state machines reuse a single transition context for
+	 * all events.
+	 * 
+	 * @return true if the transition contexts are reused.
+	 */
+	public boolean isReuseTransitionContexts() {
+		return reuseTransitionContexts;
+	}
+
+	/**
+	 * Sets the tracer attached to the state machines created afterwards. The
+	 * tracer of a single state machine can be replaced with
+	 * {@link StateMachine#setTransitionTracer(TransitionTracer)}.
+	 * 
+	 * @param transitionTracer
+	 *            the tracer, <code>null</code> to disable tracing.
+	 */
+	public void setTransitionTracer(
+			final TransitionTracer<TState, TEvent> transitionTracer) {
+		checkNotFrozen();
+		this.transitionTracer = transitionTracer;
+	}
+
+	/**
+	 * Freezes this definition. The model is validated, its states and
+	 * transitions become immutable and the transitions are compiled into a
+	 * table indexed by state and event. Afterwards the DSL and the setters of
+	 * the definition throw an {@link IllegalStateException}, and state machines
+	 * can be created concurrently from any thread. Without freezing, the
+	 * transitions are compiled on the first event and again after each change
+	 * of the definition.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the model is inconsistent.
+	 */
+	public synchronized void freeze() {
+		if (isFrozen()) {
+			return;
+		}
+		final StateDictionary<TStateMachine, TState, TEvent> states = this.simpleStateMachineModel
+				.getStates();
+		validate(states.getStates());
+		states.getState(getInitialState());
+		states.freeze();
+		this.transitionTable.freeze();
+		LOG.debug("State machine definition {} frozen.", name);
+	}
+
+	/**
+	 * Returns true if this definition is frozen.
+	 * 
+	 * @return true if this definition is frozen.
+	 */
+	public boolean isFrozen() {
+		return this.transitionTable.isFrozen();
+	}
+
+	/**
+	 * Freezes this definition and compiles the transitions of each state and
+	 * event into a method handle with the guards, actions and the states to
+	 * exit and enter bound as constants. All state machines of this definition,
+	 * including the ones already created, fire their events through the
+	 * compiled handles instead of interpreting the transitions.
+	 */
+	public void compile() {
+		freeze();
+		this.transitionTable.compileMethodHandles();
+		LOG.debug("State machine definition {} compiled.", name);
+	}
+
+	/**
+	 * Returns true if this definition is compiled.
+	 * 
+	 * @return true if this definition is compiled.
+	 */
+	public boolean isCompiled() {
+		return this.transitionTable.isMethodHandlesCompiled();
 	}
 
 	@Override
@@ -146,42 +457,278 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 	@Override
 	public TStateMachine createActiveStateMachine(final String name,
 			final TState initialState) {
-		final ActiveStateMachineDriver<TStateMachine, TState, TEvent> activeStateMachine = new ActiveStateMachineDriver<>();
-		final TStateMachine stateMachine = createStateMachine(activeStateMachine);
-		activeStateMachine.initialize(stateMachine, name,
-				this.simpleStateMachineModel.getStates(), initialState,
-				eventHandler);
-		return stateMachine;
+		return createStateMachine(new ActiveStateMachineDriver<TStateMachine, TState, TEvent>(
+				null, eventQueueCapacity, eventQueueOverflowPolicy,
+				eventQueueBlockTimeoutNanos, conflatedEvents), name,
+				initialState);
 	}
 
 	@Override
 	public TStateMachine createActiveStateMachine(final String name) {
-		final ActiveStateMachineDriver<TStateMachine, TState, TEvent> activeStateMachine = new ActiveStateMachineDriver<>();
-		final TStateMachine stateMachine = createStateMachine(activeStateMachine);
-		activeStateMachine.initialize(stateMachine, name,
-				this.simpleStateMachineModel.getStates(),
-				this.simpleStateMachineModel.getInitialState(), eventHandler);
-		return stateMachine;
+		return createActiveStateMachine(name,
+				this.simpleStateMachineModel.getInitialState());
+	}
+
+	@Override
+	public TStateMachine createActiveStateMachine(final String name,
+			final TState initialState, final Executor executor) {
+		return createStateMachine(new ActiveStateMachineDriver<TStateMachine, TState, TEvent>(
+				Preconditions.checkNotNull(executor), eventQueueCapacity,
+				eventQueueOverflowPolicy, eventQueueBlockTimeoutNanos,
+				conflatedEvents), name, initialState);
+	}
+
+	@Override
+	public TStateMachine createActiveStateMachine(final String name,
+			final Executor executor) {
+		return createActiveStateMachine(name,
+				this.simpleStateMachineModel.getInitialState(), executor);
+	}
+
+	@Override
+	public TStateMachine createRingBufferStateMachine(final String name,
+			final TState initialState, final int capacity) {
+		return createStateMachine(new RingBufferStateMachineDriver<TStateMachine, TState, TEvent>(
+				capacity, eventQueueOverflowPolicy, eventQueueBlockTimeoutNanos),
+				name, initialState);
+	}
+
+	@Override
+	public TStateMachine createRingBufferStateMachine(final String name,
+			final int capacity) {
+		return createRingBufferStateMachine(name,
+				this.simpleStateMachineModel.getInitialState(), capacity);
+	}
+
+	@Override
+	public TStateMachine createVirtualThreadStateMachine(final String name,
+			final TState initialState) {
+		return createActiveStateMachine(name, initialState,
+				VirtualThreadExecutor.getInstance());
+	}
+
+	@Override
+	public TStateMachine createVirtualThreadStateMachine(final String name) {
+		return createActiveStateMachine(name,
+				this.simpleStateMachineModel.getInitialState(),
+				VirtualThreadExecutor.getInstance());
 	}
 
 	@Override
 	public TStateMachine createPassiveStateMachine(final String name,
 			final TState initialState) {
-		final PassiveStateMachineDriver<TStateMachine, TState, TEvent> passiveStateMachine = new PassiveStateMachineDriver<>();
-		final TStateMachine stateMachine = createStateMachine(passiveStateMachine);
-		passiveStateMachine.initialize(stateMachine, name,
-				this.simpleStateMachineModel.getStates(), initialState,
-				eventHandler);
-		return stateMachine;
+		return createStateMachine(new PassiveStateMachineDriver<TStateMachine, TState, TEvent>(),
+				name, initialState);
 	}
 
 	@Override
 	public TStateMachine createPassiveStateMachine(final String name) {
-		final PassiveStateMachineDriver<TStateMachine, TState, TEvent> passiveStateMachine = new PassiveStateMachineDriver<>();
-		final TStateMachine stateMachine = createStateMachine(passiveStateMachine);
-		passiveStateMachine.initialize(stateMachine, name,
-				this.simpleStateMachineModel.getStates(),
-				this.simpleStateMachineModel.getInitialState(), eventHandler);
+		return createPassiveStateMachine(name,
+				this.simpleStateMachineModel.getInitialState());
+	}
+
+	@Override
+	public TStateMachine createFlyweightStateMachine(final TState initialState) {
+		final FlyweightInterpreter<TStateMachine, TState, TEvent> flyweight = new FlyweightInterpreter<>(
+				getFlyweightModel(initialState));
+		final TStateMachine stateMachine = createStateMachine(flyweight);
+		flyweight.initialize(stateMachine);
+		return stateMachine;
+	}
+
+	@Override
+	public TStateMachine createFlyweightStateMachine() {
+		return createFlyweightStateMachine(this.simpleStateMachineModel
+				.getInitialState());
+	}
+
+	@Override
+	public StateMachinePopulation<TState, TEvent> createPopulation(
+			final int initialCapacity) {
+		final FlyweightModel<TStateMachine, TState, TEvent> model = getFlyweightModel(this.simpleStateMachineModel
+				.getInitialState());
+		final PopulationInterpreter<TStateMachine, TState, TEvent> population = new PopulationInterpreter<>(
+				model, new IntArrayPopulationStore(model.getHistorySize(),
+						initialCapacity));
+		population.initialize(createStateMachine(population.getCursor()));
+		return population;
+	}
+
+	@Override
+	public PersistentStateMachinePopulation<TState, TEvent> openPopulation(
+			final Path file) throws IOException {
+		final FlyweightModel<TStateMachine, TState, TEvent> model = getFlyweightModel(this.simpleStateMachineModel
+				.getInitialState());
+		final PersistentPopulationInterpreter<TStateMachine, TState, TEvent> population = new PersistentPopulationInterpreter<>(
+				model, new MappedPopulationStore(file, model.getStateCount(),
+						model.getHistorySize(), model.getFingerprint()));
+		population.initialize(createStateMachine(population.getCursor()));
+		return population;
+	}
+
+	/**
+	 * Returns the model shared by the flyweights and populations starting in
+	 * the given state.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the definition is not frozen.
+	 */
+	private FlyweightModel<TStateMachine, TState, TEvent> getFlyweightModel(
+			final TState initialState) {
+		Preconditions.checkState(isFrozen(),
+				"The definition %s must be frozen to share it.", name);
+		FlyweightModel<TStateMachine, TState, TEvent> model = this.flyweightModels
+				.get(initialState);
+		if (model == null) {
+			this.flyweightModels.putIfAbsent(initialState, new FlyweightModel<>(
+					name, this.simpleStateMachineModel.getStates(),
+					this.transitionTable, initialState, this.eventHandler,
+					this.transitionTracer));
+			model = this.flyweightModels.get(initialState);
+		}
+		return model;
+	}
+
+	/**
+	 * Checks that every super state has an initial sub state and that every
+	 * sub state belongs to a single super state.
+	 */
+	private void validate(
+			final List<InternalState<TStateMachine, TState, TEvent>> states) {
+		for (final InternalState<TStateMachine, TState, TEvent> state : states) {
+			boolean hasSubStates = false;
+			for (final State<TStateMachine, TState, TEvent> subState : state
+					.getSubStates()) {
+				hasSubStates = true;
+				final State<TStateMachine, TState, TEvent> superState = ((InternalState<TStateMachine, TState, TEvent>) subState)
+						.getSuperState();
+				Preconditions.checkState(superState == state,
+						"%s is a sub state of both %s and %s in %s.", subState,
+						state, superState, name);
+			}
+			Preconditions.checkState(!hasSubStates
+					|| state.getInitialState() != null,
+					"The super state %s of %s has no initial sub state.", state,
+					name);
+		}
+	}
+
+	private void checkNotFrozen() {
+		Preconditions.checkState(!isFrozen(),
+				"The definition %s is frozen and can't be changed.", name);
+	}
+
+	/**
+	 * Creates the states and transitions of a precomputed table.
+	 */
+	private void load(
+			final StateMachineTable<TStateMachine, TState, TEvent> table) {
+		final TState[] stateIds = table.getStateType().getEnumConstants();
+		final TEvent[] eventIds = table.getEventType().getEnumConstants();
+		Preconditions.checkArgument(
+				table.getSuperStates().length == stateIds.length,
+				"The table of %s was generated for other states than %s.",
+				name, table.getStateType().getName());
+
+		@SuppressWarnings("unchecked")
+		final InternalState<TStateMachine, TState, TEvent>[] states = new InternalState[stateIds.length];
+		final StateDictionary<TStateMachine, TState, TEvent> dictionary = this.simpleStateMachineModel
+				.getStates();
+		final int[] superStates = table.getSuperStates();
+		final int[] initialSubStates = table.getInitialSubStates();
+		final HistoryType[] historyTypes = table.getHistoryTypes();
+		final FsmAction0<TStateMachine, TState, TEvent>[] entryActions = table
+				.getEntryActions();
+		final FsmAction0<TStateMachine, TState, TEvent>[] exitActions = table
+				.getExitActions();
+
+		for (int i = 0; i < stateIds.length; i++) {
+			if (superStates[i] != StateMachineTable.NO_STATE) {
+				final InternalState<TStateMachine, TState, TEvent> superState = state(
+						states, dictionary, stateIds, superStates[i]);
+				final InternalState<TStateMachine, TState, TEvent> subState = state(
+						states, dictionary, stateIds, i);
+				subState.setSuperState(superState);
+				superState.addSubState(subState);
+			}
+		}
+		for (int i = 0; i < stateIds.length; i++) {
+			if (initialSubStates[i] != StateMachineTable.NO_STATE) {
+				final InternalState<TStateMachine, TState, TEvent> superState = state(
+						states, dictionary, stateIds, i);
+				superState.setHistoryType(historyTypes[i]);
+				superState.setInitialState(state(states, dictionary, stateIds,
+						initialSubStates[i]));
+			}
+			if (entryActions[i] != null) {
+				state(states, dictionary, stateIds, i).setEntryAction(
+						new FsmCall0<>(entryActions[i]));
+			}
+			if (exitActions[i] != null) {
+				state(states, dictionary, stateIds, i).setExitAction(
+						new FsmCall0<>(exitActions[i]));
+			}
+		}
+
+		final int[] sources = table.getTransitionSources();
+		final int[] events = table.getTransitionEvents();
+		final int[] targets = table.getTransitionTargets();
+		final Function<TStateMachine, TState, TEvent, Object[], Boolean>[] guards = table
+				.getTransitionGuards();
+		final FsmAction0<TStateMachine, TState, TEvent>[][] actions = table
+				.getTransitionActions();
+		for (int t = 0; t < sources.length; t++) {
+			final TransitionImpl<TStateMachine, TState, TEvent> transition = new TransitionImpl<>();
+			if (targets[t] != StateMachineTable.NO_STATE) {
+				transition.setTarget(state(states, dictionary, stateIds,
+						targets[t]));
+			}
+			if (guards[t] != null) {
+				transition.setGuard(new FsmGuardArguments<>(guards[t]));
+			}
+			for (final FsmAction0<TStateMachine, TState, TEvent> action : actions[t]) {
+				transition.getActions().add(new FsmCall0<>(action));
+			}
+			state(states, dictionary, stateIds, sources[t]).getTransitions()
+					.add(eventIds[events[t]], transition);
+		}
+	}
+
+	/**
+	 * Returns the state with the given ordinal, looking it up in the
+	 * dictionary only once.
+	 */
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> InternalState<TStateMachine, TState, TEvent> state(
+			final InternalState<TStateMachine, TState, TEvent>[] states,
+			final StateDictionary<TStateMachine, TState, TEvent> dictionary,
+			final TState[] stateIds, final int ordinal) {
+		if (states[ordinal] == null) {
+			states[ordinal] = dictionary.getState(stateIds[ordinal]);
+		}
+		return states[ordinal];
+	}
+
+	/**
+	 * Creates a state machine running on the given driver.
+	 * 
+	 * @param driver
+	 *            the driver
+	 * @param name
+	 *            the name of the state machine used in the logs.
+	 * @param initialState
+	 *            the initial state
+	 * @return the state machine
+	 */
+	private TStateMachine createStateMachine(
+			final AbstractStateMachineDriver<TStateMachine, TState, TEvent> driver,
+			final String name, final TState initialState) {
+		final EventHandlers<TStateMachine, TState, TEvent> handlers = this.eventHandler;
+		final TStateMachine stateMachine = createStateMachine(driver);
+		driver.initialize(stateMachine, name,
+				this.simpleStateMachineModel.getStates(), this.transitionTable,
+				initialState, handlers);
+		driver.setReuseTransitionContext(reuseTransitionContexts);
+		driver.setTransitionTracer(transitionTracer);
 		return stateMachine;
 	}
 
@@ -190,10 +737,7 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 			final StateContext<TStateMachine, TState, TEvent> stateContext,
 			final Exception exception) {
 		try {
-			for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-				handler.onExceptionThrown(new ExceptionEventArgsImpl<>(
-						stateContext, exception));
-			}
+			this.eventHandler.exceptionThrown(stateContext, exception, null);
 		} catch (final Exception e) {
 			LOG.error("Exception during event handler.", e);
 		}
@@ -205,10 +749,8 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 			final TransitionContext<TStateMachine, TState, TEvent> transitionContext,
 			final Exception exception) {
 		try {
-			for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-				handler.onTransitionThrowsException(new TransitionExceptionEventArgsImpl<>(
-						transitionContext, exception));
-			}
+			this.eventHandler.exceptionThrown(transitionContext, exception,
+					null);
 		} catch (final Exception e) {
 			LOG.error("Exception during event handler.", e);
 		}
@@ -218,14 +760,7 @@ public abstract class AbstractStateMachineDefinition<TStateMachine extends Abstr
 	@Override
 	public void onTransitionBegin(
 			final StateContext<TStateMachine, TState, TEvent> transitionContext) {
-		try {
-			for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-				handler.onTransitionBegin(new TransitionEventArgsImpl<>(
-						transitionContext));
-			}
-		} catch (final Exception e) {
-			onExceptionThrown(transitionContext, e);
-		}
+		this.eventHandler.transitionBegin(transitionContext, null);
 	}
 
 	protected abstract TStateMachine createStateMachine(
@@ -0,0 +1,298 @@
+package ch.bbv.fsm.impl;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A fixed set of single-threaded event loops shared by many active state machines. Each machine is
+ * assigned to a loop by the hash of a key:
+ *
+ * <pre>
+ * definition.createActiveStateMachine(name, scheduler.loopFor(key));
+ * </pre>
+ *
+ * All events of a machine are processed on the thread of its loop, so the machine is never
+ * contended and stays in the caches of that thread. Events fired from another loop or any other
+ * thread are queued in the lock-free queue of the machine, which submits itself to the inbox of
+ * its loop; each loop has a multi-producer single-consumer inbox of its own.
+ */
+public class PartitionedStateMachineScheduler {
+
+	private static final long AWAIT_TERMINATION_STEP_MS = 10;
+
+	private final EventLoop[] loops;
+
+	/**
+	 * Creates a scheduler with one loop per available processor.
+	 *
+	 * @param name
+	 *            the name used for the threads of the loops.
+	 */
+	public PartitionedStateMachineScheduler(final String name) {
+		this(name, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a scheduler.
+	 *
+	 * @param name
+	 *            the name used for the threads of the loops.
+	 * @param numberOfLoops
+	 *            the number of loops, each with a thread of its own.
+	 */
+	public PartitionedStateMachineScheduler(final String name, final int numberOfLoops) {
+		if (numberOfLoops < 1) {
+			throw new IllegalArgumentException("numberOfLoops must be at least 1 but was " + numberOfLoops);
+		}
+		this.loops = new EventLoop[numberOfLoops];
+		for (int i = 0; i < numberOfLoops; i++) {
+			loops[i] = new EventLoop(name + "-" + (i + 1));
+		}
+		for (final EventLoop loop : loops) {
+			loop.thread.start();
+		}
+	}
+
+	/**
+	 * Returns the number of loops.
+	 */
+	public int numberOfLoops() {
+		return loops.length;
+	}
+
+	/**
+	 * Returns the index of the loop a key is assigned to.
+	 *
+	 * @param key
+	 *            the key of a state machine, must not be <code>null</code>.
+	 */
+	public int loopIndexOf(final Object key) {
+		if (key == null) {
+			throw new IllegalArgumentException("key must not be null.");
+		}
+		final int hash = key.hashCode();
+		return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % loops.length;
+	}
+
+	/**
+	 * Returns the loop a key is assigned to. Pass it to
+	 * {@link AbstractStateMachineDefinition#createActiveStateMachine(String, Executor)}; the same key
+	 * always returns the same loop.
+	 *
+	 * @param key
+	 *            the key of a state machine, must not be <code>null</code>.
+	 */
+	public Executor loopFor(final Object key) {
+		return loops[loopIndexOf(key)];
+	}
+
+	/**
+	 * Stops the loops. The tasks already in the inboxes are still executed, new ones are rejected.
+	 * A task queued concurrently is either executed or rejected, never lost.
+	 */
+	public void shutdown() {
+		for (final EventLoop loop : loops) {
+			loop.shutdown();
+		}
+	}
+
+	/**
+	 * Waits until the loops finished after a {@link #shutdown()}.
+	 *
+	 * @param timeout
+	 *            the maximum time to wait.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return <code>true</code> if all loops terminated.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting.
+	 */
+	public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (final EventLoop loop : loops) {
+			while (loop.thread.isAlive()) {
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				loop.thread.join(Math.max(1, Math.min(AWAIT_TERMINATION_STEP_MS,
+						TimeUnit.NANOSECONDS.toMillis(remaining))));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A single thread executing the tasks of its inbox in order. The inbox is a linked queue after
+	 * Dmitry Vyukov like the bulk lane of the event queues: producers only swap the tail and link
+	 * the previous tail to the new node. A task linked after the loop drained its inbox for the last
+	 * time is taken back and rejected by its producer; the loop and the producer claim the command of
+	 * a node, so exactly one of them wins.
+	 */
+	private static final class EventLoop implements Executor, Runnable {
+
+		private final Thread thread;
+
+		/**
+		 * The most recently queued node, swapped by the producers.
+		 */
+		private final AtomicReference<Task> tail;
+
+		/**
+		 * The last executed node. Only written by the loop; volatile because producers check
+		 * whether the inbox is empty.
+		 */
+		private volatile Task head;
+
+		/**
+		 * <code>true</code> while the loop is about to park or parked.
+		 */
+		private volatile boolean parked;
+
+		private volatile boolean shutdown;
+
+		/**
+		 * <code>true</code> once the loop drains its inbox for the last time.
+		 */
+		private volatile boolean terminated;
+
+		EventLoop(final String name) {
+			final Task stub = new Task(null);
+			this.head = stub;
+			this.tail = new AtomicReference<>(stub);
+			this.thread = new Thread(this, name);
+			this.thread.setDaemon(true);
+		}
+
+		@Override
+		public void execute(final Runnable command) {
+			if (shutdown) {
+				throw new RejectedExecutionException("The loop " + thread.getName() + " is shut down.");
+			}
+			final Task task = new Task(command);
+			tail.getAndSet(task).next = task;
+			if (terminated && task.claim() != null) {
+				throw new RejectedExecutionException("The loop " + thread.getName() + " is shut down.");
+			}
+			if (parked) {
+				LockSupport.unpark(thread);
+			}
+		}
+
+		void shutdown() {
+			shutdown = true;
+			LockSupport.unpark(thread);
+		}
+
+		private boolean isEmpty() {
+			return tail.get() == head;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final Runnable command = poll();
+				if (command != null) {
+					runTask(command);
+				} else if (shutdown) {
+					break;
+				} else {
+					awaitTask();
+				}
+			}
+			terminated = true;
+			// the tasks linked before the producers saw the flag
+			Runnable command;
+			while ((command = poll()) != null) {
+				runTask(command);
+			}
+		}
+
+		/**
+		 * Executes a task on the loop. Whatever it throws is reported to the uncaught exception
+		 * handler of the thread; the loop keeps running, it serves the other machines too.
+		 */
+		private void runTask(final Runnable command) {
+			try {
+				command.run();
+			} catch (final Throwable e) {
+				final UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+				handler.uncaughtException(thread, e);
+			}
+		}
+
+		/**
+		 * Takes the next task.
+		 *
+		 * @return the task or <code>null</code> if the inbox is empty.
+		 */
+		private Runnable poll() {
+			while (true) {
+				final Task first = head;
+				Task next = first.next;
+				if (next == null) {
+					if (tail.get() == first) {
+						return null;
+					}
+					// a producer swapped the tail but did not link its node yet
+					while ((next = first.next) == null) {
+						Thread.yield();
+					}
+				}
+				head = next;
+				final Runnable command = next.claim();
+				if (command != null) {
+					return command;
+				}
+				// taken back by a producer that was rejected
+			}
+		}
+
+		/**
+		 * Parks the loop until a task is queued or the loop is shut down. The flag is published
+		 * before the inbox is checked again, so a concurrent {@link #execute(Runnable)} either sees
+		 * the flag or the loop sees the task.
+		 */
+		private void awaitTask() {
+			parked = true;
+			try {
+				if (isEmpty() && !shutdown) {
+					LockSupport.park(this);
+				}
+			} finally {
+				parked = false;
+			}
+		}
+	}
+
+	/**
+	 * A node of the inbox of a loop.
+	 */
+	private static final class Task {
+
+		private static final AtomicReferenceFieldUpdater<Task, Runnable> COMMAND = AtomicReferenceFieldUpdater
+				.newUpdater(Task.class, Runnable.class, "command");
+
+		private volatile Runnable command;
+
+		private volatile Task next;
+
+		Task(final Runnable command) {
+			this.command = command;
+		}
+
+		/**
+		 * Takes the command out of the node.
+		 *
+		 * @return the command or <code>null</code> if it was already taken.
+		 */
+		Runnable claim() {
+			return COMMAND.getAndSet(this, null);
+		}
+	}
+}
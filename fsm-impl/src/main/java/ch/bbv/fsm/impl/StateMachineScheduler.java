@@ -0,0 +1,92 @@
+package ch.bbv.fsm.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of threads shared by many active state machines. Pass it to
+ * {@link AbstractStateMachineDefinition#createActiveStateMachine(String, Executor)}: a machine
+ * only occupies a thread of the pool while it has queued events, and the events of a single
+ * machine are processed in order.
+ */
+public class StateMachineScheduler implements Executor {
+
+	private final ExecutorService executorService;
+
+	/**
+	 * Creates a scheduler with one thread per available processor.
+	 * 
+	 * @param name
+	 *            the name used for the threads of the scheduler.
+	 */
+	public StateMachineScheduler(final String name) {
+		this(name, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a scheduler.
+	 * 
+	 * @param name
+	 *            the name used for the threads of the scheduler.
+	 * @param numberOfThreads
+	 *            the number of threads shared by the state machines.
+	 */
+	public StateMachineScheduler(final String name, final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1 but was " + numberOfThreads);
+		}
+		this.executorService = Executors.newFixedThreadPool(numberOfThreads, new SchedulerThreadFactory(name));
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+		executorService.execute(command);
+	}
+
+	/**
+	 * Stops the scheduler. Machines with queued events are not processed any longer.
+	 */
+	public void shutdown() {
+		executorService.shutdown();
+	}
+
+	/**
+	 * Waits until the running drains finished after a {@link #shutdown()}.
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return <code>true</code> if the scheduler terminated.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting.
+	 */
+	public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return executorService.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Creates named daemon threads, so a forgotten scheduler does not keep the JVM alive.
+	 */
+	private static class SchedulerThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		SchedulerThreadFactory(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package ch.bbv.fsm.impl.flow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.events.EventInterest;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.events.TransitionEventArgs;
+import ch.bbv.fsm.flow.FiredEvent;
+import ch.bbv.fsm.flow.Flow;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Fires the events of a publisher on a state machine. It requests events only while the machine
+ * has fewer than a maximum number of queued events, and requests more as the machine executes
+ * them, so neither the publisher nor the machine buffers without bounds.
+ * <p>
+ * The subscriber learns about the executed events as an event handler of the definition. Register
+ * it before the machine is created and attach the machine afterwards:
+ *
+ * <pre>
+ * definition.addEventHandler(subscriber, StateMachineSubscriber.INTERESTS);
+ * subscriber.attach(definition.createActiveStateMachine(name));
+ * publisher.subscribe(subscriber);
+ * </pre>
+ *
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the enumeration type of the states.
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public class StateMachineSubscriber<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+		extends StateMachineEventAdapter<TStateMachine, TState, TEvent> implements Flow.Subscriber<FiredEvent<TEvent>> {
+
+	/**
+	 * The callbacks the subscriber must be registered for: every executed event is either
+	 * completed or declined.
+	 */
+	public static final int INTERESTS = EventInterest.COMPLETED | EventInterest.DECLINED;
+
+	private final int maxQueuedEvents;
+
+	private volatile TStateMachine stateMachine;
+
+	private volatile Flow.Subscription subscription;
+
+	/**
+	 * The number of requested events not received yet.
+	 */
+	private final AtomicLong outstanding = new AtomicLong();
+
+	private volatile boolean completed;
+
+	private volatile Throwable error;
+
+	/**
+	 * Creates a subscriber.
+	 *
+	 * @param maxQueuedEvents
+	 *            the number of queued events up to which more events are requested.
+	 */
+	public StateMachineSubscriber(final int maxQueuedEvents) {
+		Preconditions.checkArgument(maxQueuedEvents > 0, "maxQueuedEvents must be positive.");
+		this.maxQueuedEvents = maxQueuedEvents;
+	}
+
+	/**
+	 * Attaches the state machine the events are fired on. Events are requested once both the
+	 * machine and the subscription are known.
+	 *
+	 * @param stateMachine
+	 *            the state machine, created from a definition the subscriber is registered with.
+	 */
+	public void attach(final TStateMachine stateMachine) {
+		Preconditions.checkNotNull(stateMachine);
+		Preconditions.checkState(this.stateMachine == null, "The subscriber is already attached.");
+		this.stateMachine = stateMachine;
+		requestMore();
+	}
+
+	@Override
+	public void onSubscribe(final Flow.Subscription subscription) {
+		Preconditions.checkNotNull(subscription);
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		requestMore();
+	}
+
+	/**
+	 * Fires the event on the state machine and requests the next ones if there is room.
+	 */
+	@Override
+	public void onNext(final FiredEvent<TEvent> item) {
+		stateMachine.fire(item.getEventId(), item.getEventArguments());
+		outstanding.decrementAndGet();
+		requestMore();
+	}
+
+	@Override
+	public void onError(final Throwable throwable) {
+		this.error = throwable;
+		this.completed = true;
+	}
+
+	@Override
+	public void onComplete() {
+		this.completed = true;
+	}
+
+	/**
+	 * Cancels the subscription, no more events are requested.
+	 */
+	public void cancel() {
+		completed = true;
+		final Flow.Subscription s = subscription;
+		if (s != null) {
+			s.cancel();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> once the publisher completed or failed or the subscription is
+	 * cancelled.
+	 */
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Returns the failure of the publisher, <code>null</code> if it didn't fail.
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	@Override
+	public void onTransitionCompleted(final TransitionCompletedEventArgs<TStateMachine, TState, TEvent> arg) {
+		if (arg.getSource() == stateMachine) {
+			requestMore();
+		}
+	}
+
+	@Override
+	public void onTransitionDeclined(final TransitionEventArgs<TStateMachine, TState, TEvent> arg) {
+		if (arg.getSource() == stateMachine) {
+			requestMore();
+		}
+	}
+
+	/**
+	 * Requests as many events as fit into the queue of the machine besides the queued and the
+	 * outstanding ones. The event fired by {@link #onNext(FiredEvent)} is counted as outstanding
+	 * until it is queued, so the queue never takes more than the maximum.
+	 */
+	private void requestMore() {
+		final Flow.Subscription s = subscription;
+		final TStateMachine machine = stateMachine;
+		if (s == null || machine == null || completed) {
+			return;
+		}
+		while (true) {
+			final long current = outstanding.get();
+			final long demand = maxQueuedEvents - machine.numberOfQueuedEvents() - current;
+			if (demand <= 0) {
+				return;
+			}
+			if (outstanding.compareAndSet(current, current + demand)) {
+				s.request(demand);
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package ch.bbv.fsm.impl.flow;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.bbv.fsm.EventQueueOverflowPolicy;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.events.EventInterest;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.flow.CompletedTransition;
+import ch.bbv.fsm.flow.Flow;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Publishes the completed transitions of the state machines of a definition. Register it as an
+ * event handler before the machines are created:
+ *
+ * <pre>
+ * definition.addEventHandler(publisher, TransitionPublisher.INTERESTS);
+ * </pre>
+ *
+ * Each subscriber has a buffer of its own for the transitions it did not request yet. When the
+ * buffer of a subscriber is full, the {@link EventQueueOverflowPolicy} decides: with
+ * {@link EventQueueOverflowPolicy#BLOCK} the state machine waits until the subscriber requests
+ * more, which propagates the backpressure to the queue of the machine; with
+ * {@link EventQueueOverflowPolicy#REJECT} the subscription fails with an
+ * {@link IllegalStateException}; with the drop policies the subscriber misses transitions. Slow
+ * subscribers don't hold up the other ones unless they block.
+ *
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the enumeration type of the states.
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public class TransitionPublisher<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+		extends StateMachineEventAdapter<TStateMachine, TState, TEvent> implements
+		Flow.Publisher<CompletedTransition<TStateMachine, TState, TEvent>> {
+
+	/**
+	 * The callbacks the publisher must be registered for.
+	 */
+	public static final int INTERESTS = EventInterest.COMPLETED;
+
+	private final int bufferSize;
+
+	private final EventQueueOverflowPolicy overflowPolicy;
+
+	private final CopyOnWriteArrayList<TransitionSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a publisher.
+	 *
+	 * @param bufferSize
+	 *            the number of transitions buffered per subscriber.
+	 * @param overflowPolicy
+	 *            what to do with a transition published to a subscriber whose buffer is full.
+	 */
+	public TransitionPublisher(final int bufferSize, final EventQueueOverflowPolicy overflowPolicy) {
+		Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive.");
+		this.bufferSize = bufferSize;
+		this.overflowPolicy = Preconditions.checkNotNull(overflowPolicy);
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super CompletedTransition<TStateMachine, TState, TEvent>> subscriber) {
+		Preconditions.checkNotNull(subscriber);
+		final TransitionSubscription subscription = new TransitionSubscription(subscriber);
+		subscriptions.add(subscription);
+		subscriber.onSubscribe(subscription);
+		if (closed) {
+			subscription.complete();
+		}
+	}
+
+	@Override
+	public void onTransitionCompleted(final TransitionCompletedEventArgs<TStateMachine, TState, TEvent> arg) {
+		if (subscriptions.isEmpty()) {
+			return;
+		}
+		final CompletedTransition<TStateMachine, TState, TEvent> transition = new CompletedTransition<>(
+				arg.getSource(), arg.getStateId(), arg.getEventId(), arg.getEventArguments(), arg.getNewStateId());
+		for (final TransitionSubscription subscription : subscriptions) {
+			subscription.offer(transition);
+		}
+	}
+
+	/**
+	 * Completes the subscribers once they received the buffered transitions. Transitions completed
+	 * afterwards are not published any longer.
+	 */
+	public void close() {
+		closed = true;
+		for (final TransitionSubscription subscription : subscriptions) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * Returns the number of subscribers.
+	 */
+	public int numberOfSubscribers() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * The subscription of a subscriber and its buffer. The callbacks of the subscriber are called by
+	 * whichever thread wins the drain, never concurrently.
+	 */
+	private final class TransitionSubscription implements Flow.Subscription {
+
+		private final Flow.Subscriber<? super CompletedTransition<TStateMachine, TState, TEvent>> subscriber;
+
+		/**
+		 * The transitions not delivered yet, guarded by this.
+		 */
+		private final ArrayDeque<CompletedTransition<TStateMachine, TState, TEvent>> buffer = new ArrayDeque<>();
+
+		/**
+		 * The number of requested transitions not delivered yet, guarded by this.
+		 */
+		private long requested;
+
+		/**
+		 * The failure to signal, guarded by this.
+		 */
+		private Throwable error;
+
+		/**
+		 * <code>true</code> once the publisher is closed, guarded by this.
+		 */
+		private boolean completing;
+
+		private volatile boolean cancelled;
+
+		/**
+		 * The thread delivering to the subscriber, which must not wait for room in the buffer.
+		 */
+		private volatile Thread drainingThread;
+
+		/**
+		 * The number of drains asked for while one is running.
+		 */
+		private final AtomicInteger work = new AtomicInteger();
+
+		TransitionSubscription(
+				final Flow.Subscriber<? super CompletedTransition<TStateMachine, TState, TEvent>> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		void offer(final CompletedTransition<TStateMachine, TState, TEvent> transition) {
+			synchronized (this) {
+				if (cancelled || completing || error != null) {
+					return;
+				}
+				while (buffer.size() >= bufferSize) {
+					if (overflowPolicy == EventQueueOverflowPolicy.DROP_NEWEST) {
+						return;
+					} else if (overflowPolicy == EventQueueOverflowPolicy.DROP_OLDEST) {
+						buffer.poll();
+					} else if (overflowPolicy == EventQueueOverflowPolicy.BLOCK
+							&& Thread.currentThread() != drainingThread) {
+						try {
+							wait();
+						} catch (final InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+						if (cancelled) {
+							return;
+						}
+					} else {
+						// the thread delivering to the subscriber can't wait for it
+						error = new IllegalStateException("The subscriber did not keep up, its buffer of "
+								+ bufferSize + " transitions is full.");
+						buffer.clear();
+						break;
+					}
+				}
+				if (error == null) {
+					buffer.add(transition);
+				}
+			}
+			drain();
+		}
+
+		void complete() {
+			synchronized (this) {
+				completing = true;
+			}
+			drain();
+		}
+
+		@Override
+		public void request(final long n) {
+			synchronized (this) {
+				if (n <= 0) {
+					error = new IllegalArgumentException("The number of requested transitions must be positive but was "
+							+ n);
+				} else {
+					requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			synchronized (this) {
+				buffer.clear();
+				notifyAll();
+			}
+			subscriptions.remove(this);
+		}
+
+		/**
+		 * Delivers the requested transitions and the termination signals outside the lock. Only one
+		 * thread drains at a time; a drain asked for meanwhile is done by the draining thread.
+		 */
+		private void drain() {
+			if (work.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				drainingThread = Thread.currentThread();
+				try {
+					while (deliver()) {
+						// until nothing is requested or buffered
+					}
+				} finally {
+					drainingThread = null;
+				}
+				missed = work.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		/**
+		 * Delivers the next transition or the termination signal.
+		 *
+		 * @return <code>true</code> if a transition was delivered.
+		 */
+		private boolean deliver() {
+			final CompletedTransition<TStateMachine, TState, TEvent> transition;
+			final Throwable failure;
+			synchronized (this) {
+				if (cancelled) {
+					return false;
+				}
+				failure = error;
+				if (failure == null && requested > 0 && !buffer.isEmpty()) {
+					requested--;
+					transition = buffer.poll();
+					notifyAll();
+				} else if (failure == null && !(completing && buffer.isEmpty())) {
+					return false;
+				} else {
+					transition = null;
+					cancelled = true;
+					buffer.clear();
+					notifyAll();
+				}
+			}
+			if (transition != null) {
+				subscriber.onNext(transition);
+				return true;
+			}
+			subscriptions.remove(this);
+			if (failure != null) {
+				subscriber.onError(failure);
+			} else {
+				subscriber.onComplete();
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Implementations of the Reactive Streams adapters of the state machines.
+ */
+package ch.bbv.fsm.impl.flow;
@@ -0,0 +1,177 @@
+package ch.bbv.fsm.impl.internal.action;
+
+import ch.bbv.fsm.EventBatch;
+
+/**
+ * The arguments of an event: an array, a single object or a single
+ * <code>long</code> or <code>int</code>. A single argument is passed to the
+ * typed actions and guards as it is; the array is only created when it is
+ * requested.
+ */
+public class EventArguments {
+
+	private static final int ARRAY = 0;
+
+	private static final int OBJECT = 1;
+
+	private static final int LONG = 2;
+
+	private static final int INT = 3;
+
+	private int type;
+
+	/**
+	 * The arguments, created on demand for a single argument.
+	 */
+	private Object[] arguments;
+
+	private Object argument;
+
+	private long longArgument;
+
+	/**
+	 * Creates arguments without an array.
+	 */
+	public EventArguments() {
+	}
+
+	/**
+	 * Creates arguments from an array.
+	 *
+	 * @param arguments
+	 *            the arguments, may be <code>null</code>.
+	 */
+	public EventArguments(final Object[] arguments) {
+		this.arguments = arguments;
+	}
+
+	/**
+	 * Sets an array of arguments.
+	 *
+	 * @param arguments
+	 *            the arguments, may be <code>null</code>.
+	 */
+	public final void setArguments(final Object[] arguments) {
+		this.type = ARRAY;
+		this.arguments = arguments;
+		this.argument = null;
+	}
+
+	/**
+	 * Sets a single argument.
+	 *
+	 * @param argument
+	 *            the argument.
+	 */
+	public final void setArgument(final Object argument) {
+		this.type = OBJECT;
+		this.arguments = null;
+		this.argument = argument;
+	}
+
+	/**
+	 * Sets a single <code>long</code> argument.
+	 *
+	 * @param argument
+	 *            the argument.
+	 */
+	public final void setLongArgument(final long argument) {
+		this.type = LONG;
+		this.arguments = null;
+		this.argument = null;
+		this.longArgument = argument;
+	}
+
+	/**
+	 * Sets a single <code>int</code> argument.
+	 *
+	 * @param argument
+	 *            the argument.
+	 */
+	public final void setIntArgument(final int argument) {
+		this.type = INT;
+		this.arguments = null;
+		this.argument = null;
+		this.longArgument = argument;
+	}
+
+	/**
+	 * Copies the arguments of another event.
+	 *
+	 * @param other
+	 *            the other arguments.
+	 */
+	public final void setArguments(final EventArguments other) {
+		this.type = other.type;
+		this.arguments = other.arguments;
+		this.argument = other.argument;
+		this.longArgument = other.longArgument;
+	}
+
+	/**
+	 * Copies the arguments of an event of a batch.
+	 *
+	 * @param batch
+	 *            the batch.
+	 * @param index
+	 *            the index of the event in the batch.
+	 */
+	public final void setArguments(final EventBatch<?> batch, final int index) {
+		if (batch.hasLongArgument(index)) {
+			setLongArgument(batch.getLongArgument(index));
+		} else {
+			setArguments(batch.getEventArguments(index));
+		}
+	}
+
+	/**
+	 * Returns all arguments, a single argument is wrapped in an array on the
+	 * first call.
+	 *
+	 * @return the arguments, may be <code>null</code>.
+	 */
+	public final Object[] getArguments() {
+		if (this.arguments == null && this.type != ARRAY) {
+			this.arguments = new Object[] { getArgument(0) };
+		}
+		return this.arguments;
+	}
+
+	/**
+	 * Returns an argument, a single <code>long</code> or <code>int</code> is
+	 * boxed.
+	 *
+	 * @param index
+	 *            the index of the argument.
+	 * @return the argument.
+	 */
+	public final Object getArgument(final int index) {
+		if (this.type == ARRAY) {
+			return this.arguments[index];
+		}
+		if (index != 0) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		switch (this.type) {
+		case LONG:
+			return Long.valueOf(this.longArgument);
+		case INT:
+			return Integer.valueOf((int) this.longArgument);
+		default:
+			return this.argument;
+		}
+	}
+
+	/**
+	 * Returns the first argument as a <code>long</code>, without boxing if it
+	 * is a single <code>long</code> or <code>int</code>.
+	 *
+	 * @return the argument.
+	 */
+	public final long getLongArgument() {
+		if (this.type == LONG || this.type == INT) {
+			return this.longArgument;
+		}
+		return ((Number) getArgument(0)).longValue();
+	}
+}
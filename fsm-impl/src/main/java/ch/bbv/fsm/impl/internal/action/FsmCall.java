@@ -1,5 +1,7 @@
 package ch.bbv.fsm.impl.internal.action;
 
+import java.lang.invoke.MethodHandle;
+
 import ch.bbv.fsm.StateMachine;
 
 /**
@@ -28,7 +30,24 @@ public interface FsmCall<TStateMachine extends StateMachine<TState, TEvent>, TSt
 	 * @param fsm
 	 *            the state machine.
 	 * @param args
-	 *            the parameters.
+	 *            the arguments of the event.
+	 */
+	void execOn(TStateMachine fsm, EventArguments args);
+
+	/**
+	 * Returns a method handle of type <code>(StateMachine)void</code> that
+	 * behaves like {@link #execOn(StateMachine)}.
+	 * 
+	 * @return the method handle.
+	 */
+	MethodHandle toMethodHandle();
+
+	/**
+	 * Returns a method handle of type
+	 * <code>(StateMachine, EventArguments)void</code> that behaves like
+	 * {@link #execOn(StateMachine, EventArguments)}.
+	 * 
+	 * @return the method handle.
 	 */
-	void execOn(TStateMachine fsm, Object... args);
+	MethodHandle toMethodHandleWithArguments();
 }
@@ -1,5 +1,8 @@
 package ch.bbv.fsm.impl.internal.action;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.action.FsmAction0;
 
@@ -35,7 +38,23 @@ public class FsmCall0<TStateMachine extends StateMachine<TState, TEvent>, TState
    * {@inheritDoc}
    */
   @Override
-  public void execOn(final TStateMachine fsm, final Object... args) {
+  public void execOn(final TStateMachine fsm, final EventArguments args) {
     action.exec(fsm);
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandle() {
+    return FsmCallHandles.EXEC0.bindTo(action);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandleWithArguments() {
+    return MethodHandles.dropArguments(toMethodHandle(), 1, EventArguments.class);
+  }
 }
@@ -1,5 +1,8 @@
 package ch.bbv.fsm.impl.internal.action;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.action.FsmAction1;
 
@@ -40,7 +43,24 @@ public class FsmCall1<TStateMachine extends StateMachine<TState, TEvent>, TState
    */
   @SuppressWarnings("unchecked")
   @Override
-  public void execOn(final TStateMachine fsm, final Object... args) {
-    action.exec(fsm, (P1) args[0]);
+  public void execOn(final TStateMachine fsm, final EventArguments args) {
+    action.exec(fsm, (P1) args.getArgument(0));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandle() {
+    return MethodHandles.insertArguments(FsmCallHandles.EXEC1.bindTo(action), 1, p1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandleWithArguments() {
+    return MethodHandles.filterArguments(FsmCallHandles.EXEC1.bindTo(action), 1,
+        FsmCallHandles.argument(0));
   }
 }
@@ -1,5 +1,9 @@
 package ch.bbv.fsm.impl.internal.action;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.action.FsmAction2;
 
@@ -45,7 +49,26 @@ public class FsmCall2<TStateMachine extends StateMachine<TState, TEvent>, TState
    */
   @SuppressWarnings("unchecked")
   @Override
-  public void execOn(final TStateMachine fsm, final Object... args) {
-    action.exec(fsm, (P1) args[0], (P2) args[1]);
+  public void execOn(final TStateMachine fsm, final EventArguments args) {
+    action.exec(fsm, (P1) args.getArgument(0), (P2) args.getArgument(1));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandle() {
+    return MethodHandles.insertArguments(FsmCallHandles.EXEC2.bindTo(action), 1, p1, p2);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandleWithArguments() {
+    final MethodHandle exec = MethodHandles.filterArguments(FsmCallHandles.EXEC2.bindTo(action), 1,
+        FsmCallHandles.argument(0), FsmCallHandles.argument(1));
+    return MethodHandles.permuteArguments(exec,
+        MethodType.methodType(void.class, StateMachine.class, EventArguments.class), 0, 1, 1);
   }
 }
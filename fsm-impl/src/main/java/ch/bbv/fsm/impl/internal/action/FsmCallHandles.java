@@ -0,0 +1,115 @@
+package ch.bbv.fsm.impl.internal.action;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.action.FsmAction0;
+import ch.bbv.fsm.action.FsmAction1;
+import ch.bbv.fsm.action.FsmAction2;
+import ch.bbv.fsm.action.FsmActionLong;
+import ch.bbv.fsm.guard.Function;
+import ch.bbv.fsm.guard.FunctionLong;
+
+/**
+ * The method handles shared by the {@link FsmCall} and {@link FsmGuard}
+ * implementations.
+ */
+final class FsmCallHandles {
+
+	/**
+	 * {@link FsmAction0#exec}, type <code>(FsmAction0, StateMachine)void</code>.
+	 */
+	static final MethodHandle EXEC0;
+
+	/**
+	 * {@link FsmAction1#exec}, type
+	 * <code>(FsmAction1, StateMachine, Object)void</code>.
+	 */
+	static final MethodHandle EXEC1;
+
+	/**
+	 * {@link FsmAction2#exec}, type
+	 * <code>(FsmAction2, StateMachine, Object, Object)void</code>.
+	 */
+	static final MethodHandle EXEC2;
+
+	/**
+	 * {@link FsmActionLong#exec}, type
+	 * <code>(FsmActionLong, StateMachine, long)void</code>.
+	 */
+	static final MethodHandle EXEC_LONG;
+
+	/**
+	 * {@link Function#execute}, type
+	 * <code>(Function, StateMachine, Object)boolean</code>.
+	 */
+	static final MethodHandle EXECUTE;
+
+	/**
+	 * {@link FunctionLong#execute}, type
+	 * <code>(FunctionLong, StateMachine, long)boolean</code>.
+	 */
+	static final MethodHandle EXECUTE_LONG;
+
+	/**
+	 * {@link EventArguments#getArguments()}, type
+	 * <code>(EventArguments)Object[]</code>.
+	 */
+	static final MethodHandle ARGUMENTS;
+
+	/**
+	 * {@link EventArguments#getLongArgument()}, type
+	 * <code>(EventArguments)long</code>.
+	 */
+	static final MethodHandle LONG_ARGUMENT;
+
+	private static final MethodHandle ARGUMENT;
+
+	static {
+		final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		try {
+			EXEC0 = lookup.findVirtual(FsmAction0.class, "exec", MethodType.methodType(void.class, StateMachine.class));
+			EXEC1 = lookup.findVirtual(FsmAction1.class, "exec",
+					MethodType.methodType(void.class, StateMachine.class, Object.class));
+			EXEC2 = lookup.findVirtual(FsmAction2.class, "exec",
+					MethodType.methodType(void.class, StateMachine.class, Object.class, Object.class));
+			EXEC_LONG = lookup.findVirtual(FsmActionLong.class, "exec",
+					MethodType.methodType(void.class, StateMachine.class, long.class));
+			final MethodHandle booleanValue = lookup.findVirtual(Boolean.class, "booleanValue",
+					MethodType.methodType(boolean.class));
+			EXECUTE = MethodHandles.filterReturnValue(lookup.findVirtual(Function.class, "execute",
+					MethodType.methodType(Object.class, StateMachine.class, Object.class)).asType(
+					MethodType.methodType(Boolean.class, Function.class, StateMachine.class, Object.class)),
+					booleanValue);
+			EXECUTE_LONG = MethodHandles.filterReturnValue(lookup.findVirtual(FunctionLong.class, "execute",
+					MethodType.methodType(Object.class, StateMachine.class, long.class)).asType(
+					MethodType.methodType(Boolean.class, FunctionLong.class, StateMachine.class, long.class)),
+					booleanValue);
+			ARGUMENTS = lookup.findVirtual(EventArguments.class, "getArguments",
+					MethodType.methodType(Object[].class));
+			LONG_ARGUMENT = lookup.findVirtual(EventArguments.class, "getLongArgument",
+					MethodType.methodType(long.class));
+			ARGUMENT = lookup.findVirtual(EventArguments.class, "getArgument",
+					MethodType.methodType(Object.class, int.class));
+		} catch (final ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private FsmCallHandles() {
+	}
+
+	/**
+	 * Returns a method handle of type <code>(EventArguments)Object</code>
+	 * that returns the argument at the given index.
+	 *
+	 * @param index
+	 *            the index of the argument
+	 * @return the method handle
+	 */
+	static MethodHandle argument(final int index) {
+		return MethodHandles.insertArguments(ARGUMENT, 1, index);
+	}
+}
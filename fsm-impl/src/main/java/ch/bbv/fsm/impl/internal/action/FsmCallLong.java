@@ -0,0 +1,63 @@
+package ch.bbv.fsm.impl.internal.action;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.action.FsmActionLong;
+
+/**
+ * {@link FsmCall} implementation with a <code>long</code> parameter.
+ *
+ * @param <TStateMachine> the state machine.
+ * @param <TState> the type of the states.
+ * @param <TEvent> the type of the events.
+ */
+public class FsmCallLong<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+    implements FsmCall<TStateMachine, TState, TEvent> {
+  private final FsmActionLong<TStateMachine, TState, TEvent> action;
+  private final long p1;
+
+  /**
+   * Constructor.
+   * @param action the action.
+   * @param p1 the parameter.
+   */
+  public FsmCallLong(final FsmActionLong<TStateMachine, TState, TEvent> action, final long p1) {
+    this.action = action;
+    this.p1 = p1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execOn(final TStateMachine fsm) {
+    action.exec(fsm, p1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execOn(final TStateMachine fsm, final EventArguments args) {
+    action.exec(fsm, args.getLongArgument());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandle() {
+    return MethodHandles.insertArguments(FsmCallHandles.EXEC_LONG.bindTo(action), 1, p1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandleWithArguments() {
+    return MethodHandles.filterArguments(FsmCallHandles.EXEC_LONG.bindTo(action), 1,
+        FsmCallHandles.LONG_ARGUMENT);
+  }
+}
@@ -0,0 +1,38 @@
+package ch.bbv.fsm.impl.internal.action;
+
+import java.lang.invoke.MethodHandle;
+
+import ch.bbv.fsm.StateMachine;
+
+/**
+ * Defines the API of the guard implementations.
+ *
+ * @param <TStateMachine>
+ *            the state machine.
+ * @param <TState>
+ *            the type of the states.
+ * @param <TEvent>
+ *            the type of the events.
+ */
+public interface FsmGuard<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	/**
+	 * Evaluates the guard.
+	 * 
+	 * @param fsm
+	 *            the state machine.
+	 * @param args
+	 *            the arguments of the event.
+	 * @return true if the transition may fire.
+	 */
+	boolean evaluate(TStateMachine fsm, EventArguments args);
+
+	/**
+	 * Returns a method handle of type
+	 * <code>(StateMachine, EventArguments)boolean</code> that behaves like
+	 * {@link #evaluate(StateMachine, EventArguments)}.
+	 * 
+	 * @return the method handle.
+	 */
+	MethodHandle toMethodHandle();
+}
@@ -0,0 +1,51 @@
+package ch.bbv.fsm.impl.internal.action;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.guard.Function;
+
+/**
+ * {@link FsmGuard} implementation receiving the single argument of the event.
+ *
+ * @param <TStateMachine> the state machine.
+ * @param <TState> the type of the states.
+ * @param <TEvent> the type of the events.
+ * @param <P1> the type of the argument.
+ */
+public class FsmGuard1<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>, P1>
+    implements FsmGuard<TStateMachine, TState, TEvent> {
+  private final Function<TStateMachine, TState, TEvent, P1, Boolean> guard;
+
+  /**
+   * Constructor.
+   * @param guard the guard.
+   */
+  public FsmGuard1(final Function<TStateMachine, TState, TEvent, P1, Boolean> guard) {
+    this.guard = guard;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean evaluate(final TStateMachine fsm, final EventArguments args) {
+    return guard.execute(fsm, (P1) args.getArgument(0));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandle() {
+    return MethodHandles.filterArguments(FsmCallHandles.EXECUTE.bindTo(guard), 1,
+        FsmCallHandles.argument(0));
+  }
+
+  @Override
+  public String toString() {
+    return guard.toString();
+  }
+}
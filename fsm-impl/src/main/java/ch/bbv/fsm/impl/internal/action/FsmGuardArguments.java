@@ -0,0 +1,50 @@
+package ch.bbv.fsm.impl.internal.action;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.guard.Function;
+
+/**
+ * {@link FsmGuard} implementation receiving all arguments of the event.
+ *
+ * @param <TStateMachine> the state machine.
+ * @param <TState> the type of the states.
+ * @param <TEvent> the type of the events.
+ */
+public class FsmGuardArguments<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+    implements FsmGuard<TStateMachine, TState, TEvent> {
+  private final Function<TStateMachine, TState, TEvent, Object[], Boolean> guard;
+
+  /**
+   * Constructor.
+   * @param guard the guard.
+   */
+  public FsmGuardArguments(final Function<TStateMachine, TState, TEvent, Object[], Boolean> guard) {
+    this.guard = guard;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean evaluate(final TStateMachine fsm, final EventArguments args) {
+    return guard.execute(fsm, args.getArguments());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandle() {
+    return MethodHandles.filterArguments(FsmCallHandles.EXECUTE.bindTo(guard), 1,
+        FsmCallHandles.ARGUMENTS.asType(MethodType.methodType(Object.class, EventArguments.class)));
+  }
+
+  @Override
+  public String toString() {
+    return guard.toString();
+  }
+}
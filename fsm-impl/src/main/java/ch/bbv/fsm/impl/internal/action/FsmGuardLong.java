@@ -0,0 +1,50 @@
+package ch.bbv.fsm.impl.internal.action;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.guard.FunctionLong;
+
+/**
+ * {@link FsmGuard} implementation receiving the argument of the event as a
+ * <code>long</code>.
+ *
+ * @param <TStateMachine> the state machine.
+ * @param <TState> the type of the states.
+ * @param <TEvent> the type of the events.
+ */
+public class FsmGuardLong<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+    implements FsmGuard<TStateMachine, TState, TEvent> {
+  private final FunctionLong<TStateMachine, TState, TEvent, Boolean> guard;
+
+  /**
+   * Constructor.
+   * @param guard the guard.
+   */
+  public FsmGuardLong(final FunctionLong<TStateMachine, TState, TEvent, Boolean> guard) {
+    this.guard = guard;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean evaluate(final TStateMachine fsm, final EventArguments args) {
+    return guard.execute(fsm, args.getLongArgument());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MethodHandle toMethodHandle() {
+    return MethodHandles.filterArguments(FsmCallHandles.EXECUTE_LONG.bindTo(guard), 1,
+        FsmCallHandles.LONG_ARGUMENT);
+  }
+
+  @Override
+  public String toString() {
+    return guard.toString();
+  }
+}
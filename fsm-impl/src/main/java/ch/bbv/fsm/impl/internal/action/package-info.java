@@ -1,5 +1,5 @@
 /**
- * Actions.
+ * Actions and guards.
  */
 package ch.bbv.fsm.impl.internal.action;
 
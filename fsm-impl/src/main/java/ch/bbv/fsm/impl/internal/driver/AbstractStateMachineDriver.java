@@ -1,12 +1,15 @@
 package ch.bbv.fsm.impl.internal.driver;
 
-import java.util.List;
-
+import ch.bbv.fsm.EventQueueStatistics;
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.events.StateMachineEventHandler;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
 import ch.bbv.fsm.impl.internal.statemachine.StateMachineInterpreter;
+import ch.bbv.fsm.impl.internal.statemachine.events.EventHandlers;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateDictionary;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionTable;
 import ch.bbv.fsm.memento.StateMachineMemento;
+import ch.bbv.fsm.tracing.TransitionTracer;
 
 /**
  * Base implementation for all state machine drivers.
@@ -18,16 +21,21 @@ import ch.bbv.fsm.memento.StateMachineMemento;
  * @param <TEvent>
  *            the enumeration type of the events.
  */
-abstract class AbstractStateMachineDriver<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+public abstract class AbstractStateMachineDriver<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
 		implements StateMachine<TState, TEvent> {
 
-	private RunningState runningState = RunningState.Created;
+	/**
+	 * Read by the worker threads of active machines, hence volatile.
+	 */
+	private volatile RunningState runningState = RunningState.Created;
 
 	/**
 	 * The internal state machine.
 	 */
 	private StateMachineInterpreter<TStateMachine, TState, TEvent> stateMachineInterpreter;
 
+	private final DispatchStatistics statistics = new DispatchStatistics();
+
 	AbstractStateMachineDriver() {
 	}
 
@@ -40,18 +48,23 @@ abstract class AbstractStateMachineDriver<TStateMachine extends StateMachine<TSt
 	 *            the name of the state machine used in the logs.
 	 * @param states
 	 *            the states
+	 * @param transitions
+	 *            the compiled transitions of the states
+	 * @param initialState
+	 *            the initial state
+	 * @param eventHandlers
+	 *            the event handlers of the definition
 	 */
 	public void initialize(
 			final TStateMachine stateMachine,
 			final String name,
 			final StateDictionary<TStateMachine, TState, TEvent> states,
+			final TransitionTable<TStateMachine, TState, TEvent> transitions,
 			final TState initialState,
-			final List<StateMachineEventHandler<TStateMachine, TState, TEvent>> eventHandlers) {
+			final EventHandlers<TStateMachine, TState, TEvent> eventHandlers) {
 		this.stateMachineInterpreter = new StateMachineInterpreter<>(
-				stateMachine, name, states, initialState);
-		for (final StateMachineEventHandler<TStateMachine, TState, TEvent> eventHandler : eventHandlers) {
-			stateMachineInterpreter.addEventHandler(eventHandler);
-		}
+				stateMachine, name, states, transitions, initialState);
+		stateMachineInterpreter.setEventHandlers(eventHandlers);
 	}
 
 	@Override
@@ -98,7 +111,67 @@ abstract class AbstractStateMachineDriver<TStateMachine extends StateMachine<TSt
 	 *            the event to be fired on the state machine.
 	 */
 	void fireEventOnStateMachine(final EventInformation<TEvent> e) {
-		stateMachineInterpreter.fire(e.getEventId(), e.getEventArguments());
+		statistics.dispatched(e.getEnqueueTime());
+		stateMachineInterpreter.fire(e.getEventId(), e, e.isCoalesced());
+	}
+
+	/**
+	 * Fires an event on the state machine without queuing it.
+	 * 
+	 * @param eventId
+	 *            the event id.
+	 * @param eventArguments
+	 *            the event arguments.
+	 */
+	void fireEventOnStateMachine(final TEvent eventId,
+			final EventArguments eventArguments) {
+		this.fireEventOnStateMachine(eventId, eventArguments, false);
+	}
+
+	/**
+	 * Fires an event of a batch on the state machine without queuing it.
+	 * 
+	 * @param eventId
+	 *            the event id.
+	 * @param eventArguments
+	 *            the event arguments.
+	 * @param coalesced
+	 *            <code>true</code> if the handlers are not notified of the
+	 *            transition.
+	 */
+	void fireEventOnStateMachine(final TEvent eventId,
+			final EventArguments eventArguments, final boolean coalesced) {
+		statistics.dispatched(System.nanoTime());
+		stateMachineInterpreter.fire(eventId, eventArguments, coalesced);
+	}
+
+	@Override
+	public void setTransitionTracer(
+			final TransitionTracer<TState, TEvent> tracer) {
+		stateMachineInterpreter.setTransitionTracer(tracer);
+	}
+
+	/**
+	 * Sets whether the state machine reuses a single transition context for
+	 * all events instead of allocating one per event.
+	 * 
+	 * @param reuse
+	 *            true to reuse the transition context.
+	 */
+	public void setReuseTransitionContext(final boolean reuse) {
+		stateMachineInterpreter.setReuseTransitionContext(reuse);
+	}
+
+	@Override
+	public EventQueueStatistics getEventQueueStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the statistics to update.
+	 */
+	DispatchStatistics getStatistics() {
+		return statistics;
 	}
 
 	@Override
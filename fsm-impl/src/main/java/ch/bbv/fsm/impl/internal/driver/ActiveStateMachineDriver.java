@@ -18,16 +18,41 @@
  *******************************************************************************/
 package ch.bbv.fsm.impl.internal.driver;
 
-import java.util.concurrent.BlockingDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.EventQueueOverflowPolicy;
 import ch.bbv.fsm.StateMachine;
 
 /**
  * An active state machine. This state machine reacts to events on a separate worker thread.
+ * <p>
+ * By default every machine owns its worker thread. If the machine is created with a shared
+ * {@link Executor} it does not own a thread: it is submitted to the executor whenever its queue
+ * becomes non-empty and processes its events there. At most one task per machine is scheduled at
+ * any time, so the events of a machine are still processed one after the other in queue order.
+ * <p>
+ * The events are queued in a lock-free {@link MpscEventQueue}: producers neither block each other
+ * nor the worker, and priority events use a lane of their own. The queue is unbounded unless a
+ * capacity is given, then a preallocated ring is used and an event fired into the full queue is
+ * handled according to the {@link EventQueueOverflowPolicy}.
+ * <p>
+ * An idle worker thread is parked until an event is queued or the machine is terminated; it does
+ * not poll the queue.
+ * <p>
+ * Events of a conflated type are queued only once while pending: the first event holds the place
+ * of the type in the queue and a later one replaces the pending event, so the latest event of the
+ * type is executed in the place of the first.
  * 
  * @author Ueli Kurmann (bbv Software Services AG) (bbv Software Services AG)
  * 
@@ -41,19 +66,79 @@ import ch.bbv.fsm.StateMachine;
 public class ActiveStateMachineDriver<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
 		extends AbstractStateMachineDriver<TStateMachine, TState, TEvent> {
 
-	private static final int BLOCKING_TIME_ON_EVENT_MS = 10;
-
 	private static final int WAIT_FOR_TERMINATION_MS = 10000;
 
+	/**
+	 * Maximum number of events processed in one run on a shared executor before the machine
+	 * yields the thread to the other machines.
+	 */
+	private static final int EVENTS_PER_DRAIN = 64;
+
 	/**
 	 * List of all queued events.
 	 */
-	private final BlockingDeque<EventInformation<TEvent>> events;
+	private final MpscEventQueue<TEvent> events;
 
 	private ExecutorService executorService;
 
+	/**
+	 * The executor shared with other machines, <code>null</code> if the machine owns its worker
+	 * thread.
+	 */
+	private final Executor sharedExecutor;
+
+	/**
+	 * <code>true</code> while a drain of this machine is submitted to or running on the shared
+	 * executor.
+	 */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * The thread owned by this machine, <code>null</code> until it is started.
+	 */
+	private volatile Thread workerThread;
+
+	/**
+	 * The thread of the shared executor running a drain of this machine, <code>null</code> while
+	 * the machine isn't drained.
+	 */
+	private volatile Thread drainingThread;
+
+	/**
+	 * <code>true</code> while the owned worker thread is about to park or parked.
+	 */
+	private volatile boolean parked;
+
 	private final Object checkProcessingLock = new Object();
 
+	private final EventQueueOverflowPolicy overflowPolicy;
+
+	/**
+	 * How long a producer waits for room in the queue with {@link EventQueueOverflowPolicy#BLOCK}.
+	 */
+	private final long blockTimeoutNanos;
+
+	/**
+	 * Notified by the worker after it took an event while producers wait for room.
+	 */
+	private final Object notFull = new Object();
+
+	/**
+	 * The number of producers waiting for room in the queue.
+	 */
+	private final AtomicInteger blockedProducers = new AtomicInteger();
+
+	/**
+	 * Whether the event with the ordinal is conflated, <code>null</code> if no event is.
+	 */
+	private final boolean[] conflatedEvents;
+
+	/**
+	 * The latest pending event of each conflated type by ordinal, <code>null</code> if no event of
+	 * the type is queued.
+	 */
+	private final AtomicReferenceArray<EventInformation<TEvent>> pendingConflatedEvents;
+
 	/**
 	 * <code>true</code> while the driver is processing an event.
 	 */
@@ -66,64 +151,437 @@ public class ActiveStateMachineDriver<TStateMachine extends StateMachine<TState,
 		}
 	};
 
+	private final Runnable drainer = new Runnable() {
+		@Override
+		public void run() {
+			ActiveStateMachineDriver.this.drain();
+		}
+	};
+
 	/**
 	 * Create an active state machine.
 	 */
 	public ActiveStateMachineDriver() {
-		this.events = new LinkedBlockingDeque<>();
-		this.executorService = Executors.newFixedThreadPool(1);
+		this(null, 0);
+	}
+
+	/**
+	 * Create an active state machine that is scheduled on a shared executor.
+	 * 
+	 * @param executor
+	 *            the executor shared with other state machines.
+	 */
+	public ActiveStateMachineDriver(final Executor executor) {
+		this(checkNotNull(executor), 0);
+	}
+
+	/**
+	 * Create an active state machine.
+	 * 
+	 * @param executor
+	 *            the executor shared with other state machines, <code>null</code> if the machine
+	 *            owns its worker thread.
+	 * @param eventQueueCapacity
+	 *            the capacity of the event queue, 0 for an unbounded queue.
+	 */
+	public ActiveStateMachineDriver(final Executor executor, final int eventQueueCapacity) {
+		this(executor, eventQueueCapacity, EventQueueOverflowPolicy.REJECT, 0);
+	}
+
+	/**
+	 * Create an active state machine with a bounded event queue.
+	 * 
+	 * @param executor
+	 *            the executor shared with other state machines, <code>null</code> if the machine
+	 *            owns its worker thread.
+	 * @param eventQueueCapacity
+	 *            the capacity of the event queue, 0 for an unbounded queue.
+	 * @param overflowPolicy
+	 *            what to do with an event fired into the full queue.
+	 * @param blockTimeoutNanos
+	 *            how long a producer waits for room with {@link EventQueueOverflowPolicy#BLOCK}.
+	 */
+	public ActiveStateMachineDriver(final Executor executor, final int eventQueueCapacity,
+			final EventQueueOverflowPolicy overflowPolicy, final long blockTimeoutNanos) {
+		this(executor, eventQueueCapacity, overflowPolicy, blockTimeoutNanos, Collections.<Enum<?>> emptySet());
+	}
+
+	/**
+	 * Create an active state machine with a bounded event queue and conflated events.
+	 * 
+	 * @param executor
+	 *            the executor shared with other state machines, <code>null</code> if the machine
+	 *            owns its worker thread.
+	 * @param eventQueueCapacity
+	 *            the capacity of the event queue, 0 for an unbounded queue.
+	 * @param overflowPolicy
+	 *            what to do with an event fired into the full queue.
+	 * @param blockTimeoutNanos
+	 *            how long a producer waits for room with {@link EventQueueOverflowPolicy#BLOCK}.
+	 * @param conflatedEvents
+	 *            the events of which only the latest pending one is executed.
+	 */
+	public ActiveStateMachineDriver(final Executor executor, final int eventQueueCapacity,
+			final EventQueueOverflowPolicy overflowPolicy, final long blockTimeoutNanos,
+			final Set<? extends Enum<?>> conflatedEvents) {
+		if (eventQueueCapacity < 0) {
+			throw new IllegalArgumentException("eventQueueCapacity must not be negative but was " + eventQueueCapacity);
+		}
+		if (overflowPolicy == null) {
+			throw new IllegalArgumentException("overflowPolicy must not be null.");
+		}
+		this.events = eventQueueCapacity == 0 ? MpscEventQueue.<TEvent> unbounded() : MpscEventQueue
+				.<TEvent> bounded(eventQueueCapacity);
+		this.overflowPolicy = overflowPolicy;
+		this.blockTimeoutNanos = blockTimeoutNanos;
+		this.sharedExecutor = executor;
+		if (conflatedEvents.isEmpty()) {
+			this.conflatedEvents = null;
+			this.pendingConflatedEvents = null;
+		} else {
+			int size = 0;
+			for (final Enum<?> event : conflatedEvents) {
+				size = Math.max(size, event.ordinal() + 1);
+			}
+			this.conflatedEvents = new boolean[size];
+			for (final Enum<?> event : conflatedEvents) {
+				this.conflatedEvents[event.ordinal()] = true;
+			}
+			this.pendingConflatedEvents = new AtomicReferenceArray<>(size);
+		}
+	}
+
+	private static Executor checkNotNull(final Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("executor must not be null.");
+		}
+		return executor;
 	}
 
 	/**
 	 * Executes all queued events.
 	 */
 	private void execute() {
+		workerThread = Thread.currentThread();
+		while (RunningState.Running.equals(getRunningState())) {
+			if (Thread.currentThread().isInterrupted()) {
+				// Interrupted - just terminate
+				return;
+			}
+			final EventInformation<TEvent> eventToProcess = pollEvent();
+			if (eventToProcess == null) {
+				awaitEvent();
+				continue;
+			}
+			try {
+				this.fireEventOnStateMachine(eventToProcess);
+			} finally {
+				processing = false;
+			}
+		}
+	}
+
+	/**
+	 * Takes the next event and wakes up the producers waiting for room.
+	 * 
+	 * @return the event or <code>null</code> if the queue is empty.
+	 */
+	private EventInformation<TEvent> pollEvent() {
+		EventInformation<TEvent> eventToProcess;
+		synchronized (checkProcessingLock) {
+			eventToProcess = this.events.poll();
+			if (eventToProcess != null && eventToProcess.isConflated()) {
+				eventToProcess = pendingConflatedEvents.getAndSet(eventToProcess.getEventId().ordinal(), null);
+			}
+			processing = eventToProcess != null;
+		}
+		if (eventToProcess != null && blockedProducers.get() > 0) {
+			synchronized (notFull) {
+				notFull.notifyAll();
+			}
+		}
+		return eventToProcess;
+	}
+
+	/**
+	 * Parks the worker thread until an event is queued or the machine is terminated. The flag is
+	 * published before the queue is checked again, so a concurrent {@link #signal()} either sees
+	 * the flag or the worker sees the event. Spurious returns from parking park again and are not
+	 * counted as wakeups.
+	 */
+	private void awaitEvent() {
+		parked = true;
 		try {
-			while (RunningState.Running.equals(getRunningState())) {
-				final EventInformation<TEvent> eventToProcess;
-				synchronized (checkProcessingLock) {
-					eventToProcess = this.getNextEventToProcess();
-					processing = eventToProcess != null;
+			if (events.isEmpty() && RunningState.Running.equals(getRunningState())) {
+				do {
+					LockSupport.park(this);
+				} while (events.isEmpty() && RunningState.Running.equals(getRunningState())
+						&& !Thread.currentThread().isInterrupted());
+				getStatistics().wokenUp();
+			}
+		} finally {
+			parked = false;
+		}
+	}
+
+	/**
+	 * Wakes up the worker after an event was queued.
+	 */
+	private void signal() {
+		if (sharedExecutor != null) {
+			scheduleIfPending();
+		} else if (parked) {
+			final Thread thread = workerThread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+
+	/**
+	 * Executes a bounded number of queued events on the shared executor and reschedules the
+	 * machine if events are left.
+	 */
+	private void drain() {
+		drainingThread = Thread.currentThread();
+		try {
+			for (int i = 0; i < EVENTS_PER_DRAIN && RunningState.Running.equals(getRunningState()); i++) {
+				final EventInformation<TEvent> eventToProcess = pollEvent();
+				if (eventToProcess == null) {
+					break;
 				}
 				try {
-					if (eventToProcess != null) {
-						this.fireEventOnStateMachine(eventToProcess);
-					}
+					this.fireEventOnStateMachine(eventToProcess);
 				} finally {
 					processing = false;
 				}
 			}
-		} catch (InterruptedException e) {
-			// Interrupted - just terminate
-			return;
+		} finally {
+			drainingThread = null;
+			scheduled.set(false);
+			scheduleIfPending();
+		}
+	}
+
+	/**
+	 * Submits the machine to the shared executor if it is running, has queued events and is not
+	 * already scheduled.
+	 */
+	private void scheduleIfPending() {
+		if (sharedExecutor != null && RunningState.Running.equals(getRunningState()) && !events.isEmpty()
+				&& scheduled.compareAndSet(false, true)) {
+			try {
+				getStatistics().wokenUp();
+				sharedExecutor.execute(drainer);
+			} catch (final RejectedExecutionException e) {
+				scheduled.set(false);
+				throw e;
+			}
 		}
 	}
 
 	@Override
 	public boolean isIdle() {
 		synchronized (checkProcessingLock) {
-			return !processing & events.size() == 0;
+			return !processing & events.isEmpty();
 		}
 	}
 
 	@Override
 	public void fire(final TEvent eventId, final Object... eventArguments) {
-		this.events.addLast(new EventInformation<>(eventId, eventArguments));
+		queue(new EventInformation<>(eventId, eventArguments));
 	}
 
 	@Override
-	public void firePriority(final TEvent eventId, final Object... eventArguments) {
-		this.events.addFirst(new EventInformation<>(eventId, eventArguments));
+	public void fire(final TEvent eventId, final Object eventArgument) {
+		final EventInformation<TEvent> event = new EventInformation<>(eventId);
+		event.setArgument(eventArgument);
+		queue(event);
+	}
+
+	@Override
+	public void fireLong(final TEvent eventId, final long eventArgument) {
+		final EventInformation<TEvent> event = new EventInformation<>(eventId);
+		event.setLongArgument(eventArgument);
+		queue(event);
+	}
+
+	@Override
+	public void fireInt(final TEvent eventId, final int eventArgument) {
+		final EventInformation<TEvent> event = new EventInformation<>(eventId);
+		event.setIntArgument(eventArgument);
+		queue(event);
+	}
+
+	@Override
+	public boolean offer(final TEvent eventId, final Object... eventArguments) {
+		return offer(new EventInformation<>(eventId, eventArguments));
+	}
+
+	/**
+	 * Queues an event and throws if it is rejected.
+	 */
+	private void queue(final EventInformation<TEvent> event) {
+		if (!offer(event) && overflowPolicy != EventQueueOverflowPolicy.DROP_NEWEST) {
+			throw new IllegalStateException("The event queue is full, event " + event.getEventId() + " is not queued.");
+		}
 	}
 
 	/**
-	 * Gets the next event to process for the queue.
+	 * Queues a single event. An event of a conflated type replaces the pending event of its type,
+	 * if any, instead of being queued.
 	 * 
-	 * @return The next queued event.
-	 * @throws InterruptedException
+	 * @return <code>false</code> if the event was rejected or dropped.
 	 */
-	private EventInformation<TEvent> getNextEventToProcess() throws InterruptedException {
-		return this.events.pollFirst(BLOCKING_TIME_ON_EVENT_MS, TimeUnit.MILLISECONDS);
+	private boolean offer(final EventInformation<TEvent> event) {
+		final int ordinal = event.getEventId().ordinal();
+		if (conflatedEvents == null || ordinal >= conflatedEvents.length || !conflatedEvents[ordinal]) {
+			return offer(event, event, 1);
+		}
+		event.setConflated(true);
+		if (pendingConflatedEvents.getAndSet(ordinal, event) != null) {
+			getStatistics().conflated();
+			return true;
+		}
+		if (offer(event, event, 1)) {
+			return true;
+		}
+		// the event does not hold the place of its type, so neither may a later one conflated into it
+		if (pendingConflatedEvents.getAndSet(ordinal, null) != event) {
+			getStatistics().dropped(1);
+		}
+		return false;
+	}
+
+	/**
+	 * Removes a dropped event. If it holds the place of a conflated type, the pending event of the
+	 * type is dropped with it.
+	 */
+	private void discard(final EventInformation<TEvent> event) {
+		if (event.isConflated()) {
+			pendingConflatedEvents.set(event.getEventId().ordinal(), null);
+		}
+		getStatistics().dropped(1);
+	}
+
+	/**
+	 * Queues a chain of events according to the overflow policy and wakes up the worker.
+	 * 
+	 * @return <code>false</code> if the events were rejected or dropped.
+	 */
+	private boolean offer(final EventInformation<TEvent> first, final EventInformation<TEvent> last, final int count) {
+		if (!this.events.offerAll(first, last, count) && !handleOverflow(first, last, count)) {
+			return false;
+		}
+		signal();
+		return true;
+	}
+
+	/**
+	 * Handles events that don't fit into the queue.
+	 * 
+	 * @return <code>true</code> if the events were queued after all.
+	 */
+	private boolean handleOverflow(final EventInformation<TEvent> first, final EventInformation<TEvent> last,
+			final int count) {
+		switch (overflowPolicy) {
+		case DROP_NEWEST:
+			getStatistics().dropped(count);
+			return false;
+		case DROP_OLDEST:
+			if (count <= capacity()) {
+				do {
+					final EventInformation<TEvent> oldest = this.events.removeOldest();
+					if (oldest != null) {
+						discard(oldest);
+					}
+				} while (!this.events.offerAll(first, last, count));
+				return true;
+			}
+			break;
+		case BLOCK:
+			// a chain larger than the queue never fits
+			if (count <= capacity() && awaitRoom(first, last, count)) {
+				return true;
+			}
+			break;
+		default:
+			break;
+		}
+		getStatistics().rejected(count);
+		return false;
+	}
+
+	/**
+	 * Returns the capacity of the bounded queue.
+	 */
+	private int capacity() {
+		return ((RingMpscEventQueue<TEvent>) this.events).capacity();
+	}
+
+	/**
+	 * Waits until the events fit into the queue or the block timeout elapsed. The thread executing
+	 * the events of the machine, owned or from the shared executor, doesn't wait as nobody else would
+	 * make room.
+	 * 
+	 * @return <code>true</code> if the events were queued.
+	 */
+	private boolean awaitRoom(final EventInformation<TEvent> first, final EventInformation<TEvent> last,
+			final int count) {
+		final Thread currentThread = Thread.currentThread();
+		if (currentThread == workerThread || currentThread == drainingThread) {
+			return false;
+		}
+		final long deadline = System.nanoTime() + blockTimeoutNanos;
+		blockedProducers.incrementAndGet();
+		try {
+			synchronized (notFull) {
+				while (!this.events.offerAll(first, last, count)) {
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0 || RunningState.Terminated == getRunningState()) {
+						return false;
+					}
+					TimeUnit.NANOSECONDS.timedWait(notFull, remaining);
+				}
+				return true;
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			blockedProducers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Queues the events of the batch as one chain and wakes up the worker once.
+	 */
+	@Override
+	public void fireAll(final EventBatch<TEvent> events, final boolean coalesceNotifications) {
+		final int count = events.size();
+		if (count == 0) {
+			return;
+		}
+		final EventInformation<TEvent> first = new EventInformation<>(events.getEventId(0));
+		EventInformation<TEvent> last = first;
+		first.setArguments(events, 0);
+		for (int i = 1; i < count; i++) {
+			last.setCoalesced(coalesceNotifications);
+			final EventInformation<TEvent> event = new EventInformation<>(events.getEventId(i));
+			event.setArguments(events, i);
+			last.setNext(event);
+			last = event;
+		}
+		if (!offer(first, last, count) && overflowPolicy != EventQueueOverflowPolicy.DROP_NEWEST) {
+			throw new IllegalStateException("The event queue is full, the batch of " + count
+					+ " events is not queued.");
+		}
+	}
+
+	@Override
+	public void firePriority(final TEvent eventId, final Object... eventArguments) {
+		this.events.offerPriority(new EventInformation<>(eventId, eventArguments));
+		signal();
 	}
 
 	@Override
@@ -134,6 +592,10 @@ public class ActiveStateMachineDriver<TStateMachine extends StateMachine<TState,
 	@Override
 	public synchronized void start() {
 		super.start();
+		if (sharedExecutor != null) {
+			scheduleIfPending();
+			return;
+		}
 		this.executorService = Executors.newFixedThreadPool(1);
 		this.executorService.execute(this.worker);
 	}
@@ -141,6 +603,16 @@ public class ActiveStateMachineDriver<TStateMachine extends StateMachine<TState,
 	@Override
 	public synchronized void terminate() {
 		super.terminate();
+		synchronized (notFull) {
+			notFull.notifyAll();
+		}
+		if (sharedExecutor != null || executorService == null) {
+			return;
+		}
+		final Thread thread = workerThread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
 		this.executorService.shutdown();
 		try {
 			this.executorService.awaitTermination(WAIT_FOR_TERMINATION_MS, TimeUnit.MILLISECONDS);
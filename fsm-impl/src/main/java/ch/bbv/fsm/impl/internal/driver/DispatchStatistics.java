@@ -0,0 +1,125 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.bbv.fsm.EventQueueStatistics;
+
+/**
+ * Collects the {@link EventQueueStatistics} of a driver. The dispatch counters are only written by
+ * the thread currently processing the events of the machine, so plain volatile fields suffice. The
+ * other counters are written by the firing threads.
+ */
+class DispatchStatistics implements EventQueueStatistics {
+
+	private volatile long dispatchedEvents;
+
+	private volatile long totalDispatchLatencyNanos;
+
+	private volatile long maxDispatchLatencyNanos;
+
+	private final AtomicLong wakeups = new AtomicLong();
+
+	private final AtomicLong droppedEvents = new AtomicLong();
+
+	private final AtomicLong rejectedEvents = new AtomicLong();
+
+	private final AtomicLong conflatedEvents = new AtomicLong();
+
+	/**
+	 * Records the dispatch of an event.
+	 * 
+	 * @param enqueueTime
+	 *            the time the event was queued, in nanoseconds.
+	 */
+	void dispatched(final long enqueueTime) {
+		final long latency = System.nanoTime() - enqueueTime;
+		dispatchedEvents = dispatchedEvents + 1;
+		totalDispatchLatencyNanos = totalDispatchLatencyNanos + latency;
+		if (latency > maxDispatchLatencyNanos) {
+			maxDispatchLatencyNanos = latency;
+		}
+	}
+
+	/**
+	 * Records a wakeup of the worker.
+	 */
+	void wokenUp() {
+		wakeups.incrementAndGet();
+	}
+
+	/**
+	 * Records events dropped by a full queue.
+	 * 
+	 * @param count
+	 *            the number of events.
+	 */
+	void dropped(final int count) {
+		droppedEvents.addAndGet(count);
+	}
+
+	/**
+	 * Records events rejected by a full queue.
+	 * 
+	 * @param count
+	 *            the number of events.
+	 */
+	void rejected(final int count) {
+		rejectedEvents.addAndGet(count);
+	}
+
+	/**
+	 * Records an event that replaced a pending event of the same type.
+	 */
+	void conflated() {
+		conflatedEvents.incrementAndGet();
+	}
+
+	@Override
+	public long getDispatchedEvents() {
+		return dispatchedEvents;
+	}
+
+	@Override
+	public long getTotalDispatchLatencyNanos() {
+		return totalDispatchLatencyNanos;
+	}
+
+	@Override
+	public long getMaxDispatchLatencyNanos() {
+		return maxDispatchLatencyNanos;
+	}
+
+	@Override
+	public double getAverageDispatchLatencyNanos() {
+		final long dispatched = dispatchedEvents;
+		return dispatched == 0 ? 0 : (double) totalDispatchLatencyNanos / dispatched;
+	}
+
+	@Override
+	public long getWakeups() {
+		return wakeups.get();
+	}
+
+	@Override
+	public long getDroppedEvents() {
+		return droppedEvents.get();
+	}
+
+	@Override
+	public long getRejectedEvents() {
+		return rejectedEvents.get();
+	}
+
+	@Override
+	public long getConflatedEvents() {
+		return conflatedEvents.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"dispatched=%d, avgLatency=%.0fns, maxLatency=%dns, wakeups=%d, dropped=%d, rejected=%d, conflated=%d",
+				getDispatchedEvents(), getAverageDispatchLatencyNanos(), getMaxDispatchLatencyNanos(), getWakeups(),
+				getDroppedEvents(), getRejectedEvents(), getConflatedEvents());
+	}
+}
@@ -18,6 +18,8 @@
  *******************************************************************************/
 package ch.bbv.fsm.impl.internal.driver;
 
+import ch.bbv.fsm.impl.internal.action.EventArguments;
+
 /**
  * Provides information about an event: event-id and arguments.
  * 
@@ -25,9 +27,31 @@ package ch.bbv.fsm.impl.internal.driver;
  * @param <TEvent>
  *            the type of the event.
  */
-class EventInformation<TEvent> {
+class EventInformation<TEvent> extends EventArguments {
 	private TEvent eventId;
-	private Object[] eventArguments;
+
+	/**
+	 * The value of {@link System#nanoTime()} when the event was queued.
+	 */
+	private long enqueueTime;
+
+	/**
+	 * The next event in the lane of an {@link MpscEventQueue} this event is queued in. Keeping the
+	 * link in the event saves a node allocation per enqueue.
+	 */
+	private volatile EventInformation<TEvent> next;
+
+	/**
+	 * <code>true</code> if the handlers are not notified of the transition because the
+	 * notifications are coalesced with a later event of the batch.
+	 */
+	private boolean coalesced;
+
+	/**
+	 * <code>true</code> if the event holds the place of its conflated event type in the queue; the
+	 * latest pending event of the type is executed in its place.
+	 */
+	private boolean conflated;
 
 	/**
 	 * Initializes a new instance.
@@ -38,36 +62,106 @@ class EventInformation<TEvent> {
 	 *            the event arguments.
 	 */
 	EventInformation(final TEvent eventId, final Object[] eventArguments) {
+		super(eventArguments);
 		this.eventId = eventId;
-		this.eventArguments = eventArguments;
+		this.enqueueTime = System.nanoTime();
 	}
 
 	/**
-	 * Returns the event arguments.
+	 * Initializes a new instance whose single argument is set afterwards.
 	 * 
-	 * @return the event arguments.
+	 * @param eventId
+	 *            the event id.
 	 */
-	public Object[] getEventArguments() {
-		return this.eventArguments;
+	EventInformation(final TEvent eventId) {
+		this.eventId = eventId;
+		this.enqueueTime = System.nanoTime();
 	}
 
 	/**
-	 * Returns the event id.
+	 * Returns the value of {@link System#nanoTime()} when the event was queued.
 	 * 
-	 * @return the event id.
+	 * @return the enqueue time in nanoseconds.
 	 */
-	public TEvent getEventId() {
-		return this.eventId;
+	public long getEnqueueTime() {
+		return this.enqueueTime;
 	}
 
 	/**
-	 * Sets the event arguments.
+	 * Sets the time the event was queued, for a recycled event.
 	 * 
-	 * @param eventArguments
-	 *            the event arguments.
+	 * @param enqueueTime
+	 *            the value of {@link System#nanoTime()} when the event was queued.
 	 */
-	public void setEventArguments(final Object[] eventArguments) {
-		this.eventArguments = eventArguments;
+	void setEnqueueTime(final long enqueueTime) {
+		this.enqueueTime = enqueueTime;
+	}
+
+	/**
+	 * Returns the next event in the queue lane.
+	 * 
+	 * @return the next event or <code>null</code>.
+	 */
+	EventInformation<TEvent> getNext() {
+		return this.next;
+	}
+
+	/**
+	 * Sets the next event in the queue lane.
+	 * 
+	 * @param next
+	 *            the next event.
+	 */
+	void setNext(final EventInformation<TEvent> next) {
+		this.next = next;
+	}
+
+	/**
+	 * Returns <code>true</code> if the handlers are not notified of the transition of this event.
+	 * 
+	 * @return whether the notifications are coalesced with a later event.
+	 */
+	boolean isCoalesced() {
+		return this.coalesced;
+	}
+
+	/**
+	 * Sets whether the handlers are not notified of the transition of this event.
+	 * 
+	 * @param coalesced
+	 *            <code>true</code> if the notifications are coalesced with a later event.
+	 */
+	void setCoalesced(final boolean coalesced) {
+		this.coalesced = coalesced;
+	}
+
+	/**
+	 * Returns <code>true</code> if the event holds the place of its conflated event type in the
+	 * queue.
+	 * 
+	 * @return whether the latest pending event of the type is executed instead.
+	 */
+	boolean isConflated() {
+		return this.conflated;
+	}
+
+	/**
+	 * Sets whether the event holds the place of its conflated event type in the queue.
+	 * 
+	 * @param conflated
+	 *            <code>true</code> if the latest pending event of the type is executed instead.
+	 */
+	void setConflated(final boolean conflated) {
+		this.conflated = conflated;
+	}
+
+	/**
+	 * Returns the event id.
+	 * 
+	 * @return the event id.
+	 */
+	public TEvent getEventId() {
+		return this.eventId;
 	}
 
 	/**
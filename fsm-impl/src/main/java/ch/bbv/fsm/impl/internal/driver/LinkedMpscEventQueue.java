@@ -0,0 +1,103 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded bulk lane: an intrusive linked queue after Dmitry Vyukov. Producers only swap the tail
+ * and link the previous tail to the new event; the events themselves are the nodes of the queue.
+ * 
+ * @param <TEvent>
+ *            the type of the events.
+ */
+class LinkedMpscEventQueue<TEvent> extends MpscEventQueue<TEvent> {
+
+	/**
+	 * Placeholder node that keeps the queue linked when it runs empty.
+	 */
+	private final EventInformation<TEvent> stub = new EventInformation<>(null, null);
+
+	/**
+	 * The most recently queued node, swapped by the producers.
+	 */
+	private final AtomicReference<EventInformation<TEvent>> tail = new AtomicReference<>(stub);
+
+	/**
+	 * The oldest node. Only written by the consumer; volatile because producers check whether the
+	 * queue is empty.
+	 */
+	private volatile EventInformation<TEvent> head = stub;
+
+	@Override
+	boolean offer(final EventInformation<TEvent> e) {
+		e.setNext(null);
+		final EventInformation<TEvent> previous = tail.getAndSet(e);
+		previous.setNext(e);
+		return true;
+	}
+
+	@Override
+	boolean offerAll(final EventInformation<TEvent> first, final EventInformation<TEvent> last, final int count) {
+		last.setNext(null);
+		final EventInformation<TEvent> previous = tail.getAndSet(last);
+		previous.setNext(first);
+		return true;
+	}
+
+	@Override
+	EventInformation<TEvent> pollBulk() {
+		EventInformation<TEvent> first = head;
+		EventInformation<TEvent> next = awaitNext(first);
+		if (first == stub) {
+			if (next == null) {
+				return null;
+			}
+			head = next;
+			first = next;
+			next = awaitNext(first);
+		}
+		if (next != null) {
+			head = next;
+			first.setNext(null);
+			return first;
+		}
+		// first is the last node: put the stub behind it, so it can be unlinked
+		offer(stub);
+		next = awaitNext(first);
+		head = next;
+		first.setNext(null);
+		return first;
+	}
+
+	/**
+	 * Returns the successor of a node. If a producer already swapped the tail but did not link the
+	 * node yet, this spins until the link is visible.
+	 * 
+	 * @param node
+	 *            the node.
+	 * @return the successor or <code>null</code> if the node is the tail.
+	 */
+	private EventInformation<TEvent> awaitNext(final EventInformation<TEvent> node) {
+		EventInformation<TEvent> next = node.getNext();
+		while (next == null && tail.get() != node) {
+			Thread.yield();
+			next = node.getNext();
+		}
+		return next;
+	}
+
+	@Override
+	boolean isBulkEmpty() {
+		return head == stub && tail.get() == stub;
+	}
+
+	@Override
+	int bulkSize() {
+		int size = 0;
+		for (EventInformation<TEvent> e = head; e != null; e = e.getNext()) {
+			if (e != stub) {
+				size++;
+			}
+		}
+		return size;
+	}
+}
@@ -0,0 +1,155 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multi-producer/single-consumer event queue of an active state machine. Any thread may
+ * offer events, but only the thread currently processing the machine's events may poll.
+ * <p>
+ * The queue has two lanes. Priority events are pushed onto a lock-free stack, so
+ * {@link #offerPriority(EventInformation)} never contends with the bulk lane and, like
+ * <code>Deque.addFirst</code>, the most recent priority event is processed first. Normal events
+ * are queued in the bulk lane, which is either an unbounded linked queue or a bounded ring
+ * preallocated at creation. The oldest event of a bounded ring may also be removed by a producer
+ * that makes room for a new event.
+ * 
+ * @param <TEvent>
+ *            the type of the events.
+ */
+abstract class MpscEventQueue<TEvent> {
+
+	/**
+	 * Top of the priority stack.
+	 */
+	private final AtomicReference<EventInformation<TEvent>> priorityTop = new AtomicReference<>();
+
+	/**
+	 * Creates an unbounded queue.
+	 * 
+	 * @param <TEvent>
+	 *            the type of the events.
+	 * @return the queue.
+	 */
+	static <TEvent> MpscEventQueue<TEvent> unbounded() {
+		return new LinkedMpscEventQueue<>();
+	}
+
+	/**
+	 * Creates a queue whose bulk lane is a ring with the given capacity.
+	 * 
+	 * @param <TEvent>
+	 *            the type of the events.
+	 * @param capacity
+	 *            the capacity, rounded up to the next power of two
+	 *            and at least two.
+	 * @return the queue.
+	 */
+	static <TEvent> MpscEventQueue<TEvent> bounded(final int capacity) {
+		return new RingMpscEventQueue<>(capacity);
+	}
+
+	/**
+	 * Queues an event in the bulk lane.
+	 * 
+	 * @param e
+	 *            the event.
+	 * @return <code>false</code> if the queue is bounded and full.
+	 */
+	abstract boolean offer(EventInformation<TEvent> e);
+
+	/**
+	 * Queues a chain of events linked by {@link EventInformation#getNext()} in the bulk lane. The
+	 * consumer sees either none or all of them, and no event of another producer is queued between
+	 * them.
+	 * 
+	 * @param first
+	 *            the first event of the chain.
+	 * @param last
+	 *            the last event of the chain.
+	 * @param count
+	 *            the number of events in the chain.
+	 * @return <code>false</code> if the queue is bounded and has no room for all events, then none
+	 *         is queued.
+	 */
+	abstract boolean offerAll(EventInformation<TEvent> first, EventInformation<TEvent> last, int count);
+
+	/**
+	 * Queues an event in the priority lane. The priority lane is unbounded.
+	 * 
+	 * @param e
+	 *            the event.
+	 */
+	void offerPriority(final EventInformation<TEvent> e) {
+		EventInformation<TEvent> top;
+		do {
+			top = priorityTop.get();
+			e.setNext(top);
+		} while (!priorityTop.compareAndSet(top, e));
+	}
+
+	/**
+	 * Removes the next event, priority events first. Must only be called by the consumer.
+	 * 
+	 * @return the next event or <code>null</code> if the queue is empty.
+	 */
+	EventInformation<TEvent> poll() {
+		EventInformation<TEvent> top = priorityTop.get();
+		while (top != null) {
+			if (priorityTop.compareAndSet(top, top.getNext())) {
+				top.setNext(null);
+				return top;
+			}
+			top = priorityTop.get();
+		}
+		return pollBulk();
+	}
+
+	/**
+	 * Removes the next event of the bulk lane. Must only be called by the consumer.
+	 * 
+	 * @return the next event or <code>null</code> if the bulk lane is empty.
+	 */
+	abstract EventInformation<TEvent> pollBulk();
+
+	/**
+	 * Removes the oldest event of the bulk lane to make room for a new one. May be called by any
+	 * thread.
+	 * 
+	 * @return the removed event or <code>null</code> if the bulk lane is empty.
+	 * @throws UnsupportedOperationException
+	 *             if the queue is unbounded.
+	 */
+	EventInformation<TEvent> removeOldest() {
+		throw new UnsupportedOperationException("An unbounded event queue doesn't drop events.");
+	}
+
+	/**
+	 * Returns <code>true</code> if no event is queued. An offer in progress already counts as queued
+	 * event.
+	 */
+	boolean isEmpty() {
+		return priorityTop.get() == null && isBulkEmpty();
+	}
+
+	/**
+	 * Returns <code>true</code> if no event is queued in the bulk lane.
+	 */
+	abstract boolean isBulkEmpty();
+
+	/**
+	 * Returns the number of queued events. The value is a snapshot and may be outdated as soon as
+	 * it is returned.
+	 */
+	int size() {
+		int size = 0;
+		for (EventInformation<TEvent> e = priorityTop.get(); e != null; e = e.getNext()) {
+			size++;
+		}
+		return size + bulkSize();
+	}
+
+	/**
+	 * Returns the number of events in the bulk lane.
+	 */
+	abstract int bulkSize();
+}
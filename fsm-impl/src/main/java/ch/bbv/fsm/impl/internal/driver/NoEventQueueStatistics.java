@@ -0,0 +1,61 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import ch.bbv.fsm.EventQueueStatistics;
+
+/**
+ * The statistics of a state machine that doesn't record any, all counters stay 0.
+ */
+public final class NoEventQueueStatistics implements EventQueueStatistics {
+
+	private static final NoEventQueueStatistics INSTANCE = new NoEventQueueStatistics();
+
+	private NoEventQueueStatistics() {
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static NoEventQueueStatistics getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public long getDispatchedEvents() {
+		return 0;
+	}
+
+	@Override
+	public long getTotalDispatchLatencyNanos() {
+		return 0;
+	}
+
+	@Override
+	public long getMaxDispatchLatencyNanos() {
+		return 0;
+	}
+
+	@Override
+	public double getAverageDispatchLatencyNanos() {
+		return 0;
+	}
+
+	@Override
+	public long getWakeups() {
+		return 0;
+	}
+
+	@Override
+	public long getDroppedEvents() {
+		return 0;
+	}
+
+	@Override
+	public long getRejectedEvents() {
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return "dispatched=0, avgLatency=0ns, maxLatency=0ns, wakeups=0, dropped=0, rejected=0, conflated=0";
+	}
+}
@@ -20,7 +20,9 @@ package ch.bbv.fsm.impl.internal.driver;
 
 import java.util.LinkedList;
 
+import ch.bbv.fsm.EventBatch;
 import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
 
 /**
  * A passive state machine. This state machine reacts to events on the current thread.
@@ -47,6 +49,11 @@ public class PassiveStateMachineDriver<TStateMachine extends StateMachine<TState
 	 */
 	private boolean processing;
 
+	/**
+	 * The arguments of an event fired without queuing it.
+	 */
+	private final EventArguments arguments = new EventArguments();
+
 	/**
 	 * Creates the state machine.
 	 */
@@ -56,8 +63,111 @@ public class PassiveStateMachineDriver<TStateMachine extends StateMachine<TState
 
 	@Override
 	public synchronized void fire(final TEvent eventId, final Object... eventArguments) {
-		this.events.addLast(new EventInformation<>(eventId, eventArguments));
-		this.execute();
+		if (mustQueue()) {
+			this.events.addLast(new EventInformation<>(eventId, eventArguments));
+			this.execute();
+			return;
+		}
+		this.arguments.setArguments(eventArguments);
+		this.fireDirectly(eventId);
+	}
+
+	@Override
+	public synchronized void fire(final TEvent eventId, final Object eventArgument) {
+		if (mustQueue()) {
+			final EventInformation<TEvent> event = new EventInformation<>(eventId);
+			event.setArgument(eventArgument);
+			this.events.addLast(event);
+			this.execute();
+			return;
+		}
+		this.arguments.setArgument(eventArgument);
+		this.fireDirectly(eventId);
+	}
+
+	@Override
+	public synchronized void fireLong(final TEvent eventId, final long eventArgument) {
+		if (mustQueue()) {
+			final EventInformation<TEvent> event = new EventInformation<>(eventId);
+			event.setLongArgument(eventArgument);
+			this.events.addLast(event);
+			this.execute();
+			return;
+		}
+		this.arguments.setLongArgument(eventArgument);
+		this.fireDirectly(eventId);
+	}
+
+	@Override
+	public synchronized void fireInt(final TEvent eventId, final int eventArgument) {
+		if (mustQueue()) {
+			final EventInformation<TEvent> event = new EventInformation<>(eventId);
+			event.setIntArgument(eventArgument);
+			this.events.addLast(event);
+			this.execute();
+			return;
+		}
+		this.arguments.setIntArgument(eventArgument);
+		this.fireDirectly(eventId);
+	}
+
+	/**
+	 * The queue of a passive state machine is unbounded, the event is always fired.
+	 */
+	@Override
+	public boolean offer(final TEvent eventId, final Object... eventArguments) {
+		fire(eventId, eventArguments);
+		return true;
+	}
+
+	@Override
+	public synchronized void fireAll(final EventBatch<TEvent> events, final boolean coalesceNotifications) {
+		final int last = events.size() - 1;
+		if (mustQueue()) {
+			for (int i = 0; i <= last; i++) {
+				final EventInformation<TEvent> event = new EventInformation<>(events.getEventId(i));
+				event.setArguments(events, i);
+				event.setCoalesced(coalesceNotifications && i < last);
+				this.events.addLast(event);
+			}
+			this.execute();
+			return;
+		}
+		try {
+			processing = true;
+			for (int i = 0; i <= last; i++) {
+				this.arguments.setArguments(events, i);
+				this.fireEventOnStateMachine(events.getEventId(i), this.arguments, coalesceNotifications && i < last);
+				processQueuedEvents();
+			}
+		} finally {
+			processing = false;
+		}
+	}
+
+	/**
+	 * Returns true if an event must be queued because another event is
+	 * processed or waiting or the state machine isn't running.
+	 */
+	private boolean mustQueue() {
+		return processing || !this.events.isEmpty() || !RunningState.Running.equals(getRunningState());
+	}
+
+	/**
+	 * Fires an event with the {@link #arguments} without allocating a queue
+	 * entry.
+	 * 
+	 * @param eventId
+	 *            the event id.
+	 */
+	private void fireDirectly(final TEvent eventId) {
+		try {
+			processing = true;
+			this.fireEventOnStateMachine(eventId, this.arguments);
+			processQueuedEvents();
+		} finally {
+			processing = false;
+		}
 	}
 
 	@Override
@@ -0,0 +1,470 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.EventQueueOverflowPolicy;
+import ch.bbv.fsm.StateMachine;
+
+/**
+ * An active state machine whose events are written into a ring of preallocated slots that are
+ * recycled, in the style of a disruptor. A producer claims a sequence, writes the event id and the
+ * arguments into the slot of the sequence and publishes it; the worker thread executes the events
+ * in sequence order and frees each slot for the next round once the event is executed. Apart from
+ * the array of a varargs call, queuing an event allocates nothing.
+ * <p>
+ * The machine owns its worker thread, which is parked while the ring is empty. Priority events are
+ * allocated and pushed onto a lane of their own. An event fired into the full ring is handled
+ * according to the {@link EventQueueOverflowPolicy}, except
+ * {@link EventQueueOverflowPolicy#DROP_OLDEST}: only the worker frees slots.
+ *
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the enumeration type of the states.
+ * @param <TEvent>
+ *            the enumeration type of the events.
+ */
+public class RingBufferStateMachineDriver<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+		extends AbstractStateMachineDriver<TStateMachine, TState, TEvent> {
+
+	private static final int WAIT_FOR_TERMINATION_MS = 10000;
+
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * How long a producer waiting for a free slot parks between two attempts.
+	 */
+	private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+	private final EventInformation<TEvent>[] slots;
+
+	/**
+	 * The sequence each slot expects next: the sequence itself if the slot is free for a producer
+	 * and the sequence plus one if the event of the sequence is published.
+	 */
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	/**
+	 * The next sequence claimed by a producer.
+	 */
+	private final AtomicLong producerIndex = new AtomicLong();
+
+	/**
+	 * The sequence of the next event executed by the worker. Only written by the worker.
+	 */
+	private volatile long consumerIndex;
+
+	/**
+	 * The priority events, only the priority lane of this queue is used.
+	 */
+	private final MpscEventQueue<TEvent> priorityEvents = MpscEventQueue.unbounded();
+
+	private final EventQueueOverflowPolicy overflowPolicy;
+
+	/**
+	 * How long a producer waits for a free slot with {@link EventQueueOverflowPolicy#BLOCK}.
+	 */
+	private final long blockTimeoutNanos;
+
+	private ExecutorService executorService;
+
+	/**
+	 * The worker thread, <code>null</code> until the machine is started.
+	 */
+	private volatile Thread workerThread;
+
+	/**
+	 * <code>true</code> while the worker thread is about to park or parked.
+	 */
+	private volatile boolean parked;
+
+	private final Object checkProcessingLock = new Object();
+
+	/**
+	 * <code>true</code> while the worker executes a priority event.
+	 */
+	private boolean processing;
+
+	private final Runnable worker = new Runnable() {
+		@Override
+		public void run() {
+			RingBufferStateMachineDriver.this.execute();
+		}
+	};
+
+	/**
+	 * Creates the state machine and its ring.
+	 *
+	 * @param capacity
+	 *            the number of slots, rounded up to the next power of two
+	 *            and at least two.
+	 * @param overflowPolicy
+	 *            what to do with an event fired into the full ring.
+	 * @param blockTimeoutNanos
+	 *            how long a producer waits for a free slot with
+	 *            {@link EventQueueOverflowPolicy#BLOCK}.
+	 */
+	@SuppressWarnings("unchecked")
+	public RingBufferStateMachineDriver(final int capacity, final EventQueueOverflowPolicy overflowPolicy,
+			final long blockTimeoutNanos) {
+		if (capacity < 1 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY + " but was " + capacity);
+		}
+		if (overflowPolicy == null || overflowPolicy == EventQueueOverflowPolicy.DROP_OLDEST) {
+			throw new IllegalArgumentException("overflowPolicy must be REJECT, BLOCK or DROP_NEWEST but was "
+					+ overflowPolicy);
+		}
+		// a single slot could not tell a published sequence from the free next one
+		final int size = Math.max(2, Integer.highestOneBit(capacity) == capacity ? capacity
+				: Integer.highestOneBit(capacity) << 1);
+		this.slots = new EventInformation[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			slots[i] = new EventInformation<>(null);
+			sequences.set(i, i);
+		}
+		this.mask = size - 1;
+		this.overflowPolicy = overflowPolicy;
+		this.blockTimeoutNanos = blockTimeoutNanos;
+	}
+
+	/**
+	 * Returns the number of slots of the ring.
+	 */
+	public int capacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Executes the events until the machine is terminated.
+	 */
+	private void execute() {
+		workerThread = Thread.currentThread();
+		while (RunningState.Running.equals(getRunningState())) {
+			if (Thread.currentThread().isInterrupted()) {
+				// Interrupted - just terminate
+				return;
+			}
+			if (!priorityEvents.isEmpty()) {
+				executePriorityEvent();
+				continue;
+			}
+			final long sequence = consumerIndex;
+			final int index = (int) sequence & mask;
+			if (sequences.get(index) != sequence + 1) {
+				if (sequence == producerIndex.get()) {
+					awaitEvent();
+				} else {
+					// the sequence is claimed but not yet published
+					Thread.yield();
+				}
+				continue;
+			}
+			final EventInformation<TEvent> slot = slots[index];
+			try {
+				this.fireEventOnStateMachine(slot);
+			} finally {
+				slot.setArguments((Object[]) null);
+				consumerIndex = sequence + 1;
+				sequences.lazySet(index, sequence + slots.length);
+			}
+		}
+	}
+
+	private void executePriorityEvent() {
+		final EventInformation<TEvent> eventToProcess;
+		synchronized (checkProcessingLock) {
+			eventToProcess = priorityEvents.poll();
+			processing = eventToProcess != null;
+		}
+		try {
+			if (eventToProcess != null) {
+				this.fireEventOnStateMachine(eventToProcess);
+			}
+		} finally {
+			processing = false;
+		}
+	}
+
+	/**
+	 * Parks the worker thread until an event is published or the machine is terminated, see
+	 * {@link ActiveStateMachineDriver}.
+	 */
+	private void awaitEvent() {
+		parked = true;
+		try {
+			if (isEmpty() && RunningState.Running.equals(getRunningState())) {
+				LockSupport.park(this);
+				getStatistics().wokenUp();
+			}
+		} finally {
+			parked = false;
+		}
+	}
+
+	private boolean isEmpty() {
+		return priorityEvents.isEmpty() && consumerIndex == producerIndex.get();
+	}
+
+	/**
+	 * Wakes up the worker after an event was published.
+	 */
+	private void signal() {
+		if (parked) {
+			final Thread thread = workerThread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+
+	@Override
+	public boolean isIdle() {
+		synchronized (checkProcessingLock) {
+			return !processing & isEmpty();
+		}
+	}
+
+	@Override
+	public void fire(final TEvent eventId, final Object... eventArguments) {
+		final long sequence = claim(1);
+		if (queued(sequence, eventId, 1)) {
+			slot(sequence, eventId).setArguments(eventArguments);
+			publish(sequence, 1);
+		}
+	}
+
+	@Override
+	public void fire(final TEvent eventId, final Object eventArgument) {
+		final long sequence = claim(1);
+		if (queued(sequence, eventId, 1)) {
+			slot(sequence, eventId).setArgument(eventArgument);
+			publish(sequence, 1);
+		}
+	}
+
+	@Override
+	public void fireLong(final TEvent eventId, final long eventArgument) {
+		final long sequence = claim(1);
+		if (queued(sequence, eventId, 1)) {
+			slot(sequence, eventId).setLongArgument(eventArgument);
+			publish(sequence, 1);
+		}
+	}
+
+	@Override
+	public void fireInt(final TEvent eventId, final int eventArgument) {
+		final long sequence = claim(1);
+		if (queued(sequence, eventId, 1)) {
+			slot(sequence, eventId).setIntArgument(eventArgument);
+			publish(sequence, 1);
+		}
+	}
+
+	@Override
+	public boolean offer(final TEvent eventId, final Object... eventArguments) {
+		final long sequence = claim(1);
+		if (sequence < 0) {
+			return false;
+		}
+		slot(sequence, eventId).setArguments(eventArguments);
+		publish(sequence, 1);
+		return true;
+	}
+
+	/**
+	 * Writes the events of the batch into consecutive slots and wakes up the worker once.
+	 */
+	@Override
+	public void fireAll(final EventBatch<TEvent> events, final boolean coalesceNotifications) {
+		final int count = events.size();
+		if (count == 0) {
+			return;
+		}
+		final long sequence = claim(count);
+		if (queued(sequence, events.getEventId(0), count)) {
+			for (int i = 0; i < count; i++) {
+				final EventInformation<TEvent> slot = slot(sequence + i, events.getEventId(i));
+				slot.setArguments(events, i);
+				slot.setCoalesced(coalesceNotifications && i < count - 1);
+			}
+			publish(sequence, count);
+		}
+	}
+
+	@Override
+	public void firePriority(final TEvent eventId, final Object... eventArguments) {
+		priorityEvents.offerPriority(new EventInformation<>(eventId, eventArguments));
+		signal();
+	}
+
+	/**
+	 * Returns whether the events of a claim can be written.
+	 *
+	 * @param sequence
+	 *            the claimed sequence or -1.
+	 * @param eventId
+	 *            the first event, for the message.
+	 * @param count
+	 *            the number of events.
+	 * @return <code>false</code> if the events were dropped.
+	 * @throws IllegalStateException
+	 *             if the events were rejected.
+	 */
+	private boolean queued(final long sequence, final TEvent eventId, final int count) {
+		if (sequence >= 0) {
+			return true;
+		}
+		if (overflowPolicy == EventQueueOverflowPolicy.DROP_NEWEST) {
+			return false;
+		}
+		throw new IllegalStateException(count == 1 ? "The event queue is full, event " + eventId + " is not queued."
+				: "The event queue is full, the batch of " + count + " events is not queued.");
+	}
+
+	/**
+	 * Claims consecutive sequences according to the overflow policy.
+	 *
+	 * @param count
+	 *            the number of sequences.
+	 * @return the first sequence or -1 if the events are dropped or rejected.
+	 */
+	private long claim(final int count) {
+		final long sequence = tryClaim(count);
+		if (sequence >= 0) {
+			return sequence;
+		}
+		if (overflowPolicy == EventQueueOverflowPolicy.DROP_NEWEST) {
+			getStatistics().dropped(count);
+			return -1;
+		}
+		// a batch larger than the ring never gets its slots
+		if (overflowPolicy == EventQueueOverflowPolicy.BLOCK && count <= slots.length) {
+			final long claimed = awaitClaim(count);
+			if (claimed >= 0) {
+				return claimed;
+			}
+		}
+		getStatistics().rejected(count);
+		return -1;
+	}
+
+	/**
+	 * Waits until the sequences can be claimed or the block timeout elapsed. The worker itself
+	 * doesn't wait as nobody else would free a slot.
+	 */
+	private long awaitClaim(final int count) {
+		if (Thread.currentThread() == workerThread) {
+			return -1;
+		}
+		final long deadline = System.nanoTime() + blockTimeoutNanos;
+		long sequence = tryClaim(count);
+		while (sequence < 0) {
+			if (deadline - System.nanoTime() <= 0 || RunningState.Terminated == getRunningState()) {
+				return -1;
+			}
+			LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+			sequence = tryClaim(count);
+		}
+		return sequence;
+	}
+
+	/**
+	 * Claims consecutive sequences if their slots are free.
+	 *
+	 * @return the first sequence or -1 if the ring has no room for all of them.
+	 */
+	private long tryClaim(final int count) {
+		if (count > slots.length) {
+			return -1;
+		}
+		while (true) {
+			final long sequence = producerIndex.get();
+			final long free = free(sequence, count);
+			if (free < 0) {
+				return -1;
+			}
+			if (free == 0 && producerIndex.compareAndSet(sequence, sequence + count)) {
+				return sequence;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the slots of consecutive sequences are free.
+	 *
+	 * @return 0 if all slots are free, a negative value if a slot still holds an event of the
+	 *         previous round and a positive value if another producer claimed a sequence meanwhile.
+	 */
+	private long free(final long sequence, final int count) {
+		for (int i = 0; i < count; i++) {
+			final long difference = sequences.get((int) (sequence + i) & mask) - (sequence + i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the slot of a claimed sequence, prepared for the event.
+	 */
+	private EventInformation<TEvent> slot(final long sequence, final TEvent eventId) {
+		final EventInformation<TEvent> slot = slots[(int) sequence & mask];
+		slot.setEventId(eventId);
+		slot.setEnqueueTime(System.nanoTime());
+		slot.setCoalesced(false);
+		return slot;
+	}
+
+	/**
+	 * Publishes the written slots of consecutive sequences and wakes up the worker.
+	 */
+	private void publish(final long sequence, final int count) {
+		for (int i = 0; i < count; i++) {
+			sequences.lazySet((int) (sequence + i) & mask, sequence + i + 1);
+		}
+		signal();
+	}
+
+	/**
+	 * Returns the number of queued events including the one being executed.
+	 */
+	@Override
+	public int numberOfQueuedEvents() {
+		return priorityEvents.size() + (int) (producerIndex.get() - consumerIndex);
+	}
+
+	@Override
+	public synchronized void start() {
+		super.start();
+		this.executorService = Executors.newFixedThreadPool(1);
+		this.executorService.execute(this.worker);
+	}
+
+	@Override
+	public synchronized void terminate() {
+		super.terminate();
+		final Thread thread = workerThread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+		if (this.executorService == null) {
+			return;
+		}
+		this.executorService.shutdown();
+		try {
+			this.executorService.awaitTermination(WAIT_FOR_TERMINATION_MS, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			return;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded bulk lane: a ring preallocated with a power of two slots, after Dmitry Vyukov's bounded
+ * queue. Each slot carries the sequence it expects next: producers claim sequences with a
+ * compare-and-set on the producer index, publish the event and advance the sequence of the slot;
+ * the consumer claims the oldest sequence the same way on the consumer index and frees the slot
+ * for the next round. As the consumer index is claimed and not just written, a producer may remove
+ * the oldest event as well, see {@link #removeOldest()}.
+ * 
+ * @param <TEvent>
+ *            the type of the events.
+ */
+class RingMpscEventQueue<TEvent> extends MpscEventQueue<TEvent> {
+
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final AtomicReferenceArray<EventInformation<TEvent>> ring;
+
+	/**
+	 * The sequence each slot expects next: the sequence itself if the slot is free for a producer
+	 * and the sequence plus one if the event of the sequence is published.
+	 */
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	/**
+	 * The next sequence claimed by a producer.
+	 */
+	private final AtomicLong producerIndex = new AtomicLong();
+
+	/**
+	 * The next sequence read by the consumer.
+	 */
+	private final AtomicLong consumerIndex = new AtomicLong();
+
+	/**
+	 * Creates the ring.
+	 * 
+	 * @param capacity
+	 *            the capacity, rounded up to the next power of two
+	 *            and at least two.
+	 */
+	RingMpscEventQueue(final int capacity) {
+		if (capacity < 1 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY + " but was " + capacity);
+		}
+		// a single slot could not tell a published sequence from the free next one
+		final int size = Math.max(2, Integer.highestOneBit(capacity) == capacity ? capacity
+				: Integer.highestOneBit(capacity) << 1);
+		this.ring = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Returns the number of slots of the ring.
+	 */
+	int capacity() {
+		return ring.length();
+	}
+
+	@Override
+	boolean offer(final EventInformation<TEvent> e) {
+		final long sequence = claim(1);
+		if (sequence < 0) {
+			return false;
+		}
+		publish(sequence, e);
+		return true;
+	}
+
+	/**
+	 * Claims the sequences of all events with a single compare-and-set and publishes them one after
+	 * the other; the consumer waits for a claimed slot that is not yet published.
+	 */
+	@Override
+	boolean offerAll(final EventInformation<TEvent> first, final EventInformation<TEvent> last, final int count) {
+		final long sequence = claim(count);
+		if (sequence < 0) {
+			return false;
+		}
+		EventInformation<TEvent> e = first;
+		for (int i = 0; i < count; i++) {
+			final EventInformation<TEvent> next = e.getNext();
+			e.setNext(null);
+			publish(sequence + i, e);
+			e = next;
+		}
+		return true;
+	}
+
+	/**
+	 * Claims consecutive sequences.
+	 * 
+	 * @param count
+	 *            the number of sequences.
+	 * @return the first sequence or -1 if the ring has no room for all of them.
+	 */
+	private long claim(final int count) {
+		if (count > ring.length()) {
+			return -1;
+		}
+		while (true) {
+			final long sequence = producerIndex.get();
+			final long free = free(sequence, count);
+			if (free < 0) {
+				return -1;
+			}
+			if (free == 0 && producerIndex.compareAndSet(sequence, sequence + count)) {
+				return sequence;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the slots of consecutive sequences are free.
+	 * 
+	 * @return 0 if all slots are free, a negative value if a slot still holds an event of the
+	 *         previous round and a positive value if another producer claimed a sequence meanwhile.
+	 */
+	private long free(final long sequence, final int count) {
+		for (int i = 0; i < count; i++) {
+			final long difference = sequences.get((int) (sequence + i) & mask) - (sequence + i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return 0;
+	}
+
+	private void publish(final long sequence, final EventInformation<TEvent> e) {
+		final int index = (int) sequence & mask;
+		ring.lazySet(index, e);
+		sequences.lazySet(index, sequence + 1);
+	}
+
+	@Override
+	EventInformation<TEvent> pollBulk() {
+		while (true) {
+			final long sequence = consumerIndex.get();
+			final int index = (int) sequence & mask;
+			final long published = sequences.get(index) - (sequence + 1);
+			if (published < 0) {
+				if (sequence == producerIndex.get()) {
+					return null;
+				}
+				// the sequence is claimed but not yet published
+				Thread.yield();
+			} else if (published == 0 && consumerIndex.compareAndSet(sequence, sequence + 1)) {
+				final EventInformation<TEvent> e = ring.get(index);
+				ring.lazySet(index, null);
+				sequences.lazySet(index, sequence + ring.length());
+				return e;
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest event of the bulk lane to make room for a new one. May be called by any
+	 * thread.
+	 */
+	@Override
+	EventInformation<TEvent> removeOldest() {
+		return pollBulk();
+	}
+
+	@Override
+	boolean isBulkEmpty() {
+		return consumerIndex.get() == producerIndex.get();
+	}
+
+	@Override
+	int bulkSize() {
+		return (int) (producerIndex.get() - consumerIndex.get());
+	}
+}
@@ -0,0 +1,70 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The executor of the active state machines running on virtual threads. Every run-to-completion
+ * drain of a machine runs on its own virtual thread, so an action blocking on I/O does not block
+ * a platform thread. The virtual threads are looked up reflectively because the library is
+ * compiled for Java 8. On runtimes without virtual threads a shared pool with one daemon thread
+ * per processor is used instead.
+ */
+public final class VirtualThreadExecutor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+	private VirtualThreadExecutor() {
+	}
+
+	/**
+	 * Lazily creates the executor on first use.
+	 */
+	private static final class Holder {
+		private static final ExecutorService VIRTUAL_THREADS = newVirtualThreadPerTaskExecutor();
+		private static final Executor EXECUTOR = VIRTUAL_THREADS != null ? VIRTUAL_THREADS : newFallbackExecutor();
+	}
+
+	/**
+	 * Returns the executor shared by all machines running on virtual threads.
+	 * 
+	 * @return the executor.
+	 */
+	public static Executor getInstance() {
+		return Holder.EXECUTOR;
+	}
+
+	/**
+	 * Returns <code>true</code> if the runtime supports virtual threads.
+	 * 
+	 * @return <code>true</code> if the machines run on virtual threads.
+	 */
+	public static boolean isVirtual() {
+		return Holder.VIRTUAL_THREADS != null;
+	}
+
+	private static Executor newFallbackExecutor() {
+		LOG.warn("Virtual threads are not supported by this runtime, the machines created to run on virtual threads use a platform thread pool.");
+		final AtomicInteger threadNumber = new AtomicInteger(1);
+		return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+			final Thread thread = new Thread(runnable, "fsm-virtual-fallback-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (final ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
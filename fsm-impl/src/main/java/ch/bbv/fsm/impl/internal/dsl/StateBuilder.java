@@ -19,6 +19,7 @@ import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.action.FsmAction0;
 import ch.bbv.fsm.action.FsmAction1;
 import ch.bbv.fsm.action.FsmAction2;
+import ch.bbv.fsm.action.FsmActionLong;
 import ch.bbv.fsm.dsl.EntryActionSyntax;
 import ch.bbv.fsm.dsl.EventActionSyntax;
 import ch.bbv.fsm.dsl.EventSyntax;
@@ -26,16 +27,23 @@ import ch.bbv.fsm.dsl.ExecuteSyntax;
 import ch.bbv.fsm.dsl.ExitActionSyntax;
 import ch.bbv.fsm.dsl.GotoSyntax;
 import ch.bbv.fsm.guard.Function;
+import ch.bbv.fsm.guard.FunctionLong;
 import ch.bbv.fsm.impl.internal.action.FsmCall0;
 import ch.bbv.fsm.impl.internal.action.FsmCall1;
 import ch.bbv.fsm.impl.internal.action.FsmCall2;
+import ch.bbv.fsm.impl.internal.action.FsmCallLong;
+import ch.bbv.fsm.impl.internal.action.FsmGuard1;
+import ch.bbv.fsm.impl.internal.action.FsmGuardArguments;
+import ch.bbv.fsm.impl.internal.action.FsmGuardLong;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateDictionary;
 import ch.bbv.fsm.impl.internal.statemachine.transition.Transition;
 import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionImpl;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionTable;
 
 /**
- * InternalState Builder.
+ * InternalState Builder. Every change invalidates the compiled transitions, so the builder may be
+ * kept and used after events were fired.
  *
  * @author Ueli Kurmann (bbv Software Services AG) (bbv Software Services AG).
  *
@@ -49,6 +57,7 @@ public class StateBuilder<TStateMachine extends StateMachine<TState, TEvent>, TS
 
   private final InternalState<TStateMachine, TState, TEvent> internalState;
   private final StateDictionary<TStateMachine, TState, TEvent> stateDictionary;
+  private final TransitionTable<TStateMachine, TState, TEvent> transitionTable;
   private Transition<TStateMachine, TState, TEvent> currentTransition;
 
   /**
@@ -56,14 +65,18 @@ public class StateBuilder<TStateMachine extends StateMachine<TState, TEvent>, TS
    *
    * @param state the internalState
    * @param stateDictionary the internalState dictionary
+   * @param transitionTable the compiled transitions of the definition
    */
-  public StateBuilder(final InternalState<TStateMachine, TState, TEvent> state, final StateDictionary<TStateMachine, TState, TEvent> stateDictionary) {
+  public StateBuilder(final InternalState<TStateMachine, TState, TEvent> state, final StateDictionary<TStateMachine, TState, TEvent> stateDictionary,
+      final TransitionTable<TStateMachine, TState, TEvent> transitionTable) {
     this.internalState = state;
     this.stateDictionary = stateDictionary;
+    this.transitionTable = transitionTable;
   }
 
   @Override
   public ExitActionSyntax<TStateMachine, TState, TEvent> executeOnEntry(final FsmAction0<TStateMachine, TState, TEvent> action) {
+    this.transitionTable.invalidate();
     this.internalState.setEntryAction(new FsmCall0<TStateMachine, TState, TEvent>(action));
     return this;
   }
@@ -71,14 +84,14 @@ public class StateBuilder<TStateMachine extends StateMachine<TState, TEvent>, TS
   @Override
   public <T> ExitActionSyntax<TStateMachine, TState, TEvent> executeOnEntry(final FsmAction1<TStateMachine, TState, TEvent, T> actionClass,
       final T parameter) {
-
+    this.transitionTable.invalidate();
     this.internalState.setEntryAction(new FsmCall1<TStateMachine, TState, TEvent, T>(actionClass, parameter));
     return this;
   }
 
   @Override
   public EventSyntax<TStateMachine, TState, TEvent> executeOnExit(final FsmAction0<TStateMachine, TState, TEvent> actionClass) {
-
+    this.transitionTable.invalidate();
     this.internalState.setExitAction(new FsmCall0<TStateMachine, TState, TEvent>(actionClass));
     return this;
   }
@@ -86,7 +99,7 @@ public class StateBuilder<TStateMachine extends StateMachine<TState, TEvent>, TS
   @Override
   public <T> EventSyntax<TStateMachine, TState, TEvent> executeOnExit(final FsmAction1<TStateMachine, TState, TEvent, T> actionClass,
       final T parameter) {
-
+    this.transitionTable.invalidate();
     this.internalState.setExitAction(new FsmCall1<TStateMachine, TState, TEvent, T>(actionClass, parameter));
     return this;
   }
@@ -94,12 +107,14 @@ public class StateBuilder<TStateMachine extends StateMachine<TState, TEvent>, TS
 
   @Override
   public ExecuteSyntax<TStateMachine, TState, TEvent> goTo(final TState target) {
+    this.transitionTable.invalidate();
     this.currentTransition.setTarget(this.stateDictionary.getState(target));
     return this;
   }
 
   @Override
   public EventActionSyntax<TStateMachine, TState, TEvent> on(final TEvent eventId) {
+    this.transitionTable.invalidate();
     this.currentTransition = new TransitionImpl<>();
     this.internalState.getTransitions().add(eventId, this.currentTransition);
     return this;
@@ -107,35 +122,60 @@ public class StateBuilder<TStateMachine extends StateMachine<TState, TEvent>, TS
 
   @Override
   public EventSyntax<TStateMachine, TState, TEvent> onlyIf(final Function<TStateMachine, TState, TEvent, Object[], Boolean> guard) {
+    this.transitionTable.invalidate();
+    this.currentTransition.setGuard(new FsmGuardArguments<TStateMachine, TState, TEvent>(guard));
 
-    this.currentTransition.setGuard(guard);
+    return this;
 
+  }
+
+  @Override
+  public <T> EventSyntax<TStateMachine, TState, TEvent> onlyIfArgument(final Function<TStateMachine, TState, TEvent, T, Boolean> guard) {
+    this.transitionTable.invalidate();
+    this.currentTransition.setGuard(new FsmGuard1<TStateMachine, TState, TEvent, T>(guard));
     return this;
+  }
 
+  @Override
+  public EventSyntax<TStateMachine, TState, TEvent> onlyIfLong(final FunctionLong<TStateMachine, TState, TEvent, Boolean> guard) {
+    this.transitionTable.invalidate();
+    this.currentTransition.setGuard(new FsmGuardLong<TStateMachine, TState, TEvent>(guard));
+    return this;
   }
 
   @Override
   public <T1, T2> EventSyntax<TStateMachine, TState, TEvent> executeOnExit(final FsmAction2<TStateMachine, TState, TEvent, T1, T2> actionClass,
       final T1 parameter1, final T2 parameter2) {
+    this.transitionTable.invalidate();
     this.internalState.setExitAction(new FsmCall2<TStateMachine, TState, TEvent, T1, T2>(actionClass, parameter1, parameter2));
     return this;
   }
 
   @Override
   public ExecuteSyntax<TStateMachine, TState, TEvent> execute(final FsmAction0<TStateMachine, TState, TEvent> action) {
+    this.transitionTable.invalidate();
     this.currentTransition.getActions().add(new FsmCall0<TStateMachine, TState, TEvent>(action));
     return this;
   }
 
   @Override
   public <T> ExecuteSyntax<TStateMachine, TState, TEvent> execute(final FsmAction1<TStateMachine, TState, TEvent, T> action) {
+    this.transitionTable.invalidate();
     this.currentTransition.getActions().add(new FsmCall1<TStateMachine, TState, TEvent, T>(action, null));
     return this;
   }
 
   @Override
   public <T1, T2> ExecuteSyntax<TStateMachine, TState, TEvent> execute(final FsmAction2<TStateMachine, TState, TEvent, T1, T2> action) {
+    this.transitionTable.invalidate();
     this.currentTransition.getActions().add(new FsmCall2<TStateMachine, TState, TEvent, T1, T2>(action, null, null));
     return this;
   }
+
+  @Override
+  public ExecuteSyntax<TStateMachine, TState, TEvent> executeLong(final FsmActionLong<TStateMachine, TState, TEvent> action) {
+    this.transitionTable.invalidate();
+    this.currentTransition.getActions().add(new FsmCallLong<TStateMachine, TState, TEvent>(action, 0));
+    return this;
+  }
 }
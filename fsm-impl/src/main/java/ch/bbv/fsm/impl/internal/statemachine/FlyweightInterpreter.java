@@ -0,0 +1,473 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.EventQueueStatistics;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
+import ch.bbv.fsm.impl.internal.driver.NoEventQueueStatistics;
+import ch.bbv.fsm.impl.internal.driver.Notifier;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionResult;
+import ch.bbv.fsm.memento.StateMachineMemento;
+import ch.bbv.fsm.tracing.TransitionTracer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A passive state machine that keeps only its current state, the history of
+ * its super states and the queued events. Everything else is shared with the
+ * other flyweights of the frozen definition through a {@link FlyweightModel}.
+ * The events are executed on the firing thread like with the passive driver.
+ * 
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public final class FlyweightInterpreter<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+		implements StateMachine<TState, TEvent>,
+		StateMachineInstance<TStateMachine, TState, TEvent>,
+		Notifier<TStateMachine, TState, TEvent> {
+
+	private static final int NO_STATE = -1;
+
+	private final FlyweightModel<TStateMachine, TState, TEvent> model;
+
+	private TStateMachine stateMachine;
+
+	private volatile RunningState runningState = RunningState.Created;
+
+	/**
+	 * The ordinal of the current state, {@link #NO_STATE} before the start.
+	 */
+	private int currentState = NO_STATE;
+
+	/**
+	 * The ordinal plus one of the last active sub state of each history slot,
+	 * created when the first state with a history is exited.
+	 */
+	private short[] history;
+
+	/**
+	 * The queued events, created when the first event is queued.
+	 */
+	private ArrayDeque<QueuedEvent<TEvent>> events;
+
+	/**
+	 * Do not process event while already processing an event. This happens if
+	 * an event is fired in an state's or transition's action.
+	 */
+	private boolean processing;
+
+	/**
+	 * <code>true</code> while an event whose handler notifications are
+	 * coalesced with a later event of its batch is executed.
+	 */
+	private boolean coalesced;
+
+	/**
+	 * Creates a flyweight.
+	 * 
+	 * @param model
+	 *            the shared model of the definition
+	 */
+	public FlyweightInterpreter(
+			final FlyweightModel<TStateMachine, TState, TEvent> model) {
+		this.model = model;
+	}
+
+	/**
+	 * Sets the custom state machine wrapping this flyweight. Must be called
+	 * once before the state machine is started.
+	 * 
+	 * @param stateMachine
+	 *            the custom state machine
+	 */
+	public void initialize(final TStateMachine stateMachine) {
+		Preconditions.checkState(this.stateMachine == null,
+				"The flyweight is already initialized.");
+		this.stateMachine = stateMachine;
+	}
+
+	@Override
+	public void fire(final TEvent eventId, final Object... eventArguments) {
+		final QueuedEvent<TEvent> event = new QueuedEvent<>(eventId);
+		event.setArguments(eventArguments);
+		fire(event);
+	}
+
+	@Override
+	public void fire(final TEvent eventId, final Object eventArgument) {
+		final QueuedEvent<TEvent> event = new QueuedEvent<>(eventId);
+		event.setArgument(eventArgument);
+		fire(event);
+	}
+
+	@Override
+	public void fireLong(final TEvent eventId, final long eventArgument) {
+		final QueuedEvent<TEvent> event = new QueuedEvent<>(eventId);
+		event.setLongArgument(eventArgument);
+		fire(event);
+	}
+
+	@Override
+	public void fireInt(final TEvent eventId, final int eventArgument) {
+		final QueuedEvent<TEvent> event = new QueuedEvent<>(eventId);
+		event.setIntArgument(eventArgument);
+		fire(event);
+	}
+
+	private synchronized void fire(final QueuedEvent<TEvent> event) {
+		if (mustQueue()) {
+			queue().addLast(event);
+			execute();
+			return;
+		}
+		try {
+			processing = true;
+			fireOnStateMachine(event);
+			processQueuedEvents();
+		} finally {
+			processing = false;
+		}
+	}
+
+	/**
+	 * The queue of a flyweight is unbounded, the event is always fired.
+	 */
+	@Override
+	public boolean offer(final TEvent eventId, final Object... eventArguments) {
+		fire(eventId, eventArguments);
+		return true;
+	}
+
+	@Override
+	public synchronized void fireAll(final EventBatch<TEvent> events,
+			final boolean coalesceNotifications) {
+		final int last = events.size() - 1;
+		if (mustQueue()) {
+			for (int i = 0; i <= last; i++) {
+				queue().addLast(queuedEvent(events, i,
+						coalesceNotifications && i < last));
+			}
+			execute();
+			return;
+		}
+		try {
+			processing = true;
+			for (int i = 0; i <= last; i++) {
+				fireOnStateMachine(queuedEvent(events, i, coalesceNotifications
+						&& i < last));
+				processQueuedEvents();
+			}
+		} finally {
+			processing = false;
+		}
+	}
+
+	private static <TEvent extends Enum<?>> QueuedEvent<TEvent> queuedEvent(
+			final EventBatch<TEvent> events, final int index,
+			final boolean coalesced) {
+		final QueuedEvent<TEvent> event = new QueuedEvent<>(
+				events.getEventId(index));
+		event.setArguments(events, index);
+		event.coalesced = coalesced;
+		return event;
+	}
+
+	/**
+	 * Returns true if an event must be queued because another event is
+	 * processed or waiting or the state machine isn't running.
+	 */
+	private boolean mustQueue() {
+		return processing || (events != null && !events.isEmpty())
+				|| RunningState.Running != runningState;
+	}
+
+	@Override
+	public synchronized void firePriority(final TEvent eventId,
+			final Object... eventArguments) {
+		final QueuedEvent<TEvent> event = new QueuedEvent<>(eventId);
+		event.setArguments(eventArguments);
+		queue().addFirst(event);
+		execute();
+	}
+
+	@Override
+	public RunningState getRunningState() {
+		return runningState;
+	}
+
+	@Override
+	public synchronized int numberOfQueuedEvents() {
+		return events == null ? 0 : events.size();
+	}
+
+	/**
+	 * Flyweights don't record dispatch statistics, all counters stay 0.
+	 */
+	@Override
+	public EventQueueStatistics getEventQueueStatistics() {
+		return NoEventQueueStatistics.getInstance();
+	}
+
+	/**
+	 * Does nothing: to stay small, flyweights have no tracer of their own
+	 * and always use the tracer of their definition, see
+	 * {@link ch.bbv.fsm.impl.AbstractStateMachineDefinition#setTransitionTracer(TransitionTracer)}.
+	 */
+	@Override
+	public void setTransitionTracer(final TransitionTracer<TState, TEvent> tracer) {
+		// the tracer of the definition is shared by all flyweights
+	}
+
+	@Override
+	public synchronized boolean isIdle() {
+		return numberOfQueuedEvents() == 0;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (RunningState.Created != runningState) {
+			throw new IllegalStateException(
+					"Starting the statemachine is not allowed in this state. InternalState is "
+							+ runningState.name());
+		}
+		runningState = RunningState.Running;
+		final StateContext<TStateMachine, TState, TEvent> stateContext = new StateContext<>(
+				stateMachine, null, this, this);
+		setCurrentState(new StateMachineInitializer<>(model.getInitialState(),
+				stateContext).enterInitialState());
+		execute();
+	}
+
+	@Override
+	public synchronized void terminate() {
+		final StateContext<TStateMachine, TState, TEvent> stateContext = new StateContext<>(
+				stateMachine, null, this, this);
+		InternalState<TStateMachine, TState, TEvent> o = getCurrentInternalState();
+		while (o != null) {
+			o.exit(stateContext);
+			o = o.getSuperState();
+		}
+		runningState = RunningState.Terminated;
+	}
+
+	@Override
+	public synchronized TState getCurrentState() {
+		final InternalState<TStateMachine, TState, TEvent> state = getCurrentInternalState();
+		return state != null ? state.getId() : null;
+	}
+
+	@Override
+	public synchronized void activate(
+			final StateMachineMemento<TState, TEvent> stateMachineMemento) {
+		currentState = model.getState(stateMachineMemento.getCurrentState())
+				.getId().ordinal();
+		for (final Map.Entry<TState, TState> e : stateMachineMemento
+				.getSavedHistoryStates().entrySet()) {
+			setLastActiveSubState(model.getState(e.getKey()),
+					model.getState(e.getValue()));
+		}
+		runningState = RunningState.Running;
+	}
+
+	@Override
+	public synchronized void passivate(
+			final StateMachineMemento<TState, TEvent> stateMachineMemento) {
+		runningState = RunningState.Terminated;
+		stateMachineMemento.setCurrentState(getCurrentState());
+		// drop the history of an earlier passivation into the memento
+		stateMachineMemento.setHistoryStates(null);
+		if (history == null) {
+			return;
+		}
+		for (int ordinal = 0; ordinal < model.getStateCount(); ordinal++) {
+			final InternalState<TStateMachine, TState, TEvent> superState = model
+					.getState(ordinal);
+			final InternalState<TStateMachine, TState, TEvent> subState = superState != null ? getLastActiveSubState(superState)
+					: null;
+			if (subState != null) {
+				stateMachineMemento.putHistoryState(superState.getId(),
+						subState.getId());
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return model.getName();
+	}
+
+	@Override
+	public TransitionTracer<TState, TEvent> getTransitionTracer() {
+		return model.getTracer();
+	}
+
+	@Override
+	public InternalState<TStateMachine, TState, TEvent> getLastActiveSubState(
+			final InternalState<TStateMachine, TState, TEvent> superState) {
+		final int slot = model.getHistorySlot(superState);
+		if (slot == FlyweightModel.NO_SLOT || history == null
+				|| history[slot] == 0) {
+			return null;
+		}
+		return model.getState(history[slot] - 1);
+	}
+
+	@Override
+	public void setLastActiveSubState(
+			final InternalState<TStateMachine, TState, TEvent> superState,
+			final InternalState<TStateMachine, TState, TEvent> subState) {
+		final int slot = model.getHistorySlot(superState);
+		if (slot == FlyweightModel.NO_SLOT) {
+			return;
+		}
+		if (history == null) {
+			history = new short[model.getHistorySize()];
+		}
+		history[slot] = (short) (subState.getId().ordinal() + 1);
+	}
+
+	@Override
+	public void onExceptionThrown(
+			final StateContext<TStateMachine, TState, TEvent> stateContext,
+			final Exception exception) {
+		model.getEventHandler().exceptionThrown(stateContext, exception,
+				null);
+	}
+
+	@Override
+	public void onExceptionThrown(
+			final TransitionContext<TStateMachine, TState, TEvent> transitionContext,
+			final Exception exception) {
+		model.getEventHandler().exceptionThrown(transitionContext, exception,
+				null);
+	}
+
+	@Override
+	public void onTransitionBegin(
+			final StateContext<TStateMachine, TState, TEvent> transitionContext) {
+		if (coalesced) {
+			return;
+		}
+		model.getEventHandler().transitionBegin(transitionContext,
+				null);
+	}
+
+	@Override
+	public String toString() {
+		return model.getName();
+	}
+
+	/**
+	 * Fires the event on the current state.
+	 * 
+	 * @param event
+	 *            the event.
+	 */
+	private void fireOnStateMachine(final QueuedEvent<TEvent> event) {
+		final TEvent eventId = event.eventId;
+		final TransitionTracer<TState, TEvent> tracer = model.getTracer();
+		final InternalState<TStateMachine, TState, TEvent> state = getCurrentInternalState();
+		StateMachineInterpreter.traceEventFired(tracer, model.getName(),
+				state.getId(), eventId, event);
+
+		final TransitionContext<TStateMachine, TState, TEvent> context = new TransitionContext<>(
+				stateMachine, state, eventId, event, this, this);
+		coalesced = event.coalesced;
+		try {
+			final TransitionResult<TStateMachine, TState, TEvent> result = StateMachineInterpreter
+					.fireTransitions(model.getTransitions(), state, context);
+
+			if (!result.isFired()) {
+				tracer.onTransitionDeclined(model.getName(), state.getId(),
+						eventId);
+				if (!coalesced) {
+					model.getEventHandler().transitionDeclined(context, null);
+				}
+				return;
+			}
+
+			setCurrentState(result.getNewState());
+			if (!coalesced) {
+				model.getEventHandler().transitionCompleted(getCurrentState(),
+						context, null);
+			}
+		} finally {
+			coalesced = false;
+		}
+	}
+
+	private InternalState<TStateMachine, TState, TEvent> getCurrentInternalState() {
+		return currentState == NO_STATE ? null : model.getState(currentState);
+	}
+
+	private void setCurrentState(
+			final InternalState<TStateMachine, TState, TEvent> state) {
+		currentState = state.getId().ordinal();
+		model.getTracer().onStateSwitched(model.getName(), state.getId());
+	}
+
+	private ArrayDeque<QueuedEvent<TEvent>> queue() {
+		if (events == null) {
+			events = new ArrayDeque<>(4);
+		}
+		return events;
+	}
+
+	/**
+	 * Executes all queued events.
+	 */
+	private void execute() {
+		if (!processing) {
+			try {
+				processing = true;
+				if (RunningState.Running == runningState) {
+					processQueuedEvents();
+				}
+			} finally {
+				processing = false;
+			}
+		}
+	}
+
+	/**
+	 * Processes the queued events and drops the queue once it is drained.
+	 */
+	private void processQueuedEvents() {
+		if (events == null) {
+			return;
+		}
+		QueuedEvent<TEvent> e;
+		while ((e = events.pollFirst()) != null) {
+			fireOnStateMachine(e);
+		}
+		events = null;
+	}
+
+	/**
+	 * An event waiting in the queue of a flyweight.
+	 */
+	private static final class QueuedEvent<TEvent> extends EventArguments {
+
+		private final TEvent eventId;
+
+		/**
+		 * <code>true</code> if the handlers are not notified of the
+		 * transition of this event.
+		 */
+		private boolean coalesced;
+
+		QueuedEvent(final TEvent eventId) {
+			this.eventId = eventId;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+import java.nio.charset.StandardCharsets;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.statemachine.events.EventHandlers;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateDictionary;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionTable;
+import ch.bbv.fsm.impl.tracing.NoOpTransitionTracer;
+import ch.bbv.fsm.tracing.TransitionTracer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * The immutable part of a {@link FlyweightInterpreter}, shared by all
+ * flyweights of a frozen definition starting in the same initial state.
+ * 
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public final class FlyweightModel<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	/**
+	 * Marks a state without a history slot.
+	 */
+	static final int NO_SLOT = -1;
+
+	private final String name;
+
+	/**
+	 * The states indexed by ordinal.
+	 */
+	private final InternalState<TStateMachine, TState, TEvent>[] states;
+
+	private final TransitionTable<TStateMachine, TState, TEvent> transitions;
+
+	private final InternalState<TStateMachine, TState, TEvent> initialState;
+
+	/**
+	 * The history slot of each state indexed by ordinal, {@link #NO_SLOT} if
+	 * the state doesn't record its last active sub state.
+	 */
+	private final int[] historySlots;
+
+	/**
+	 * The number of history slots.
+	 */
+	private final int historySize;
+
+	/**
+	 * The hash of the state names with their history slots and of the event
+	 * names.
+	 */
+	private final long fingerprint;
+
+	private final EventHandlers<TStateMachine, TState, TEvent> eventHandler;
+
+	private final TransitionTracer<TState, TEvent> tracer;
+
+	/**
+	 * Creates the shared model of a frozen definition.
+	 * 
+	 * @param name
+	 *            the name of the state machines used in log messages.
+	 * @param states
+	 *            the frozen states
+	 * @param transitions
+	 *            the frozen transitions
+	 * @param initialState
+	 *            the initial state
+	 * @param eventHandler
+	 *            the event handlers of the definition
+	 * @param tracer
+	 *            the tracer, <code>null</code> to disable tracing.
+	 */
+	@SuppressWarnings("unchecked")
+	public FlyweightModel(final String name,
+			final StateDictionary<TStateMachine, TState, TEvent> states,
+			final TransitionTable<TStateMachine, TState, TEvent> transitions,
+			final TState initialState,
+			final EventHandlers<TStateMachine, TState, TEvent> eventHandler,
+			final TransitionTracer<TState, TEvent> tracer) {
+		Preconditions.checkState(states.isFrozen() && transitions.isFrozen(),
+				"The definition %s must be frozen.", name);
+		this.name = name;
+		this.transitions = transitions;
+		this.initialState = states.getState(initialState);
+		int size = 0;
+		for (final InternalState<TStateMachine, TState, TEvent> state : states
+				.getStates()) {
+			size = Math.max(size, state.getId().ordinal() + 1);
+		}
+		Preconditions.checkState(size <= Short.MAX_VALUE,
+				"The definition %s has too many states for flyweights.", name);
+		this.states = new InternalState[size];
+		this.historySlots = new int[size];
+		int slots = 0;
+		for (final InternalState<TStateMachine, TState, TEvent> state : states
+				.getStates()) {
+			final int ordinal = state.getId().ordinal();
+			this.states[ordinal] = state;
+			this.historySlots[ordinal] = HistoryType.NONE.equals(state
+					.getHistoryType()) ? NO_SLOT : slots++;
+		}
+		this.historySize = slots;
+		this.fingerprint = fingerprint(states);
+		this.eventHandler = eventHandler;
+		this.tracer = tracer != null ? tracer : NoOpTransitionTracer
+				.<TState, TEvent> getInstance();
+	}
+
+	String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the number of states indexed by ordinal.
+	 */
+	public int getStateCount() {
+		return this.states.length;
+	}
+
+	InternalState<TStateMachine, TState, TEvent> getState(final int ordinal) {
+		return this.states[ordinal];
+	}
+
+	InternalState<TStateMachine, TState, TEvent> getState(final TState stateId) {
+		final int ordinal = stateId.ordinal();
+		Preconditions.checkState(ordinal < this.states.length
+				&& this.states[ordinal] != null,
+				"The state %s is not part of the frozen definition.", stateId);
+		return this.states[ordinal];
+	}
+
+	TransitionTable<TStateMachine, TState, TEvent> getTransitions() {
+		return this.transitions;
+	}
+
+	InternalState<TStateMachine, TState, TEvent> getInitialState() {
+		return this.initialState;
+	}
+
+	int getHistorySlot(final InternalState<TStateMachine, TState, TEvent> state) {
+		return this.historySlots[state.getId().ordinal()];
+	}
+
+	/**
+	 * Returns the number of states recording their last active sub state.
+	 */
+	public int getHistorySize() {
+		return this.historySize;
+	}
+
+	/**
+	 * Returns the hash of the state names with their history slots and of the
+	 * event names, which identifies the layout of the records of a population.
+	 */
+	public long getFingerprint() {
+		return this.fingerprint;
+	}
+
+	private long fingerprint(
+			final StateDictionary<TStateMachine, TState, TEvent> states) {
+		final Hasher hasher = Hashing.murmur3_128().newHasher();
+		final Enum<?>[] stateIds = this.initialState.getId()
+				.getDeclaringClass().getEnumConstants();
+		hasher.putInt(stateIds.length);
+		for (final Enum<?> stateId : stateIds) {
+			final int ordinal = stateId.ordinal();
+			putName(hasher, stateId);
+			hasher.putInt(ordinal < this.historySlots.length
+					&& this.states[ordinal] != null ? this.historySlots[ordinal]
+					: NO_SLOT);
+		}
+		for (final InternalState<TStateMachine, TState, TEvent> state : states
+				.getStates()) {
+			for (final TEvent eventId : state.getTransitions().getEvents()) {
+				final Enum<?>[] eventIds = eventId.getDeclaringClass()
+						.getEnumConstants();
+				hasher.putInt(eventIds.length);
+				for (final Enum<?> id : eventIds) {
+					putName(hasher, id);
+				}
+				return hasher.hash().asLong();
+			}
+		}
+		hasher.putInt(0);
+		return hasher.hash().asLong();
+	}
+
+	private static void putName(final Hasher hasher, final Enum<?> id) {
+		hasher.putInt(id.name().length());
+		hasher.putString(id.name(), StandardCharsets.UTF_8);
+	}
+
+	EventHandlers<TStateMachine, TState, TEvent> getEventHandler() {
+		return this.eventHandler;
+	}
+
+	TransitionTracer<TState, TEvent> getTracer() {
+		return this.tracer;
+	}
+}
@@ -0,0 +1,83 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Stores a population in two <code>int[]</code> columns, one for the current
+ * states and one for the history slots of all machines. The ordinals are
+ * stored plus one so that the zeroed columns mean {@link #NO_STATE}.
+ */
+public final class IntArrayPopulationStore implements PopulationStore {
+
+	private final int historySize;
+
+	private int size;
+
+	private int[] states;
+
+	private int[] history;
+
+	/**
+	 * Creates an empty store.
+	 * 
+	 * @param historySize
+	 *            the number of history slots per machine
+	 * @param initialCapacity
+	 *            the number of machines the columns are allocated for, they
+	 *            grow when more machines are added.
+	 */
+	public IntArrayPopulationStore(final int historySize,
+			final int initialCapacity) {
+		Preconditions.checkArgument(initialCapacity > 0,
+				"The initial capacity must be positive.");
+		this.historySize = historySize;
+		this.states = new int[initialCapacity];
+		this.history = new int[historyLength(initialCapacity)];
+	}
+
+	private int historyLength(final int capacity) {
+		final long length = (long) capacity * this.historySize;
+		Preconditions.checkState(length <= Integer.MAX_VALUE,
+				"%s machines with %s history slots exceed the history column.",
+				capacity, this.historySize);
+		return (int) length;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public int add() {
+		if (this.size == this.states.length) {
+			final int capacity = this.states.length
+					+ Math.max(this.states.length >> 1, 1);
+			this.states = Arrays.copyOf(this.states, capacity);
+			this.history = Arrays.copyOf(this.history, historyLength(capacity));
+		}
+		return this.size++;
+	}
+
+	@Override
+	public int getState(final int machine) {
+		return this.states[Preconditions.checkElementIndex(machine, this.size)] - 1;
+	}
+
+	@Override
+	public void setState(final int machine, final int state) {
+		this.states[Preconditions.checkElementIndex(machine, this.size)] = state + 1;
+	}
+
+	@Override
+	public int getHistory(final int machine, final int slot) {
+		return this.history[machine * this.historySize + slot] - 1;
+	}
+
+	@Override
+	public void setHistory(final int machine, final int slot, final int state) {
+		this.history[machine * this.historySize + slot] = state + 1;
+	}
+}
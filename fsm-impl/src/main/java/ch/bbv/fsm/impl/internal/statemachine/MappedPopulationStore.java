@@ -0,0 +1,210 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Stores a population in a memory-mapped file. The file starts with a header,
+ * which identifies the definition by the number of states, the number of
+ * history slots and a fingerprint of the state and event names, followed by a fixed-width record per machine: the current state and the
+ * history slots as little endian ints, each ordinal plus one so that the
+ * zeroed extension of the file means {@link #NO_STATE}. The records are
+ * mapped in segments of {@value #SEGMENT_RECORDS} machines, a new segment is
+ * mapped when the last one is full.
+ */
+public final class MappedPopulationStore implements PopulationStore, Closeable {
+
+	private static final int MAGIC = 0x62667370;
+
+	private static final int VERSION = 2;
+
+	private static final int HEADER_BYTES = 32;
+
+	private static final int STATE_COUNT_OFFSET = 8;
+
+	private static final int HISTORY_SIZE_OFFSET = 12;
+
+	private static final int SIZE_OFFSET = 16;
+
+	private static final int FINGERPRINT_OFFSET = 24;
+
+	static final int SEGMENT_RECORDS = 1 << 16;
+
+	private static final int SEGMENT_SHIFT = 16;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer header;
+
+	private final int historySize;
+
+	/**
+	 * The bytes of a record.
+	 */
+	private final int recordBytes;
+
+	private MappedByteBuffer[] segments;
+
+	private int size;
+
+	/**
+	 * Opens or creates the file of a population.
+	 * 
+	 * @param file
+	 *            the file
+	 * @param stateCount
+	 *            the number of states of the definition
+	 * @param historySize
+	 *            the number of history slots per machine
+	 * @param fingerprint
+	 *            the fingerprint of the state and event names of the
+	 *            definition
+	 * @throws IOException
+	 *             if the file can't be opened or mapped.
+	 * @throws IllegalStateException
+	 *             if the file was written for another definition.
+	 */
+	public MappedPopulationStore(final Path file, final int stateCount,
+			final int historySize, final long fingerprint) throws IOException {
+		this.historySize = historySize;
+		this.recordBytes = (1 + historySize) * 4;
+		Preconditions.checkState((long) SEGMENT_RECORDS * recordBytes <= Integer.MAX_VALUE,
+				"%s history slots exceed a segment.", historySize);
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		boolean opened = false;
+		try {
+			final boolean created = this.channel.size() == 0;
+			this.header = map(0, HEADER_BYTES);
+			if (created) {
+				this.header.putInt(0, MAGIC);
+				this.header.putInt(4, VERSION);
+				this.header.putInt(STATE_COUNT_OFFSET, stateCount);
+				this.header.putInt(HISTORY_SIZE_OFFSET, historySize);
+				this.header.putLong(FINGERPRINT_OFFSET, fingerprint);
+			} else {
+				Preconditions.checkState(this.header.getInt(0) == MAGIC
+						&& this.header.getInt(4) == VERSION,
+						"%s is not a population file.", file);
+				Preconditions.checkState(
+						this.header.getInt(STATE_COUNT_OFFSET) == stateCount
+								&& this.header.getInt(HISTORY_SIZE_OFFSET) == historySize
+								&& this.header.getLong(FINGERPRINT_OFFSET) == fingerprint,
+						"%s was written for another definition.", file);
+			}
+			this.size = this.header.getInt(SIZE_OFFSET);
+			final int segmentCount = (this.size + SEGMENT_RECORDS - 1) >>> SEGMENT_SHIFT;
+			this.segments = new MappedByteBuffer[Math.max(segmentCount, 1)];
+			for (int i = 0; i < this.segments.length; i++) {
+				this.segments[i] = mapSegment(i);
+			}
+			opened = true;
+		} finally {
+			if (!opened) {
+				this.channel.close();
+			}
+		}
+	}
+
+	private MappedByteBuffer map(final long position, final int bytes)
+			throws IOException {
+		final MappedByteBuffer buffer = this.channel.map(MapMode.READ_WRITE,
+				position, bytes);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	private MappedByteBuffer mapSegment(final int segment) throws IOException {
+		return map(HEADER_BYTES + (long) segment * SEGMENT_RECORDS
+				* this.recordBytes, SEGMENT_RECORDS * this.recordBytes);
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public int add() {
+		checkOpen();
+		final int machine = this.size;
+		final int segment = machine >>> SEGMENT_SHIFT;
+		if (segment == this.segments.length) {
+			final MappedByteBuffer[] segments = Arrays.copyOf(this.segments,
+					segment + 1);
+			try {
+				segments[segment] = mapSegment(segment);
+			} catch (final IOException e) {
+				throw new IllegalStateException("The population can't grow.", e);
+			}
+			this.segments = segments;
+		}
+		this.size = machine + 1;
+		this.header.putInt(SIZE_OFFSET, this.size);
+		return machine;
+	}
+
+	@Override
+	public int getState(final int machine) {
+		return segment(machine).getInt(offset(machine)) - 1;
+	}
+
+	@Override
+	public void setState(final int machine, final int state) {
+		segment(machine).putInt(offset(machine), state + 1);
+	}
+
+	@Override
+	public int getHistory(final int machine, final int slot) {
+		return segment(machine).getInt(offset(machine) + 4 + slot * 4) - 1;
+	}
+
+	@Override
+	public void setHistory(final int machine, final int slot, final int state) {
+		segment(machine).putInt(offset(machine) + 4 + slot * 4, state + 1);
+	}
+
+	/**
+	 * Forces the header and the records to the storage device.
+	 */
+	public void force() {
+		checkOpen();
+		this.header.force();
+		for (final MappedByteBuffer segment : this.segments) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Closes the file. The mapped records are released by the garbage
+	 * collector.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	private MappedByteBuffer segment(final int machine) {
+		Preconditions.checkElementIndex(machine, this.size);
+		checkOpen();
+		return this.segments[machine >>> SEGMENT_SHIFT];
+	}
+
+	private int offset(final int machine) {
+		return (machine & (SEGMENT_RECORDS - 1)) * this.recordBytes;
+	}
+
+	private void checkOpen() {
+		Preconditions.checkState(this.channel.isOpen(),
+				"The population file is closed.");
+	}
+}
@@ -0,0 +1,48 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+import java.io.IOException;
+
+import ch.bbv.fsm.PersistentStateMachinePopulation;
+import ch.bbv.fsm.StateMachine;
+
+/**
+ * A population whose records are kept in a {@link MappedPopulationStore}.
+ * 
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public final class PersistentPopulationInterpreter<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+		extends PopulationInterpreter<TStateMachine, TState, TEvent> implements
+		PersistentStateMachinePopulation<TState, TEvent> {
+
+	private final MappedPopulationStore store;
+
+	/**
+	 * Creates a population on a mapped file.
+	 * 
+	 * @param model
+	 *            the shared model of the definition
+	 * @param store
+	 *            the records of the machines
+	 */
+	public PersistentPopulationInterpreter(
+			final FlyweightModel<TStateMachine, TState, TEvent> model,
+			final MappedPopulationStore store) {
+		super(model, store);
+		this.store = store;
+	}
+
+	@Override
+	public synchronized void force() {
+		store.force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		store.close();
+	}
+}
@@ -0,0 +1,500 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+import java.util.ArrayDeque;
+
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.EventQueueStatistics;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.StateMachinePopulation;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
+import ch.bbv.fsm.impl.internal.driver.NoEventQueueStatistics;
+import ch.bbv.fsm.impl.internal.driver.Notifier;
+import ch.bbv.fsm.impl.internal.statemachine.events.EventArgsView;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionResult;
+import ch.bbv.fsm.memento.StateMachineMemento;
+import ch.bbv.fsm.tracing.TransitionTracer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Executes the events of a population of machines stored in a
+ * {@link PopulationStore}. The states and transitions are shared through the
+ * {@link FlyweightModel} of the frozen definition, entering and exiting the
+ * states works like in the {@link StateMachineInterpreter} with the history
+ * read from and written to the history slots of the store.
+ * 
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public class PopulationInterpreter<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+		implements StateMachinePopulation<TState, TEvent>,
+		StateMachineInstance<TStateMachine, TState, TEvent>,
+		Notifier<TStateMachine, TState, TEvent> {
+
+	private final FlyweightModel<TStateMachine, TState, TEvent> model;
+
+	private final PopulationStore store;
+
+	/**
+	 * The state machine passed to the actions.
+	 */
+	private TStateMachine stateMachine;
+
+	/**
+	 * The machine whose event is executed, {@link PopulationStore#NO_STATE}
+	 * outside of an execution.
+	 */
+	private int currentMachine = PopulationStore.NO_STATE;
+
+	/**
+	 * The arguments reused for the handlers registered with an interest mask.
+	 */
+	private final EventArgsView<TStateMachine, TState, TEvent> argsView = new EventArgsView<>();
+
+	/**
+	 * The arguments of an event fired from outside of an execution.
+	 */
+	private final EventArguments arguments = new EventArguments();
+
+	/**
+	 * <code>true</code> while an event whose handler notifications are
+	 * coalesced with a later event of its batch is executed.
+	 */
+	private boolean coalesced;
+
+	/**
+	 * The events fired while executing an event.
+	 */
+	private final ArrayDeque<QueuedEvent<TEvent>> events = new ArrayDeque<>();
+
+	/**
+	 * Creates a population.
+	 * 
+	 * @param model
+	 *            the shared model of the definition
+	 * @param store
+	 *            the columns of the machines
+	 */
+	public PopulationInterpreter(
+			final FlyweightModel<TStateMachine, TState, TEvent> model,
+			final PopulationStore store) {
+		this.model = model;
+		this.store = store;
+	}
+
+	/**
+	 * Returns the view of the population passed as state machine to the
+	 * actions.
+	 */
+	public StateMachine<TState, TEvent> getCursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Sets the state machine passed to the actions, created around
+	 * {@link #getCursor()}. Must be called once before the first machine is
+	 * created.
+	 * 
+	 * @param stateMachine
+	 *            the custom state machine
+	 */
+	public void initialize(final TStateMachine stateMachine) {
+		Preconditions.checkState(this.stateMachine == null,
+				"The population is already initialized.");
+		this.stateMachine = stateMachine;
+	}
+
+	@Override
+	public synchronized int size() {
+		return store.size();
+	}
+
+	@Override
+	public synchronized int create() {
+		final int machine = store.add();
+		final int previous = currentMachine;
+		try {
+			currentMachine = machine;
+			final StateContext<TStateMachine, TState, TEvent> stateContext = new StateContext<>(
+					stateMachine, null, this, this);
+			setCurrentState(new StateMachineInitializer<>(
+					model.getInitialState(), stateContext).enterInitialState());
+		} finally {
+			currentMachine = previous;
+		}
+		if (previous == PopulationStore.NO_STATE) {
+			processQueuedEvents();
+		}
+		return machine;
+	}
+
+	@Override
+	public synchronized void fire(final int machine, final TEvent eventId,
+			final Object... eventArguments) {
+		Preconditions.checkElementIndex(machine, store.size());
+		if (currentMachine != PopulationStore.NO_STATE) {
+			final QueuedEvent<TEvent> event = new QueuedEvent<>(machine, eventId);
+			event.setArguments(eventArguments);
+			events.addLast(event);
+			return;
+		}
+		try {
+			arguments.setArguments(eventArguments);
+			fireOnMachine(machine, eventId, arguments, false);
+		} catch (final RuntimeException e) {
+			events.clear();
+			throw e;
+		}
+		processQueuedEvents();
+	}
+
+	@Override
+	public synchronized TState getCurrentState(final int machine) {
+		final int state = store.getState(machine);
+		return state == PopulationStore.NO_STATE ? null : model.getState(state)
+				.getId();
+	}
+
+	@Override
+	public synchronized void terminate(final int machine) {
+		final int previous = currentMachine;
+		try {
+			currentMachine = machine;
+			final StateContext<TStateMachine, TState, TEvent> stateContext = new StateContext<>(
+					stateMachine, null, this, this);
+			final int state = store.getState(machine);
+			InternalState<TStateMachine, TState, TEvent> o = state == PopulationStore.NO_STATE ? null
+					: model.getState(state);
+			while (o != null) {
+				o.exit(stateContext);
+				o = o.getSuperState();
+			}
+			store.setState(machine, PopulationStore.NO_STATE);
+		} finally {
+			currentMachine = previous;
+		}
+		if (previous == PopulationStore.NO_STATE) {
+			processQueuedEvents();
+		}
+	}
+
+	@Override
+	public int getCurrentMachine() {
+		return currentMachine;
+	}
+
+	@Override
+	public String getName() {
+		return model.getName();
+	}
+
+	@Override
+	public TransitionTracer<TState, TEvent> getTransitionTracer() {
+		return model.getTracer();
+	}
+
+	@Override
+	public InternalState<TStateMachine, TState, TEvent> getLastActiveSubState(
+			final InternalState<TStateMachine, TState, TEvent> superState) {
+		final int slot = model.getHistorySlot(superState);
+		if (slot == FlyweightModel.NO_SLOT) {
+			return null;
+		}
+		final int subState = store.getHistory(currentMachine, slot);
+		return subState == PopulationStore.NO_STATE ? null : model
+				.getState(subState);
+	}
+
+	@Override
+	public void setLastActiveSubState(
+			final InternalState<TStateMachine, TState, TEvent> superState,
+			final InternalState<TStateMachine, TState, TEvent> subState) {
+		final int slot = model.getHistorySlot(superState);
+		if (slot != FlyweightModel.NO_SLOT) {
+			store.setHistory(currentMachine, slot, subState.getId().ordinal());
+		}
+	}
+
+	@Override
+	public void onExceptionThrown(
+			final StateContext<TStateMachine, TState, TEvent> stateContext,
+			final Exception exception) {
+		model.getEventHandler().exceptionThrown(stateContext, exception,
+				argsView);
+	}
+
+	@Override
+	public void onExceptionThrown(
+			final TransitionContext<TStateMachine, TState, TEvent> transitionContext,
+			final Exception exception) {
+		model.getEventHandler().exceptionThrown(transitionContext, exception,
+				argsView);
+	}
+
+	@Override
+	public void onTransitionBegin(
+			final StateContext<TStateMachine, TState, TEvent> transitionContext) {
+		if (coalesced) {
+			return;
+		}
+		model.getEventHandler().transitionBegin(transitionContext,
+				argsView);
+	}
+
+	@Override
+	public String toString() {
+		return model.getName();
+	}
+
+	/**
+	 * Fires the event on the current state of a machine.
+	 * 
+	 * @param machine
+	 *            the id of the machine.
+	 * @param eventId
+	 *            the event id.
+	 * @param eventArguments
+	 *            the event arguments.
+	 * @param coalescedEvent
+	 *            <code>true</code> if the handlers are not notified of the
+	 *            transition.
+	 */
+	private void fireOnMachine(final int machine, final TEvent eventId,
+			final EventArguments eventArguments, final boolean coalescedEvent) {
+		final int current = store.getState(machine);
+		Preconditions.checkState(current != PopulationStore.NO_STATE,
+				"The machine %s of %s is terminated.", machine, model.getName());
+		final InternalState<TStateMachine, TState, TEvent> state = model
+				.getState(current);
+		try {
+			currentMachine = machine;
+			coalesced = coalescedEvent;
+			final TransitionTracer<TState, TEvent> tracer = model.getTracer();
+			StateMachineInterpreter.traceEventFired(tracer, model.getName(),
+					state.getId(), eventId, eventArguments);
+
+			final TransitionContext<TStateMachine, TState, TEvent> context = new TransitionContext<>(
+					stateMachine, state, eventId, eventArguments, this, this);
+			final TransitionResult<TStateMachine, TState, TEvent> result = StateMachineInterpreter
+					.fireTransitions(model.getTransitions(), state, context);
+
+			if (!result.isFired()) {
+				tracer.onTransitionDeclined(model.getName(), state.getId(),
+						eventId);
+				if (!coalesced) {
+					model.getEventHandler().transitionDeclined(context, argsView);
+				}
+				return;
+			}
+
+			setCurrentState(result.getNewState());
+			if (!coalesced) {
+				model.getEventHandler().transitionCompleted(result
+						.getNewState().getId(),
+					context, argsView);
+			}
+		} finally {
+			currentMachine = PopulationStore.NO_STATE;
+			coalesced = false;
+		}
+	}
+
+	/**
+	 * Executes the events fired by the actions, the remaining events are
+	 * dropped if one of them fails.
+	 */
+	private void processQueuedEvents() {
+		try {
+			QueuedEvent<TEvent> e;
+			while ((e = events.pollFirst()) != null) {
+				fireOnMachine(e.machine, e.eventId, e, e.coalesced);
+			}
+		} finally {
+			events.clear();
+		}
+	}
+
+	private void setCurrentState(
+			final InternalState<TStateMachine, TState, TEvent> state) {
+		store.setState(currentMachine, state.getId().ordinal());
+		model.getTracer().onStateSwitched(model.getName(), state.getId());
+	}
+
+	/**
+	 * An event fired while executing another event.
+	 */
+	private static final class QueuedEvent<TEvent> extends EventArguments {
+
+		private final int machine;
+
+		private final TEvent eventId;
+
+		/**
+		 * <code>true</code> if the handlers are not notified of the
+		 * transition of this event.
+		 */
+		private boolean coalesced;
+
+		QueuedEvent(final int machine, final TEvent eventId) {
+			this.machine = machine;
+			this.eventId = eventId;
+		}
+	}
+
+	/**
+	 * The state machine interface of the machine whose event is executed.
+	 */
+	private final class Cursor implements StateMachine<TState, TEvent> {
+
+		@Override
+		public void fire(final TEvent eventId, final Object... eventArguments) {
+			PopulationInterpreter.this.fire(checkedCurrentMachine(), eventId,
+					eventArguments);
+		}
+
+		@Override
+		public void fire(final TEvent eventId, final Object eventArgument) {
+			synchronized (PopulationInterpreter.this) {
+				final QueuedEvent<TEvent> event = new QueuedEvent<>(
+						checkedCurrentMachine(), eventId);
+				event.setArgument(eventArgument);
+				events.addLast(event);
+			}
+		}
+
+		@Override
+		public void fireLong(final TEvent eventId, final long eventArgument) {
+			synchronized (PopulationInterpreter.this) {
+				final QueuedEvent<TEvent> event = new QueuedEvent<>(
+						checkedCurrentMachine(), eventId);
+				event.setLongArgument(eventArgument);
+				events.addLast(event);
+			}
+		}
+
+		@Override
+		public void fireInt(final TEvent eventId, final int eventArgument) {
+			synchronized (PopulationInterpreter.this) {
+				final QueuedEvent<TEvent> event = new QueuedEvent<>(
+						checkedCurrentMachine(), eventId);
+				event.setIntArgument(eventArgument);
+				events.addLast(event);
+			}
+		}
+
+		@Override
+		public boolean offer(final TEvent eventId,
+				final Object... eventArguments) {
+			fire(eventId, eventArguments);
+			return true;
+		}
+
+		@Override
+		public void fireAll(final EventBatch<TEvent> batch,
+				final boolean coalesceNotifications) {
+			synchronized (PopulationInterpreter.this) {
+				final int machine = checkedCurrentMachine();
+				final int last = batch.size() - 1;
+				for (int i = 0; i <= last; i++) {
+					final QueuedEvent<TEvent> event = new QueuedEvent<>(machine,
+							batch.getEventId(i));
+					event.setArguments(batch, i);
+					event.coalesced = coalesceNotifications && i < last;
+					events.addLast(event);
+				}
+			}
+		}
+
+		@Override
+		public void firePriority(final TEvent eventId,
+				final Object... eventArguments) {
+			synchronized (PopulationInterpreter.this) {
+				final QueuedEvent<TEvent> event = new QueuedEvent<>(
+						checkedCurrentMachine(), eventId);
+				event.setArguments(eventArguments);
+				events.addFirst(event);
+			}
+		}
+
+		@Override
+		public RunningState getRunningState() {
+			return RunningState.Running;
+		}
+
+		@Override
+		public int numberOfQueuedEvents() {
+			synchronized (PopulationInterpreter.this) {
+				return events.size();
+			}
+		}
+
+		/**
+		 * Populations don't record dispatch statistics, all counters stay 0.
+		 */
+		@Override
+		public EventQueueStatistics getEventQueueStatistics() {
+			return NoEventQueueStatistics.getInstance();
+		}
+
+		/**
+		 * Does nothing: the machines of a population always use the tracer
+		 * of their definition.
+		 */
+		@Override
+		public void setTransitionTracer(
+				final TransitionTracer<TState, TEvent> tracer) {
+			// the tracer of the definition is shared by all machines
+		}
+
+		@Override
+		public boolean isIdle() {
+			return numberOfQueuedEvents() == 0;
+		}
+
+		@Override
+		public void start() {
+			throw new UnsupportedOperationException(
+					"The machines of a population are started by create().");
+		}
+
+		@Override
+		public void terminate() {
+			PopulationInterpreter.this.terminate(checkedCurrentMachine());
+		}
+
+		@Override
+		public TState getCurrentState() {
+			return PopulationInterpreter.this
+					.getCurrentState(checkedCurrentMachine());
+		}
+
+		@Override
+		public void activate(
+				final StateMachineMemento<TState, TEvent> stateMachineMemento) {
+			throw new UnsupportedOperationException(
+					"The machines of a population can't be activated.");
+		}
+
+		@Override
+		public void passivate(
+				final StateMachineMemento<TState, TEvent> stateMachineMemento) {
+			throw new UnsupportedOperationException(
+					"The machines of a population can't be passivated.");
+		}
+
+		private int checkedCurrentMachine() {
+			final int machine = currentMachine;
+			Preconditions.checkState(machine != PopulationStore.NO_STATE,
+					"The state machine of %s is only available in actions.",
+					model.getName());
+			return machine;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+/**
+ * The columns of a {@link PopulationInterpreter}: the current state and the
+ * history slots of each machine as state ordinals, indexed by machine id.
+ */
+public interface PopulationStore {
+
+	/**
+	 * Marks a machine without a current state or a history slot without a
+	 * recorded sub state.
+	 */
+	int NO_STATE = -1;
+
+	/**
+	 * Returns the number of machines.
+	 */
+	int size();
+
+	/**
+	 * Adds a machine without a current state and history.
+	 * 
+	 * @return the id of the new machine.
+	 */
+	int add();
+
+	/**
+	 * Returns the ordinal of the current state of a machine, {@link #NO_STATE}
+	 * if it has none.
+	 */
+	int getState(int machine);
+
+	/**
+	 * Sets the ordinal of the current state of a machine, {@link #NO_STATE} to
+	 * clear it.
+	 */
+	void setState(int machine, int state);
+
+	/**
+	 * Returns the ordinal of the last active sub state recorded in a history
+	 * slot of a machine, {@link #NO_STATE} if none is recorded.
+	 */
+	int getHistory(int machine, int slot);
+
+	/**
+	 * Records the ordinal of the last active sub state in a history slot of a
+	 * machine.
+	 */
+	void setHistory(int machine, int slot, int state);
+}
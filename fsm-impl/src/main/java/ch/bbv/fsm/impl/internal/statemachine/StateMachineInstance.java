@@ -0,0 +1,56 @@
+package ch.bbv.fsm.impl.internal.statemachine;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.tracing.TransitionTracer;
+
+/**
+ * The part of a running state machine the state and transition contexts
+ * work on: its name, its tracer and the history of its super states.
+ * 
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public interface StateMachineInstance<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	/**
+	 * Gets the name of this instance.
+	 * 
+	 * @return The name of this instance.
+	 */
+	String getName();
+
+	/**
+	 * Returns the tracer.
+	 * 
+	 * @return the tracer, never <code>null</code>.
+	 */
+	TransitionTracer<TState, TEvent> getTransitionTracer();
+
+	/**
+	 * Returns the last active sub state for the given composite state.
+	 * 
+	 * @param superState
+	 *            the super state
+	 * @return the last active sub state, <code>null</code> if none is
+	 *         recorded.
+	 */
+	InternalState<TStateMachine, TState, TEvent> getLastActiveSubState(
+			InternalState<TStateMachine, TState, TEvent> superState);
+
+	/**
+	 * Sets the last active sub state for the given composite state.
+	 * 
+	 * @param superState
+	 *            the super state
+	 * @param subState
+	 *            the last active sub state
+	 */
+	void setLastActiveSubState(
+			InternalState<TStateMachine, TState, TEvent> superState,
+			InternalState<TStateMachine, TState, TEvent> subState);
+}
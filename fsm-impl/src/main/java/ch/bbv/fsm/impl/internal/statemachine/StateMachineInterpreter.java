@@ -18,7 +18,9 @@
  *******************************************************************************/
 package ch.bbv.fsm.impl.internal.statemachine;
 
-import java.util.List;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -26,20 +28,22 @@ import org.slf4j.LoggerFactory;
 
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.events.StateMachineEventHandler;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
 import ch.bbv.fsm.impl.internal.driver.Notifier;
-import ch.bbv.fsm.impl.internal.statemachine.events.ExceptionEventArgsImpl;
-import ch.bbv.fsm.impl.internal.statemachine.events.TransitionCompletedEventArgsImpl;
-import ch.bbv.fsm.impl.internal.statemachine.events.TransitionEventArgsImpl;
-import ch.bbv.fsm.impl.internal.statemachine.events.TransitionExceptionEventArgsImpl;
+import ch.bbv.fsm.impl.internal.statemachine.events.EventArgsView;
+import ch.bbv.fsm.impl.internal.statemachine.events.EventHandlers;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateDictionary;
+import ch.bbv.fsm.impl.internal.statemachine.transition.CompiledTransition;
 import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
 import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionResult;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionResultImpl;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionTable;
+import ch.bbv.fsm.impl.tracing.NoOpTransitionTracer;
 import ch.bbv.fsm.memento.StateMachineMemento;
+import ch.bbv.fsm.tracing.TransitionTracer;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 /**
  * InternalState Machine Implementation.
@@ -54,7 +58,8 @@ import com.google.common.collect.Maps;
  *            the type of the events
  */
 public class StateMachineInterpreter<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
-		implements Notifier<TStateMachine, TState, TEvent> {
+		implements Notifier<TStateMachine, TState, TEvent>,
+		StateMachineInstance<TStateMachine, TState, TEvent> {
 
 	private static final Logger LOG = LoggerFactory
 			.getLogger(StateMachineInterpreter.class);
@@ -71,8 +76,12 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	private InternalState<TStateMachine, TState, TEvent> currentState;
 
-	private final Map<InternalState<TStateMachine, TState, TEvent>, InternalState<TStateMachine, TState, TEvent>> superToSubState = Maps
-			.newHashMap();
+	/**
+	 * The last active sub state of each super state with a history, indexed
+	 * by the ordinal of the super state. Created when the first sub state of
+	 * such a super state is exited.
+	 */
+	private InternalState<TStateMachine, TState, TEvent>[] superToSubState;
 
 	private final TState initialStateId;
 
@@ -81,7 +90,40 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	private final StateDictionary<TStateMachine, TState, TEvent> states;
 
-	private final List<StateMachineEventHandler<TStateMachine, TState, TEvent>> eventHandler;
+	/**
+	 * The compiled transitions of the states.
+	 */
+	private final TransitionTable<TStateMachine, TState, TEvent> transitions;
+
+	/**
+	 * The event handlers, replaced when a handler is added or removed.
+	 */
+	private EventHandlers<TStateMachine, TState, TEvent> eventHandler = EventHandlers
+			.empty();
+
+	/**
+	 * The arguments reused for the handlers registered with an interest mask,
+	 * <code>null</code> if there is no such handler.
+	 */
+	private EventArgsView<TStateMachine, TState, TEvent> argsView;
+
+	/**
+	 * The context reused for all events, <code>null</code> if a new context is
+	 * created for each event.
+	 */
+	private TransitionContext<TStateMachine, TState, TEvent> reusableContext;
+
+	/**
+	 * <code>true</code> while an event whose handler notifications are
+	 * coalesced with a later event of its batch is executed.
+	 */
+	private boolean coalesced;
+
+	/**
+	 * The tracer, which may be replaced by any thread.
+	 */
+	private volatile TransitionTracer<TState, TEvent> tracer = NoOpTransitionTracer
+			.getInstance();
 
 	/**
 	 * Initializes a new instance of the StateMachineImpl<TState,TEvent> class.
@@ -92,18 +134,21 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 *            The name of this state machine used in log messages.
 	 * @param states
 	 *            the states
+	 * @param transitions
+	 *            the compiled transitions of the states
 	 * @param initialState
 	 *            the initial state
 	 */
 	public StateMachineInterpreter(final TStateMachine stateMachine,
 			final String name,
 			final StateDictionary<TStateMachine, TState, TEvent> states,
+			final TransitionTable<TStateMachine, TState, TEvent> transitions,
 			final TState initialState) {
 		this.name = name;
 		this.states = states;
+		this.transitions = transitions;
 		this.stateMachine = stateMachine;
 		this.initialStateId = initialState;
-		this.eventHandler = Lists.newArrayList();
 	}
 
 	/**
@@ -113,7 +158,7 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 *            the event id.
 	 */
 	public void fire(final TEvent eventId) {
-		this.fire(eventId, null);
+		this.fire(eventId, new EventArguments());
 	}
 
 	/**
@@ -124,34 +169,207 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 * @param eventArguments
 	 *            the event arguments.
 	 */
-	public void fire(final TEvent eventId, final Object[] eventArguments) {
-		if (LOG.isDebugEnabled()) {
-			LOG.info(
-					"Fire event {} on state machine {} with current state {} and event arguments {}.",
-					new Object[] { eventId, this.getName(),
-							this.getCurrentStateId(), eventArguments });
+	public void fire(final TEvent eventId, final EventArguments eventArguments) {
+		this.fire(eventId, eventArguments, false);
+	}
+
+	/**
+	 * Fires the specified event of a batch.
+	 * 
+	 * @param eventId
+	 *            the event id.
+	 * @param eventArguments
+	 *            the event arguments.
+	 * @param coalescedEvent
+	 *            <code>true</code> if the handlers are not notified of the
+	 *            transition because the notifications are coalesced with a
+	 *            later event of the batch. Exceptions are always notified.
+	 */
+	public void fire(final TEvent eventId, final EventArguments eventArguments,
+			final boolean coalescedEvent) {
+		this.coalesced = coalescedEvent;
+		try {
+			this.fireEvent(eventId, eventArguments);
+		} finally {
+			this.coalesced = false;
 		}
+	}
 
-		final TransitionContext<TStateMachine, TState, TEvent> context = new TransitionContext<>(
-				stateMachine, getCurrentState(), eventId, eventArguments, this,
-				this);
-		final TransitionResult<TStateMachine, TState, TEvent> result = this.currentState
-				.fire(context);
+	private void fireEvent(final TEvent eventId,
+			final EventArguments eventArguments) {
+		final TransitionTracer<TState, TEvent> tracer = this.tracer;
+		traceEventFired(tracer, this.name, this.getCurrentStateId(), eventId,
+				eventArguments);
+
+		final TransitionContext<TStateMachine, TState, TEvent> context = this
+				.createTransitionContext(eventId, eventArguments);
+		final TransitionResult<TStateMachine, TState, TEvent> result = this
+				.fireTransitions(context);
 
 		if (!result.isFired()) {
-			LOG.info("No transition possible.");
+			tracer.onTransitionDeclined(this.name, this.getCurrentStateId(),
+					eventId);
 			this.onTransitionDeclined(context);
 			return;
 		}
 
 		this.setCurrentState(result.getNewState());
 
-		LOG.debug("InternalState machine {} performed {}.", this,
-				context.getRecords());
-
 		this.onTransitionCompleted(context);
 	}
 
+	/**
+	 * Returns the context for the next event.
+	 * 
+	 * @param eventId
+	 *            the event id.
+	 * @param eventArguments
+	 *            the event arguments.
+	 * @return the context.
+	 */
+	private TransitionContext<TStateMachine, TState, TEvent> createTransitionContext(
+			final TEvent eventId, final EventArguments eventArguments) {
+		if (this.reusableContext == null) {
+			return new TransitionContext<>(stateMachine, getCurrentState(),
+					eventId, eventArguments, this, this);
+		}
+		this.reusableContext.reset(getCurrentState(), eventId, eventArguments);
+		return this.reusableContext;
+	}
+
+	/**
+	 * Sets whether a single transition context is reused for all events. A
+	 * reused context doesn't allocate while firing events, but event arguments
+	 * passed to event handlers are only valid during the notification.
+	 * 
+	 * @param reuse
+	 *            true to reuse the transition context.
+	 */
+	public void setReuseTransitionContext(final boolean reuse) {
+		this.reusableContext = reuse ? new TransitionContext<>(stateMachine,
+				this, this) : null;
+	}
+
+	/**
+	 * Returns the tracer.
+	 * 
+	 * @return the tracer, never <code>null</code>.
+	 */
+	@Override
+	public TransitionTracer<TState, TEvent> getTransitionTracer() {
+		return this.tracer;
+	}
+
+	/**
+	 * Sets the tracer.
+	 * 
+	 * @param tracer
+	 *            the tracer, <code>null</code> to disable tracing.
+	 */
+	public void setTransitionTracer(final TransitionTracer<TState, TEvent> tracer) {
+		this.tracer = tracer != null ? tracer : NoOpTransitionTracer
+				.<TState, TEvent> getInstance();
+	}
+
+	/**
+	 * Fires the first transition of the current state or its super states
+	 * whose guard accepts the event.
+	 * 
+	 * @param context
+	 *            the transition context
+	 * @return the result of the transition
+	 */
+	private TransitionResult<TStateMachine, TState, TEvent> fireTransitions(
+			final TransitionContext<TStateMachine, TState, TEvent> context) {
+		return fireTransitions(this.transitions, this.currentState, context);
+	}
+
+	/**
+	 * Passes a fired event to the tracer. The arguments are only wrapped into
+	 * an array if the tracer isn't the no-op tracer.
+	 * 
+	 * @param tracer
+	 *            the tracer
+	 * @param name
+	 *            the name of the state machine
+	 * @param currentState
+	 *            the current state
+	 * @param eventId
+	 *            the event id
+	 * @param eventArguments
+	 *            the event arguments
+	 */
+	static <TState extends Enum<?>, TEvent extends Enum<?>> void traceEventFired(
+			final TransitionTracer<TState, TEvent> tracer, final String name,
+			final TState currentState, final TEvent eventId,
+			final EventArguments eventArguments) {
+		if (!(tracer instanceof NoOpTransitionTracer)) {
+			tracer.onEventFired(name, currentState, eventId,
+					eventArguments.getArguments());
+		}
+	}
+
+	/**
+	 * Fires the first transition of the state or its super states whose guard
+	 * accepts the event, through the compiled method handle if there is one.
+	 * 
+	 * @param transitions
+	 *            the transitions of the definition
+	 * @param state
+	 *            the current state
+	 * @param context
+	 *            the transition context
+	 * @return the result of the transition
+	 */
+	static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> TransitionResult<TStateMachine, TState, TEvent> fireTransitions(
+			final TransitionTable<TStateMachine, TState, TEvent> transitions,
+			final InternalState<TStateMachine, TState, TEvent> state,
+			final TransitionContext<TStateMachine, TState, TEvent> context) {
+		final MethodHandle handle = transitions.getMethodHandle(state.getId(),
+				context.getEventId());
+		if (handle != null) {
+			return fireCompiled(handle, context);
+		}
+		final CompiledTransition<TStateMachine, TState, TEvent>[] candidates = transitions
+				.getTransitions(state.getId(), context.getEventId());
+		for (int i = 0; i < candidates.length; i++) {
+			final TransitionResult<TStateMachine, TState, TEvent> result = candidates[i]
+					.fire(context);
+			if (result.isFired()) {
+				return result;
+			}
+		}
+		@SuppressWarnings("unchecked")
+		final TransitionResult<TStateMachine, TState, TEvent> notFired = TransitionResultImpl
+				.getNotFired();
+		return notFired;
+	}
+
+	/**
+	 * Fires the transitions compiled into a method handle. The handle is loaded
+	 * from the table, so this call site is shared by all definitions and not
+	 * inlined.
+	 * 
+	 * @param handle
+	 *            the compiled transitions
+	 * @param context
+	 *            the transition context
+	 * @return the result of the transition
+	 */
+	@SuppressWarnings("unchecked")
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> TransitionResult<TStateMachine, TState, TEvent> fireCompiled(
+			final MethodHandle handle,
+			final TransitionContext<TStateMachine, TState, TEvent> context) {
+		try {
+			return (TransitionResult<TStateMachine, TState, TEvent>) handle
+					.invokeExact(context);
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable t) {
+			throw new UndeclaredThrowableException(t);
+		}
+	}
+
 	/**
 	 * Returns the current state.
 	 * 
@@ -179,6 +397,7 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 * 
 	 * @return The name of this instance.
 	 */
+	@Override
 	public String getName() {
 		return this.name;
 	}
@@ -213,8 +432,6 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 		final StateContext<TStateMachine, TState, TEvent> stateContext = new StateContext<>(
 				stateMachine, null, this, this);
 		this.initialize(this.states.getState(initialStateId), stateContext);
-		LOG.info("InternalState machine {} performed {}.", this,
-				stateContext.getRecords());
 	}
 
 	/**
@@ -230,6 +447,20 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 		}
 	}
 
+	/**
+	 * Sets the event handlers.
+	 * 
+	 * @param eventHandler
+	 *            the event handlers.
+	 */
+	public void setEventHandlers(
+			final EventHandlers<TStateMachine, TState, TEvent> eventHandler) {
+		this.eventHandler = eventHandler;
+		if (eventHandler.reusesArgs() && this.argsView == null) {
+			this.argsView = new EventArgsView<>();
+		}
+	}
+
 	/**
 	 * Adds an event handler.
 	 * 
@@ -238,7 +469,7 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	public void addEventHandler(
 			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler) {
-		this.eventHandler.add(handler);
+		setEventHandlers(this.eventHandler.with(handler));
 	}
 
 	/**
@@ -249,40 +480,32 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	public void removeEventHandler(
 			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler) {
-		this.eventHandler.remove(handler);
+		setEventHandlers(this.eventHandler.without(handler));
 	}
 
 	@Override
 	public void onExceptionThrown(
 			final StateContext<TStateMachine, TState, TEvent> stateContext,
 			final Exception exception) {
-		for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-			handler.onExceptionThrown(new ExceptionEventArgsImpl<>(
-					stateContext, exception));
-		}
+		this.eventHandler.exceptionThrown(stateContext, exception,
+				this.argsView);
 	}
 
 	@Override
 	public void onExceptionThrown(
 			final TransitionContext<TStateMachine, TState, TEvent> transitionContext,
 			final Exception exception) {
-		for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-			handler.onTransitionThrowsException(new TransitionExceptionEventArgsImpl<>(
-					transitionContext, exception));
-		}
+		this.eventHandler.exceptionThrown(transitionContext, exception,
+				this.argsView);
 	}
 
 	@Override
 	public void onTransitionBegin(
 			final StateContext<TStateMachine, TState, TEvent> transitionContext) {
-		try {
-			for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-				handler.onTransitionBegin(new TransitionEventArgsImpl<>(
-						transitionContext));
-			}
-		} catch (final Exception e) {
-			onExceptionThrown(transitionContext, e);
+		if (this.coalesced) {
+			return;
 		}
+		this.eventHandler.transitionBegin(transitionContext, this.argsView);
 	}
 
 	/**
@@ -293,14 +516,11 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	protected void onTransitionCompleted(
 			final StateContext<TStateMachine, TState, TEvent> transitionContext) {
-		try {
-			for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-				handler.onTransitionCompleted(new TransitionCompletedEventArgsImpl<>(
-						this.getCurrentStateId(), transitionContext));
-			}
-		} catch (final Exception e) {
-			onExceptionThrown(transitionContext, e);
+		if (this.coalesced) {
+			return;
 		}
+		this.eventHandler.transitionCompleted(this.getCurrentStateId(),
+				transitionContext, this.argsView);
 	}
 
 	/**
@@ -311,15 +531,10 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	protected void onTransitionDeclined(
 			final StateContext<TStateMachine, TState, TEvent> transitionContext) {
-		try {
-			for (final StateMachineEventHandler<TStateMachine, TState, TEvent> handler : this.eventHandler) {
-				handler.onTransitionDeclined(new TransitionEventArgsImpl<>(
-						transitionContext));
-			}
-		} catch (final Exception e) {
-			onExceptionThrown(transitionContext, e);
+		if (this.coalesced) {
+			return;
 		}
-
+		this.eventHandler.transitionDeclined(transitionContext, this.argsView);
 	}
 
 	/**
@@ -330,9 +545,8 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	private void setCurrentState(
 			final InternalState<TStateMachine, TState, TEvent> state) {
-		LOG.info("InternalState machine {} switched to state {}.",
-				this.getName(), state.getId());
 		this.currentState = state;
+		this.tracer.onStateSwitched(this.name, state.getId());
 	}
 
 	/**
@@ -341,9 +555,11 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 * @param superState
 	 *            the super state
 	 */
+	@Override
 	public InternalState<TStateMachine, TState, TEvent> getLastActiveSubState(
 			final InternalState<TStateMachine, TState, TEvent> superState) {
-		return superToSubState.get(superState);
+		final InternalState<TStateMachine, TState, TEvent>[] history = this.superToSubState;
+		return history != null ? history[superState.getId().ordinal()] : null;
 	}
 
 	/**
@@ -354,10 +570,28 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 * @param subState
 	 *            the last active sub state
 	 */
+	@Override
 	public void setLastActiveSubState(
 			final InternalState<TStateMachine, TState, TEvent> superState,
 			final InternalState<TStateMachine, TState, TEvent> subState) {
-		superToSubState.put(superState, subState);
+		history(superState.getId())[superState.getId().ordinal()] = subState;
+	}
+
+	/**
+	 * Returns the history, created with a slot for each state of the
+	 * enumeration.
+	 * 
+	 * @param stateId
+	 *            any state
+	 * @return the history
+	 */
+	@SuppressWarnings("unchecked")
+	private InternalState<TStateMachine, TState, TEvent>[] history(
+			final TState stateId) {
+		if (this.superToSubState == null) {
+			this.superToSubState = new InternalState[stateIds(stateId).length];
+		}
+		return this.superToSubState;
 	}
 
 	@Override
@@ -373,9 +607,19 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	public void activate(final StateMachineMemento<TState, TEvent> memento) {
 		currentState = states.getState(memento.getCurrentState());
+		final TState[] historyStates = memento.getHistoryStates();
+		if (historyStates != null) {
+			for (int ordinal = 0; ordinal < historyStates.length; ordinal++) {
+				final TState subStateId = historyStates[ordinal];
+				if (subStateId != null) {
+					history(subStateId)[ordinal] = states.getState(subStateId);
+				}
+			}
+			return;
+		}
 		for (final Map.Entry<TState, TState> e : memento
 				.getSavedHistoryStates().entrySet()) {
-			superToSubState.put(states.getState(e.getKey()),
+			setLastActiveSubState(states.getState(e.getKey()),
 					states.getState(e.getValue()));
 		}
 	}
@@ -388,9 +632,58 @@ public class StateMachineInterpreter<TStateMachine extends StateMachine<TState,
 	 */
 	public void passivate(final StateMachineMemento<TState, TEvent> memento) {
 		memento.setCurrentState(getCurrentStateId());
-		for (final Map.Entry<InternalState<TStateMachine, TState, TEvent>, InternalState<TStateMachine, TState, TEvent>> e : superToSubState
-				.entrySet()) {
-			memento.putHistoryState(e.getKey().getId(), e.getValue().getId());
+		final InternalState<TStateMachine, TState, TEvent>[] history = this.superToSubState;
+		if (history == null) {
+			memento.setHistoryStates(null);
+			return;
+		}
+		TState[] historyStates = memento.getHistoryStates();
+		if (historyStates == null
+				&& !memento.getSavedHistoryStates().isEmpty()) {
+			passivateIntoMap(history, memento);
+			return;
+		}
+		if (historyStates != null && historyStates.length != history.length) {
+			historyStates = null;
+		}
+		if (historyStates != null) {
+			// drop the history of an earlier passivation into the memento
+			Arrays.fill(historyStates, null);
+		}
+		for (int ordinal = 0; ordinal < history.length; ordinal++) {
+			final InternalState<TStateMachine, TState, TEvent> subState = history[ordinal];
+			if (subState != null) {
+				if (historyStates == null) {
+					historyStates = stateIds(subState.getId());
+					Arrays.fill(historyStates, null);
+				}
+				historyStates[ordinal] = subState.getId();
+			}
 		}
+		memento.setHistoryStates(historyStates);
+	}
+
+	/**
+	 * Adds the history to a memento whose history states are stored as a
+	 * map.
+	 */
+	private void passivateIntoMap(
+			final InternalState<TStateMachine, TState, TEvent>[] history,
+			final StateMachineMemento<TState, TEvent> memento) {
+		TState[] stateIds = null;
+		for (int ordinal = 0; ordinal < history.length; ordinal++) {
+			final InternalState<TStateMachine, TState, TEvent> subState = history[ordinal];
+			if (subState != null) {
+				if (stateIds == null) {
+					stateIds = stateIds(subState.getId());
+				}
+				memento.putHistoryState(stateIds[ordinal], subState.getId());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <TState extends Enum<?>> TState[] stateIds(final TState stateId) {
+		return (TState[]) stateId.getDeclaringClass().getEnumConstants();
 	}
 }
@@ -0,0 +1,111 @@
+package ch.bbv.fsm.impl.internal.statemachine.events;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.events.ExceptionEventArgs;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.events.TransitionExceptionEventArgs;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
+
+/**
+ * Read-only arguments of all callbacks of an event handler, pointed at the
+ * context of each callback instead of being allocated for it. Only valid
+ * during the callback.
+ * 
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public final class EventArgsView<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+		implements TransitionCompletedEventArgs<TStateMachine, TState, TEvent>,
+		TransitionExceptionEventArgs<TStateMachine, TState, TEvent>,
+		ExceptionEventArgs<TStateMachine, TState, TEvent> {
+
+	private StateContext<TStateMachine, TState, TEvent> context;
+
+	private TState newStateId;
+
+	private Exception exception;
+
+	/**
+	 * Points this view at the context of a callback.
+	 * 
+	 * @param context
+	 *            the context
+	 * @param newStateId
+	 *            the new state of a completed transition
+	 * @param exception
+	 *            the exception of an exception callback
+	 * @return this view
+	 */
+	EventArgsView<TStateMachine, TState, TEvent> of(
+			final StateContext<TStateMachine, TState, TEvent> context,
+			final TState newStateId, final Exception exception) {
+		this.context = context;
+		this.newStateId = newStateId;
+		this.exception = exception;
+		return this;
+	}
+
+	@Override
+	public TStateMachine getSource() {
+		return this.context.getStateMachine();
+	}
+
+	/**
+	 * Returns the event arguments, <code>null</code> for an exception thrown
+	 * outside of a transition.
+	 */
+	@Override
+	public Object[] getEventArguments() {
+		final TransitionContext<TStateMachine, TState, TEvent> transitionContext = getTransitionContext();
+		return transitionContext != null ? transitionContext.getEventArguments() : null;
+	}
+
+	/**
+	 * Returns the event, <code>null</code> for an exception thrown outside of
+	 * a transition.
+	 */
+	@Override
+	public TEvent getEventId() {
+		final TransitionContext<TStateMachine, TState, TEvent> transitionContext = getTransitionContext();
+		return transitionContext != null ? transitionContext.getEventId() : null;
+	}
+
+	/**
+	 * Returns the state, <code>null</code> for an exception thrown before the
+	 * initial state is entered.
+	 */
+	@Override
+	public TState getStateId() {
+		final InternalState<TStateMachine, TState, TEvent> state = this.context.getState();
+		return state != null ? state.getId() : null;
+	}
+
+	@Override
+	public TState getNewStateId() {
+		return this.newStateId;
+	}
+
+	@Override
+	public Exception getException() {
+		return this.exception;
+	}
+
+	private TransitionContext<TStateMachine, TState, TEvent> getTransitionContext() {
+		return this.context instanceof TransitionContext ? (TransitionContext<TStateMachine, TState, TEvent>) this.context
+				: null;
+	}
+
+	@Override
+	public String toString() {
+		if (getTransitionContext() == null) {
+			return String.format("Exception %s in state %s.", this.exception, getStateId());
+		}
+		return String.format("Transition from state %s on event %s.", getStateId(), getEventId());
+	}
+}
@@ -0,0 +1,341 @@
+package ch.bbv.fsm.impl.internal.statemachine.events;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.events.EventInterest;
+import ch.bbv.fsm.events.StateMachineEventHandler;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
+import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
+
+/**
+ * An immutable set of event handler registrations with a precomputed array
+ * of the registrations interested in each callback. Adding or removing a
+ * handler creates a new instance.
+ * 
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public final class EventHandlers<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	@SuppressWarnings("rawtypes")
+	private static final EventHandlers EMPTY = new EventHandlers<>(new Registration[0]);
+
+	private final Registration<TStateMachine, TState, TEvent>[] registrations;
+
+	private final Registration<TStateMachine, TState, TEvent>[] begin;
+
+	private final Registration<TStateMachine, TState, TEvent>[] completed;
+
+	private final Registration<TStateMachine, TState, TEvent>[] declined;
+
+	private final Registration<TStateMachine, TState, TEvent>[] exception;
+
+	private final boolean reusesArgs;
+
+	private EventHandlers(final Registration<TStateMachine, TState, TEvent>[] registrations) {
+		this.registrations = registrations;
+		this.begin = interested(registrations, EventInterest.BEGIN);
+		this.completed = interested(registrations, EventInterest.COMPLETED);
+		this.declined = interested(registrations, EventInterest.DECLINED);
+		this.exception = interested(registrations, EventInterest.EXCEPTION);
+		boolean reuses = false;
+		for (final Registration<TStateMachine, TState, TEvent> registration : registrations) {
+			reuses |= registration.reuseArgs;
+		}
+		this.reusesArgs = reuses;
+	}
+
+	/**
+	 * Returns the empty set of handlers.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> EventHandlers<TStateMachine, TState, TEvent> empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Returns these handlers and a handler called for all callbacks with newly
+	 * created arguments.
+	 * 
+	 * @param handler
+	 *            the handler
+	 * @return the handlers
+	 */
+	public EventHandlers<TStateMachine, TState, TEvent> with(
+			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler) {
+		return with(new Registration<>(handler, EventInterest.ALL, null, null, false));
+	}
+
+	/**
+	 * Returns these handlers and a handler called with a reused view of the
+	 * arguments for the callbacks of the interest mask and for transitions
+	 * matching the filters.
+	 * 
+	 * @param handler
+	 *            the handler
+	 * @param interests
+	 *            the mask of {@link EventInterest} callbacks
+	 * @param states
+	 *            the source states, <code>null</code> or empty for all
+	 * @param events
+	 *            the events, <code>null</code> or empty for all
+	 * @return the handlers
+	 */
+	public EventHandlers<TStateMachine, TState, TEvent> with(
+			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler, final int interests,
+			final Set<TState> states, final Set<TEvent> events) {
+		return with(new Registration<>(handler, interests, filter(states), filter(events), true));
+	}
+
+	private EventHandlers<TStateMachine, TState, TEvent> with(
+			final Registration<TStateMachine, TState, TEvent> registration) {
+		final Registration<TStateMachine, TState, TEvent>[] registrations = Arrays.copyOf(this.registrations,
+				this.registrations.length + 1);
+		registrations[this.registrations.length] = registration;
+		return new EventHandlers<>(registrations);
+	}
+
+	/**
+	 * Returns these handlers without the first registration of a handler.
+	 * 
+	 * @param handler
+	 *            the handler
+	 * @return the handlers
+	 */
+	@SuppressWarnings("unchecked")
+	public EventHandlers<TStateMachine, TState, TEvent> without(
+			final StateMachineEventHandler<TStateMachine, TState, TEvent> handler) {
+		for (int i = 0; i < this.registrations.length; i++) {
+			if (this.registrations[i].handler.equals(handler)) {
+				final Registration<TStateMachine, TState, TEvent>[] registrations = new Registration[this.registrations.length - 1];
+				System.arraycopy(this.registrations, 0, registrations, 0, i);
+				System.arraycopy(this.registrations, i + 1, registrations, i, registrations.length - i);
+				return new EventHandlers<>(registrations);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns true if a handler is called with a reused view of the arguments.
+	 */
+	public boolean reusesArgs() {
+		return this.reusesArgs;
+	}
+
+	/**
+	 * Notifies the handlers of an exception thrown outside of a transition.
+	 * 
+	 * @param stateContext
+	 *            the state context
+	 * @param exception
+	 *            the exception
+	 * @param view
+	 *            the view of the arguments, <code>null</code> to create one
+	 *            when needed
+	 */
+	public void exceptionThrown(final StateContext<TStateMachine, TState, TEvent> stateContext,
+			final Exception exception, final EventArgsView<TStateMachine, TState, TEvent> view) {
+		final Registration<TStateMachine, TState, TEvent>[] registrations = this.exception;
+		for (int i = 0; i < registrations.length; i++) {
+			final Registration<TStateMachine, TState, TEvent> registration = registrations[i];
+			registration.handler.onExceptionThrown(registration.reuseArgs ? view(view).of(stateContext, null,
+					exception) : new ExceptionEventArgsImpl<>(stateContext, exception));
+		}
+	}
+
+	/**
+	 * Notifies the handlers of an exception thrown by a transition.
+	 * 
+	 * @param transitionContext
+	 *            the transition context
+	 * @param exception
+	 *            the exception
+	 * @param view
+	 *            the view of the arguments, <code>null</code> to create one
+	 *            when needed
+	 */
+	public void exceptionThrown(final TransitionContext<TStateMachine, TState, TEvent> transitionContext,
+			final Exception exception, final EventArgsView<TStateMachine, TState, TEvent> view) {
+		final Registration<TStateMachine, TState, TEvent>[] registrations = this.exception;
+		for (int i = 0; i < registrations.length; i++) {
+			final Registration<TStateMachine, TState, TEvent> registration = registrations[i];
+			if (registration.accepts(transitionContext)) {
+				registration.handler.onTransitionThrowsException(registration.reuseArgs ? view(view).of(
+						transitionContext, null, exception) : new TransitionExceptionEventArgsImpl<>(
+						transitionContext, exception));
+			}
+		}
+	}
+
+	/**
+	 * Notifies the handlers that a transition begins.
+	 * 
+	 * @param transitionContext
+	 *            the transition context
+	 * @param view
+	 *            the view of the arguments, <code>null</code> to create one
+	 *            when needed
+	 */
+	public void transitionBegin(final StateContext<TStateMachine, TState, TEvent> transitionContext,
+			final EventArgsView<TStateMachine, TState, TEvent> view) {
+		try {
+			final Registration<TStateMachine, TState, TEvent>[] registrations = this.begin;
+			for (int i = 0; i < registrations.length; i++) {
+				final Registration<TStateMachine, TState, TEvent> registration = registrations[i];
+				if (registration.accepts(transitionContext)) {
+					registration.handler.onTransitionBegin(registration.reuseArgs ? view(view).of(
+							transitionContext, null, null) : new TransitionEventArgsImpl<>(transitionContext));
+				}
+			}
+		} catch (final Exception e) {
+			exceptionThrown(transitionContext, e, view);
+		}
+	}
+
+	/**
+	 * Notifies the handlers that a transition completed.
+	 * 
+	 * @param newStateId
+	 *            the new state
+	 * @param transitionContext
+	 *            the transition context
+	 * @param view
+	 *            the view of the arguments, <code>null</code> to create one
+	 *            when needed
+	 */
+	public void transitionCompleted(final TState newStateId,
+			final StateContext<TStateMachine, TState, TEvent> transitionContext,
+			final EventArgsView<TStateMachine, TState, TEvent> view) {
+		try {
+			final Registration<TStateMachine, TState, TEvent>[] registrations = this.completed;
+			for (int i = 0; i < registrations.length; i++) {
+				final Registration<TStateMachine, TState, TEvent> registration = registrations[i];
+				if (registration.accepts(transitionContext)) {
+					registration.handler.onTransitionCompleted(registration.reuseArgs ? view(view).of(
+							transitionContext, newStateId, null) : new TransitionCompletedEventArgsImpl<>(
+							newStateId, transitionContext));
+				}
+			}
+		} catch (final Exception e) {
+			exceptionThrown(transitionContext, e, view);
+		}
+	}
+
+	/**
+	 * Notifies the handlers that a transition was declined.
+	 * 
+	 * @param transitionContext
+	 *            the transition context
+	 * @param view
+	 *            the view of the arguments, <code>null</code> to create one
+	 *            when needed
+	 */
+	public void transitionDeclined(final StateContext<TStateMachine, TState, TEvent> transitionContext,
+			final EventArgsView<TStateMachine, TState, TEvent> view) {
+		try {
+			final Registration<TStateMachine, TState, TEvent>[] registrations = this.declined;
+			for (int i = 0; i < registrations.length; i++) {
+				final Registration<TStateMachine, TState, TEvent> registration = registrations[i];
+				if (registration.accepts(transitionContext)) {
+					registration.handler.onTransitionDeclined(registration.reuseArgs ? view(view).of(
+							transitionContext, null, null) : new TransitionEventArgsImpl<>(transitionContext));
+				}
+			}
+		} catch (final Exception e) {
+			exceptionThrown(transitionContext, e, view);
+		}
+	}
+
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> EventArgsView<TStateMachine, TState, TEvent> view(
+			final EventArgsView<TStateMachine, TState, TEvent> view) {
+		return view != null ? view : new EventArgsView<>();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> Registration<TStateMachine, TState, TEvent>[] interested(
+			final Registration<TStateMachine, TState, TEvent>[] registrations, final int interest) {
+		int count = 0;
+		for (final Registration<TStateMachine, TState, TEvent> registration : registrations) {
+			if ((registration.interests & interest) != 0) {
+				count++;
+			}
+		}
+		final Registration<TStateMachine, TState, TEvent>[] interested = new Registration[count];
+		count = 0;
+		for (final Registration<TStateMachine, TState, TEvent> registration : registrations) {
+			if ((registration.interests & interest) != 0) {
+				interested[count++] = registration;
+			}
+		}
+		return interested;
+	}
+
+	/**
+	 * Converts a set of enum constants into a filter indexed by ordinal.
+	 * 
+	 * @return the filter, <code>null</code> if the set is empty.
+	 */
+	private static boolean[] filter(final Set<? extends Enum<?>> values) {
+		if (values == null || values.isEmpty()) {
+			return null;
+		}
+		final boolean[] filter = new boolean[values.iterator().next().getDeclaringClass().getEnumConstants().length];
+		for (final Enum<?> value : values) {
+			filter[value.ordinal()] = true;
+		}
+		return filter;
+	}
+
+	/**
+	 * A handler with its interests and filters.
+	 */
+	private static final class Registration<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+		private final StateMachineEventHandler<TStateMachine, TState, TEvent> handler;
+
+		private final int interests;
+
+		/**
+		 * The accepted source states by ordinal, <code>null</code> for all.
+		 */
+		private final boolean[] states;
+
+		/**
+		 * The accepted events by ordinal, <code>null</code> for all.
+		 */
+		private final boolean[] events;
+
+		private final boolean reuseArgs;
+
+		Registration(final StateMachineEventHandler<TStateMachine, TState, TEvent> handler, final int interests,
+				final boolean[] states, final boolean[] events, final boolean reuseArgs) {
+			this.handler = handler;
+			this.interests = interests;
+			this.states = states;
+			this.events = events;
+			this.reuseArgs = reuseArgs;
+		}
+
+		boolean accepts(final StateContext<TStateMachine, TState, TEvent> context) {
+			if (this.states != null
+					&& (context.getState() == null || !this.states[context.getState().getId().ordinal()])) {
+				return false;
+			}
+			if (this.events != null) {
+				if (!(context instanceof TransitionContext)) {
+					return false;
+				}
+				final TEvent eventId = ((TransitionContext<TStateMachine, TState, TEvent>) context).getEventId();
+				return eventId != null && this.events[eventId.ordinal()];
+			}
+			return true;
+		}
+	}
+}
@@ -18,9 +18,7 @@ package ch.bbv.fsm.impl.internal.statemachine.state;
 import ch.bbv.fsm.HistoryType;
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.impl.internal.action.FsmCall;
-import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
 import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionDictionary;
-import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionResult;
 import ch.bbv.fsm.model.State;
 import ch.bbv.fsm.model.visitor.Visitor;
 
@@ -86,15 +84,6 @@ public interface InternalState<TStateMachine extends StateMachine<TState, TEvent
    */
   void exit(StateContext<TStateMachine, TState, TEvent> stateContext);
 
-  /**
-   * Fires the specified event id on this state.
-   *
-   * @param context the event context.
-   * @return the result of the transition.
-   */
-  TransitionResult<TStateMachine, TState, TEvent> fire(
-      TransitionContext<TStateMachine, TState, TEvent> context);
-
   /**
    * Returns the entry action.
    *
@@ -181,6 +170,12 @@ public interface InternalState<TStateMachine extends StateMachine<TState, TEvent
    */
   void setSuperState(InternalState<TStateMachine, TState, TEvent> superState);
 
+  /**
+   * Freezes this state and its transitions. The setters throw an {@link IllegalStateException}
+   * afterwards.
+   */
+  void freeze();
+
   /**
    * Accepts a {@link #Visitor}.
    *
@@ -17,23 +17,17 @@ package ch.bbv.fsm.impl.internal.statemachine.state;
 
 import java.util.List;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import ch.bbv.fsm.HistoryType;
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.impl.internal.action.FsmCall;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateContext.RecordType;
-import ch.bbv.fsm.impl.internal.statemachine.transition.Transition;
-import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionContext;
 import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionDictionary;
 import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionDictionaryImpl;
-import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionResult;
-import ch.bbv.fsm.impl.internal.statemachine.transition.TransitionResultImpl;
 import ch.bbv.fsm.model.State;
 import ch.bbv.fsm.model.TransitionInfo;
 import ch.bbv.fsm.model.visitor.Visitor;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -49,14 +43,12 @@ import com.google.common.collect.Lists;
 public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
     implements InternalState<TStateMachine, TState, TEvent> {
 
-  private static final Logger LOG = LoggerFactory.getLogger(InternalStateImpl.class);
-
   /**
    * The level of this state within the state hierarchy [1..maxLevel].
    */
   private int level;
 
-  private final List<State<TStateMachine, TState, TEvent>> subStates;
+  private List<State<TStateMachine, TState, TEvent>> subStates;
 
   /**
    * The super-state of this state. Null for states with <code>level</code> equal to 1.
@@ -94,6 +86,8 @@ public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent
    */
   private FsmCall<TStateMachine, TState, TEvent> exitAction;
 
+  private boolean frozen;
+
   /**
    * Initializes a new instance of the state.
    *
@@ -109,6 +103,7 @@ public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent
 
   @Override
   public void addSubState(final InternalState<TStateMachine, TState, TEvent> state) {
+    this.checkNotFrozen();
     this.subStates.add(state);
 
   }
@@ -282,32 +277,6 @@ public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent
     }
   }
 
-  @Override
-  public TransitionResult<TStateMachine, TState, TEvent> fire(
-      final TransitionContext<TStateMachine, TState, TEvent> context) {
-    @SuppressWarnings("unchecked")
-    TransitionResult<TStateMachine, TState, TEvent> result = TransitionResultImpl.getNotFired();
-
-    final List<Transition<TStateMachine, TState, TEvent>> transitionsForEvent =
-        this.transitions.getTransitions(context.getEventId());
-    if (transitionsForEvent != null) {
-      for (final Transition<TStateMachine, TState, TEvent> transition : transitionsForEvent) {
-        result = transition.fire(context);
-        if (result.isFired()) {
-          return result;
-        }
-      }
-    }
-    LOG.info("No transition available in this state ({}).", this.getId());
-
-    if (this.getSuperState() != null) {
-      LOG.info("Fire the same event on the super state.");
-      result = this.getSuperState().fire(context);
-    }
-
-    return result;
-  }
-
   @Override
   public FsmCall<TStateMachine, TState, TEvent> getEntryAction() {
     return this.entryAction;
@@ -361,24 +330,27 @@ public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent
    */
   private void handleException(final Exception exception,
       final StateContext<TStateMachine, TState, TEvent> stateContext) {
-    stateContext.getExceptions().add(exception);
+    stateContext.addException(exception);
     stateContext.getNotifier().onExceptionThrown(stateContext, exception);
   }
 
   @Override
   public void setEntryAction(final FsmCall<TStateMachine, TState, TEvent> action) {
+    this.checkNotFrozen();
     this.entryAction = action;
 
   }
 
   @Override
   public void setExitAction(final FsmCall<TStateMachine, TState, TEvent> action) {
+    this.checkNotFrozen();
     this.exitAction = action;
 
   }
 
   @Override
   public void setHistoryType(final HistoryType historyType) {
+    this.checkNotFrozen();
     this.historyType = historyType;
 
   }
@@ -392,6 +364,7 @@ public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent
 
   @Override
   public void setInitialState(final InternalState<TStateMachine, TState, TEvent> initialState) {
+    this.checkNotFrozen();
     this.checkInitialStateIsNotThisInstance(initialState);
     this.checkInitialStateIsASubState(initialState);
     this.initialState = initialState;
@@ -399,6 +372,7 @@ public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent
 
   @Override
   public void setLevel(final int level) {
+    this.checkNotFrozen();
     this.level = level;
     this.setLevelOfSubStates();
   }
@@ -414,12 +388,26 @@ public class InternalStateImpl<TStateMachine extends StateMachine<TState, TEvent
 
   @Override
   public void setSuperState(final InternalState<TStateMachine, TState, TEvent> superState) {
+    this.checkNotFrozen();
     this.checkSuperStateIsNotThisInstance(superState);
     this.superState = superState;
     this.setInitialLevel();
 
   }
 
+  @Override
+  public void freeze() {
+    if (!this.frozen) {
+      this.subStates = ImmutableList.copyOf(this.subStates);
+      this.transitions.freeze();
+      this.frozen = true;
+    }
+  }
+
+  private void checkNotFrozen() {
+    Preconditions.checkState(!this.frozen, "The state %s is frozen.", this.id);
+  }
+
   @Override
   public String toString() {
     return this.id.toString();
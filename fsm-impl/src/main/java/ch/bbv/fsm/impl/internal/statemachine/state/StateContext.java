@@ -18,11 +18,13 @@
  *******************************************************************************/
 package ch.bbv.fsm.impl.internal.statemachine.state;
 
+import java.util.Collections;
 import java.util.List;
 
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.impl.internal.driver.Notifier;
-import ch.bbv.fsm.impl.internal.statemachine.StateMachineInterpreter;
+import ch.bbv.fsm.impl.internal.statemachine.StateMachineInstance;
+import ch.bbv.fsm.tracing.TransitionTracer;
 
 import com.google.common.collect.Lists;
 
@@ -40,70 +42,6 @@ import com.google.common.collect.Lists;
  */
 public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
 
-	/**
-	 * A record of a state exit or entry. Used to log the way taken by transitions and initialization.
-	 */
-	public class Record {
-		private TState stateId;
-		private RecordType recordType;
-
-		/**
-		 * Creates a new instance.
-		 * 
-		 * @param stateId
-		 *            the state id.
-		 * @param recordType
-		 *            the record type.
-		 */
-		public Record(final TState stateId, final RecordType recordType) {
-			this.stateId = stateId;
-			this.recordType = recordType;
-		}
-
-		/**
-		 * Returns the record type.
-		 * 
-		 * @return the record type.
-		 */
-		public RecordType getRecordType() {
-			return this.recordType;
-		}
-
-		/**
-		 * Returns the state id.
-		 * 
-		 * @return the state id.
-		 */
-		public TState getStateId() {
-			return this.stateId;
-		}
-
-		/**
-		 * Sets the record type.
-		 * 
-		 * @param recordType
-		 *            the record type.
-		 */
-		public void setRecordType(final RecordType recordType) {
-			this.recordType = recordType;
-		}
-
-		/**
-		 * Sets the state id.
-		 * 
-		 * @param stateId
-		 *            the state id.
-		 */
-		public void setStateId(final TState stateId) {
-			this.stateId = stateId;
-		}
-
-		@Override
-		public String toString() {
-			return this.recordType + " " + this.stateId;
-		}
-	}
-
 	/**
 	 * Specifies the type of the record.
 	 */
@@ -120,19 +58,16 @@ public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TS
 		Exit
 	}
 
-	private final InternalState<TStateMachine, TState, TEvent> sourceState;
+	private InternalState<TStateMachine, TState, TEvent> sourceState;
 
 	/**
-	 * The exceptions that occurred during performing an operation.
+	 * The exceptions that occurred during performing an operation, created on
+	 * the first exception.
 	 */
-	private final List<Exception> exceptions;
+	private List<Exception> exceptions;
 
-	/**
-	 * The list of records (state exits, entries).
-	 */
-	private final List<Record> records;
 
-	private final StateMachineInterpreter<TStateMachine, TState, TEvent> stateMachineInterpreter;
+	private final StateMachineInstance<TStateMachine, TState, TEvent> stateMachineInstance;
 
 	private final Notifier<TStateMachine, TState, TEvent> notifier;
 
@@ -145,24 +80,23 @@ public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TS
 	 *            the custom state machine
 	 * @param sourceState
 	 *            the source state of the transition.
-	 * @param stateMachineImpl
-	 *            the state machine
+	 * @param stateMachineInstance
+	 *            the running state machine
 	 * @param notifier
 	 *            the notifier
 	 */
 	public StateContext(final TStateMachine stateMachine, final InternalState<TStateMachine, TState, TEvent> sourceState,
-			final StateMachineInterpreter<TStateMachine, TState, TEvent> stateMachineImpl,
+			final StateMachineInstance<TStateMachine, TState, TEvent> stateMachineInstance,
 			final Notifier<TStateMachine, TState, TEvent> notifier) {
 		this.sourceState = sourceState;
-		this.stateMachineInterpreter = stateMachineImpl;
+		this.stateMachineInstance = stateMachineInstance;
 		this.notifier = notifier;
 		this.stateMachine = stateMachine;
-		this.exceptions = Lists.newArrayList();
-		this.records = Lists.newArrayList();
 	}
 
 	/**
-	 * Adds a record.
+	 * Records a state exit or entry by passing it to the tracer of the state
+	 * machine.
 	 * 
 	 * @param stateId
 	 *            the state id.
@@ -170,7 +104,12 @@ public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TS
 	 *            the record type.
 	 */
 	public void addRecord(final TState stateId, final RecordType recordType) {
-		this.records.add(new Record(stateId, recordType));
+		final TransitionTracer<TState, TEvent> tracer = this.stateMachineInstance.getTransitionTracer();
+		if (recordType == RecordType.Enter) {
+			tracer.onStateEntered(this.stateMachineInstance.getName(), stateId);
+		} else {
+			tracer.onStateExited(this.stateMachineInstance.getName(), stateId);
+		}
 	}
 
 	/**
@@ -179,22 +118,36 @@ public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TS
 	 * @return the occured exceptions during the transition.
 	 */
 	public List<Exception> getExceptions() {
+		if (this.exceptions == null) {
+			return Collections.emptyList();
+		}
 		return this.exceptions;
 	}
 
 	/**
-	 * Returns all records in string representation.
+	 * Adds an exception that occurred during performing an operation.
 	 * 
-	 * @return all records in string representation.
+	 * @param exception
+	 *            the exception.
 	 */
-	public String getRecords() {
-		final StringBuilder result = new StringBuilder();
-
-		for (final Record record : this.records) {
-			result.append(String.format(" -> %s", record));
+	public void addException(final Exception exception) {
+		if (this.exceptions == null) {
+			this.exceptions = Lists.newArrayList();
 		}
+		this.exceptions.add(exception);
+	}
 
-		return result.toString();
+	/**
+	 * Prepares this context to be reused for another operation.
+	 * 
+	 * @param sourceState
+	 *            the source state.
+	 */
+	protected void reset(final InternalState<TStateMachine, TState, TEvent> sourceState) {
+		this.sourceState = sourceState;
+		if (this.exceptions != null) {
+			this.exceptions.clear();
+		}
 	}
 
 	/**
@@ -207,10 +160,10 @@ public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TS
 	}
 
 	/**
-	 * Returns the state machine's implementation.
+	 * Returns the running state machine.
 	 */
-	public StateMachineInterpreter<TStateMachine, TState, TEvent> getStateMachineInterpreter() {
-		return stateMachineInterpreter;
+	public StateMachineInstance<TStateMachine, TState, TEvent> getStateMachineInstance() {
+		return stateMachineInstance;
 	}
 
 	/**
@@ -229,7 +182,7 @@ public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TS
 	public InternalState<TStateMachine, TState, TEvent> getLastActiveSubState(final InternalState<TStateMachine, TState, TEvent> superState) {
 		InternalState<TStateMachine, TState, TEvent> result = null;
 		if (superState != null) {
-			result = stateMachineInterpreter.getLastActiveSubState(superState);
+			result = stateMachineInstance.getLastActiveSubState(superState);
 			if (result == null) {
 				result = superState.getInitialState();
 			}
@@ -247,7 +200,7 @@ public class StateContext<TStateMachine extends StateMachine<TState, TEvent>, TS
 	 */
 	public void setLastActiveSubState(final InternalState<TStateMachine, TState, TEvent> superState,
 			final InternalState<TStateMachine, TState, TEvent> subState) {
-		stateMachineInterpreter.setLastActiveSubState(superState, subState);
+		stateMachineInstance.setLastActiveSubState(superState, subState);
 	}
 
 	/**
@@ -23,6 +23,8 @@ import java.util.concurrent.ConcurrentMap;
 
 import ch.bbv.fsm.StateMachine;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 
@@ -42,6 +44,16 @@ public class StateDictionary<TStateMachine extends StateMachine<TState, TEvent>,
 
 	private final ConcurrentMap<TState, InternalState<TStateMachine, TState, TEvent>> dictionary;
 
+	/**
+	 * The frozen states indexed by ordinal, <code>null</code> until frozen.
+	 */
+	private volatile InternalState<TStateMachine, TState, TEvent>[] frozenStates;
+
+	/**
+	 * The frozen states in the order of the dictionary.
+	 */
+	private volatile List<InternalState<TStateMachine, TState, TEvent>> frozenStateList;
+
 	/**
 	 * Creates a new instance of the state dictionary.
 	 */
@@ -57,6 +69,13 @@ public class StateDictionary<TStateMachine extends StateMachine<TState, TEvent>,
 	 * @return the state instance.
 	 */
 	public InternalState<TStateMachine, TState, TEvent> getState(final TState stateId) {
+		final InternalState<TStateMachine, TState, TEvent>[] states = this.frozenStates;
+		if (states != null) {
+			final int ordinal = stateId.ordinal();
+			Preconditions.checkState(ordinal < states.length && states[ordinal] != null,
+					"The state %s is not part of the frozen definition.", stateId);
+			return states[ordinal];
+		}
 		if (!this.dictionary.containsKey(stateId)) {
 			this.dictionary.putIfAbsent(stateId,
 					new InternalStateImpl<>(stateId));
@@ -71,7 +90,45 @@ public class StateDictionary<TStateMachine extends StateMachine<TState, TEvent>,
 	 * @return a list of all defined states.
 	 */
 	public List<InternalState<TStateMachine, TState, TEvent>> getStates() {
+		final List<InternalState<TStateMachine, TState, TEvent>> states = this.frozenStateList;
+		if (states != null) {
+			return states;
+		}
 		return Lists.newArrayList(this.dictionary.values());
 	}
 
+	/**
+	 * Freezes all states. Afterwards, the states are looked up in an array
+	 * indexed by their ordinal and unknown states are rejected instead of
+	 * being created.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void freeze() {
+		if (this.frozenStates != null) {
+			return;
+		}
+		final List<InternalState<TStateMachine, TState, TEvent>> states = ImmutableList
+				.copyOf(this.dictionary.values());
+		int size = 0;
+		for (final InternalState<TStateMachine, TState, TEvent> state : states) {
+			state.freeze();
+			size = Math.max(size, state.getId().ordinal() + 1);
+		}
+		final InternalState<TStateMachine, TState, TEvent>[] byOrdinal = new InternalState[size];
+		for (final InternalState<TStateMachine, TState, TEvent> state : states) {
+			byOrdinal[state.getId().ordinal()] = state;
+		}
+		this.frozenStateList = states;
+		this.frozenStates = byOrdinal;
+	}
+
+	/**
+	 * Returns true if the states are frozen.
+	 * 
+	 * @return true if the states are frozen.
+	 */
+	public boolean isFrozen() {
+		return this.frozenStates != null;
+	}
+
 }
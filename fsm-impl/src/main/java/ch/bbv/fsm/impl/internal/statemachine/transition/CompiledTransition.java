@@ -0,0 +1,86 @@
+package ch.bbv.fsm.impl.internal.statemachine.transition;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+
+/**
+ * A transition together with the states to exit and to enter when it is fired in a specific
+ * state. The state hierarchy doesn't change after the definition, so the paths are computed once
+ * instead of walking the hierarchy on every firing.
+ *
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public final class CompiledTransition<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	private final Transition<TStateMachine, TState, TEvent> transition;
+
+	private final InternalState<TStateMachine, TState, TEvent>[] exitPath;
+
+	private final InternalState<TStateMachine, TState, TEvent>[] entryPath;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param transition
+	 *            the transition
+	 * @param exitPath
+	 *            the states to exit, starting with the origin state
+	 * @param entryPath
+	 *            the states to enter, ending with the target state
+	 */
+	CompiledTransition(final Transition<TStateMachine, TState, TEvent> transition,
+			final InternalState<TStateMachine, TState, TEvent>[] exitPath,
+			final InternalState<TStateMachine, TState, TEvent>[] entryPath) {
+		this.transition = transition;
+		this.exitPath = exitPath;
+		this.entryPath = entryPath;
+	}
+
+	/**
+	 * Fires the transition.
+	 *
+	 * @param context
+	 *            the event context.
+	 * @return The result of the transition.
+	 */
+	public TransitionResult<TStateMachine, TState, TEvent> fire(final TransitionContext<TStateMachine, TState, TEvent> context) {
+		return this.transition.fire(context, this.exitPath, this.entryPath);
+	}
+
+	/**
+	 * Returns the transition.
+	 *
+	 * @return the transition.
+	 */
+	public Transition<TStateMachine, TState, TEvent> getTransition() {
+		return this.transition;
+	}
+
+	/**
+	 * Returns the states to exit.
+	 *
+	 * @return the states to exit. The array must not be modified.
+	 */
+	public InternalState<TStateMachine, TState, TEvent>[] getExitPath() {
+		return this.exitPath;
+	}
+
+	/**
+	 * Returns the states to enter.
+	 *
+	 * @return the states to enter. The array must not be modified.
+	 */
+	public InternalState<TStateMachine, TState, TEvent>[] getEntryPath() {
+		return this.entryPath;
+	}
+
+	@Override
+	public String toString() {
+		return this.transition.toString();
+	}
+}
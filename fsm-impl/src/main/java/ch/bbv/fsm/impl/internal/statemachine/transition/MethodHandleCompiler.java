@@ -0,0 +1,240 @@
+package ch.bbv.fsm.impl.internal.statemachine.transition;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
+import ch.bbv.fsm.impl.internal.action.FsmCall;
+import ch.bbv.fsm.impl.internal.action.FsmGuard;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateContext.RecordType;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compiles the candidate transitions of a state and an event into a single
+ * method handle of type <code>(TransitionContext)TransitionResult</code>.
+ * <p>
+ * The handle evaluates the guards in order and fires the first accepted
+ * transition with the exits, actions and entries of its path unrolled, with the
+ * guards, actions and states bound as constants. The interpreter invokes the
+ * handles of all definitions from one call site, which the JIT can't inline
+ * through; the handle saves the loop over the candidates and the checks of the
+ * interpreted transitions, not the dispatch into the handle. The behavior is
+ * the same as firing the {@link CompiledTransition}s one after the other.
+ */
+final class MethodHandleCompiler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MethodHandleCompiler.class);
+
+	private static final MethodType STEP_TYPE = MethodType.methodType(void.class, TransitionContext.class);
+
+	private static final MethodHandle GET_STATE_MACHINE;
+
+	private static final MethodHandle GET_ARGUMENTS;
+
+	private static final MethodHandle GET_STATE;
+
+	private static final MethodHandle FIRED;
+
+	private static final MethodHandle ADD_RECORD;
+
+	private static final MethodHandle SET_LAST_ACTIVE_SUB_STATE;
+
+	private static final MethodHandle ENTER_BY_HISTORY;
+
+	private static final MethodHandle BEGIN;
+
+	private static final MethodHandle STATE_EXCEPTION;
+
+	private static final MethodHandle TRANSITION_EXCEPTION;
+
+	private static final MethodHandle GUARD_EXCEPTION;
+
+	/**
+	 * The handle of a cell without transitions.
+	 */
+	static final MethodHandle NOT_FIRED;
+
+	static {
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			GET_STATE_MACHINE = lookup.findVirtual(StateContext.class, "getStateMachine",
+					MethodType.methodType(StateMachine.class)).asType(
+					MethodType.methodType(StateMachine.class, TransitionContext.class));
+			GET_ARGUMENTS = lookup.findVirtual(TransitionContext.class, "getArguments",
+					MethodType.methodType(EventArguments.class));
+			GET_STATE = lookup.findVirtual(StateContext.class, "getState", MethodType.methodType(InternalState.class))
+					.asType(MethodType.methodType(InternalState.class, TransitionContext.class));
+			FIRED = lookup.findVirtual(TransitionContext.class, "fired",
+					MethodType.methodType(TransitionResult.class, InternalState.class));
+			ADD_RECORD = lookup.findVirtual(StateContext.class, "addRecord",
+					MethodType.methodType(void.class, Enum.class, RecordType.class));
+			SET_LAST_ACTIVE_SUB_STATE = lookup.findVirtual(StateContext.class, "setLastActiveSubState",
+					MethodType.methodType(void.class, InternalState.class, InternalState.class));
+			ENTER_BY_HISTORY = lookup.findVirtual(InternalState.class, "enterByHistory",
+					MethodType.methodType(InternalState.class, StateContext.class));
+			BEGIN = lookup.findStatic(MethodHandleCompiler.class, "begin", STEP_TYPE);
+			STATE_EXCEPTION = lookup.findStatic(MethodHandleCompiler.class, "stateException",
+					MethodType.methodType(void.class, Exception.class, TransitionContext.class));
+			TRANSITION_EXCEPTION = lookup.findStatic(MethodHandleCompiler.class, "transitionException",
+					MethodType.methodType(void.class, Exception.class, TransitionContext.class));
+			GUARD_EXCEPTION = lookup.findStatic(MethodHandleCompiler.class, "guardException",
+					MethodType.methodType(boolean.class, Exception.class, TransitionContext.class));
+		} catch (final ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+		NOT_FIRED = MethodHandles.dropArguments(
+				MethodHandles.constant(TransitionResult.class, TransitionResultImpl.getNotFired()), 0,
+				TransitionContext.class);
+	}
+
+	private MethodHandleCompiler() {
+	}
+
+	/**
+	 * Compiles the candidate transitions.
+	 *
+	 * @param candidates
+	 *            the transitions in the order in which they are evaluated
+	 * @return a method handle of type
+	 *         <code>(TransitionContext)TransitionResult</code>
+	 */
+	static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> MethodHandle compile(
+			final CompiledTransition<TStateMachine, TState, TEvent>[] candidates) {
+		MethodHandle result = NOT_FIRED;
+		for (int i = candidates.length - 1; i >= 0; i--) {
+			final Transition<TStateMachine, TState, TEvent> transition = candidates[i].getTransition();
+			result = MethodHandles.guardWithTest(guard(transition.getGuard()), fire(candidates[i]), result);
+		}
+		return result;
+	}
+
+	private static MethodHandle guard(final FsmGuard<?, ?, ?> guard) {
+		if (guard == null) {
+			return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true), 0, TransitionContext.class);
+		}
+		return MethodHandles.catchException(withContext(guard.toMethodHandle()), Exception.class, GUARD_EXCEPTION);
+	}
+
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> MethodHandle fire(
+			final CompiledTransition<TStateMachine, TState, TEvent> compiled) {
+		final Transition<TStateMachine, TState, TEvent> transition = compiled.getTransition();
+		final List<MethodHandle> steps = Lists.newArrayList();
+		steps.add(BEGIN);
+		final MethodHandle newState;
+		if (transition.getTarget() != null) {
+			for (final InternalState<TStateMachine, TState, TEvent> state : compiled.getExitPath()) {
+				exit(state, steps);
+			}
+			actions(transition.getActions(), steps);
+			for (final InternalState<TStateMachine, TState, TEvent> state : compiled.getEntryPath()) {
+				entry(state, steps);
+			}
+			newState = enterByHistory(transition.getTarget());
+		} else {
+			actions(transition.getActions(), steps);
+			newState = GET_STATE;
+		}
+
+		MethodHandle result = MethodHandles.foldArguments(MethodHandles.permuteArguments(FIRED,
+				MethodType.methodType(TransitionResult.class, InternalState.class, TransitionContext.class), 1, 0), newState);
+		for (int i = steps.size() - 1; i >= 0; i--) {
+			result = MethodHandles.foldArguments(result, steps.get(i));
+		}
+		return result;
+	}
+
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> void exit(
+			final InternalState<TStateMachine, TState, TEvent> state, final List<MethodHandle> steps) {
+		steps.add(record(state, RecordType.Exit));
+		action(state.getExitAction(), steps);
+		final InternalState<TStateMachine, TState, TEvent> superState = state.getSuperState();
+		if (superState != null && superState.getHistoryType() != HistoryType.NONE) {
+			steps.add(MethodHandles.insertArguments(SET_LAST_ACTIVE_SUB_STATE, 1, superState, state).asType(STEP_TYPE));
+		}
+	}
+
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> void entry(
+			final InternalState<TStateMachine, TState, TEvent> state, final List<MethodHandle> steps) {
+		steps.add(record(state, RecordType.Enter));
+		action(state.getEntryAction(), steps);
+	}
+
+	private static MethodHandle record(final InternalState<?, ?, ?> state, final RecordType recordType) {
+		return MethodHandles.insertArguments(ADD_RECORD, 1, state.getId(), recordType).asType(STEP_TYPE);
+	}
+
+	private static void action(final FsmCall<?, ?, ?> action, final List<MethodHandle> steps) {
+		if (action != null) {
+			final MethodHandle exec = MethodHandles.filterArguments(action.toMethodHandle(), 0, GET_STATE_MACHINE);
+			steps.add(MethodHandles.catchException(exec, Exception.class, STATE_EXCEPTION));
+		}
+	}
+
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> void actions(
+			final List<FsmCall<TStateMachine, TState, TEvent>> actions, final List<MethodHandle> steps) {
+		for (final FsmCall<TStateMachine, TState, TEvent> action : actions) {
+			steps.add(MethodHandles.catchException(withContext(action.toMethodHandleWithArguments()), Exception.class,
+					TRANSITION_EXCEPTION));
+		}
+	}
+
+	/**
+	 * Returns a handle of type <code>(TransitionContext)InternalState</code>
+	 * entering the target by its history.
+	 */
+	private static MethodHandle enterByHistory(final InternalState<?, ?, ?> target) {
+		if (!target.getSubStates().iterator().hasNext()) {
+			// a state without sub-states is always entered itself
+			return MethodHandles.dropArguments(MethodHandles.constant(InternalState.class, target), 0,
+					TransitionContext.class);
+		}
+		return ENTER_BY_HISTORY.bindTo(target).asType(
+				MethodType.methodType(InternalState.class, TransitionContext.class));
+	}
+
+	/**
+	 * Adapts a handle of type <code>(StateMachine, EventArguments)R</code> to
+	 * <code>(TransitionContext)R</code>.
+	 */
+	private static MethodHandle withContext(final MethodHandle handle) {
+		final MethodHandle filtered = MethodHandles.filterArguments(handle, 0, GET_STATE_MACHINE, GET_ARGUMENTS);
+		return MethodHandles.permuteArguments(filtered,
+				MethodType.methodType(handle.type().returnType(), TransitionContext.class), 0, 0);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void begin(final TransitionContext context) {
+		context.getNotifier().onTransitionBegin(context);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void stateException(final Exception exception, final TransitionContext context) {
+		context.addException(exception);
+		context.getNotifier().onExceptionThrown((StateContext) context, exception);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void transitionException(final Exception exception, final TransitionContext context) {
+		LOG.error("Exception in action of transition: {}", exception);
+		context.addException(exception);
+		context.getNotifier().onExceptionThrown(context, exception);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static boolean guardException(final Exception exception, final TransitionContext context) {
+		LOG.error("Exception in guard of transition: {}", exception);
+		context.addException(exception);
+		context.getNotifier().onExceptionThrown(context, exception);
+		return false;
+	}
+}
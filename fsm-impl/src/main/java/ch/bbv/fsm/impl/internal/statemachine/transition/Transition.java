@@ -18,8 +18,8 @@ package ch.bbv.fsm.impl.internal.statemachine.transition;
 import java.util.List;
 
 import ch.bbv.fsm.StateMachine;
-import ch.bbv.fsm.guard.Function;
 import ch.bbv.fsm.impl.internal.action.FsmCall;
+import ch.bbv.fsm.impl.internal.action.FsmGuard;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 
 /**
@@ -34,13 +34,27 @@ import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 public interface Transition<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
 
   /**
-   * Fires the transition.
-   * 
+   * Fires the transition along precomputed paths. The states of the exit path are exited before
+   * the actions are performed, the states of the entry path are entered afterwards.
+   *
    * @param context the event context.
+   * @param exitPath the states to exit, starting with the current state.
+   * @param entryPath the states to enter, ending with the target state.
    * @return The result of the transition.
    */
   TransitionResult<TStateMachine, TState, TEvent> fire(
-      TransitionContext<TStateMachine, TState, TEvent> context);
+      TransitionContext<TStateMachine, TState, TEvent> context,
+      InternalState<TStateMachine, TState, TEvent>[] exitPath,
+      InternalState<TStateMachine, TState, TEvent>[] entryPath);
+
+  /**
+   * Computes the states to exit and enter when this transition is fired in the given state.
+   *
+   * @param origin the current state, either the source state or one of its sub-states.
+   * @return the transition with its exit and entry paths.
+   */
+  CompiledTransition<TStateMachine, TState, TEvent> compile(
+      InternalState<TStateMachine, TState, TEvent> origin);
 
   /**
    * Gets the actions of this transition.
@@ -54,7 +68,7 @@ public interface Transition<TStateMachine extends StateMachine<TState, TEvent>,
    * 
    * @return the guard.
    */
-  Function<TStateMachine, TState, TEvent, Object[], Boolean> getGuard();
+  FsmGuard<TStateMachine, TState, TEvent> getGuard();
 
   /**
    * Returns the source state of the transition.
@@ -76,7 +90,7 @@ public interface Transition<TStateMachine extends StateMachine<TState, TEvent>,
    * 
    * @param guard the guard function.
    */
-  void setGuard(Function<TStateMachine, TState, TEvent, Object[], Boolean> guard);
+  void setGuard(FsmGuard<TStateMachine, TState, TEvent> guard);
 
   /**
    * Sets the source state of the transition.
@@ -92,4 +106,9 @@ public interface Transition<TStateMachine extends StateMachine<TState, TEvent>,
    */
   void setTarget(InternalState<TStateMachine, TState, TEvent> target);
 
+  /**
+   * Freezes the transition, its guard, actions, source and target can't be changed afterwards.
+   */
+  void freeze();
+
 }
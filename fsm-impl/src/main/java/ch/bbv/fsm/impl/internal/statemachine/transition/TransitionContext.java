@@ -19,8 +19,9 @@
 package ch.bbv.fsm.impl.internal.statemachine.transition;
 
 import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
 import ch.bbv.fsm.impl.internal.driver.Notifier;
-import ch.bbv.fsm.impl.internal.statemachine.StateMachineInterpreter;
+import ch.bbv.fsm.impl.internal.statemachine.StateMachineInstance;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
 
@@ -40,12 +41,18 @@ public class TransitionContext<TStateMachine extends StateMachine<TState, TEvent
 	/**
 	 * The event that causes the transition.
 	 */
-	private final TEvent eventId;
+	private TEvent eventId;
 
 	/**
-	 * The event arguments.
+	 * The event arguments, copied from the fired event.
 	 */
-	private final Object[] eventArguments;
+	private final EventArguments eventArguments = new EventArguments();
+
+	/**
+	 * The result of a fired transition if this context is reused,
+	 * <code>null</code> otherwise.
+	 */
+	private final FiredResult<TStateMachine, TState, TEvent> firedResult;
 
 	/**
 	 * Creates a new instance.
@@ -58,25 +65,87 @@ public class TransitionContext<TStateMachine extends StateMachine<TState, TEvent
 	 *            the event id
 	 * @param eventArguments
 	 *            the event arguments
-	 * @param stateMachineInterpreter
-	 *            the state machine's interpreter
+	 * @param stateMachineInstance
+	 *            the running state machine
 	 * @param notifier
 	 *            the notifier
 	 */
 	public TransitionContext(final TStateMachine stateMachine, final InternalState<TStateMachine, TState, TEvent> state, final TEvent eventId,
-			final Object[] eventArguments, final StateMachineInterpreter<TStateMachine, TState, TEvent> stateMachineInterpreter,
+			final EventArguments eventArguments, final StateMachineInstance<TStateMachine, TState, TEvent> stateMachineInstance,
 			final Notifier<TStateMachine, TState, TEvent> notifier) {
-		super(stateMachine, state, stateMachineInterpreter, notifier);
+		super(stateMachine, state, stateMachineInstance, notifier);
+		this.eventId = eventId;
+		this.eventArguments.setArguments(eventArguments);
+		this.firedResult = null;
+	}
+
+	/**
+	 * Creates a new instance that is reused for all events of a state machine.
+	 * Such a context is prepared for each event with
+	 * <code>reset</code> and returns the
+	 * same result instance for every fired transition.
+	 * 
+	 * @param stateMachine
+	 *            the custom's state machine
+	 * @param stateMachineInstance
+	 *            the running state machine
+	 * @param notifier
+	 *            the notifier
+	 */
+	public TransitionContext(final TStateMachine stateMachine, final StateMachineInstance<TStateMachine, TState, TEvent> stateMachineInstance,
+			final Notifier<TStateMachine, TState, TEvent> notifier) {
+		super(stateMachine, null, stateMachineInstance, notifier);
+		this.firedResult = new FiredResult<>();
+	}
+
+	/**
+	 * Prepares this context for the next event.
+	 * 
+	 * @param state
+	 *            the source state
+	 * @param eventId
+	 *            the event id
+	 * @param eventArguments
+	 *            the event arguments
+	 */
+	public void reset(final InternalState<TStateMachine, TState, TEvent> state, final TEvent eventId, final EventArguments eventArguments) {
+		reset(state);
 		this.eventId = eventId;
-		this.eventArguments = eventArguments;
+		this.eventArguments.setArguments(eventArguments);
 	}
 
 	/**
-	 * Returns the event arguments.
+	 * Returns the result of a fired transition.
+	 * 
+	 * @param newState
+	 *            the new state
+	 * @return the result, the same instance for each transition if this
+	 *         context is reused.
+	 */
+	public TransitionResult<TStateMachine, TState, TEvent> fired(final InternalState<TStateMachine, TState, TEvent> newState) {
+		if (this.firedResult == null) {
+			return new TransitionResultImpl<>(true, newState, getExceptions());
+		}
+		this.firedResult.newState = newState;
+		return this.firedResult;
+	}
+
+	/**
+	 * Returns the event arguments, a single argument is wrapped in an array on
+	 * the first call.
 	 * 
 	 * @return the event arguments.
 	 */
 	public Object[] getEventArguments() {
+		return this.eventArguments.getArguments();
+	}
+
+	/**
+	 * Returns the event arguments without wrapping a single argument.
+	 * 
+	 * @return the event arguments.
+	 */
+	public EventArguments getArguments() {
 		return this.eventArguments;
 	}
 
@@ -89,4 +158,22 @@ public class TransitionContext<TStateMachine extends StateMachine<TState, TEvent
 		return this.eventId;
 	}
 
+	/**
+	 * The reused result of a fired transition.
+	 */
+	private static final class FiredResult<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
+			implements TransitionResult<TStateMachine, TState, TEvent> {
+
+		private InternalState<TStateMachine, TState, TEvent> newState;
+
+		@Override
+		public InternalState<TStateMachine, TState, TEvent> getNewState() {
+			return this.newState;
+		}
+
+		@Override
+		public boolean isFired() {
+			return true;
+		}
+	}
 }
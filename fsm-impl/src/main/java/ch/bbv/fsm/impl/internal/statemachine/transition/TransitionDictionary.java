@@ -19,6 +19,7 @@
 package ch.bbv.fsm.impl.internal.statemachine.transition;
 
 import java.util.List;
+import java.util.Set;
 
 import ch.bbv.fsm.StateMachine;
 
@@ -46,6 +47,11 @@ public interface TransitionDictionary<TStateMachine extends StateMachine<TState,
 	 */
 	void add(TEvent eventId, Transition<TStateMachine, TState, TEvent> transition);
 
+	/**
+	 * Freezes the transitions, they can't be added or changed afterwards.
+	 */
+	void freeze();
+
 	/**
 	 * Returns all transitions.
 	 * 
@@ -62,4 +68,11 @@ public interface TransitionDictionary<TStateMachine extends StateMachine<TState,
 	 */
 	List<Transition<TStateMachine, TState, TEvent>> getTransitions(TEvent eventId);
 
+	/**
+	 * Returns the events for which transitions are defined.
+	 * 
+	 * @return the events
+	 */
+	Set<TEvent> getEvents();
+
 }
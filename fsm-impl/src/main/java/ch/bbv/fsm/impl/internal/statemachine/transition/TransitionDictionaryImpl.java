@@ -19,12 +19,16 @@
 package ch.bbv.fsm.impl.internal.statemachine.transition;
 
 import java.util.List;
+import java.util.Set;
 
 import ch.bbv.fsm.StateMachine;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalStateImpl;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
@@ -49,7 +53,9 @@ public class TransitionDictionaryImpl<TStateMachine extends StateMachine<TState,
 	 */
 	private final InternalState<TStateMachine, TState, TEvent> internalState;
 
-	private final ListMultimap<TEvent, Transition<TStateMachine, TState, TEvent>> transitions;
+	private ListMultimap<TEvent, Transition<TStateMachine, TState, TEvent>> transitions;
+
+	private boolean frozen;
 
 	/**
 	 * Creates a new instance.
@@ -64,10 +70,22 @@ public class TransitionDictionaryImpl<TStateMachine extends StateMachine<TState,
 
 	@Override
 	public void add(final TEvent eventId, final Transition<TStateMachine, TState, TEvent> transition) {
+		Preconditions.checkState(!this.frozen, "The transitions of %s are frozen.", this.internalState);
 		transition.setSource(this.internalState);
 		this.transitions.put(eventId, transition);
 	}
 
+	@Override
+	public void freeze() {
+		if (!this.frozen) {
+			for (final Transition<TStateMachine, TState, TEvent> transition : this.transitions.values()) {
+				transition.freeze();
+			}
+			this.transitions = ImmutableListMultimap.copyOf(this.transitions);
+			this.frozen = true;
+		}
+	}
+
 	@Override
 	public List<InternalTransitionInfo<TStateMachine, TState, TEvent>> getTransitions() {
 		final List<InternalTransitionInfo<TStateMachine, TState, TEvent>> list = Lists.newArrayList();
@@ -83,6 +101,11 @@ public class TransitionDictionaryImpl<TStateMachine extends StateMachine<TState,
 		return ImmutableList.copyOf(this.transitions.get(eventId));
 	}
 
+	@Override
+	public Set<TEvent> getEvents() {
+		return ImmutableSet.copyOf(this.transitions.keySet());
+	}
+
 	/**
 	 * Returns all transitions of an event.
 	 * 
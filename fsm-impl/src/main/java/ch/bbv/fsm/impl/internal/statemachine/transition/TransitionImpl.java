@@ -21,11 +21,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.bbv.fsm.StateMachine;
-import ch.bbv.fsm.guard.Function;
+import ch.bbv.fsm.impl.internal.action.EventArguments;
 import ch.bbv.fsm.impl.internal.action.FsmCall;
+import ch.bbv.fsm.impl.internal.action.FsmGuard;
 import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
-import ch.bbv.fsm.impl.internal.statemachine.state.StateContext;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 /**
@@ -43,13 +45,15 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
   /**
    * The actions that are executed when this transition is fired.
    */
-  private final List<FsmCall<TStateMachine, TState, TEvent>> actions;
+  private List<FsmCall<TStateMachine, TState, TEvent>> actions;
 
   private InternalState<TStateMachine, TState, TEvent> source;
 
   private InternalState<TStateMachine, TState, TEvent> target;
 
-  private Function<TStateMachine, TState, TEvent, Object[], Boolean> guard;
+  private FsmGuard<TStateMachine, TState, TEvent> guard;
+
+  private boolean frozen;
 
   /**
    * Creates a new instance.
@@ -61,8 +65,9 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
   }
 
   /**
-   * Recursively traverses the state hierarchy, exiting states along the way, performing the action,
-   * and entering states to the target.
+   * Recursively traverses the state hierarchy, collecting the states to exit and to enter on the
+   * way from the source to the target. All states are exited before the actions are performed and
+   * entered afterwards.
    * <hr>
    * There exist the following transition scenarios:
    * <ul>
@@ -87,55 +92,74 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
    *
    * @param source the source state
    * @param target the target state
-   * @param eventArguments the event arguments
-   * @param context the state context
+   * @param exitPath the states to exit
+   * @param entryPath the states to enter
    */
-  private void fire(final InternalState<TStateMachine, TState, TEvent> source,
-      final InternalState<TStateMachine, TState, TEvent> target, final Object[] eventArguments,
-      final TransitionContext<TStateMachine, TState, TEvent> context) {
+  private void collectPath(final InternalState<TStateMachine, TState, TEvent> source,
+      final InternalState<TStateMachine, TState, TEvent> target,
+      final List<InternalState<TStateMachine, TState, TEvent>> exitPath,
+      final List<InternalState<TStateMachine, TState, TEvent>> entryPath) {
     if (source == this.getTarget()) {
       // Handles 1.
       // Handles 3. after traversing from the source to the target.
-      source.exit(context);
-      this.performActions(eventArguments, context);
-      this.getTarget().entry(context);
+      exitPath.add(source);
+      entryPath.add(this.getTarget());
     } else if (source == target) {
       // Handles 2. after traversing from the target to the source.
-      this.performActions(eventArguments, context);
+      return;
     } else if (source.getSuperState() == target.getSuperState()) {
       // // Handles 4.
       // // Handles 5a. after traversing the hierarchy until a common
       // ancestor if found.
-      source.exit(context);
-      this.performActions(eventArguments, context);
-      target.entry(context);
+      exitPath.add(source);
+      entryPath.add(target);
     } else {
       // traverses the hierarchy until one of the above scenarios is met.
 
       // Handles 3.
       // Handles 5b.
       if (source.getLevel() > target.getLevel()) {
-        source.exit(context);
-        this.fire(source.getSuperState(), target, eventArguments, context);
+        exitPath.add(source);
+        this.collectPath(source.getSuperState(), target, exitPath, entryPath);
       } else if (source.getLevel() < target.getLevel()) {
         // Handles 2.
         // Handles 5c.
-        this.fire(source, target.getSuperState(), eventArguments, context);
-        target.entry(context);
+        this.collectPath(source, target.getSuperState(), exitPath, entryPath);
+        entryPath.add(target);
       } else {
         // Handles 5a.
-        source.exit(context);
-        this.fire(source.getSuperState(), target.getSuperState(), eventArguments, context);
-        target.entry(context);
+        exitPath.add(source);
+        this.collectPath(source.getSuperState(), target.getSuperState(), exitPath, entryPath);
+        entryPath.add(target);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public CompiledTransition<TStateMachine, TState, TEvent> compile(
+      final InternalState<TStateMachine, TState, TEvent> origin) {
+    final List<InternalState<TStateMachine, TState, TEvent>> exitPath = Lists.newArrayList();
+    final List<InternalState<TStateMachine, TState, TEvent>> entryPath = Lists.newArrayList();
+    if (!this.isInternalTransition()) {
+      // exits all sub-states up the hierarchy up to the source state
+      for (InternalState<TStateMachine, TState, TEvent> o = origin; o != this.getSource(); o =
+          o.getSuperState()) {
+        exitPath.add(o);
       }
+      this.collectPath(this.getSource(), this.getTarget(), exitPath, entryPath);
     }
+    return new CompiledTransition<>(this, exitPath.toArray(new InternalState[exitPath.size()]),
+        entryPath.toArray(new InternalState[entryPath.size()]));
   }
 
   @Override
   public TransitionResult<TStateMachine, TState, TEvent> fire(
-      final TransitionContext<TStateMachine, TState, TEvent> context) {
+      final TransitionContext<TStateMachine, TState, TEvent> context,
+      final InternalState<TStateMachine, TState, TEvent>[] exitPath,
+      final InternalState<TStateMachine, TState, TEvent>[] entryPath) {
     LOG.debug("Start transition1 {}", this);
-    if (!this.shouldFire(context.getEventArguments(), context)) {
+    if (!this.shouldFire(context.getArguments(), context)) {
       LOG.debug("Start transition2 {}", this);
       @SuppressWarnings("unchecked")
       final TransitionResult<TStateMachine, TState, TEvent> result =
@@ -149,16 +173,20 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
     InternalState<TStateMachine, TState, TEvent> newState = context.getState();
 
     if (!this.isInternalTransition()) {
-      this.unwindSubStates(context.getState(), context);
-
-      this.fire(this.getSource(), this.getTarget(), context.getEventArguments(), context);
+      for (int i = 0; i < exitPath.length; i++) {
+        exitPath[i].exit(context);
+      }
+      this.performActions(context.getArguments(), context);
+      for (int i = 0; i < entryPath.length; i++) {
+        entryPath[i].entry(context);
+      }
 
       newState = this.getTarget().enterByHistory(context);
     } else {
-      this.performActions(context.getEventArguments(), context);
+      this.performActions(context.getArguments(), context);
     }
 
-    return new TransitionResultImpl<>(true, newState, context.getExceptions());
+    return context.fired(newState);
   }
 
   @Override
@@ -167,7 +195,7 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
   }
 
   @Override
-  public Function<TStateMachine, TState, TEvent, Object[], Boolean> getGuard() {
+  public FsmGuard<TStateMachine, TState, TEvent> getGuard() {
     return this.guard;
   }
 
@@ -189,7 +217,7 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
    */
   private void handleException(final Exception exception,
       final TransitionContext<TStateMachine, TState, TEvent> context) {
-    context.getExceptions().add(exception);
+    context.addException(exception);
     context.getNotifier().onExceptionThrown(context, exception);
   }
 
@@ -206,11 +234,13 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
    * @param eventArguments the event arguments
    * @param context the transition context
    */
-  private void performActions(final Object[] eventArguments,
+  private void performActions(final EventArguments eventArguments,
       final TransitionContext<TStateMachine, TState, TEvent> context) {
-    for (final FsmCall<TStateMachine, TState, TEvent> action : this.getActions()) {
+    // indexed, an iterator is only eliminated if the call site is monomorphic
+    final List<FsmCall<TStateMachine, TState, TEvent>> actions = this.getActions();
+    for (int i = 0; i < actions.size(); i++) {
       try {
-        action.execOn(context.getStateMachine(), eventArguments);
+        actions.get(i).execOn(context.getStateMachine(), eventArguments);
       } catch (final Exception exception) {
         LOG.error("Exception in action of transition {}: {}", this, exception);
         this.handleException(exception, context);
@@ -219,20 +249,33 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
   }
 
   @Override
-  public void setGuard(final Function<TStateMachine, TState, TEvent, Object[], Boolean> guard) {
+  public void setGuard(final FsmGuard<TStateMachine, TState, TEvent> guard) {
+    this.checkNotFrozen();
     this.guard = guard;
   }
 
   @Override
   public void setSource(final InternalState<TStateMachine, TState, TEvent> source) {
+    this.checkNotFrozen();
     this.source = source;
   }
 
   @Override
   public void setTarget(final InternalState<TStateMachine, TState, TEvent> target) {
+    this.checkNotFrozen();
     this.target = target;
   }
 
+  @Override
+  public void freeze() {
+    this.actions = ImmutableList.copyOf(this.actions);
+    this.frozen = true;
+  }
+
+  private void checkNotFrozen() {
+    Preconditions.checkState(!this.frozen, "The transition %s is frozen.", this);
+  }
+
   /**
    * Returns true if the transition should fire.
    *
@@ -240,13 +283,15 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
    * @param context the context
    * @return true if the transition should fire
    */
-  private boolean shouldFire(final Object[] eventArguments,
+  private boolean shouldFire(final EventArguments eventArguments,
       final TransitionContext<TStateMachine, TState, TEvent> context) {
     try {
       boolean result = true;
       if (this.getGuard() != null) {
-        result = this.getGuard().execute(context.getStateMachine(), eventArguments);
-        LOG.debug("Checked guard: {} for {}, result is " + result, getGuard(), this);
+        result = this.getGuard().evaluate(context.getStateMachine(), eventArguments);
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Checked guard: {} for {}, result is " + result, getGuard(), this);
+        }
       }
       return result;
     } catch (final Exception exception) {
@@ -261,18 +306,4 @@ public class TransitionImpl<TStateMachine extends StateMachine<TState, TEvent>,
     return String.format("Transition from state %s to state %s.", this.getSource(),
         this.getTarget());
   }
-
-  /**
-   * Exits all sub-states up the hierarchy up to the origin state.
-   *
-   * @param origin the origin state
-   * @param stateContext the state context
-   */
-  private void unwindSubStates(final InternalState<TStateMachine, TState, TEvent> origin,
-      final StateContext<TStateMachine, TState, TEvent> stateContext) {
-    for (InternalState<TStateMachine, TState, TEvent> o = origin; o != this.getSource(); o =
-        o.getSuperState()) {
-      o.exit(stateContext);
-    }
-  }
 }
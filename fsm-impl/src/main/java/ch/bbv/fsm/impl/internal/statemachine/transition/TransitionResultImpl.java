@@ -36,6 +36,12 @@ import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
 public class TransitionResultImpl<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>>
 		implements TransitionResult<TStateMachine, TState, TEvent> {
 
+	/**
+	 * The shared result of a transition that was not fired.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final TransitionResult NOT_FIRED = new TransitionResultImpl(false, null, null);
+
 	/**
 	 * This value represents that no transition was fired.
 	 */
@@ -80,11 +86,11 @@ public class TransitionResultImpl<TStateMachine extends StateMachine<TState, TEv
 	}
 
 	/**
-	 * Creates a not fired result.
+	 * Returns the not fired result.
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@SuppressWarnings("rawtypes")
 	public static TransitionResult getNotFired() {
-		return new TransitionResultImpl(false, null, null);
+		return NOT_FIRED;
 
 	}
 }
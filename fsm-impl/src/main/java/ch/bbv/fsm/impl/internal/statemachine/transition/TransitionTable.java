@@ -0,0 +1,238 @@
+package ch.bbv.fsm.impl.internal.statemachine.transition;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateDictionary;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The compiled transitions of a state machine definition. The transitions are stored in a dense
+ * table indexed by the ordinals of the state and the event. Each entry contains the transitions
+ * defined on the state followed by the transitions inherited from its super states, in the order
+ * in which they are evaluated, together with the states to exit and enter when they are fired in
+ * the state. Looking up the transitions of an event does not allocate.
+ * <p>
+ * The table is compiled lazily on the first lookup. Until the table is frozen, changes to the
+ * definition invalidate it and it is compiled again on the next lookup.
+ * <p>
+ * A frozen table can additionally be compiled into method handles, one per state and event, which
+ * fire the transitions without going through the interpreter.
+ *
+ * @param <TStateMachine>
+ *            the type of state machine
+ * @param <TState>
+ *            the type of the states
+ * @param <TEvent>
+ *            the type of the events
+ */
+public final class TransitionTable<TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> {
+
+	@SuppressWarnings("rawtypes")
+	private static final CompiledTransition[] NO_TRANSITIONS = new CompiledTransition[0];
+
+	/**
+	 * The states of the definition.
+	 */
+	private final StateDictionary<TStateMachine, TState, TEvent> states;
+
+	/**
+	 * The transitions indexed by [state ordinal][event ordinal], <code>null</code> if not compiled.
+	 */
+	private volatile CompiledTransition<TStateMachine, TState, TEvent>[][][] transitions;
+
+	private volatile boolean frozen;
+
+	/**
+	 * The transitions compiled into method handles indexed by [state ordinal][event ordinal],
+	 * <code>null</code> if not compiled.
+	 */
+	private volatile MethodHandle[][] handles;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param states
+	 *            the states of the definition.
+	 */
+	public TransitionTable(final StateDictionary<TStateMachine, TState, TEvent> states) {
+		this.states = states;
+	}
+
+	/**
+	 * Compiles the table and prevents it from being invalidated afterwards.
+	 */
+	public synchronized void freeze() {
+		compiled();
+		this.frozen = true;
+	}
+
+	/**
+	 * Returns true if the table is frozen.
+	 *
+	 * @return true if the table is frozen.
+	 */
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+
+	/**
+	 * Freezes the table and compiles the transitions into method handles.
+	 */
+	public synchronized void compileMethodHandles() {
+		freeze();
+		if (this.handles == null) {
+			final CompiledTransition<TStateMachine, TState, TEvent>[][][] table = this.transitions;
+			final MethodHandle[][] compiledHandles = new MethodHandle[table.length][];
+			for (int state = 0; state < table.length; state++) {
+				compiledHandles[state] = new MethodHandle[table[state].length];
+				for (int event = 0; event < table[state].length; event++) {
+					compiledHandles[state][event] = MethodHandleCompiler.compile(table[state][event]);
+				}
+			}
+			this.handles = compiledHandles;
+		}
+	}
+
+	/**
+	 * Returns true if the transitions are compiled into method handles.
+	 *
+	 * @return true if the transitions are compiled into method handles.
+	 */
+	public boolean isMethodHandlesCompiled() {
+		return this.handles != null;
+	}
+
+	/**
+	 * Discards the compiled transitions after the definition has changed.
+	 *
+	 * @throws IllegalStateException
+	 *             if the table is frozen.
+	 */
+	public synchronized void invalidate() {
+		if (this.frozen) {
+			throw new IllegalStateException("The transitions are frozen and can't be changed.");
+		}
+		this.transitions = null;
+	}
+
+	/**
+	 * Returns the transitions to evaluate when the event is fired in the state.
+	 *
+	 * @param stateId
+	 *            the current state
+	 * @param eventId
+	 *            the event
+	 * @return the transitions, possibly empty. The array must not be modified.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompiledTransition<TStateMachine, TState, TEvent>[] getTransitions(final TState stateId, final TEvent eventId) {
+		CompiledTransition<TStateMachine, TState, TEvent>[][][] table = this.transitions;
+		if (table == null) {
+			table = compiled();
+		}
+		final int state = stateId.ordinal();
+		if (state < table.length) {
+			final CompiledTransition<TStateMachine, TState, TEvent>[][] row = table[state];
+			final int event = eventId.ordinal();
+			if (event < row.length) {
+				return row[event];
+			}
+		}
+		return NO_TRANSITIONS;
+	}
+
+	/**
+	 * Returns the method handle firing the transitions of the event in the state.
+	 *
+	 * @param stateId
+	 *            the current state
+	 * @param eventId
+	 *            the event
+	 * @return a method handle of type <code>(TransitionContext)TransitionResult</code>, or
+	 *         <code>null</code> if the transitions are not compiled into method handles.
+	 */
+	public MethodHandle getMethodHandle(final TState stateId, final TEvent eventId) {
+		final MethodHandle[][] table = this.handles;
+		if (table == null) {
+			return null;
+		}
+		final int state = stateId.ordinal();
+		if (state < table.length) {
+			final MethodHandle[] row = table[state];
+			final int event = eventId.ordinal();
+			if (event < row.length) {
+				return row[event];
+			}
+		}
+		return MethodHandleCompiler.NOT_FIRED;
+	}
+
+	/**
+	 * Returns the compiled transitions, compiling them if necessary.
+	 */
+	private synchronized CompiledTransition<TStateMachine, TState, TEvent>[][][] compiled() {
+		if (this.transitions == null) {
+			this.transitions = compile(this.states.getStates());
+		}
+		return this.transitions;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> CompiledTransition<TStateMachine, TState, TEvent>[][][] compile(
+			final List<InternalState<TStateMachine, TState, TEvent>> definedStates) {
+		if (definedStates.isEmpty()) {
+			return new CompiledTransition[0][][];
+		}
+		final int numberOfStates = numberOfConstants(definedStates.get(0).getId());
+		final int numberOfEvents = numberOfEvents(definedStates);
+
+		final CompiledTransition<TStateMachine, TState, TEvent>[][][] transitions = new CompiledTransition[numberOfStates][][];
+		for (int i = 0; i < numberOfStates; i++) {
+			transitions[i] = new CompiledTransition[0][];
+		}
+		for (final InternalState<TStateMachine, TState, TEvent> state : definedStates) {
+			final CompiledTransition<TStateMachine, TState, TEvent>[][] row = new CompiledTransition[numberOfEvents][];
+			for (int event = 0; event < numberOfEvents; event++) {
+				row[event] = NO_TRANSITIONS;
+			}
+			for (InternalState<TStateMachine, TState, TEvent> s = state; s != null; s = s.getSuperState()) {
+				for (final TEvent eventId : s.getTransitions().getEvents()) {
+					row[eventId.ordinal()] = append(row[eventId.ordinal()], state, s.getTransitions()
+							.getTransitions(eventId));
+				}
+			}
+			transitions[state.getId().ordinal()] = row;
+		}
+		return transitions;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> CompiledTransition<TStateMachine, TState, TEvent>[] append(
+			final CompiledTransition<TStateMachine, TState, TEvent>[] transitions,
+			final InternalState<TStateMachine, TState, TEvent> origin,
+			final List<Transition<TStateMachine, TState, TEvent>> inherited) {
+		final List<CompiledTransition<TStateMachine, TState, TEvent>> result = Lists.newArrayList(transitions);
+		for (final Transition<TStateMachine, TState, TEvent> transition : inherited) {
+			result.add(transition.compile(origin));
+		}
+		return result.toArray(new CompiledTransition[result.size()]);
+	}
+
+	private static <TStateMachine extends StateMachine<TState, TEvent>, TState extends Enum<?>, TEvent extends Enum<?>> int numberOfEvents(
+			final List<InternalState<TStateMachine, TState, TEvent>> states) {
+		for (final InternalState<TStateMachine, TState, TEvent> state : states) {
+			for (final TEvent eventId : state.getTransitions().getEvents()) {
+				return numberOfConstants(eventId);
+			}
+		}
+		return 0;
+	}
+
+	private static int numberOfConstants(final Enum<?> constant) {
+		return constant.getDeclaringClass().getEnumConstants().length;
+	}
+}
@@ -0,0 +1,57 @@
+package ch.bbv.fsm.impl.tracing;
+
+import ch.bbv.fsm.tracing.TransitionTracer;
+
+/**
+ * The default tracer, which ignores everything. Its empty methods are inlined
+ * and eliminated by the JIT compiler.
+ * 
+ * @param <TState>
+ *            the type of the states.
+ * @param <TEvent>
+ *            the type of the events.
+ */
+public final class NoOpTransitionTracer<TState extends Enum<?>, TEvent extends Enum<?>> implements
+		TransitionTracer<TState, TEvent> {
+
+	@SuppressWarnings("rawtypes")
+	private static final NoOpTransitionTracer INSTANCE = new NoOpTransitionTracer();
+
+	private NoOpTransitionTracer() {
+	}
+
+	/**
+	 * Returns the shared instance.
+	 * 
+	 * @param <TState>
+	 *            the type of the states.
+	 * @param <TEvent>
+	 *            the type of the events.
+	 * @return the tracer.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <TState extends Enum<?>, TEvent extends Enum<?>> NoOpTransitionTracer<TState, TEvent> getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void onEventFired(final String stateMachineName, final TState currentState, final TEvent eventId,
+			final Object[] eventArguments) {
+	}
+
+	@Override
+	public void onStateExited(final String stateMachineName, final TState state) {
+	}
+
+	@Override
+	public void onStateEntered(final String stateMachineName, final TState state) {
+	}
+
+	@Override
+	public void onStateSwitched(final String stateMachineName, final TState newState) {
+	}
+
+	@Override
+	public void onTransitionDeclined(final String stateMachineName, final TState currentState, final TEvent eventId) {
+	}
+}
@@ -0,0 +1,70 @@
+package ch.bbv.fsm.impl.tracing;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.bbv.fsm.tracing.TransitionTracer;
+
+/**
+ * A tracer writing to a SLF4J logger. Fired events, exits and entries are
+ * logged at debug level, state switches and declined transitions at info
+ * level.
+ * 
+ * @param <TState>
+ *            the type of the states.
+ * @param <TEvent>
+ *            the type of the events.
+ */
+public class Slf4jTransitionTracer<TState extends Enum<?>, TEvent extends Enum<?>> implements
+		TransitionTracer<TState, TEvent> {
+
+	private final Logger logger;
+
+	/**
+	 * Creates a tracer logging to the logger of this class.
+	 */
+	public Slf4jTransitionTracer() {
+		this(LoggerFactory.getLogger(Slf4jTransitionTracer.class));
+	}
+
+	/**
+	 * Creates a tracer logging to the given logger.
+	 * 
+	 * @param logger
+	 *            the logger.
+	 */
+	public Slf4jTransitionTracer(final Logger logger) {
+		this.logger = logger;
+	}
+
+	@Override
+	public void onEventFired(final String stateMachineName, final TState currentState, final TEvent eventId,
+			final Object[] eventArguments) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Fire event {} on state machine {} with current state {} and event arguments {}.",
+					new Object[] { eventId, stateMachineName, currentState, Arrays.toString(eventArguments) });
+		}
+	}
+
+	@Override
+	public void onStateExited(final String stateMachineName, final TState state) {
+		logger.debug("State machine {} exited state {}.", stateMachineName, state);
+	}
+
+	@Override
+	public void onStateEntered(final String stateMachineName, final TState state) {
+		logger.debug("State machine {} entered state {}.", stateMachineName, state);
+	}
+
+	@Override
+	public void onStateSwitched(final String stateMachineName, final TState newState) {
+		logger.info("State machine {} switched to state {}.", stateMachineName, newState);
+	}
+
+	@Override
+	public void onTransitionDeclined(final String stateMachineName, final TState currentState, final TEvent eventId) {
+		logger.info("State machine {} declined event {} in state {}.", stateMachineName, eventId, currentState);
+	}
+}
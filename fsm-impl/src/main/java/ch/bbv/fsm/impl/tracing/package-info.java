@@ -0,0 +1,4 @@
+/**
+ * Implementations of the transition tracer.
+ */
+package ch.bbv.fsm.impl.tracing;
@@ -1,6 +1,8 @@
 package ch.bbv.fsm.impl.transfer.generator;
 
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import ch.bbv.fsm.impl.transfer.GeneratorException;
 import ch.bbv.fsm.impl.transfer.model.RegionModel;
@@ -9,11 +11,35 @@ import ch.bbv.fsm.impl.transfer.model.StateModel;
 import ch.bbv.fsm.impl.transfer.model.TransitionModel;
 import ch.bbv.fsm.impl.transfer.model.TriggerModel;
 
+import com.google.common.collect.Sets;
+
 /**
  * This generator writes the code for a state machine.
  */
 public final class SingleFsmGenerator {
 
+  /**
+   * The kind of code to generate.
+   */
+  public enum Mode {
+    /**
+     * A definition that builds the state machine with the runtime DSL.
+     */
+    DEFINITION,
+
+    /**
+     * A self-contained abstract class that dispatches the events with a switch over the states
+     * and events and calls the effects and guards directly. No definition and no interpreter are
+     * involved.
+     */
+    STANDALONE
+  }
+
+  /**
+   * Matches effects and guards that call a method without arguments.
+   */
+  private static final Pattern NO_ARGUMENT_CALL = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*\\(\\)");
+
   private SingleFsmGenerator() {}
 
   /**
@@ -27,6 +53,31 @@ public final class SingleFsmGenerator {
    */
   public static String model2Java(final StateMachineModel model, final String packageName,
       final String fsmName) throws GeneratorException {
+    return model2Java(model, packageName, fsmName, Mode.DEFINITION);
+  }
+
+  /**
+   * Writes the model to Java code.
+   * <p>
+   * In {@link Mode#DEFINITION} the class <code>fsmNameDefinition</code> is generated, the state
+   * machine class <code>fsmName</code> is written by hand. In {@link Mode#STANDALONE} the abstract
+   * class <code>AbstractFsmName</code> is generated, which is extended by hand and implements the
+   * effects and guards. Effects and guards calling a method without arguments are declared as
+   * abstract methods, all others are copied verbatim into the generated code. Internal transitions,
+   * which have no target, execute their effect and keep the state.
+   *
+   * @param model The model to generate.
+   * @param packageName The package name of the Java code.
+   * @param fsmName The name of the FSM.
+   * @param mode The kind of code to generate.
+   * @return The string with the Java code.
+   * @throws GeneratorException in case something bad happens.
+   */
+  public static String model2Java(final StateMachineModel model, final String packageName,
+      final String fsmName, final Mode mode) throws GeneratorException {
+    if (mode == Mode.STANDALONE) {
+      return model2StandaloneJava(model, packageName, fsmName);
+    }
 
     final StringBuilder str = new StringBuilder();
 
@@ -43,6 +94,130 @@ public final class SingleFsmGenerator {
     return str.toString();
   }
 
+  private static String model2StandaloneJava(final StateMachineModel model,
+      final String packageName, final String fsmName) throws GeneratorException {
+
+    final StringBuilder str = new StringBuilder();
+
+    final RegionModel region = model.getSingleRegion();
+    final String className = "Abstract" + fsmName;
+
+    writeHead(packageName, str);
+    writeStatesEnum(str, region);
+    writeEventsEnum(model, str);
+    str.append("public abstract class ").append(className).append(" {\n");
+    str.append('\n');
+    str.append("\tprivate States state = States.")
+        .append(model.computeInitialState().getName()).append(";\n");
+    str.append('\n');
+    str.append("\tpublic final States getCurrentState() {\n");
+    str.append("\t\treturn state;\n");
+    str.append("\t}\n");
+    str.append('\n');
+    writeFireSwitch(model, str);
+    writeAbstractMethods(model, str);
+    str.append("}\n");
+    return str.toString();
+  }
+
+  private static void writeFireSwitch(final StateMachineModel model, final StringBuilder str)
+      throws GeneratorException {
+    final RegionModel region = model.getSingleRegion();
+
+    str.append("\tpublic final boolean fire(Events event) {\n");
+    str.append("\t\tswitch (state) {\n");
+    for (final StateModel sourceState : region.getOrderedStates()) {
+      final List<TransitionModel> transitions =
+          region.getTransitionsForSource(sourceState.getGuid());
+      if (sourceState.isInitialState() || transitions.isEmpty()) {
+        continue;
+      }
+      str.append("\t\tcase ").append(sourceState.getName()).append(":\n");
+      str.append("\t\t\tswitch (event) {\n");
+      for (final String triggerName : model.getSortedTriggerNames()) {
+        boolean hasTransition = false;
+        boolean guarded = true;
+        for (final TransitionModel trans : transitions) {
+          if (!guarded || !triggerName.equals(triggerOf(model, trans).getName())) {
+            // transitions after an unguarded one are never taken
+            continue;
+          }
+          if (!hasTransition) {
+            str.append("\t\t\tcase ").append(triggerName).append(":\n");
+            hasTransition = true;
+          }
+          writeSwitchTransition(region, trans, str);
+          guarded = trans.getGuard() != null;
+        }
+        if (hasTransition && guarded) {
+          str.append("\t\t\t\treturn false;\n");
+        }
+      }
+      str.append("\t\t\tdefault:\n");
+      str.append("\t\t\t\treturn false;\n");
+      str.append("\t\t\t}\n");
+    }
+    str.append("\t\tdefault:\n");
+    str.append("\t\t\treturn false;\n");
+    str.append("\t\t}\n");
+    str.append("\t}\n");
+    str.append('\n');
+  }
+
+  private static void writeSwitchTransition(final RegionModel region, final TransitionModel trans,
+      final StringBuilder str) throws GeneratorException {
+    String indent = "\t\t\t\t";
+    if (trans.getGuard() != null) {
+      str.append(indent).append("if (").append(trans.getGuard()).append(") {\n");
+      indent += '\t';
+    }
+    if (trans.getEffect() != null) {
+      str.append(indent).append(trans.getEffect()).append(";\n");
+    }
+    if (trans.getTarget() != null) {
+      str.append(indent).append("state = States.")
+          .append(region.getState(trans.getTarget()).getName()).append(";\n");
+    }
+    str.append(indent).append("return true;\n");
+    if (trans.getGuard() != null) {
+      str.append("\t\t\t\t}\n");
+    }
+  }
+
+  private static void writeAbstractMethods(final StateMachineModel model, final StringBuilder str)
+      throws GeneratorException {
+    final RegionModel region = model.getSingleRegion();
+    final Set<String> effects = Sets.newLinkedHashSet();
+    final Set<String> guards = Sets.newLinkedHashSet();
+    for (final StateModel sourceState : region.getOrderedStates()) {
+      for (final TransitionModel trans : region.getTransitionsForSource(sourceState.getGuid())) {
+        if (trans.getEffect() != null && NO_ARGUMENT_CALL.matcher(trans.getEffect()).matches()) {
+          effects.add(trans.getEffect());
+        }
+        if (trans.getGuard() != null && NO_ARGUMENT_CALL.matcher(trans.getGuard()).matches()) {
+          guards.add(trans.getGuard());
+        }
+      }
+    }
+    for (final String effect : effects) {
+      str.append("\tprotected abstract void ").append(effect).append(";\n");
+      str.append('\n');
+    }
+    for (final String guard : guards) {
+      str.append("\tprotected abstract boolean ").append(guard).append(";\n");
+      str.append('\n');
+    }
+  }
+
+  private static TriggerModel triggerOf(final StateMachineModel model, final TransitionModel trans)
+      throws GeneratorException {
+    final TriggerModel trigger = model.triggerFor(trans.getTriggerGuid());
+    if (trigger == null) {
+      throw new GeneratorException("trigger must not be null. transGuid: " + trans.getGuid());
+    }
+    return trigger;
+  }
+
   private static void writeHead(final String packageName, final StringBuilder str) {
     str.append("package ").append(packageName).append(";\n");
     str.append('\n');
@@ -81,11 +256,7 @@ public final class SingleFsmGenerator {
 
         // source->target transition
         str.append("\t\tin(States.").append(sourceState.getName());
-        final TriggerModel trigger = model.triggerFor(trans.getTriggerGuid());
-        if (trigger == null) {
-          throw new GeneratorException("trigger must not be null. transGuid: " + trans.getGuid());
-        }
-        str.append(").on(Events.").append(trigger.getName());
+        str.append(").on(Events.").append(triggerOf(model, trans).getName());
         str.append(").goTo(States.").append(targetState.getName()).append(") //\n");
 
         // execute
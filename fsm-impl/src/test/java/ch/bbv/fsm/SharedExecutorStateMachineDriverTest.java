@@ -0,0 +1,28 @@
+package ch.bbv.fsm;
+
+import org.junit.AfterClass;
+
+import ch.bbv.fsm.impl.SimpleStateMachine;
+import ch.bbv.fsm.impl.SimpleStateMachineDefinition;
+import ch.bbv.fsm.impl.StateMachineScheduler;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Runs the state machine fixtures with active machines sharing a scheduler.
+ */
+public class SharedExecutorStateMachineDriverTest extends BaseStateMachineTest {
+
+	private static final StateMachineScheduler SCHEDULER = new StateMachineScheduler("shared-test", 2);
+
+	@AfterClass
+	public static void shutdownScheduler() {
+		SCHEDULER.shutdown();
+	}
+
+	@Override
+	protected SimpleStateMachine<States, Events> createTestee(final SimpleStateMachineDefinition<States, Events> definition,
+			final States states) {
+		return definition.createActiveStateMachine("Testee", states, SCHEDULER);
+	}
+}
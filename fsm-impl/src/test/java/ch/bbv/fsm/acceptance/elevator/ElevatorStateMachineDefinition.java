@@ -12,7 +12,7 @@ public class ElevatorStateMachineDefinition extends
   /**
    * Elevator states.
    */
-  enum State {
+  public enum State {
     /** Elevator has an Error. */
     Error,
 
@@ -41,7 +41,7 @@ public class ElevatorStateMachineDefinition extends
   /**
    * Elevator Events.
    */
-  enum Event {
+  public enum Event {
     /** An error occurred. */
     ErrorOccured,
 
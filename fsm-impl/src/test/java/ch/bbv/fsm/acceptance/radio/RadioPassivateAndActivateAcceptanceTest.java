@@ -2,12 +2,14 @@ package ch.bbv.fsm.acceptance.radio;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 import java.util.Map;
 
 import org.junit.Test;
 
+import ch.bbv.fsm.HistoryType;
 import ch.bbv.fsm.acceptance.radio.RadioStateMachineDefinion.Event;
 import ch.bbv.fsm.acceptance.radio.RadioStateMachineDefinion.State;
 import ch.bbv.fsm.memento.StateMachineMemento;
@@ -68,4 +70,66 @@ public class RadioPassivateAndActivateAcceptanceTest {
 				is(equalTo("exitOff.OffToOn.entryOn.entryFM.exitFM.exitOn.OnToOff.entryOff.exitOff")));
 	}
 
+	@Test
+	public void radioWhenPassivatedThenHistoryMustBeRestoredFromArray() {
+		final RadioStateMachineDefinion radioStateMachineDefinion = new RadioStateMachineDefinion();
+
+		final RadioStateMachine radioStateMachine = radioStateMachineDefinion
+				.createPassiveStateMachine("radioWhenPassivatedThenHistoryMustBeRestoredFromArray");
+		radioStateMachine.start();
+		radioStateMachine.fire(Event.TogglePower);
+		radioStateMachine.fire(Event.ToggleMode);
+		radioStateMachine.fire(Event.TogglePower);
+
+		final StateMachineMemento<State, Event> memento = new RadioStateMachineMemento();
+		radioStateMachine.passivate(memento);
+
+		assertThat(memento.getHistoryStates()[State.On.ordinal()],
+				is(equalTo(State.AM)));
+
+		final RadioStateMachine restored = radioStateMachineDefinion
+				.createPassiveStateMachine("restored");
+		restored.activate(memento);
+		restored.fire(Event.TogglePower);
+
+		assertThat(restored.getCurrentState(), is(equalTo(State.Play)));
+	}
+
+	@Test
+	public void radioWhenPassivatedIntoAReusedMementoThenEarlierHistoryMustBeDropped() {
+		final RadioStateMachineDefinion radioStateMachineDefinion = new RadioStateMachineDefinion(
+				HistoryType.DEEP, HistoryType.SHALLOW);
+		final StateMachineMemento<State, Event> memento = new RadioStateMachineMemento();
+
+		final RadioStateMachine am = radioStateMachineDefinion
+				.createPassiveStateMachine("am");
+		am.start();
+		am.fire(Event.TogglePower);
+		am.fire(Event.ToggleMode);
+		am.fire(Event.TogglePower);
+		am.passivate(memento);
+		assertThat(memento.getHistoryStates()[State.AM.ordinal()],
+				is(equalTo(State.Play)));
+
+		final RadioStateMachine fm = radioStateMachineDefinion
+				.createPassiveStateMachine("fm");
+		fm.start();
+		fm.fire(Event.TogglePower);
+		fm.fire(Event.TogglePower);
+		fm.passivate(memento);
+
+		assertThat(memento.getHistoryStates()[State.On.ordinal()],
+				is(equalTo(State.FM)));
+		assertThat(memento.getHistoryStates()[State.AM.ordinal()],
+				is(nullValue()));
+
+		final RadioStateMachine off = radioStateMachineDefinion
+				.createPassiveStateMachine("off");
+		off.start();
+		off.passivate(memento);
+
+		assertThat(memento.getHistoryStates(), is(nullValue()));
+		assertThat(memento.getSavedHistoryStates().isEmpty(), is(true));
+	}
+
 }
@@ -21,10 +21,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
-import ch.bbv.fsm.StateMachine;
-import ch.bbv.fsm.action.FsmAction1;
-import ch.bbv.fsm.impl.AbstractStateMachine;
-import ch.bbv.fsm.impl.AbstractStateMachineDefinition;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachineDefinition.Events;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachineDefinition.States;
 
 /**
  * Example: Tennis Scorer.
@@ -34,142 +32,16 @@ import ch.bbv.fsm.impl.AbstractStateMachineDefinition;
  */
 public class Tennis {
 
-  private class TennisTestStateMachine extends AbstractStateMachine<TennisTestStateMachine, States, Events> {
-
-    private States state;
-
-    public States getState() {
-      return state;
-    }
-
-    TennisTestStateMachine(final StateMachine<States, Events> driver) {
-      super(driver);
-    }
-
-    public void setState(final States state) {
-      this.state = state;
-    }
-
-  }
-
-  private class TennisTestStateMachineDefinition extends AbstractStateMachineDefinition<TennisTestStateMachine, States, Events> {
-
-    TennisTestStateMachineDefinition() {
-      super("TennisTestStateMachineDefinition", States._0_0);
-    }
-
-    @Override
-    protected TennisTestStateMachine createStateMachine(final StateMachine<States, Events> driver) {
-      return new TennisTestStateMachine(driver);
-    }
-
-  }
-
-  public enum Events {
-    A_Scores, B_Scores
-  }
-
-  public enum States {
-    _0_0, _0_15, _0_30, _0_40, _15_15, _15_30, _15_40, _30_30, _30_40, _15_0, _30_0, _30_15, _40_0, _40_15, _40_30, _A_GAME, _B_GAME, _DEUCE, _A_ADV, _B_ADV;
-  }
-
-  private TennisTestStateMachineDefinition scorer;
-
-  public static class SimpleActionClass implements FsmAction1<TennisTestStateMachine, States, Events, States> {
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exec(final TennisTestStateMachine fsm, final States p1) {
-      fsm.setState(p1);
-    }
-
-  }
+  private TennisStateMachineDefinition scorer;
 
   @Before
   public void setup() {
-    this.scorer = new TennisTestStateMachineDefinition();
-
-    this.scorer.in(States._0_0).executeOnEntry(new SimpleActionClass(), States._0_0);
-    this.scorer.in(States._0_0).on(Events.A_Scores).goTo(States._15_0);
-    this.scorer.in(States._0_0).on(Events.B_Scores).goTo(States._0_15);
-
-    this.scorer.in(States._0_15).executeOnEntry(new SimpleActionClass(), States._0_15);
-    this.scorer.in(States._0_15).on(Events.A_Scores).goTo(States._15_15);
-    this.scorer.in(States._0_15).on(Events.B_Scores).goTo(States._0_30);
-
-    this.scorer.in(States._0_30).executeOnEntry(new SimpleActionClass(), States._0_30);
-    this.scorer.in(States._0_30).on(Events.A_Scores).goTo(States._15_30);
-    this.scorer.in(States._0_30).on(Events.B_Scores).goTo(States._0_40);
-
-    this.scorer.in(States._0_40).executeOnEntry(new SimpleActionClass(), States._0_40);
-    this.scorer.in(States._0_40).on(Events.A_Scores).goTo(States._15_40);
-    this.scorer.in(States._0_40).on(Events.B_Scores).goTo(States._B_GAME);
-
-    this.scorer.in(States._15_0).executeOnEntry(new SimpleActionClass(), States._15_0);
-    this.scorer.in(States._15_0).on(Events.A_Scores).goTo(States._30_0);
-    this.scorer.in(States._15_0).on(Events.B_Scores).goTo(States._15_15);
-
-    this.scorer.in(States._15_15).executeOnEntry(new SimpleActionClass(), States._15_15);
-    this.scorer.in(States._15_15).on(Events.A_Scores).goTo(States._30_15);
-    this.scorer.in(States._15_15).on(Events.B_Scores).goTo(States._15_30);
-
-    this.scorer.in(States._15_30).executeOnEntry(new SimpleActionClass(), States._15_30);
-    this.scorer.in(States._15_30).on(Events.A_Scores).goTo(States._30_30);
-    this.scorer.in(States._15_30).on(Events.B_Scores).goTo(States._15_40);
-
-    this.scorer.in(States._15_40).executeOnEntry(new SimpleActionClass(), States._15_40);
-    this.scorer.in(States._15_40).on(Events.A_Scores).goTo(States._30_40);
-    this.scorer.in(States._15_40).on(Events.B_Scores).goTo(States._B_GAME);
-
-    this.scorer.in(States._30_0).executeOnEntry(new SimpleActionClass(), States._30_0);
-    this.scorer.in(States._30_0).on(Events.A_Scores).goTo(States._40_0);
-    this.scorer.in(States._30_0).on(Events.B_Scores).goTo(States._30_15);
-
-    this.scorer.in(States._30_15).executeOnEntry(new SimpleActionClass(), States._30_15);
-    this.scorer.in(States._30_15).on(Events.A_Scores).goTo(States._40_15);
-    this.scorer.in(States._30_15).on(Events.B_Scores).goTo(States._30_30);
-
-    this.scorer.in(States._30_30).executeOnEntry(new SimpleActionClass(), States._30_30);
-    this.scorer.in(States._30_30).on(Events.A_Scores).goTo(States._40_30);
-    this.scorer.in(States._30_30).on(Events.B_Scores).goTo(States._30_40);
-
-    this.scorer.in(States._30_40).executeOnEntry(new SimpleActionClass(), States._30_40);
-    this.scorer.in(States._30_40).on(Events.A_Scores).goTo(States._DEUCE);
-    this.scorer.in(States._30_40).on(Events.B_Scores).goTo(States._B_GAME);
-
-    this.scorer.in(States._40_0).executeOnEntry(new SimpleActionClass(), States._40_0);
-    this.scorer.in(States._40_0).on(Events.A_Scores).goTo(States._A_GAME);
-    this.scorer.in(States._40_0).on(Events.B_Scores).goTo(States._40_15);
-
-    this.scorer.in(States._40_15).executeOnEntry(new SimpleActionClass(), States._40_15);
-    this.scorer.in(States._40_15).on(Events.A_Scores).goTo(States._A_GAME);
-    this.scorer.in(States._40_15).on(Events.B_Scores).goTo(States._40_30);
-
-    this.scorer.in(States._40_30).executeOnEntry(new SimpleActionClass(), States._40_30);
-    this.scorer.in(States._40_30).on(Events.A_Scores).goTo(States._A_GAME);
-    this.scorer.in(States._40_30).on(Events.B_Scores).goTo(States._DEUCE);
-
-    this.scorer.in(States._DEUCE).executeOnEntry(new SimpleActionClass(), States._DEUCE);
-    this.scorer.in(States._DEUCE).on(Events.A_Scores).goTo(States._A_ADV);
-    this.scorer.in(States._DEUCE).on(Events.B_Scores).goTo(States._B_ADV);
-
-    this.scorer.in(States._A_ADV).executeOnEntry(new SimpleActionClass(), States._A_ADV);
-    this.scorer.in(States._A_ADV).on(Events.A_Scores).goTo(States._A_GAME);
-    this.scorer.in(States._A_ADV).on(Events.B_Scores).goTo(States._DEUCE);
-
-    this.scorer.in(States._B_ADV).executeOnEntry(new SimpleActionClass(), States._B_ADV);
-    this.scorer.in(States._B_ADV).on(Events.A_Scores).goTo(States._DEUCE);
-    this.scorer.in(States._B_ADV).on(Events.B_Scores).goTo(States._B_GAME);
-
-    this.scorer.in(States._A_GAME).executeOnEntry(new SimpleActionClass(), States._A_GAME);
-    this.scorer.in(States._B_GAME).executeOnEntry(new SimpleActionClass(), States._B_GAME);
+    this.scorer = new TennisStateMachineDefinition();
   }
 
   @Test
   public void scoreWhenIn0to0AandBScores3TimesSwitchingThenDeuce() {
-    final TennisTestStateMachine testee = scorer.createPassiveStateMachine("Tennis-0");
+    final TennisStateMachine testee = scorer.createPassiveStateMachine("Tennis-0");
     testee.start();
 
     final States initialState = testee.getState();
@@ -205,7 +77,7 @@ public class Tennis {
 
   @Test
   public void scoreWhenIn0to0AScoresrTimesThenAWins() {
-    final TennisTestStateMachine testee = scorer.createPassiveStateMachine("Tennis-1");
+    final TennisStateMachine testee = scorer.createPassiveStateMachine("Tennis-1");
     testee.start();
 
     final States initialState = testee.getState();
@@ -233,7 +105,7 @@ public class Tennis {
 
   @Test
   public void scoreWhenIn0to0BScoresrTimesThenBWins() {
-    final TennisTestStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._0_0);
+    final TennisStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._0_0);
     testee.start();
 
     final States initialState = testee.getState();
@@ -259,7 +131,7 @@ public class Tennis {
 
   @Test
   public void testScorerWhenDeuceAndAScores2TimesThenAWins() {
-    final TennisTestStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._DEUCE);
+    final TennisStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._DEUCE);
     testee.start();
 
     testee.fire(Events.A_Scores);
@@ -276,7 +148,7 @@ public class Tennis {
 
   @Test
   public void testScorerWhenDeuceAndBfollowedByAScoresThenDeuce() {
-    final TennisTestStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._DEUCE);
+    final TennisStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._DEUCE);
     testee.start();
 
     testee.fire(Events.A_Scores);
@@ -293,7 +165,7 @@ public class Tennis {
 
   @Test
   public void testScorerWhenDeuceAndBScores2TimesThenBWins() {
-    final TennisTestStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._DEUCE);
+    final TennisStateMachine testee = scorer.createPassiveStateMachine("Tennis-1", States._DEUCE);
     testee.start();
 
     testee.fire(Events.B_Scores);
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2010, 2011 bbv Software Services AG, Ueli Kurmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Contributors: bbv Software Services AG (http://www.bbv.ch), Ueli Kurmann
+ *******************************************************************************/
+package ch.bbv.fsm.acceptance.tennis;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachineDefinition.Events;
+import ch.bbv.fsm.acceptance.tennis.TennisStateMachineDefinition.States;
+import ch.bbv.fsm.impl.AbstractStateMachine;
+
+/**
+ * State machine of the tennis scorer. Remembers the last score entered.
+ */
+public class TennisStateMachine extends AbstractStateMachine<TennisStateMachine, States, Events> {
+
+  private States state;
+
+  TennisStateMachine(final StateMachine<States, Events> driver) {
+    super(driver);
+  }
+
+  public States getState() {
+    return state;
+  }
+
+  public void setState(final States state) {
+    this.state = state;
+  }
+
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2010, 2011 bbv Software Services AG, Ueli Kurmann
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Contributors: bbv Software Services AG (http://www.bbv.ch), Ueli Kurmann
+ *******************************************************************************/
+package ch.bbv.fsm.acceptance.tennis;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.action.FsmAction1;
+import ch.bbv.fsm.impl.AbstractStateMachineDefinition;
+
+/**
+ * Definition of the tennis scorer: one state per score of a game.
+ */
+public class TennisStateMachineDefinition extends AbstractStateMachineDefinition<TennisStateMachine, TennisStateMachineDefinition.States, TennisStateMachineDefinition.Events> {
+
+  public enum Events {
+    A_Scores, B_Scores
+  }
+
+  public enum States {
+    _0_0, _0_15, _0_30, _0_40, _15_15, _15_30, _15_40, _30_30, _30_40, _15_0, _30_0, _30_15, _40_0, _40_15, _40_30, _A_GAME, _B_GAME, _DEUCE, _A_ADV, _B_ADV;
+  }
+
+  public static class SimpleActionClass implements FsmAction1<TennisStateMachine, States, Events, States> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exec(final TennisStateMachine fsm, final States p1) {
+      fsm.setState(p1);
+    }
+
+  }
+
+  public TennisStateMachineDefinition() {
+    super("TennisStateMachineDefinition", States._0_0);
+    define();
+  }
+
+  private void define() {
+    in(States._0_0).executeOnEntry(new SimpleActionClass(), States._0_0);
+    in(States._0_0).on(Events.A_Scores).goTo(States._15_0);
+    in(States._0_0).on(Events.B_Scores).goTo(States._0_15);
+
+    in(States._0_15).executeOnEntry(new SimpleActionClass(), States._0_15);
+    in(States._0_15).on(Events.A_Scores).goTo(States._15_15);
+    in(States._0_15).on(Events.B_Scores).goTo(States._0_30);
+
+    in(States._0_30).executeOnEntry(new SimpleActionClass(), States._0_30);
+    in(States._0_30).on(Events.A_Scores).goTo(States._15_30);
+    in(States._0_30).on(Events.B_Scores).goTo(States._0_40);
+
+    in(States._0_40).executeOnEntry(new SimpleActionClass(), States._0_40);
+    in(States._0_40).on(Events.A_Scores).goTo(States._15_40);
+    in(States._0_40).on(Events.B_Scores).goTo(States._B_GAME);
+
+    in(States._15_0).executeOnEntry(new SimpleActionClass(), States._15_0);
+    in(States._15_0).on(Events.A_Scores).goTo(States._30_0);
+    in(States._15_0).on(Events.B_Scores).goTo(States._15_15);
+
+    in(States._15_15).executeOnEntry(new SimpleActionClass(), States._15_15);
+    in(States._15_15).on(Events.A_Scores).goTo(States._30_15);
+    in(States._15_15).on(Events.B_Scores).goTo(States._15_30);
+
+    in(States._15_30).executeOnEntry(new SimpleActionClass(), States._15_30);
+    in(States._15_30).on(Events.A_Scores).goTo(States._30_30);
+    in(States._15_30).on(Events.B_Scores).goTo(States._15_40);
+
+    in(States._15_40).executeOnEntry(new SimpleActionClass(), States._15_40);
+    in(States._15_40).on(Events.A_Scores).goTo(States._30_40);
+    in(States._15_40).on(Events.B_Scores).goTo(States._B_GAME);
+
+    in(States._30_0).executeOnEntry(new SimpleActionClass(), States._30_0);
+    in(States._30_0).on(Events.A_Scores).goTo(States._40_0);
+    in(States._30_0).on(Events.B_Scores).goTo(States._30_15);
+
+    in(States._30_15).executeOnEntry(new SimpleActionClass(), States._30_15);
+    in(States._30_15).on(Events.A_Scores).goTo(States._40_15);
+    in(States._30_15).on(Events.B_Scores).goTo(States._30_30);
+
+    in(States._30_30).executeOnEntry(new SimpleActionClass(), States._30_30);
+    in(States._30_30).on(Events.A_Scores).goTo(States._40_30);
+    in(States._30_30).on(Events.B_Scores).goTo(States._30_40);
+
+    in(States._30_40).executeOnEntry(new SimpleActionClass(), States._30_40);
+    in(States._30_40).on(Events.A_Scores).goTo(States._DEUCE);
+    in(States._30_40).on(Events.B_Scores).goTo(States._B_GAME);
+
+    in(States._40_0).executeOnEntry(new SimpleActionClass(), States._40_0);
+    in(States._40_0).on(Events.A_Scores).goTo(States._A_GAME);
+    in(States._40_0).on(Events.B_Scores).goTo(States._40_15);
+
+    in(States._40_15).executeOnEntry(new SimpleActionClass(), States._40_15);
+    in(States._40_15).on(Events.A_Scores).goTo(States._A_GAME);
+    in(States._40_15).on(Events.B_Scores).goTo(States._40_30);
+
+    in(States._40_30).executeOnEntry(new SimpleActionClass(), States._40_30);
+    in(States._40_30).on(Events.A_Scores).goTo(States._A_GAME);
+    in(States._40_30).on(Events.B_Scores).goTo(States._DEUCE);
+
+    in(States._DEUCE).executeOnEntry(new SimpleActionClass(), States._DEUCE);
+    in(States._DEUCE).on(Events.A_Scores).goTo(States._A_ADV);
+    in(States._DEUCE).on(Events.B_Scores).goTo(States._B_ADV);
+
+    in(States._A_ADV).executeOnEntry(new SimpleActionClass(), States._A_ADV);
+    in(States._A_ADV).on(Events.A_Scores).goTo(States._A_GAME);
+    in(States._A_ADV).on(Events.B_Scores).goTo(States._DEUCE);
+
+    in(States._B_ADV).executeOnEntry(new SimpleActionClass(), States._B_ADV);
+    in(States._B_ADV).on(Events.A_Scores).goTo(States._DEUCE);
+    in(States._B_ADV).on(Events.B_Scores).goTo(States._B_GAME);
+
+    in(States._A_GAME).executeOnEntry(new SimpleActionClass(), States._A_GAME);
+    in(States._B_GAME).executeOnEntry(new SimpleActionClass(), States._B_GAME);
+  }
+
+  @Override
+  protected TennisStateMachine createStateMachine(final StateMachine<States, Events> driver) {
+    return new TennisStateMachine(driver);
+  }
+
+}
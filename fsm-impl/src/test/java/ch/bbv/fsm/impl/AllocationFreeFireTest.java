@@ -0,0 +1,188 @@
+package ch.bbv.fsm.impl;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.action.FsmAction0;
+import ch.bbv.fsm.action.FsmActionLong;
+import ch.bbv.fsm.events.EventInterest;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.guard.Function;
+import ch.bbv.fsm.guard.FunctionLong;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests that firing events on a state machine reusing its transition context doesn't allocate.
+ */
+public class AllocationFreeFireTest {
+
+	private static final int EVENTS = 100000;
+
+	/**
+	 * The runs of the events before the measured one, enough for the JIT to compile the fire path
+	 * with escape analysis: 10 runs execute every method on it at least a million times, far beyond
+	 * the compile thresholds.
+	 */
+	private static final int WARM_UP_RUNS = 10;
+
+	/**
+	 * The bytes the measured run may allocate. A single allocation per event would be at least 16
+	 * bytes times {@link #EVENTS}, i.e. 1.6 MB; the 16 KB allowed cover allocations that don't
+	 * depend on the number of events, such as a TLAB refill or a class initialized late.
+	 */
+	private static final long ALLOWED_BYTES = 16 * 1024;
+
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private int actions;
+
+	private int notifications;
+
+	private long sum;
+
+	/**
+	 * Transitions through a hierarchy with history, guards and actions and the notification of a
+	 * handler registered with an interest mask allocate nothing in the steady state.
+	 */
+	@Test
+	public void steadyStateEventsDontAllocate() {
+		final ThreadAllocation allocation = ThreadAllocation.create();
+		Assume.assumeTrue(allocation != null);
+
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"allocationFree", States.A);
+		definition.defineHierarchyOn(States.D, States.D1, HistoryType.DEEP, States.D1, States.D2);
+		definition.defineHierarchyOn(States.D1, States.D1a, HistoryType.SHALLOW, States.D1a, States.D1b);
+		final FsmAction0<SimpleStateMachine<States, Events>, States, Events> count = new FsmAction0<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void exec(final SimpleStateMachine<States, Events> stateMachine) {
+				actions++;
+			}
+		};
+		final Function<SimpleStateMachine<States, Events>, States, Events, Object[], Boolean> always = new Function<SimpleStateMachine<States, Events>, States, Events, Object[], Boolean>() {
+			@Override
+			public Boolean execute(final SimpleStateMachine<States, Events> stateMachine, final Object[] parameter) {
+				return Boolean.TRUE;
+			}
+		};
+		definition.in(States.A).on(Events.D).goTo(States.D).execute(count).onlyIf(always);
+		definition.in(States.D1a).executeOnEntry(count).executeOnExit(count).on(Events.B).goTo(States.D1b);
+		definition.in(States.D).on(Events.A).goTo(States.A).execute(count);
+		definition.addEventHandler(new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void onTransitionCompleted(
+					final TransitionCompletedEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+				notifications++;
+			}
+		}, EventInterest.COMPLETED);
+		definition.setReuseTransitionContexts(true);
+		definition.freeze();
+
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("allocationFree");
+		testee.start();
+		final long allocated = steadyStateAllocation(allocation, () -> fireEvents(testee, EVENTS));
+
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		Assert.assertTrue("notified " + notifications, notifications >= 2 * EVENTS);
+		Assert.assertTrue("allocated " + allocated + " bytes for " + 3 * EVENTS + " events",
+				allocated < ALLOWED_BYTES);
+	}
+
+	/**
+	 * Events with a single <code>long</code> argument passed to typed guards and actions allocate
+	 * nothing in the steady state.
+	 */
+	@Test
+	public void steadyStateLongEventsDontAllocate() {
+		final ThreadAllocation allocation = ThreadAllocation.create();
+		Assume.assumeTrue(allocation != null);
+
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"allocationFreeLong", States.A);
+		final FsmActionLong<SimpleStateMachine<States, Events>, States, Events> add = new FsmActionLong<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void exec(final SimpleStateMachine<States, Events> stateMachine, final long sequence) {
+				sum += sequence;
+			}
+		};
+		final FunctionLong<SimpleStateMachine<States, Events>, States, Events, Boolean> positive = new FunctionLong<SimpleStateMachine<States, Events>, States, Events, Boolean>() {
+			@Override
+			public Boolean execute(final SimpleStateMachine<States, Events> stateMachine, final long sequence) {
+				return sequence > 0;
+			}
+		};
+		definition.in(States.A).on(Events.B).goTo(States.B).executeLong(add).onlyIfLong(positive);
+		definition.in(States.B).on(Events.A).goTo(States.A).executeLong(add);
+		definition.setReuseTransitionContexts(true);
+		definition.freeze();
+
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("allocationFreeLong");
+		testee.start();
+		final long allocated = steadyStateAllocation(allocation, () -> {
+			for (long sequence = 1; sequence <= EVENTS; sequence++) {
+				testee.fireLong(Events.B, sequence);
+				testee.fireLong(Events.A, sequence);
+			}
+		});
+
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		Assert.assertTrue(sum > 0);
+		Assert.assertTrue("allocated " + allocated + " bytes for " + 2 * EVENTS + " events",
+				allocated < ALLOWED_BYTES);
+	}
+
+	/**
+	 * Returns the bytes allocated by a single run of the events after the warm-up runs.
+	 */
+	private static long steadyStateAllocation(final ThreadAllocation allocation, final Runnable events) {
+		for (int run = 0; run < WARM_UP_RUNS; run++) {
+			events.run();
+		}
+		final long before = allocation.bytes();
+		events.run();
+		return allocation.bytes() - before;
+	}
+
+	private static void fireEvents(final SimpleStateMachine<States, Events> testee, final int count) {
+		for (int i = 0; i < count; i++) {
+			testee.fire(Events.D, NO_ARGUMENTS);
+			testee.fire(Events.B, NO_ARGUMENTS);
+			testee.fire(Events.A, NO_ARGUMENTS);
+		}
+	}
+
+	/**
+	 * Measures the bytes allocated by the current thread.
+	 */
+	private static final class ThreadAllocation {
+
+		private final com.sun.management.ThreadMXBean threadMXBean;
+
+		private ThreadAllocation(final com.sun.management.ThreadMXBean threadMXBean) {
+			this.threadMXBean = threadMXBean;
+		}
+
+		static ThreadAllocation create() {
+			if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+				return null;
+			}
+			final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			if (!threadMXBean.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			threadMXBean.setThreadAllocatedMemoryEnabled(true);
+			return new ThreadAllocation(threadMXBean);
+		}
+
+		long bytes() {
+			return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+}
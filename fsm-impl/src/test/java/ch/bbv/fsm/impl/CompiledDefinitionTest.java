@@ -0,0 +1,146 @@
+package ch.bbv.fsm.impl;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.acceptance.radio.RadioStateMachine;
+import ch.bbv.fsm.acceptance.radio.RadioStateMachineDefinion;
+import ch.bbv.fsm.acceptance.radio.RadioStateMachineDefinion.Event;
+import ch.bbv.fsm.events.ExceptionEventArgs;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionEventArgs;
+import ch.bbv.fsm.events.TransitionExceptionEventArgs;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests state machines of compiled definitions.
+ */
+public class CompiledDefinitionTest {
+
+	private final List<String> notifications = Lists.newArrayList();
+
+	private class Handler extends StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events> {
+
+		@Override
+		public void onExceptionThrown(final ExceptionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+			notifications.add("exception:" + arg.getException().getMessage());
+		}
+
+		@Override
+		public void onTransitionDeclined(final TransitionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+			notifications.add("declined:" + arg.getEventId());
+		}
+
+		@Override
+		public void onTransitionThrowsException(
+				final TransitionExceptionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+			notifications.add("transitionException:" + arg.getException().getMessage());
+		}
+	}
+
+	/**
+	 * A compiled radio performs the same actions in the same order as an
+	 * interpreted one, for all history types.
+	 */
+	@Test
+	public void compiledRadioBehavesLikeInterpretedRadio() {
+		final Event[] events = { Event.TogglePower, Event.ToggleMode, Event.StationLost, Event.TogglePower,
+				Event.TogglePower, Event.StationFound, Event.ToggleMode, Event.TogglePower, Event.TogglePower,
+				Event.ToggleMode, Event.StationLost, Event.StationFound, Event.TogglePower };
+		for (final HistoryType on : HistoryType.values()) {
+			for (final HistoryType am : HistoryType.values()) {
+				final RadioStateMachine interpreted = new RadioStateMachineDefinion(on, am)
+						.createPassiveStateMachine("interpreted");
+				final RadioStateMachineDefinion compiledDefinition = new RadioStateMachineDefinion(on, am);
+				compiledDefinition.compile();
+				final RadioStateMachine compiled = compiledDefinition.createPassiveStateMachine("compiled");
+
+				interpreted.start();
+				compiled.start();
+				for (final Event event : events) {
+					interpreted.fire(event);
+					compiled.fire(event);
+					Assert.assertEquals(interpreted.consumeLog(), compiled.consumeLog());
+					Assert.assertEquals(interpreted.getCurrentState(), compiled.getCurrentState());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The guards are evaluated in order and the event arguments are passed to
+	 * guards and actions.
+	 */
+	@Test
+	public void guardsAndArguments() {
+		final List<Object> received = Lists.newArrayList();
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"guardsAndArguments", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B).onlyIf((sm, args) -> "b".equals(args[0]));
+		definition.in(States.A).on(Events.B).goTo(States.C).execute((sm, p1) -> received.add(p1))
+				.onlyIf((sm, args) -> "c".equals(args[0]));
+		definition.compile();
+
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("testee");
+		testee.start();
+		testee.fire(Events.B, "x");
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		testee.fire(Events.B, "c");
+
+		Assert.assertEquals(States.C, testee.getCurrentState());
+		Assert.assertEquals(Lists.newArrayList("c"), received);
+	}
+
+	/**
+	 * Exceptions of guards, actions, entry and exit actions are notified like
+	 * in interpreted state machines.
+	 */
+	@Test
+	public void exceptionsAreNotified() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"exceptionsAreNotified", States.A);
+		definition.in(States.A).executeOnExit(sm -> {
+			throw new IllegalStateException("exit");
+		});
+		definition.in(States.B).executeOnEntry(sm -> {
+			throw new IllegalStateException("entry");
+		});
+		definition.in(States.A).on(Events.B).goTo(States.B).execute(sm -> {
+			throw new IllegalStateException("action");
+		});
+		definition.in(States.B).on(Events.C).goTo(States.C).onlyIf((sm, args) -> {
+			throw new IllegalStateException("guard");
+		});
+		definition.addEventHandler(new Handler());
+		definition.compile();
+
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("testee");
+		testee.start();
+		testee.fire(Events.B);
+		testee.fire(Events.C);
+
+		Assert.assertEquals(States.B, testee.getCurrentState());
+		Assert.assertEquals(Lists.newArrayList("exception:exit", "transitionException:action", "exception:entry",
+				"transitionException:guard", "declined:C"), notifications);
+	}
+
+	/**
+	 * A compiled definition can't be changed.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void compiledDefinitionIsFrozen() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"compiledDefinitionIsFrozen", States.A);
+		definition.compile();
+
+		Assert.assertTrue(definition.isFrozen());
+		Assert.assertTrue(definition.isCompiled());
+		definition.in(States.A).on(Events.B).goTo(States.B);
+	}
+}
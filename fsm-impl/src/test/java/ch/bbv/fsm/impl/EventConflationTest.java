@@ -0,0 +1,115 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.EventQueueOverflowPolicy;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests active state machines conflating events. The worker is held in the action of the first
+ * event until the other events are fired.
+ */
+public class EventConflationTest {
+
+	private final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+
+	private final CountDownLatch entered = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private SimpleStateMachine<States, Events> testee;
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"conflation", States.A);
+		definition.in(States.A).on(Events.A).goTo(States.A).execute(sm -> {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		definition.in(States.A).on(Events.B).goTo(States.A).executeLong((sm, value) -> processed.add("B " + value));
+		definition.in(States.A).on(Events.C).goTo(States.A).execute(sm -> processed.add("C"));
+		definition.setConflatedEvents(EnumSet.of(Events.B));
+		return definition;
+	}
+
+	private void startHeld(final SimpleStateMachineDefinition<States, Events> definition)
+			throws InterruptedException {
+		testee = definition.createActiveStateMachine("conflation");
+		testee.start();
+		testee.fire(Events.A);
+		entered.await();
+	}
+
+	private void drain() throws InterruptedException {
+		release.countDown();
+		while (!testee.isIdle()) {
+			Thread.sleep(1);
+		}
+	}
+
+	@After
+	public void terminate() {
+		release.countDown();
+		if (testee != null) {
+			testee.terminate();
+		}
+	}
+
+	/**
+	 * The latest event of a conflated type is executed in the place of the first pending one, the
+	 * other events are queued as usual.
+	 */
+	@Test
+	public void latestPendingEventWins() throws InterruptedException {
+		startHeld(createDefinition());
+
+		testee.fireLong(Events.B, 1L);
+		testee.fire(Events.C);
+		testee.fireLong(Events.B, 2L);
+		testee.fireLong(Events.B, 3L);
+		testee.fire(Events.C);
+		Assert.assertEquals(3, testee.numberOfQueuedEvents());
+		drain();
+
+		Assert.assertEquals("[B 3, C, C]", processed.toString());
+		Assert.assertEquals(2, testee.getEventQueueStatistics().getConflatedEvents());
+
+		testee.fireLong(Events.B, 4L);
+		drain();
+		Assert.assertEquals("[B 3, C, C, B 4]", processed.toString());
+	}
+
+	/**
+	 * A dropped pending event of a conflated type lets the next event of the type be queued again.
+	 */
+	@Test
+	public void droppedPendingEventIsForgotten() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.setEventQueueCapacity(2);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.DROP_OLDEST);
+		startHeld(definition);
+
+		testee.fireLong(Events.B, 1L);
+		testee.fire(Events.C);
+		testee.fire(Events.C);
+		testee.fireLong(Events.B, 2L);
+		drain();
+
+		Assert.assertEquals("[C, B 2]", processed.toString());
+		Assert.assertEquals(2, testee.getEventQueueStatistics().getDroppedEvents());
+		Assert.assertEquals(0, testee.getEventQueueStatistics().getConflatedEvents());
+	}
+}
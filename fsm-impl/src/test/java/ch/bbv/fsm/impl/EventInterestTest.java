@@ -0,0 +1,148 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.events.EventInterest;
+import ch.bbv.fsm.events.ExceptionEventArgs;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.events.TransitionEventArgs;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests event handlers registered with an interest mask and filters.
+ */
+public class EventInterestTest {
+
+	private final List<String> calls = new ArrayList<>();
+
+	private final List<Object> args = new ArrayList<>();
+
+	private final StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events> handler = new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+		@Override
+		public void onTransitionBegin(final TransitionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+			calls.add("begin " + arg.getStateId() + " " + arg.getEventId());
+			args.add(arg);
+		}
+
+		@Override
+		public void onTransitionCompleted(
+				final TransitionCompletedEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+			calls.add("completed " + arg.getStateId() + " " + arg.getEventId() + " " + arg.getNewStateId());
+			args.add(arg);
+		}
+
+		@Override
+		public void onTransitionDeclined(final TransitionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+			calls.add("declined " + arg.getStateId() + " " + arg.getEventId());
+			args.add(arg);
+		}
+	};
+
+	private static SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("interest",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		definition.in(States.B).on(Events.C).goTo(States.C);
+		definition.in(States.C).on(Events.A).goTo(States.A);
+		return definition;
+	}
+
+	private SimpleStateMachine<States, Events> run(final SimpleStateMachineDefinition<States, Events> definition) {
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("interest");
+		testee.start();
+		testee.fire(Events.B);
+		testee.fire(Events.D);
+		testee.fire(Events.C);
+		testee.fire(Events.A);
+		return testee;
+	}
+
+	/**
+	 * Only the callbacks of the mask are called, with a reused view of the
+	 * arguments.
+	 */
+	@Test
+	public void onlyInterestingCallbacksAreCalled() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.addEventHandler(handler, EventInterest.COMPLETED | EventInterest.DECLINED);
+
+		run(definition);
+
+		Assert.assertEquals("[completed A B B, declined B D, completed B C C, completed C A A]", calls.toString());
+		for (final Object arg : args) {
+			Assert.assertSame(args.get(0), arg);
+		}
+	}
+
+	/**
+	 * Only transitions from the given states on the given events are passed
+	 * to the handler.
+	 */
+	@Test
+	public void transitionsAreFilteredByStateAndEvent() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.addEventHandler(handler, EventInterest.ALL, EnumSet.of(States.B, States.C),
+				EnumSet.of(Events.C, Events.D));
+
+		run(definition);
+
+		Assert.assertEquals("[declined B D, begin B C, completed B C C]", calls.toString());
+	}
+
+	/**
+	 * An exception thrown outside of a transition is passed in the reused
+	 * view, which has no event.
+	 */
+	@Test
+	public void exceptionOfInitialEntryActionIsPassedInView() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.in(States.A).executeOnEntry(sm -> {
+			throw new IllegalStateException("entry");
+		});
+		definition.addEventHandler(new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void onExceptionThrown(final ExceptionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+				final TransitionEventArgs<?, ?, ?> view = (TransitionEventArgs<?, ?, ?>) arg;
+				calls.add("exception " + arg.getException().getMessage() + " " + view.getEventId() + " "
+						+ view.getEventArguments() + " " + arg);
+			}
+		}, EventInterest.EXCEPTION);
+
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("interest");
+		testee.start();
+
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		Assert.assertEquals(1, calls.size());
+		Assert.assertTrue(calls.get(0), calls.get(0).startsWith("exception entry null null Exception "));
+	}
+
+	/**
+	 * Handlers added without a mask get all callbacks with their own
+	 * arguments, and removing a handler removes its registration.
+	 */
+	@Test
+	public void handlersWithoutMaskGetAllCallbacks() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		final StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events> removed = new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void onTransitionBegin(final TransitionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+				Assert.fail("removed handler called");
+			}
+		};
+		definition.addEventHandler(removed, EventInterest.ALL);
+		definition.addEventHandler(handler);
+		definition.removeEventHandler(removed);
+
+		run(definition);
+
+		Assert.assertEquals(7, calls.size());
+		Assert.assertNotSame(args.get(0), args.get(1));
+	}
+}
@@ -0,0 +1,217 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.EventQueueOverflowPolicy;
+import ch.bbv.fsm.EventQueueStatistics;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the overflow policies of bounded event queues. The worker is held in the action of the
+ * first event until the queue of two events is full.
+ */
+public class EventQueueOverflowTest {
+
+	private final List<Long> processed = Collections.synchronizedList(new ArrayList<Long>());
+
+	private final CountDownLatch entered = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private SimpleStateMachine<States, Events> testee;
+
+	private SimpleStateMachine<States, Events> createFullMachine(final EventQueueOverflowPolicy policy)
+			throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("overflow",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.A).executeLong((sm, event) -> {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			processed.add(event);
+		});
+		definition.setEventQueueCapacity(2);
+		definition.setEventQueueOverflowPolicy(policy);
+		definition.setEventQueueBlockTimeout(10, TimeUnit.MILLISECONDS);
+		testee = definition.createActiveStateMachine("overflow");
+		testee.start();
+		testee.fireLong(Events.B, 0L);
+		entered.await();
+		testee.fireLong(Events.B, 1L);
+		testee.fireLong(Events.B, 2L);
+		return testee;
+	}
+
+	private void drain() throws InterruptedException {
+		release.countDown();
+		while (!testee.isIdle()) {
+			Thread.sleep(1);
+		}
+	}
+
+	@After
+	public void terminate() {
+		release.countDown();
+		if (testee != null) {
+			testee.terminate();
+		}
+	}
+
+	/**
+	 * A rejected event makes fire throw and offer return false.
+	 */
+	@Test
+	public void rejectThrowsOrReturnsFalse() throws InterruptedException {
+		createFullMachine(EventQueueOverflowPolicy.REJECT);
+
+		Assert.assertFalse(testee.offer(Events.B, 3L));
+		try {
+			testee.fireLong(Events.B, 4L);
+			Assert.fail();
+		} catch (final IllegalStateException expected) {
+			// rejected
+		}
+		drain();
+
+		Assert.assertEquals("[0, 1, 2]", processed.toString());
+		Assert.assertEquals(2, testee.getEventQueueStatistics().getRejectedEvents());
+	}
+
+	/**
+	 * The new event is dropped silently.
+	 */
+	@Test
+	public void dropNewestDropsTheNewEvent() throws InterruptedException {
+		createFullMachine(EventQueueOverflowPolicy.DROP_NEWEST);
+
+		testee.fireLong(Events.B, 3L);
+		Assert.assertFalse(testee.offer(Events.B, 4L));
+		drain();
+
+		Assert.assertEquals("[0, 1, 2]", processed.toString());
+		Assert.assertEquals(2, testee.getEventQueueStatistics().getDroppedEvents());
+	}
+
+	/**
+	 * The oldest queued event makes room for the new one.
+	 */
+	@Test
+	public void dropOldestDropsTheOldestQueuedEvent() throws InterruptedException {
+		createFullMachine(EventQueueOverflowPolicy.DROP_OLDEST);
+
+		Assert.assertTrue(testee.offer(Events.B, 3L));
+		testee.fireLong(Events.B, 4L);
+		drain();
+
+		Assert.assertEquals("[0, 3, 4]", processed.toString());
+		final EventQueueStatistics statistics = testee.getEventQueueStatistics();
+		Assert.assertEquals(2, statistics.getDroppedEvents());
+		Assert.assertEquals(0, statistics.getRejectedEvents());
+	}
+
+	/**
+	 * A blocked producer is rejected after the timeout and succeeds once the worker makes room.
+	 */
+	@Test
+	public void blockWaitsForRoom() throws InterruptedException {
+		createFullMachine(EventQueueOverflowPolicy.BLOCK);
+
+		Assert.assertFalse(testee.offer(Events.B, 3L));
+		Assert.assertEquals(1, testee.getEventQueueStatistics().getRejectedEvents());
+
+		final Thread releaser = new Thread(() -> {
+			try {
+				Thread.sleep(5);
+			} catch (final InterruptedException e) {
+				return;
+			}
+			release.countDown();
+		});
+		releaser.start();
+		while (!testee.offer(Events.B, 4L)) {
+			// retried until the worker made room within the timeout
+		}
+		releaser.join();
+		drain();
+
+		Assert.assertEquals("[0, 1, 2, 4]", processed.toString());
+	}
+
+	/**
+	 * With {@link EventQueueOverflowPolicy#BLOCK} a batch larger than the queue is rejected instead
+	 * of waiting for room it never gets.
+	 */
+	@Test
+	public void blockRejectsABatchLargerThanTheQueue() throws Exception {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("batch",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.A);
+		definition.setEventQueueCapacity(2);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.BLOCK);
+		testee = definition.createActiveStateMachine("batch");
+		final ExecutorService producer = Executors.newSingleThreadExecutor();
+
+		try {
+			producer.submit(() -> testee.fireAll(new EventBatch<Events>().add(Events.B).add(Events.B).add(Events.B),
+					false)).get(10, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (final ExecutionException expected) {
+			Assert.assertTrue(expected.getCause() instanceof IllegalStateException);
+		} finally {
+			producer.shutdownNow();
+		}
+
+		Assert.assertEquals(0, testee.numberOfQueuedEvents());
+		Assert.assertEquals(3, testee.getEventQueueStatistics().getRejectedEvents());
+	}
+
+	/**
+	 * An action firing into the full queue of its own machine on a shared executor is rejected
+	 * instead of waiting for itself.
+	 */
+	@Test(timeout = 10000)
+	public void blockRejectsTheDrainingThreadOfASharedExecutor() throws InterruptedException {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("shared",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B).execute(sm -> {
+			sm.fire(Events.C);
+			sm.fire(Events.C);
+			try {
+				sm.fire(Events.C);
+			} catch (final IllegalStateException e) {
+				processed.add(-1L);
+			}
+		});
+		definition.in(States.B).on(Events.C).goTo(States.C);
+		definition.setEventQueueCapacity(2);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.BLOCK);
+		testee = definition.createActiveStateMachine("shared", executor);
+		testee.start();
+
+		testee.fire(Events.B);
+		while (!testee.isIdle()) {
+			Thread.sleep(1);
+		}
+		executor.shutdown();
+
+		Assert.assertEquals("[-1]", processed.toString());
+		Assert.assertEquals(States.C, testee.getCurrentState());
+	}
+}
@@ -0,0 +1,101 @@
+package ch.bbv.fsm.impl;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.EventQueueStatistics;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the event queue statistics and the wakeups of active state machines.
+ */
+public class EventQueueStatisticsTest {
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"statistics", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		definition.in(States.B).on(Events.C).goTo(States.C);
+		return definition;
+	}
+
+	private void waitUntilIdle(final SimpleStateMachine<States, Events> machine) throws InterruptedException {
+		while (!machine.isIdle()) {
+			Thread.sleep(1);
+		}
+	}
+
+	/**
+	 * An idle active machine is not woken up and the worker is signaled once per burst of events.
+	 */
+	@Test
+	public void idleActiveMachineIsNotWokenUp() throws InterruptedException {
+		final SimpleStateMachine<States, Events> machine = createDefinition().createActiveStateMachine("idle");
+		machine.start();
+		Thread.sleep(100);
+
+		final EventQueueStatistics statistics = machine.getEventQueueStatistics();
+		Assert.assertEquals(0, statistics.getWakeups());
+
+		machine.fire(Events.B);
+		waitUntilIdle(machine);
+		machine.fire(Events.C);
+		waitUntilIdle(machine);
+
+		Assert.assertEquals(States.C, machine.getCurrentState());
+		Assert.assertEquals(2, statistics.getDispatchedEvents());
+		Assert.assertTrue(statistics.getWakeups() <= 2);
+		machine.terminate();
+		Assert.assertTrue(statistics.getMaxDispatchLatencyNanos() > 0);
+		Assert.assertTrue(statistics.getTotalDispatchLatencyNanos() >= statistics.getMaxDispatchLatencyNanos());
+	}
+
+	/**
+	 * The worker returning from parking without a queued event is not counted as woken up.
+	 */
+	@Test
+	public void spuriousWakeupsAreNotCounted() throws InterruptedException {
+		final AtomicReference<Thread> worker = new AtomicReference<>();
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.in(States.B).executeOnEntry(sm -> worker.set(Thread.currentThread()));
+		final SimpleStateMachine<States, Events> machine = definition.createActiveStateMachine("spurious");
+		machine.start();
+		machine.fire(Events.B);
+		waitUntilIdle(machine);
+		Thread.sleep(50);
+		final EventQueueStatistics statistics = machine.getEventQueueStatistics();
+		final long wakeups = statistics.getWakeups();
+
+		for (int i = 0; i < 10; i++) {
+			LockSupport.unpark(worker.get());
+			Thread.sleep(5);
+		}
+
+		Assert.assertEquals(wakeups, statistics.getWakeups());
+		machine.fire(Events.C);
+		waitUntilIdle(machine);
+		Assert.assertEquals(States.C, machine.getCurrentState());
+		Assert.assertEquals(wakeups + 1, statistics.getWakeups());
+		machine.terminate();
+	}
+
+	/**
+	 * Passive machines record the dispatched events as well.
+	 */
+	@Test
+	public void passiveMachineRecordsDispatchedEvents() {
+		final SimpleStateMachine<States, Events> machine = createDefinition().createPassiveStateMachine("passive");
+		machine.fire(Events.B);
+		machine.start();
+		machine.fire(Events.C);
+
+		final EventQueueStatistics statistics = machine.getEventQueueStatistics();
+		Assert.assertEquals(2, statistics.getDispatchedEvents());
+		Assert.assertEquals(0, statistics.getWakeups());
+		Assert.assertTrue(statistics.getAverageDispatchLatencyNanos() > 0);
+	}
+}
@@ -0,0 +1,154 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.events.TransitionEventArgs;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests firing batches of events.
+ */
+public class FireAllTest {
+
+	private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("batch",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B).execute((sm, argument) -> calls.add("B " + argument));
+		definition.in(States.B).on(Events.C).goTo(States.C).execute(sm -> sm.fire(Events.D));
+		definition.in(States.C).on(Events.D).goTo(States.D);
+		definition.in(States.D).on(Events.A).goTo(States.A).executeLong((sm, argument) -> calls.add("A " + argument));
+		definition.addEventHandler(new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void onTransitionCompleted(
+					final TransitionCompletedEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+				calls.add("completed " + arg.getEventId());
+			}
+
+			@Override
+			public void onTransitionDeclined(
+					final TransitionEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+				calls.add("declined " + arg.getEventId());
+			}
+		});
+		return definition;
+	}
+
+	private static EventBatch<Events> createBatch() {
+		return new EventBatch<Events>(2).add(Events.B, "x").add(Events.C).addLong(Events.A, 42L);
+	}
+
+	/**
+	 * A batch behaves like the events fired one after the other, the events fired by the actions
+	 * are executed in between.
+	 */
+	@Test
+	public void batchIsExecutedInOrder() {
+		final SimpleStateMachine<States, Events> testee = createDefinition().createPassiveStateMachine("batch");
+		testee.start();
+
+		testee.fireAll(createBatch(), false);
+
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		Assert.assertEquals("[B x, completed B, completed C, completed D, A 42, completed A]", calls.toString());
+	}
+
+	/**
+	 * Coalesced notifications only report the last event of the batch and the events fired by the
+	 * actions.
+	 */
+	@Test
+	public void notificationsAreCoalesced() {
+		final SimpleStateMachine<States, Events> testee = createDefinition().createPassiveStateMachine("batch");
+		testee.start();
+
+		testee.fireAll(createBatch(), true);
+
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		Assert.assertEquals("[B x, completed D, A 42, completed A]", calls.toString());
+	}
+
+	/**
+	 * A batch fired before the start is queued, the events fired by its actions are queued behind
+	 * it.
+	 */
+	@Test
+	public void batchIsQueuedUntilStart() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+		final SimpleStateMachine<States, Events> testee = definition.createFlyweightStateMachine();
+		testee.fireAll(createBatch(), true);
+		Assert.assertEquals(3, testee.numberOfQueuedEvents());
+
+		testee.start();
+
+		Assert.assertEquals(States.D, testee.getCurrentState());
+		Assert.assertEquals("[B x, declined A, completed D]", calls.toString());
+	}
+
+	/**
+	 * Only {@link EventBatch#addLong(Enum, long)} stores a primitive argument, the other arguments
+	 * keep their type.
+	 */
+	@Test
+	public void otherPrimitiveArgumentsKeepTheirType() {
+		final SimpleStateMachine<States, Events> testee = createDefinition().createPassiveStateMachine("batch");
+		testee.start();
+		final EventBatch<Events> batch = new EventBatch<Events>().add(Events.B, (short) 7);
+
+		Assert.assertFalse(batch.hasLongArgument(0));
+		Assert.assertEquals(Short.valueOf((short) 7), batch.getEventArguments(0)[0]);
+		testee.fireAll(batch, false);
+
+		Assert.assertEquals("[B 7, completed B]", calls.toString());
+	}
+
+	/**
+	 * An active state machine queues the batch as a whole, the batch can be reused once queued.
+	 */
+	@Test
+	public void activeStateMachineQueuesBatch() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.setEventQueueCapacity(8);
+		final SimpleStateMachine<States, Events> testee = definition.createActiveStateMachine("batch");
+		final EventBatch<Events> batch = new EventBatch<Events>().add(Events.B, "x").addLong(Events.A, 1L).add(Events.C);
+		testee.fireAll(batch, true);
+		batch.clear();
+		batch.addLong(Events.A, 2L);
+		testee.fireAll(batch, true);
+		testee.start();
+
+		while (!testee.isIdle() || testee.getCurrentState() != States.D) {
+			Thread.sleep(1);
+		}
+		testee.terminate();
+
+		Assert.assertEquals("[B x, completed C, declined A, completed D]", calls.toString());
+	}
+
+	/**
+	 * A batch that doesn't fit into a bounded queue is rejected as a whole.
+	 */
+	@Test
+	public void batchLargerThanTheQueueIsRejected() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.setEventQueueCapacity(2);
+		final SimpleStateMachine<States, Events> testee = definition.createActiveStateMachine("batch");
+		try {
+			testee.fireAll(createBatch(), false);
+			Assert.fail();
+		} catch (final IllegalStateException expected) {
+			Assert.assertEquals(0, testee.numberOfQueuedEvents());
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package ch.bbv.fsm.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+import ch.bbv.fsm.impl.tracing.NoOpTransitionTracer;
+import ch.bbv.fsm.memento.StateMachineMemento;
+
+/**
+ * Tests the flyweight state machines of a frozen definition.
+ */
+public class FlyweightStateMachineTest {
+
+	private final List<States> completed = new ArrayList<>();
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchies("flyweight");
+		definition.addEventHandler(new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void onTransitionCompleted(
+					final TransitionCompletedEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+				completed.add(arg.getNewStateId());
+			}
+		});
+		return definition;
+	}
+
+	/**
+	 * A flyweight goes through the same states and notifies the same
+	 * transitions as a passive state machine.
+	 */
+	@Test
+	public void flyweightBehavesLikePassiveStateMachine() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+
+		final List<States> expected = run(definition.createPassiveStateMachine("passive"));
+		final List<States> expectedCompleted = new ArrayList<>(completed);
+		completed.clear();
+
+		Assert.assertEquals(expected, run(definition.createFlyweightStateMachine()));
+		Assert.assertEquals(expectedCompleted, completed);
+	}
+
+	/**
+	 * The history of a flyweight is written to and restored from a memento.
+	 */
+	@Test
+	public void flyweightPassivatesAndActivatesHistory() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.compile();
+
+		final SimpleStateMachine<States, Events> flyweight = definition.createFlyweightStateMachine();
+		flyweight.start();
+		flyweight.fire(Events.B);
+		flyweight.fire(Events.B2);
+		flyweight.fire(Events.A);
+		final StateMachineMemento<States, Events> memento = new StateMachineMemento<>();
+		flyweight.passivate(memento);
+		Assert.assertEquals(States.A, memento.getCurrentState());
+		Assert.assertEquals(States.B2, memento.getSavedHistoryStates().get(States.B));
+
+		final SimpleStateMachine<States, Events> restored = definition.createFlyweightStateMachine(States.C);
+		restored.activate(memento);
+		restored.fire(Events.B);
+		Assert.assertEquals(States.B2, restored.getCurrentState());
+	}
+
+	/**
+	 * Passivating into a reused memento drops the history of the earlier
+	 * passivation.
+	 */
+	@Test
+	public void flyweightPassivatesIntoAReusedMemento() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+		final StateMachineMemento<States, Events> memento = new StateMachineMemento<>();
+		final SimpleStateMachine<States, Events> withHistory = definition.createFlyweightStateMachine();
+		withHistory.start();
+		withHistory.fire(Events.B);
+		withHistory.fire(Events.A);
+		withHistory.passivate(memento);
+		Assert.assertEquals(States.B1, memento.getSavedHistoryStates().get(States.B));
+
+		final SimpleStateMachine<States, Events> withoutHistory = definition.createFlyweightStateMachine();
+		withoutHistory.start();
+		withoutHistory.passivate(memento);
+
+		Assert.assertEquals(States.A, memento.getCurrentState());
+		Assert.assertTrue(memento.getSavedHistoryStates().isEmpty());
+	}
+
+	/**
+	 * Events fired before the start are queued and executed on start.
+	 */
+	@Test
+	public void eventsFiredBeforeStartAreQueued() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+
+		final SimpleStateMachine<States, Events> flyweight = definition.createFlyweightStateMachine();
+		flyweight.fire(Events.B);
+		Assert.assertEquals(1, flyweight.numberOfQueuedEvents());
+		flyweight.start();
+		Assert.assertEquals(0, flyweight.numberOfQueuedEvents());
+		Assert.assertEquals(States.B1, flyweight.getCurrentState());
+	}
+
+	/**
+	 * Flyweights report empty statistics and ignore a tracer of their own.
+	 */
+	@Test
+	public void flyweightHasNoStatisticsNorTracerOfItsOwn() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+
+		final SimpleStateMachine<States, Events> flyweight = definition.createFlyweightStateMachine();
+		flyweight.setTransitionTracer(NoOpTransitionTracer.<States, Events> getInstance());
+		flyweight.start();
+		flyweight.fire(Events.B);
+
+		Assert.assertEquals(States.B1, flyweight.getCurrentState());
+		Assert.assertEquals(0, flyweight.getEventQueueStatistics().getDispatchedEvents());
+	}
+
+	/**
+	 * Flyweights can only be created from frozen definitions.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void definitionMustBeFrozen() {
+		createDefinition().createFlyweightStateMachine();
+	}
+
+	/**
+	 * A started flyweight without history and queued events, including the
+	 * wrapping state machine, takes less than 64 bytes with compressed
+	 * references.
+	 */
+	@Test
+	public void flyweightIsSmall() throws Exception {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+		final SimpleStateMachine<States, Events> stateMachine = definition.createFlyweightStateMachine();
+		stateMachine.start();
+
+		final Field driver = AbstractStateMachine.class.getDeclaredField("driver");
+		driver.setAccessible(true);
+		final StateMachine<?, ?> flyweight = (StateMachine<?, ?>) driver.get(stateMachine);
+
+		final long size = shallowSize(stateMachine.getClass()) + shallowSize(flyweight.getClass());
+		Assert.assertTrue("flyweight takes " + size + " bytes", size < 64);
+	}
+
+	private List<States> run(final SimpleStateMachine<States, Events> stateMachine) {
+		final List<States> states = new ArrayList<>();
+		stateMachine.start();
+		states.add(stateMachine.getCurrentState());
+		for (final Events event : HierarchyFixture.EVENTS) {
+			stateMachine.fire(event);
+			states.add(stateMachine.getCurrentState());
+		}
+		stateMachine.terminate();
+		return states;
+	}
+
+	/**
+	 * Estimates the size of an instance on a 64 bit VM with compressed
+	 * references: a 12 byte header and the fields, aligned to 8 bytes.
+	 */
+	private static long shallowSize(final Class<?> type) {
+		long size = 12;
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			for (final Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				final Class<?> fieldType = field.getType();
+				if (fieldType == long.class || fieldType == double.class) {
+					size += 8;
+				} else if (fieldType == short.class || fieldType == char.class) {
+					size += 2;
+				} else if (fieldType == byte.class || fieldType == boolean.class) {
+					size += 1;
+				} else {
+					size += 4;
+				}
+			}
+		}
+		return (size + 7) / 8 * 8;
+	}
+}
@@ -0,0 +1,124 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.dsl.ExecuteSyntax;
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the validation and immutability of frozen definitions.
+ */
+public class FrozenDefinitionTest {
+
+	/**
+	 * Hierarchies, event handlers and settings can't be changed after freezing.
+	 */
+	@Test
+	public void frozenDefinitionRejectsAllChanges() {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchy("frozen");
+		definition.freeze();
+
+		final List<Runnable> changes = new ArrayList<>();
+		changes.add(() -> definition.defineHierarchyOn(States.C, States.C1, HistoryType.NONE, States.C1));
+		changes.add(() -> definition.in(States.C));
+		changes.add(() -> definition.addEventHandler(new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+		}));
+		changes.add(() -> definition.setReuseTransitionContexts(true));
+		changes.add(() -> definition.setTransitionTracer(null));
+		changes.add(() -> definition.setEventQueueCapacity(16));
+		for (final Runnable change : changes) {
+			try {
+				change.run();
+				Assert.fail("frozen definition was changed");
+			} catch (final IllegalStateException expected) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * A builder obtained before freezing can't change the frozen model.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void builderObtainedBeforeFreezingCantChangeTheModel() {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchy("frozen");
+		final ExecuteSyntax<SimpleStateMachine<States, Events>, States, Events> builder = definition.in(States.A)
+				.on(Events.C).goTo(States.C);
+		definition.freeze();
+
+		builder.onlyIf((stateMachine, arguments) -> true);
+	}
+
+	/**
+	 * A state moved into a second hierarchy is reported when freezing.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void subStateOfTwoSuperStatesIsRejected() {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchy("frozen");
+		definition.defineHierarchyOn(States.C, States.C1, HistoryType.NONE, States.C1, States.B2);
+
+		definition.freeze();
+	}
+
+	/**
+	 * State machines can't start in a state that isn't part of the frozen definition.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void unknownStateIsRejectedAfterFreezing() {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchy("frozen");
+		definition.freeze();
+
+		definition.createPassiveStateMachine("unknown", States.E).start();
+	}
+
+	/**
+	 * Many threads create and run state machines of the same frozen definition.
+	 */
+	@Test
+	public void stateMachinesAreCreatedConcurrently() throws Exception {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchy("frozen");
+		definition.freeze();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<Integer>> results = new ArrayList<>();
+			for (int thread = 0; thread < 8; thread++) {
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						int inB2 = 0;
+						for (int i = 0; i < 1000; i++) {
+							final SimpleStateMachine<States, Events> testee = definition
+									.createPassiveStateMachine("concurrent" + i);
+							testee.start();
+							testee.fire(Events.B);
+							testee.fire(Events.B2);
+							testee.fire(Events.A);
+							testee.fire(Events.B);
+							if (testee.getCurrentState() == States.B2) {
+								inB2++;
+							}
+						}
+						return inB2;
+					}
+				}));
+			}
+			for (final Future<Integer> result : results) {
+				Assert.assertEquals(Integer.valueOf(1000), result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
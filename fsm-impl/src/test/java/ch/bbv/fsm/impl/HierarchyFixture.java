@@ -0,0 +1,57 @@
+package ch.bbv.fsm.impl;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * The hierarchical definitions the tests of frozen definitions start from.
+ */
+final class HierarchyFixture {
+
+	/**
+	 * Events that go through all states of {@link #createHierarchies(String)}, its histories
+	 * included, and decline some events on the way.
+	 */
+	static final Events[] EVENTS = { Events.B, Events.B2, Events.A, Events.B, Events.C, Events.C1b, Events.B,
+			Events.C, Events.A, Events.B, Events.B1, Events.D, Events.A };
+
+	private HierarchyFixture() {
+	}
+
+	/**
+	 * Creates a definition with the state A and the state B with the sub-states B1 and B2 and
+	 * shallow history.
+	 *
+	 * @param name
+	 *            the name of the definition.
+	 */
+	static SimpleStateMachineDefinition<States, Events> createHierarchy(final String name) {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(name,
+				States.A);
+		definition.defineHierarchyOn(States.B, States.B1, HistoryType.SHALLOW, States.B1, States.B2);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		definition.in(States.B1).on(Events.B2).goTo(States.B2);
+		definition.in(States.B).on(Events.A).goTo(States.A);
+		return definition;
+	}
+
+	/**
+	 * Creates the definition of {@link #createHierarchy(String)} extended by the state C with deep
+	 * history over the sub-states C1, with the sub-states C1a and C1b and no history, and C2.
+	 *
+	 * @param name
+	 *            the name of the definition.
+	 */
+	static SimpleStateMachineDefinition<States, Events> createHierarchies(final String name) {
+		final SimpleStateMachineDefinition<States, Events> definition = createHierarchy(name);
+		definition.defineHierarchyOn(States.C, States.C1, HistoryType.DEEP, States.C1, States.C2);
+		definition.defineHierarchyOn(States.C1, States.C1a, HistoryType.NONE, States.C1a, States.C1b);
+		definition.in(States.B2).on(Events.B1).goTo(States.B1);
+		definition.in(States.B).on(Events.C).goTo(States.C);
+		definition.in(States.C1a).on(Events.C1b).goTo(States.C1b);
+		definition.in(States.C).on(Events.A).goTo(States.A);
+		definition.in(States.C).on(Events.B).goTo(States.B);
+		return definition;
+	}
+}
@@ -0,0 +1,174 @@
+package ch.bbv.fsm.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests active state machines assigned to the loops of a {@link PartitionedStateMachineScheduler}.
+ */
+public class PartitionedStateMachineSchedulerTest {
+
+	private final PartitionedStateMachineScheduler scheduler = new PartitionedStateMachineScheduler(
+			"partitioned-test", 3);
+
+	private final Map<SimpleStateMachine<States, Events>, Set<Thread>> threads = new ConcurrentHashMap<>();
+
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"partitioned", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B).execute(sm -> recordThread(sm));
+		definition.in(States.B).on(Events.C).goTo(States.C).execute(sm -> recordThread(sm));
+		definition.in(States.C).on(Events.D).goTo(States.D).execute(sm -> recordThread(sm));
+		return definition;
+	}
+
+	private void recordThread(final SimpleStateMachine<States, Events> stateMachine) {
+		threads.computeIfAbsent(stateMachine, machine -> Sets.newConcurrentHashSet()).add(
+				Thread.currentThread());
+	}
+
+	/**
+	 * The events of a machine are always processed on the thread of the loop its key is assigned
+	 * to.
+	 */
+	@Test
+	public void machinesStayOnTheLoopOfTheirKey() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		final List<SimpleStateMachine<States, Events>> machines = Lists.newArrayList();
+		final List<String> keys = Lists.newArrayList();
+		for (int i = 0; i < 300; i++) {
+			final String key = "machine" + i;
+			final SimpleStateMachine<States, Events> machine = definition.createActiveStateMachine(key,
+					scheduler.loopFor(key));
+			machine.fire(Events.B);
+			machine.start();
+			machines.add(machine);
+			keys.add(key);
+		}
+		for (final SimpleStateMachine<States, Events> machine : machines) {
+			machine.fire(Events.C);
+			machine.fire(Events.D);
+		}
+
+		final Map<Integer, Thread> loopThreads = new ConcurrentHashMap<>();
+		for (int i = 0; i < machines.size(); i++) {
+			final SimpleStateMachine<States, Events> machine = machines.get(i);
+			while (!machine.isIdle()) {
+				Thread.sleep(1);
+			}
+			Assert.assertEquals(States.D, machine.getCurrentState());
+			final Set<Thread> machineThreads = threads.get(machine);
+			Assert.assertEquals(1, machineThreads.size());
+			final Thread thread = machineThreads.iterator().next();
+			Assert.assertSame(thread,
+					loopThreads.computeIfAbsent(scheduler.loopIndexOf(keys.get(i)), index -> thread));
+			machine.terminate();
+		}
+		Assert.assertEquals(3, loopThreads.size());
+	}
+
+	/**
+	 * Machines on different loops fire events at each other through the queues of the machines.
+	 */
+	@Test
+	public void machinesFireAcrossLoops() throws InterruptedException {
+		final String ping = "ping";
+		String key = "pong";
+		for (int i = 0; scheduler.loopIndexOf(key) == scheduler.loopIndexOf(ping); i++) {
+			key = "pong" + i;
+		}
+		final String pong = key;
+		final List<SimpleStateMachine<States, Events>> machines = Lists.newArrayList();
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"pingPong", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B).execute(sm -> {
+			recordThread(sm);
+			machines.get(sm == machines.get(0) ? 1 : 0).fire(Events.B);
+		});
+		machines.add(definition.createActiveStateMachine(ping, scheduler.loopFor(ping)));
+		machines.add(definition.createActiveStateMachine(pong, scheduler.loopFor(pong)));
+		for (final SimpleStateMachine<States, Events> machine : machines) {
+			machine.start();
+		}
+
+		machines.get(0).fire(Events.B);
+		while (machines.get(0).getCurrentState() != States.B || machines.get(1).getCurrentState() != States.B
+				|| !machines.get(0).isIdle()) {
+			Thread.sleep(1);
+		}
+
+		Assert.assertNotEquals(threads.get(machines.get(0)), threads.get(machines.get(1)));
+		scheduler.shutdown();
+		Assert.assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * An error thrown by a task is reported and the loop keeps executing the tasks of the other
+	 * machines.
+	 */
+	@Test
+	public void loopSurvivesAnError() throws InterruptedException {
+		final Executor loop = scheduler.loopFor("key");
+		final CountDownLatch executed = new CountDownLatch(1);
+
+		loop.execute(() -> {
+			throw new AssertionError("expected by loopSurvivesAnError");
+		});
+		loop.execute(executed::countDown);
+
+		Assert.assertTrue(executed.await(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * A task queued while the loop shuts down is either executed or rejected, never lost.
+	 */
+	@Test
+	public void tasksQueuedDuringShutdownAreExecutedOrRejected() throws InterruptedException {
+		for (int i = 0; i < 200; i++) {
+			final PartitionedStateMachineScheduler testee = new PartitionedStateMachineScheduler("shutdown-test", 1);
+			final Executor loop = testee.loopFor("key");
+			final AtomicInteger accepted = new AtomicInteger();
+			final AtomicInteger executed = new AtomicInteger();
+			final Thread producer = new Thread(() -> {
+				while (true) {
+					try {
+						loop.execute(executed::incrementAndGet);
+					} catch (final RejectedExecutionException e) {
+						return;
+					}
+					accepted.incrementAndGet();
+				}
+			});
+			producer.start();
+			Thread.yield();
+
+			testee.shutdown();
+			producer.join();
+
+			Assert.assertTrue(testee.awaitTermination(10, TimeUnit.SECONDS));
+			Assert.assertEquals(accepted.get(), executed.get());
+		}
+	}
+}
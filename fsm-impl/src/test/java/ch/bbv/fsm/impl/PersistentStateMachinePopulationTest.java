@@ -0,0 +1,118 @@
+package ch.bbv.fsm.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.PersistentStateMachinePopulation;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the populations stored in memory-mapped files.
+ */
+public class PersistentStateMachinePopulationTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<States> entered = new ArrayList<>();
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchy("persistent");
+		definition.in(States.A).executeOnEntry(sm -> entered.add(States.A));
+		definition.freeze();
+		return definition;
+	}
+
+	/**
+	 * Reopening the file restores the states and the history of all machines
+	 * without running any action.
+	 */
+	@Test
+	public void reopenedPopulationKeepsStatesAndHistory() throws IOException {
+		final Path file = folder.newFile().toPath();
+		try (PersistentStateMachinePopulation<States, Events> population = createDefinition().openPopulation(file)) {
+			final int first = population.create();
+			final int second = population.create();
+			population.fire(first, Events.B);
+			population.fire(first, Events.B2);
+			population.fire(first, Events.A);
+			population.fire(second, Events.B);
+			population.force();
+		}
+		entered.clear();
+
+		try (PersistentStateMachinePopulation<States, Events> population = createDefinition().openPopulation(file)) {
+			Assert.assertEquals(2, population.size());
+			Assert.assertEquals(States.A, population.getCurrentState(0));
+			Assert.assertEquals(States.B1, population.getCurrentState(1));
+			Assert.assertTrue(entered.isEmpty());
+
+			population.fire(0, Events.B);
+			Assert.assertEquals(States.B2, population.getCurrentState(0));
+		}
+	}
+
+	/**
+	 * A population grows beyond the first mapped segment.
+	 */
+	@Test
+	public void populationGrowsBeyondASegment() throws IOException {
+		final Path file = folder.newFile().toPath();
+		final int machines = 70000;
+		try (PersistentStateMachinePopulation<States, Events> population = createDefinition().openPopulation(file)) {
+			for (int i = 0; i < machines; i++) {
+				population.create();
+			}
+			population.fire(machines - 1, Events.B);
+		}
+
+		try (PersistentStateMachinePopulation<States, Events> population = createDefinition().openPopulation(file)) {
+			Assert.assertEquals(machines, population.size());
+			Assert.assertEquals(States.A, population.getCurrentState(machines - 2));
+			Assert.assertEquals(States.B1, population.getCurrentState(machines - 1));
+		}
+	}
+
+	/**
+	 * The file of another definition is rejected.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void fileOfAnotherDefinitionIsRejected() throws IOException {
+		final Path file = folder.newFile().toPath();
+		try (PersistentStateMachinePopulation<States, Events> population = createDefinition().openPopulation(file)) {
+			population.create();
+		}
+		final SimpleStateMachineDefinition<States, Events> other = new SimpleStateMachineDefinition<>("other", States.A);
+		other.in(States.A).on(Events.B).goTo(States.B);
+		other.freeze();
+
+		other.openPopulation(file);
+	}
+
+	/**
+	 * The file of a definition with as many states and history slots but
+	 * another history state is rejected.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void fileOfAnotherDefinitionWithTheSameLayoutIsRejected() throws IOException {
+		final Path file = folder.newFile().toPath();
+		try (PersistentStateMachinePopulation<States, Events> population = createDefinition().openPopulation(file)) {
+			population.create();
+		}
+		final SimpleStateMachineDefinition<States, Events> other = new SimpleStateMachineDefinition<>("other", States.A);
+		other.defineHierarchyOn(States.C, States.C1, HistoryType.SHALLOW, States.C1, States.C2);
+		other.in(States.A).on(Events.C).goTo(States.C);
+		other.freeze();
+
+		other.openPopulation(file);
+	}
+}
@@ -0,0 +1,193 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.EventBatch;
+import ch.bbv.fsm.EventQueueOverflowPolicy;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the state machines whose events are queued in a ring of recycled slots.
+ */
+public class RingBufferStateMachineTest {
+
+	private final List<Long> processed = Collections.synchronizedList(new ArrayList<Long>());
+
+	private final CountDownLatch entered = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private SimpleStateMachine<States, Events> testee;
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition(final boolean hold) {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("ring",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.A).executeLong((sm, event) -> {
+			if (hold) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			processed.add(event);
+		});
+		definition.in(States.A).on(Events.C).goTo(States.C);
+		return definition;
+	}
+
+	private void awaitIdle() throws InterruptedException {
+		release.countDown();
+		while (!testee.isIdle()) {
+			Thread.sleep(1);
+		}
+	}
+
+	@After
+	public void terminate() {
+		release.countDown();
+		if (testee != null) {
+			testee.terminate();
+		}
+	}
+
+	/**
+	 * The slots are recycled, the events are executed in order over many rounds of the ring.
+	 */
+	@Test
+	public void eventsAreExecutedInOrder() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition(false);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.BLOCK);
+		testee = definition.createRingBufferStateMachine("ring", 4);
+		testee.start();
+
+		final List<Long> expected = new ArrayList<>();
+		for (long i = 0; i < 1000; i++) {
+			testee.fireLong(Events.B, i);
+			expected.add(i);
+		}
+		awaitIdle();
+
+		Assert.assertEquals(expected, processed);
+		Assert.assertEquals(1000, testee.getEventQueueStatistics().getDispatchedEvents());
+	}
+
+	/**
+	 * Events fired before the start are kept in the ring, a batch is written into consecutive
+	 * slots.
+	 */
+	@Test
+	public void eventsAreQueuedUntilStart() throws InterruptedException {
+		testee = createDefinition(false).createRingBufferStateMachine("ring", 8);
+		testee.fireLong(Events.B, 1L);
+		testee.fireAll(new EventBatch<Events>().addLong(Events.B, 2L).addLong(Events.B, 3L).add(Events.C), true);
+		Assert.assertEquals(4, testee.numberOfQueuedEvents());
+
+		testee.start();
+		awaitIdle();
+
+		Assert.assertEquals("[1, 2, 3]", processed.toString());
+		Assert.assertEquals(States.C, testee.getCurrentState());
+	}
+
+	/**
+	 * An event fired into the full ring is rejected, or dropped with
+	 * {@link EventQueueOverflowPolicy#DROP_NEWEST}.
+	 */
+	@Test
+	public void fullRingRejectsOrDrops() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition(true);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.DROP_NEWEST);
+		testee = definition.createRingBufferStateMachine("ring", 2);
+		testee.start();
+		testee.fireLong(Events.B, 0L);
+		entered.await();
+		testee.fireLong(Events.B, 1L);
+
+		Assert.assertFalse(testee.offer(Events.B, 2L));
+		testee.fireLong(Events.B, 3L);
+		awaitIdle();
+
+		Assert.assertEquals("[0, 1]", processed.toString());
+		Assert.assertEquals(2, testee.getEventQueueStatistics().getDroppedEvents());
+	}
+
+	/**
+	 * A blocked producer gets a slot as soon as the worker frees one.
+	 */
+	@Test
+	public void blockedProducerWaitsForAFreeSlot() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition(true);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.BLOCK);
+		definition.setEventQueueBlockTimeout(10, TimeUnit.SECONDS);
+		testee = definition.createRingBufferStateMachine("ring", 2);
+		testee.start();
+		testee.fireLong(Events.B, 0L);
+		entered.await();
+		testee.fireLong(Events.B, 1L);
+
+		final Thread releaser = new Thread(() -> {
+			try {
+				Thread.sleep(5);
+			} catch (final InterruptedException e) {
+				return;
+			}
+			release.countDown();
+		});
+		releaser.start();
+		testee.fireLong(Events.B, 2L);
+		releaser.join();
+		awaitIdle();
+
+		Assert.assertEquals("[0, 1, 2]", processed.toString());
+		Assert.assertEquals(0, testee.getEventQueueStatistics().getRejectedEvents());
+	}
+
+	/**
+	 * A blocked batch larger than the ring is rejected instead of waiting for slots it never gets.
+	 */
+	@Test
+	public void batchLargerThanTheRingIsRejected() throws Exception {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition(false);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.BLOCK);
+		testee = definition.createRingBufferStateMachine("ring", 2);
+		final ExecutorService producer = Executors.newSingleThreadExecutor();
+
+		try {
+			producer.submit(
+					() -> testee.fireAll(new EventBatch<Events>().addLong(Events.B, 0L).addLong(Events.B, 1L)
+							.addLong(Events.B, 2L), false)).get(10, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (final ExecutionException expected) {
+			Assert.assertTrue(expected.getCause() instanceof IllegalStateException);
+		} finally {
+			producer.shutdownNow();
+		}
+
+		Assert.assertEquals(0, testee.numberOfQueuedEvents());
+		Assert.assertEquals(3, testee.getEventQueueStatistics().getRejectedEvents());
+	}
+
+	/**
+	 * The oldest event can't be dropped as only the worker frees slots.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void dropOldestIsNotSupported() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition(false);
+		definition.setEventQueueOverflowPolicy(EventQueueOverflowPolicy.DROP_OLDEST);
+		definition.createRingBufferStateMachine("ring", 2);
+	}
+}
@@ -0,0 +1,97 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.StateMachinePopulation;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the populations of a frozen definition.
+ */
+public class StateMachinePopulationTest {
+
+	private final List<String> log = new ArrayList<>();
+
+	private StateMachinePopulation<States, Events> population;
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = HierarchyFixture.createHierarchies("population");
+		definition.in(States.B2).executeOnEntry(sm -> log.add(population.getCurrentMachine() + ":" + sm.getCurrentState()));
+		return definition;
+	}
+
+	/**
+	 * Interleaved machines of a population go through the same states as
+	 * passive state machines.
+	 */
+	@Test
+	public void populationBehavesLikePassiveStateMachines() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+		final SimpleStateMachine<States, Events> passive = definition.createPassiveStateMachine("passive");
+		passive.start();
+		population = definition.createPopulation(1);
+		final int first = population.create();
+		final int second = population.create();
+		Assert.assertEquals(2, population.size());
+
+		population.fire(second, Events.B);
+		for (final Events event : HierarchyFixture.EVENTS) {
+			passive.fire(event);
+			population.fire(first, event);
+			Assert.assertEquals(passive.getCurrentState(), population.getCurrentState(first));
+		}
+		Assert.assertEquals(States.B1, population.getCurrentState(second));
+		population.fire(second, Events.B2);
+		Assert.assertEquals(States.B2, population.getCurrentState(second));
+	}
+
+	/**
+	 * The actions see the machine whose event is executed, events they fire
+	 * are executed on that machine afterwards.
+	 */
+	@Test
+	public void actionsWorkOnTheCurrentMachine() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.in(States.B1).executeOnEntry(sm -> sm.fire(Events.B2));
+		definition.freeze();
+		population = definition.createPopulation(4);
+		population.create();
+		final int machine = population.create();
+
+		population.fire(machine, Events.B);
+
+		Assert.assertEquals(States.B2, population.getCurrentState(machine));
+		Assert.assertEquals(States.A, population.getCurrentState(0));
+		Assert.assertEquals(-1, population.getCurrentMachine());
+		Assert.assertEquals("[1:B1]", log.toString());
+	}
+
+	/**
+	 * Terminated machines reject events.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void terminatedMachineRejectsEvents() {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+		population = definition.createPopulation(4);
+		final int machine = population.create();
+		population.terminate(machine);
+		Assert.assertNull(population.getCurrentState(machine));
+
+		population.fire(machine, Events.B);
+	}
+
+	/**
+	 * Populations can only be created from frozen definitions.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void definitionMustBeFrozen() {
+		createDefinition().createPopulation(4);
+	}
+}
@@ -0,0 +1,57 @@
+package ch.bbv.fsm.impl;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests active state machines sharing a {@link StateMachineScheduler}.
+ */
+public class StateMachineSchedulerTest {
+
+	private final StateMachineScheduler scheduler = new StateMachineScheduler("scheduler-test", 2);
+
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Many machines share the threads of the scheduler and each machine processes its events in
+	 * order.
+	 */
+	@Test
+	public void manyMachinesKeepTheirEventOrder() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"manyMachines", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		definition.in(States.B).on(Events.C).goTo(States.C);
+		definition.in(States.C).on(Events.D).goTo(States.D);
+
+		final List<SimpleStateMachine<States, Events>> machines = Lists.newArrayList();
+		for (int i = 0; i < 1000; i++) {
+			final SimpleStateMachine<States, Events> machine = definition.createActiveStateMachine("machine" + i,
+					scheduler);
+			machine.fire(Events.B);
+			machine.start();
+			machine.fire(Events.C);
+			machine.fire(Events.D);
+			machines.add(machine);
+		}
+
+		for (final SimpleStateMachine<States, Events> machine : machines) {
+			while (!machine.isIdle()) {
+				Thread.sleep(1);
+			}
+			Assert.assertEquals(States.D, machine.getCurrentState());
+			machine.terminate();
+		}
+	}
+}
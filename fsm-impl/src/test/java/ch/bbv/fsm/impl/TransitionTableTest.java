@@ -0,0 +1,114 @@
+package ch.bbv.fsm.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.dsl.EventSyntax;
+import ch.bbv.fsm.guard.Function;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the compiled transitions of a state machine definition.
+ */
+public class TransitionTableTest {
+
+	private static final Function<SimpleStateMachine<States, Events>, States, Events, Object[], Boolean> NEVER = new Function<SimpleStateMachine<States, Events>, States, Events, Object[], Boolean>() {
+		@Override
+		public Boolean execute(final SimpleStateMachine<States, Events> stateMachine, final Object[] parameter) {
+			return Boolean.FALSE;
+		}
+	};
+
+	/**
+	 * The transitions of the super states are evaluated after the declined transitions of the
+	 * current state.
+	 */
+	@Test
+	public void inheritedTransitionsAreEvaluatedAfterOwnTransitions() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"inherited", States.B1);
+		definition.defineHierarchyOn(States.B, States.B1, HistoryType.NONE, States.B1, States.B2);
+		definition.in(States.B1).on(Events.A).goTo(States.B2).onlyIf(NEVER);
+		definition.in(States.B).on(Events.A).goTo(States.A);
+		definition.freeze();
+
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("inherited");
+		testee.start();
+		testee.fire(Events.A);
+
+		Assert.assertEquals(States.A, testee.getCurrentState());
+	}
+
+	/**
+	 * Changes before freezing are taken into account by existing state machines.
+	 */
+	@Test
+	public void changesBeforeFreezeAreCompiledAgain() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"changes", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("changes");
+		testee.start();
+		testee.fire(Events.B);
+
+		definition.in(States.B).on(Events.C).goTo(States.C);
+		testee.fire(Events.C);
+
+		Assert.assertEquals(States.C, testee.getCurrentState());
+	}
+
+	/**
+	 * Changes through a builder kept from before the first event are taken into account by the
+	 * existing and the new state machines.
+	 */
+	@Test
+	public void changesThroughAKeptBuilderAreCompiledAgain() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"builder", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		final EventSyntax<SimpleStateMachine<States, Events>, States, Events> builder = definition.in(States.B);
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("builder");
+		testee.start();
+		testee.fire(Events.B);
+
+		builder.on(Events.C).goTo(States.C);
+		testee.fire(Events.C);
+		final SimpleStateMachine<States, Events> created = definition.createPassiveStateMachine("created");
+		created.start();
+		created.fire(Events.B);
+		created.fire(Events.C);
+
+		Assert.assertEquals(States.C, testee.getCurrentState());
+		Assert.assertEquals(States.C, created.getCurrentState());
+	}
+
+	/**
+	 * A builder kept from before the definition was frozen can't change it.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void frozenDefinitionRejectsChangesThroughAKeptBuilder() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"frozen", States.A);
+		final EventSyntax<SimpleStateMachine<States, Events>, States, Events> builder = definition.in(States.A);
+		builder.on(Events.B).goTo(States.B);
+		definition.freeze();
+
+		builder.on(Events.C).goTo(States.C);
+	}
+
+	/**
+	 * A frozen definition can't be changed.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void frozenDefinitionRejectsChanges() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"frozen", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		definition.freeze();
+
+		Assert.assertTrue(definition.isFrozen());
+		definition.in(States.B).on(Events.C).goTo(States.C);
+	}
+}
@@ -0,0 +1,93 @@
+package ch.bbv.fsm.impl;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+import ch.bbv.fsm.tracing.TransitionTracer;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests tracing the transitions of a state machine.
+ */
+public class TransitionTracerTest {
+
+	/**
+	 * A tracer attached to a running state machine sees the fired events, the exited and entered
+	 * states and the declined events, and is removed again with <code>null</code>.
+	 */
+	@Test
+	public void tracerAttachedAtRuntime() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"traced", States.A);
+		definition.defineHierarchyOn(States.B, States.B1, HistoryType.NONE, States.B1, States.B2);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("traced");
+		testee.start();
+
+		final RecordingTracer tracer = new RecordingTracer();
+		testee.setTransitionTracer(tracer);
+		testee.fire(Events.B);
+		testee.fire(Events.C);
+		testee.setTransitionTracer(null);
+		testee.fire(Events.C);
+
+		Assert.assertEquals(Lists.newArrayList("traced fired B in A", "traced exited A", "traced entered B",
+				"traced entered B1", "traced switched to B1", "traced fired C in B1", "traced declined C in B1"),
+				tracer.traces);
+	}
+
+	/**
+	 * The tracer of the definition is attached to the created state machines.
+	 */
+	@Test
+	public void tracerOfDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"definition", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		final RecordingTracer tracer = new RecordingTracer();
+		definition.setTransitionTracer(tracer);
+		final SimpleStateMachine<States, Events> testee = definition.createPassiveStateMachine("machine");
+
+		testee.start();
+
+		Assert.assertEquals(Lists.newArrayList("machine entered A", "machine switched to A"), tracer.traces);
+	}
+
+	private static class RecordingTracer implements TransitionTracer<States, Events> {
+
+		private final List<String> traces = Lists.newArrayList();
+
+		@Override
+		public void onEventFired(final String stateMachineName, final States currentState, final Events eventId,
+				final Object[] eventArguments) {
+			traces.add(stateMachineName + " fired " + eventId + " in " + currentState);
+		}
+
+		@Override
+		public void onStateExited(final String stateMachineName, final States state) {
+			traces.add(stateMachineName + " exited " + state);
+		}
+
+		@Override
+		public void onStateEntered(final String stateMachineName, final States state) {
+			traces.add(stateMachineName + " entered " + state);
+		}
+
+		@Override
+		public void onStateSwitched(final String stateMachineName, final States newState) {
+			traces.add(stateMachineName + " switched to " + newState);
+		}
+
+		@Override
+		public void onTransitionDeclined(final String stateMachineName, final States currentState,
+				final Events eventId) {
+			traces.add(stateMachineName + " declined " + eventId + " in " + currentState);
+		}
+	}
+}
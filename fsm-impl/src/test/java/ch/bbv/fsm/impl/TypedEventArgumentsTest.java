@@ -0,0 +1,122 @@
+package ch.bbv.fsm.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.events.StateMachineEventAdapter;
+import ch.bbv.fsm.events.TransitionCompletedEventArgs;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the events fired with a single typed argument.
+ */
+public class TypedEventArgumentsTest {
+
+	private final List<Object> received = new ArrayList<>();
+
+	private SimpleStateMachineDefinition<States, Events> createDefinition() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("typed",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B).executeLong((sm, sequence) -> received.add(sequence))
+				.onlyIfLong((sm, sequence) -> sequence > 0);
+		definition.in(States.B).on(Events.C).goTo(States.C)
+				.execute((SimpleStateMachine<States, Events> sm, String name) -> received.add(name))
+				.onlyIfArgument((SimpleStateMachine<States, Events> sm, String name) -> !name.isEmpty());
+		definition.in(States.C).on(Events.A).goTo(States.A)
+				.execute((SimpleStateMachine<States, Events> sm, Object value) -> received.add(value))
+				.onlyIf((sm, arguments) -> arguments.length == 1);
+		definition.addEventHandler(new StateMachineEventAdapter<SimpleStateMachine<States, Events>, States, Events>() {
+			@Override
+			public void onTransitionCompleted(
+					final TransitionCompletedEventArgs<SimpleStateMachine<States, Events>, States, Events> arg) {
+				received.add(Arrays.asList(arg.getEventArguments()));
+			}
+		});
+		return definition;
+	}
+
+	/**
+	 * The single arguments reach the typed guards and actions, the untyped ones
+	 * receive them in an array.
+	 */
+	@Test
+	public void singleArgumentsReachTypedActionsAndGuards() {
+		final SimpleStateMachine<States, Events> testee = createDefinition().createPassiveStateMachine("typed");
+		testee.start();
+
+		testee.fireLong(Events.B, 0L);
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		testee.fireLong(Events.B, 42L);
+		testee.fire(Events.C, "");
+		Assert.assertEquals(States.B, testee.getCurrentState());
+		testee.fire(Events.C, "name");
+		testee.fireInt(Events.A, 7);
+
+		Assert.assertEquals(States.A, testee.getCurrentState());
+		Assert.assertEquals(Arrays.asList(42L, Arrays.asList(42L), "name", Arrays.asList("name"),
+				Integer.valueOf(7), Arrays.asList(7)), received);
+	}
+
+	/**
+	 * Single arguments of the other primitive types are boxed to their own
+	 * type.
+	 */
+	@Test
+	public void otherPrimitiveArgumentsKeepTheirType() {
+		final SimpleStateMachine<States, Events> testee = createDefinition().createPassiveStateMachine("typed");
+		testee.start();
+
+		testee.fireLong(Events.B, 1L);
+		testee.fire(Events.C, "short");
+		testee.fire(Events.A, (short) 5);
+		testee.fireLong(Events.B, 1L);
+		testee.fire(Events.C, "char");
+		testee.fire(Events.A, 'c');
+
+		Assert.assertEquals(Arrays.asList(1L, Arrays.asList(1L), "short", Arrays.asList("short"),
+				Short.valueOf((short) 5), Arrays.asList(Short.valueOf((short) 5)), 1L, Arrays.asList(1L), "char",
+				Arrays.asList("char"), Character.valueOf('c'), Arrays.asList(Character.valueOf('c'))), received);
+	}
+
+	/**
+	 * Arguments passed in an array reach the typed actions as well.
+	 */
+	@Test
+	public void arrayArgumentsReachTypedActions() {
+		final SimpleStateMachine<States, Events> testee = createDefinition().createPassiveStateMachine("typed");
+		testee.start();
+
+		testee.fire(Events.B, new Object[] { Long.valueOf(3) });
+
+		Assert.assertEquals(States.B, testee.getCurrentState());
+		Assert.assertEquals(Arrays.asList(3L, Arrays.asList(3L)), received);
+	}
+
+	/**
+	 * Typed arguments queued by the active and flyweight state machines are
+	 * passed on as well.
+	 */
+	@Test
+	public void queuedArgumentsArePassedOn() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = createDefinition();
+		definition.freeze();
+		final SimpleStateMachine<States, Events> flyweight = definition.createFlyweightStateMachine();
+		flyweight.fireLong(Events.B, 1L);
+		flyweight.start();
+		final SimpleStateMachine<States, Events> active = definition.createActiveStateMachine("typed");
+		active.fireLong(Events.B, 2L);
+		active.start();
+		while (!active.isIdle() || active.getCurrentState() != States.B) {
+			Thread.sleep(1);
+		}
+		active.terminate();
+
+		Assert.assertEquals(States.B, flyweight.getCurrentState());
+		Assert.assertEquals(Arrays.asList(1L, Arrays.asList(1L), 2L, Arrays.asList(2L)), received);
+	}
+}
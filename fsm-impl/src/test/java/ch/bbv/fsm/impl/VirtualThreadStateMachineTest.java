@@ -0,0 +1,98 @@
+package ch.bbv.fsm.impl;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+import ch.bbv.fsm.impl.internal.driver.VirtualThreadExecutor;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests active state machines running on virtual threads.
+ */
+public class VirtualThreadStateMachineTest {
+
+	private static final int NUMBER_OF_MACHINES = 100000;
+
+	private final AtomicReference<Thread> actionThread = new AtomicReference<>();
+
+	/**
+	 * Fires an event on a machine created to run on virtual threads and returns the thread its
+	 * action ran on.
+	 */
+	private Thread runAction() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"runAction", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B).execute(sm -> actionThread.set(Thread.currentThread()));
+		final SimpleStateMachine<States, Events> machine = definition.createVirtualThreadStateMachine("machine");
+		machine.start();
+		machine.fire(Events.B);
+		while (!machine.isIdle()) {
+			Thread.sleep(1);
+		}
+		machine.terminate();
+		Assert.assertEquals(States.B, machine.getCurrentState());
+		return actionThread.get();
+	}
+
+	/**
+	 * The actions run on virtual threads if the runtime supports them.
+	 */
+	@Test
+	public void actionsRunOnVirtualThreads() throws Exception {
+		Assume.assumeTrue("The runtime has no virtual threads.", VirtualThreadExecutor.isVirtual());
+
+		final Thread thread = runAction();
+
+		Assert.assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+	}
+
+	/**
+	 * Without virtual threads the actions run on the daemon threads of the fallback pool.
+	 */
+	@Test
+	public void actionsRunOnTheFallbackPoolWithoutVirtualThreads() throws InterruptedException {
+		Assume.assumeFalse("The runtime has virtual threads.", VirtualThreadExecutor.isVirtual());
+
+		final Thread thread = runAction();
+
+		Assert.assertTrue(thread.getName(), thread.getName().startsWith("fsm-virtual-fallback-"));
+		Assert.assertTrue(thread.isDaemon());
+	}
+
+	/**
+	 * A hundred thousand machines can be started and process their events.
+	 */
+	@Test
+	public void startManyMachines() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>(
+				"startManyMachines", States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		definition.in(States.B).on(Events.C).goTo(States.C);
+
+		final List<SimpleStateMachine<States, Events>> machines = Lists.newArrayListWithCapacity(NUMBER_OF_MACHINES);
+		for (int i = 0; i < NUMBER_OF_MACHINES; i++) {
+			final SimpleStateMachine<States, Events> machine = definition.createVirtualThreadStateMachine("machine" + i);
+			machine.start();
+			machine.fire(Events.B);
+			machines.add(machine);
+		}
+		for (final SimpleStateMachine<States, Events> machine : machines) {
+			machine.fire(Events.C);
+		}
+
+		for (final SimpleStateMachine<States, Events> machine : machines) {
+			while (!machine.isIdle()) {
+				Thread.sleep(1);
+			}
+			Assert.assertEquals(States.C, machine.getCurrentState());
+			machine.terminate();
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package ch.bbv.fsm.impl.flow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ch.bbv.fsm.EventQueueOverflowPolicy;
+import ch.bbv.fsm.flow.CompletedTransition;
+import ch.bbv.fsm.flow.FiredEvent;
+import ch.bbv.fsm.flow.Flow;
+import ch.bbv.fsm.impl.SimpleStateMachine;
+import ch.bbv.fsm.impl.SimpleStateMachineDefinition;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+
+/**
+ * Tests the Reactive Streams adapters of the state machines.
+ */
+public class FlowAdapterTest {
+
+	private final List<Long> processed = Collections.synchronizedList(new ArrayList<Long>());
+
+	private final CountDownLatch entered = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private static SimpleStateMachineDefinition<States, Events> createCycle() {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("cycle",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.B);
+		definition.in(States.B).on(Events.C).goTo(States.C);
+		definition.in(States.C).on(Events.D).goTo(States.D);
+		definition.in(States.D).on(Events.A).goTo(States.A);
+		return definition;
+	}
+
+	/**
+	 * The subscriber requests events only while the queue of the machine has room, the next ones
+	 * are requested as the machine executes the queued ones.
+	 */
+	@Test
+	public void subscriberRequestsAsTheQueueDrains() throws InterruptedException {
+		final SimpleStateMachineDefinition<States, Events> definition = new SimpleStateMachineDefinition<>("intake",
+				States.A);
+		definition.in(States.A).on(Events.B).goTo(States.A).executeLong((sm, value) -> {
+			if (value == 0) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			processed.add(value);
+		});
+		final StateMachineSubscriber<SimpleStateMachine<States, Events>, States, Events> testee = new StateMachineSubscriber<>(
+				2);
+		definition.addEventHandler(testee, StateMachineSubscriber.INTERESTS);
+		final SimpleStateMachine<States, Events> stateMachine = definition.createActiveStateMachine("intake");
+		stateMachine.start();
+		testee.attach(stateMachine);
+		final EventSource source = new EventSource(20);
+
+		source.subscribe(testee);
+		entered.await();
+		Thread.sleep(10);
+
+		Assert.assertTrue(stateMachine.numberOfQueuedEvents() <= 2);
+		Assert.assertTrue("requested " + source.requested, source.requested <= 4);
+		release.countDown();
+		while (!testee.isCompleted() || !stateMachine.isIdle()) {
+			Thread.sleep(1);
+		}
+		stateMachine.terminate();
+
+		Assert.assertEquals(20, processed.size());
+		for (int i = 0; i < 20; i++) {
+			Assert.assertEquals(Long.valueOf(i), processed.get(i));
+		}
+	}
+
+	/**
+	 * Each subscriber receives the transitions as it requests them, a slow subscriber misses the
+	 * transitions that don't fit into its buffer.
+	 */
+	@Test
+	public void publisherBuffersPerSubscriber() {
+		final SimpleStateMachineDefinition<States, Events> definition = createCycle();
+		final TransitionPublisher<SimpleStateMachine<States, Events>, States, Events> testee = new TransitionPublisher<>(
+				2, EventQueueOverflowPolicy.DROP_OLDEST);
+		definition.addEventHandler(testee, TransitionPublisher.INTERESTS);
+		final SimpleStateMachine<States, Events> stateMachine = definition.createPassiveStateMachine("cycle");
+		stateMachine.start();
+		final TransitionCollector fast = new TransitionCollector(Long.MAX_VALUE);
+		final TransitionCollector slow = new TransitionCollector(1);
+		testee.subscribe(fast);
+		testee.subscribe(slow);
+
+		stateMachine.fire(Events.B);
+		stateMachine.fire(Events.C);
+		stateMachine.fire(Events.D);
+		stateMachine.fire(Events.A);
+		stateMachine.fire(Events.B);
+
+		Assert.assertEquals("[A -B-> B, B -C-> C, C -D-> D, D -A-> A, A -B-> B]", fast.transitions.toString());
+		Assert.assertEquals("[A -B-> B]", slow.transitions.toString());
+		slow.subscription.request(10);
+		Assert.assertEquals("[A -B-> B, D -A-> A, A -B-> B]", slow.transitions.toString());
+
+		testee.close();
+		Assert.assertTrue(fast.completed);
+		Assert.assertTrue(slow.completed);
+		Assert.assertEquals(0, testee.numberOfSubscribers());
+	}
+
+	/**
+	 * A subscriber that doesn't keep up fails with the reject policy, the others are not affected.
+	 */
+	@Test
+	public void fullBufferFailsTheSubscriber() {
+		final SimpleStateMachineDefinition<States, Events> definition = createCycle();
+		final TransitionPublisher<SimpleStateMachine<States, Events>, States, Events> testee = new TransitionPublisher<>(
+				1, EventQueueOverflowPolicy.REJECT);
+		definition.addEventHandler(testee, TransitionPublisher.INTERESTS);
+		final SimpleStateMachine<States, Events> stateMachine = definition.createPassiveStateMachine("cycle");
+		stateMachine.start();
+		final TransitionCollector fast = new TransitionCollector(Long.MAX_VALUE);
+		final TransitionCollector stuck = new TransitionCollector(0);
+		testee.subscribe(fast);
+		testee.subscribe(stuck);
+
+		stateMachine.fire(Events.B);
+		stateMachine.fire(Events.C);
+
+		Assert.assertTrue(stuck.error instanceof IllegalStateException);
+		Assert.assertEquals(2, fast.transitions.size());
+		Assert.assertEquals(1, testee.numberOfSubscribers());
+	}
+
+	/**
+	 * Publishes events as they are requested and completes after the last one.
+	 */
+	private static final class EventSource implements Flow.Publisher<FiredEvent<Events>> {
+
+		private final int count;
+
+		private volatile long requested;
+
+		private long demand;
+
+		private int next;
+
+		private boolean emitting;
+
+		EventSource(final int count) {
+			this.count = count;
+		}
+
+		@Override
+		public void subscribe(final Flow.Subscriber<? super FiredEvent<Events>> subscriber) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(final long n) {
+					synchronized (EventSource.this) {
+						requested += n;
+						demand += n;
+						if (emitting) {
+							return;
+						}
+						emitting = true;
+						while (demand > 0 && next < count) {
+							demand--;
+							subscriber.onNext(new FiredEvent<>(Events.B, (long) next++));
+						}
+						if (next == count) {
+							next++;
+							subscriber.onComplete();
+						}
+						emitting = false;
+					}
+				}
+
+				@Override
+				public void cancel() {
+					// not needed
+				}
+			});
+		}
+	}
+
+	/**
+	 * Collects the transitions it receives, requesting a fixed number up front.
+	 */
+	private static final class TransitionCollector implements
+			Flow.Subscriber<CompletedTransition<SimpleStateMachine<States, Events>, States, Events>> {
+
+		private final long initialRequest;
+
+		private final List<CompletedTransition<SimpleStateMachine<States, Events>, States, Events>> transitions = new ArrayList<>();
+
+		private Flow.Subscription subscription;
+
+		private boolean completed;
+
+		private Throwable error;
+
+		TransitionCollector(final long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(final Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(final CompletedTransition<SimpleStateMachine<States, Events>, States, Events> item) {
+			transitions.add(item);
+		}
+
+		@Override
+		public void onError(final Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+}
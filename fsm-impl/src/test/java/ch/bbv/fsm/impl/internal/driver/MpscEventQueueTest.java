@@ -0,0 +1,155 @@
+package ch.bbv.fsm.impl.internal.driver;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the lock-free event queues of the active state machine driver.
+ */
+public class MpscEventQueueTest {
+
+	private static final int PRODUCERS = 4;
+
+	private static final int EVENTS_PER_PRODUCER = 20000;
+
+	/**
+	 * Priority events are polled before normal events, the most recent first.
+	 */
+	@Test
+	public void priorityEventsArePolledFirst() {
+		final MpscEventQueue<String> queue = MpscEventQueue.unbounded();
+		queue.offer(event("a"));
+		queue.offer(event("b"));
+		queue.offerPriority(event("p1"));
+		queue.offerPriority(event("p2"));
+
+		Assert.assertEquals(4, queue.size());
+		Assert.assertEquals("p2", queue.poll().getEventId());
+		Assert.assertEquals("p1", queue.poll().getEventId());
+		Assert.assertEquals("a", queue.poll().getEventId());
+		Assert.assertEquals("b", queue.poll().getEventId());
+		Assert.assertNull(queue.poll());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * A bounded queue is rounded up to a power of two and rejects events when full.
+	 */
+	@Test
+	public void boundedQueueRejectsEventsWhenFull() {
+		final RingMpscEventQueue<String> queue = new RingMpscEventQueue<>(3);
+		Assert.assertEquals(4, queue.capacity());
+		for (int i = 0; i < 4; i++) {
+			Assert.assertTrue(queue.offer(event("e" + i)));
+		}
+		Assert.assertFalse(queue.offer(event("overflow")));
+
+		Assert.assertEquals("e0", queue.poll().getEventId());
+		Assert.assertTrue(queue.offer(event("e4")));
+		for (int i = 1; i <= 4; i++) {
+			Assert.assertEquals("e" + i, queue.poll().getEventId());
+		}
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * A chain is queued behind the queued events, a ring only takes it if all events fit.
+	 */
+	@Test
+	public void chainIsQueuedAsAWhole() {
+		for (final MpscEventQueue<String> queue : Lists.newArrayList(MpscEventQueue.<String> unbounded(),
+				MpscEventQueue.<String> bounded(4))) {
+			queue.offer(event("a"));
+			final EventInformation<String> first = event("b");
+			final EventInformation<String> last = event("d");
+			first.setNext(event("c"));
+			first.getNext().setNext(last);
+			Assert.assertTrue(queue.offerAll(first, last, 3));
+
+			final EventInformation<String> overflow = event("e");
+			overflow.setNext(event("f"));
+			Assert.assertEquals(queue instanceof LinkedMpscEventQueue, queue.offerAll(overflow, overflow.getNext(), 2));
+			Assert.assertEquals("a", queue.poll().getEventId());
+			Assert.assertEquals("b", queue.poll().getEventId());
+			Assert.assertEquals("c", queue.poll().getEventId());
+			Assert.assertEquals("d", queue.poll().getEventId());
+			if (queue instanceof LinkedMpscEventQueue) {
+				Assert.assertEquals("e", queue.poll().getEventId());
+				Assert.assertEquals("f", queue.poll().getEventId());
+			}
+			Assert.assertNull(queue.poll());
+		}
+	}
+
+	/**
+	 * Events of concurrent producers arrive complete and in per producer order.
+	 */
+	@Test
+	public void linkedQueueKeepsOrderOfEachProducer() throws InterruptedException {
+		assertOrderOfEachProducer(MpscEventQueue.<String> unbounded());
+	}
+
+	/**
+	 * Events of concurrent producers arrive complete and in per producer order.
+	 */
+	@Test
+	public void ringQueueKeepsOrderOfEachProducer() throws InterruptedException {
+		assertOrderOfEachProducer(MpscEventQueue.<String> bounded(256));
+	}
+
+	private static void assertOrderOfEachProducer(final MpscEventQueue<String> queue)
+			throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> producers = Lists.newArrayList();
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int producer = p;
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+						final EventInformation<String> e = event(producer + ":" + i);
+						while (!queue.offer(e)) {
+							Thread.yield();
+						}
+					}
+				}
+			});
+			thread.start();
+			producers.add(thread);
+		}
+		start.countDown();
+
+		final int[] next = new int[PRODUCERS];
+		int received = 0;
+		while (received < PRODUCERS * EVENTS_PER_PRODUCER) {
+			final EventInformation<String> e = queue.poll();
+			if (e == null) {
+				Thread.yield();
+				continue;
+			}
+			final String[] parts = e.getEventId().split(":");
+			final int producer = Integer.parseInt(parts[0]);
+			Assert.assertEquals(next[producer], Integer.parseInt(parts[1]));
+			next[producer]++;
+			received++;
+		}
+		for (final Thread thread : producers) {
+			thread.join();
+		}
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	private static EventInformation<String> event(final String eventId) {
+		return new EventInformation<>(eventId, new Object[0]);
+	}
+}
@@ -0,0 +1,101 @@
+package ch.bbv.fsm.impl.internal.statemachine.transition;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.bbv.fsm.impl.SimpleStateMachine;
+import ch.bbv.fsm.impl.StatesAndEvents.Events;
+import ch.bbv.fsm.impl.StatesAndEvents.States;
+import ch.bbv.fsm.impl.internal.statemachine.state.InternalState;
+import ch.bbv.fsm.impl.internal.statemachine.state.StateDictionary;
+
+/**
+ * Tests the exit and entry paths computed for a transition.
+ */
+public class CompiledTransitionTest {
+
+	private StateDictionary<SimpleStateMachine<States, Events>, States, Events> states;
+
+	@Before
+	public void setUp() {
+		states = new StateDictionary<>();
+		defineSubStates(States.D, States.D1, States.D2);
+		defineSubStates(States.D1, States.D1a, States.D1b);
+	}
+
+	/**
+	 * Sub-states of the source are exited before the source.
+	 */
+	@Test
+	public void transitionToSiblingExitsSubStatesOfSource() {
+		final CompiledTransition<SimpleStateMachine<States, Events>, States, Events> testee = compile(States.D1,
+				States.D2, States.D1a);
+
+		assertPath(testee.getExitPath(), States.D1a, States.D1);
+		assertPath(testee.getEntryPath(), States.D2);
+	}
+
+	/**
+	 * All super states are exited when leaving the hierarchy.
+	 */
+	@Test
+	public void transitionToRootStateExitsAllSuperStates() {
+		final CompiledTransition<SimpleStateMachine<States, Events>, States, Events> testee = compile(States.D1b,
+				States.E, States.D1b);
+
+		assertPath(testee.getExitPath(), States.D1b, States.D1, States.D);
+		assertPath(testee.getEntryPath(), States.E);
+	}
+
+	/**
+	 * The states down to a nested target are entered from the top.
+	 */
+	@Test
+	public void transitionIntoSubStateEntersFromTheTop() {
+		final CompiledTransition<SimpleStateMachine<States, Events>, States, Events> testee = compile(States.D,
+				States.D1b, States.D2);
+
+		assertPath(testee.getExitPath(), States.D2);
+		assertPath(testee.getEntryPath(), States.D1, States.D1b);
+	}
+
+	/**
+	 * A self transition exits and enters the state.
+	 */
+	@Test
+	public void selfTransitionExitsAndEntersTheState() {
+		final CompiledTransition<SimpleStateMachine<States, Events>, States, Events> testee = compile(States.D1,
+				States.D1, States.D1b);
+
+		assertPath(testee.getExitPath(), States.D1b, States.D1);
+		assertPath(testee.getEntryPath(), States.D1);
+	}
+
+	private CompiledTransition<SimpleStateMachine<States, Events>, States, Events> compile(final States source,
+			final States target, final States origin) {
+		final TransitionImpl<SimpleStateMachine<States, Events>, States, Events> transition = new TransitionImpl<>();
+		transition.setSource(states.getState(source));
+		transition.setTarget(states.getState(target));
+		return transition.compile(states.getState(origin));
+	}
+
+	private void defineSubStates(final States superStateId, final States... subStateIds) {
+		final InternalState<SimpleStateMachine<States, Events>, States, Events> superState = states
+				.getState(superStateId);
+		for (final States subStateId : subStateIds) {
+			final InternalState<SimpleStateMachine<States, Events>, States, Events> subState = states
+					.getState(subStateId);
+			subState.setSuperState(superState);
+			superState.addSubState(subState);
+		}
+	}
+
+	private static void assertPath(final InternalState<SimpleStateMachine<States, Events>, States, Events>[] path,
+			final States... expected) {
+		Assert.assertEquals(expected.length, path.length);
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals(expected[i], path[i].getId());
+		}
+	}
+}
@@ -1,24 +1,42 @@
 package ch.bbv.fsm.impl.transfer.generator;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalToIgnoringWhiteSpace;
 import static org.hamcrest.Matchers.is;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.Charset;
+import java.util.Map;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import ch.bbv.fsm.impl.transfer.GeneratorException;
+import ch.bbv.fsm.impl.transfer.model.PseudostateKinds;
+import ch.bbv.fsm.impl.transfer.model.RegionModel;
 import ch.bbv.fsm.impl.transfer.model.StateMachineModel;
+import ch.bbv.fsm.impl.transfer.model.TransitionModel;
 import ch.bbv.fsm.impl.transfer.xmi.XmiModelReader;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 
 public class SingleFsmGeneratorTest {
 
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void convertSimpleEmitsCorrectJavaCode() throws Exception {
 		// Arrange
@@ -64,4 +82,154 @@ public class SingleFsmGeneratorTest {
 					Charset.forName("windows-1252"));
 		}
 	}
+
+	@Test
+	public void convertSimpleStandaloneEmitsSwitchCode() throws Exception {
+		// Arrange
+		String expectedJavaCodeString = Resources.toString(
+				this.getClass().getResource("/ch/bbv/fsm/impl/transfer/testfsms/AbstractSimpleFsm.java"),
+				Charset.forName("windows-1252"));
+
+		StateMachineModel stateMachineModel = XmiModelReader.readFromUrl(
+				this.getClass().getResource("/StateDiagramTests.xmi"), "Simple");
+
+		// Act
+		String javaCode = SingleFsmGenerator.model2Java(stateMachineModel, "ch.bbv.fsm.impl.transfer.testfsms",
+				"SimpleFsm", SingleFsmGenerator.Mode.STANDALONE);
+
+		// Assert
+		assertThat(javaCode, is(equalToIgnoringWhiteSpace(expectedJavaCodeString)));
+		assertCompiles("AbstractSimpleFsm", javaCode);
+	}
+
+	@Test
+	public void generatedStandaloneFsmFiresTransitions() throws Exception {
+		// Arrange
+		StateMachineModel stateMachineModel = XmiModelReader.readFromUrl(
+				this.getClass().getResource("/StateDiagramTests.xmi"), "Simple");
+		String javaCode = SingleFsmGenerator.model2Java(stateMachineModel, "ch.bbv.fsm.impl.transfer.testfsms",
+				"SimpleFsm", SingleFsmGenerator.Mode.STANDALONE);
+		String driverCode = "package ch.bbv.fsm.impl.transfer.testfsms;\n" //
+				+ "public class SimpleFsmDriver extends AbstractSimpleFsm {\n" //
+				+ "\tpublic String calls = \"\";\n" //
+				+ "\tpublic boolean recentlyUsed = true;\n" //
+				+ "\tprotected void turnOn() { calls += \"turnOn \"; }\n" //
+				+ "\tprotected void turnOff() { calls += \"turnOff \"; }\n" //
+				+ "\tprotected boolean notRecentlyUsed() { return !recentlyUsed; }\n" //
+				+ "\tpublic boolean fire(String event) { return fire(Events.valueOf(event)); }\n" //
+				+ "\tpublic String state() { return getCurrentState().name(); }\n" //
+				+ "}\n";
+		Object fsm = compile(ImmutableMap.of("AbstractSimpleFsm", javaCode, "SimpleFsmDriver", driverCode))
+				.loadClass("ch.bbv.fsm.impl.transfer.testfsms.SimpleFsmDriver").newInstance();
+
+		// Act & Assert
+		assertThat(state(fsm), is("Off"));
+		assertThat(fire(fsm, "toggle"), is(true));
+		assertThat(state(fsm), is("On"));
+		assertThat(fire(fsm, "toggle"), is(false));
+		assertThat(state(fsm), is("On"));
+		fsm.getClass().getField("recentlyUsed").set(fsm, false);
+		assertThat(fire(fsm, "toggle"), is(true));
+		assertThat(state(fsm), is("Off"));
+		assertThat(fsm.getClass().getField("calls").get(fsm), is((Object) "turnOn turnOff "));
+	}
+
+	@Test
+	public void convertInternalTransitionStandaloneKeepsState() throws Exception {
+		// Arrange
+		StateMachineModel stateMachineModel = new StateMachineModel("machine", "Internal");
+		RegionModel region = stateMachineModel.addNewRegion("region", "Region");
+		region.addNewPseudoState("initial", "Initial", PseudostateKinds.Initial);
+		region.addNewState("idle", "Idle");
+		region.addNewState("busy", "Busy");
+		stateMachineModel.addNewTrigger("startTrigger", "Start");
+		stateMachineModel.addNewTrigger("tickTrigger", "Tick");
+		region.addNewTransition("initialTransition", "initial", "idle");
+		region.addNewTransition("startTransition", "idle", "busy").setTriggerGuid("startTrigger");
+		TransitionModel tick = region.addNewTransition("tickTransition", "busy", null);
+		tick.setTriggerGuid("tickTrigger");
+		tick.setEffect("count()");
+
+		// Act
+		String javaCode = SingleFsmGenerator.model2Java(stateMachineModel, "ch.bbv.fsm.impl.transfer.testfsms",
+				"InternalFsm", SingleFsmGenerator.Mode.STANDALONE);
+
+		// Assert
+		assertThat(javaCode, containsString("case Tick:\n\t\t\t\tcount();\n\t\t\t\treturn true;\n"));
+		assertCompiles("AbstractInternalFsm", javaCode);
+	}
+
+	@Test
+	public void generatedInternalTransitionKeepsStateAndRunsEffect() throws Exception {
+		// Arrange
+		StateMachineModel stateMachineModel = new StateMachineModel("machine", "Internal");
+		RegionModel region = stateMachineModel.addNewRegion("region", "Region");
+		region.addNewPseudoState("initial", "Initial", PseudostateKinds.Initial);
+		region.addNewState("idle", "Idle");
+		region.addNewState("busy", "Busy");
+		stateMachineModel.addNewTrigger("startTrigger", "Start");
+		stateMachineModel.addNewTrigger("tickTrigger", "Tick");
+		region.addNewTransition("initialTransition", "initial", "idle");
+		region.addNewTransition("startTransition", "idle", "busy").setTriggerGuid("startTrigger");
+		TransitionModel tick = region.addNewTransition("tickTransition", "busy", null);
+		tick.setTriggerGuid("tickTrigger");
+		tick.setEffect("count()");
+		String javaCode = SingleFsmGenerator.model2Java(stateMachineModel, "ch.bbv.fsm.impl.transfer.testfsms",
+				"InternalFsm", SingleFsmGenerator.Mode.STANDALONE);
+		String driverCode = "package ch.bbv.fsm.impl.transfer.testfsms;\n" //
+				+ "public class InternalFsmDriver extends AbstractInternalFsm {\n" //
+				+ "\tpublic int count;\n" //
+				+ "\tprotected void count() { count++; }\n" //
+				+ "\tpublic boolean fire(String event) { return fire(Events.valueOf(event)); }\n" //
+				+ "\tpublic String state() { return getCurrentState().name(); }\n" //
+				+ "}\n";
+		Object fsm = compile(ImmutableMap.of("AbstractInternalFsm", javaCode, "InternalFsmDriver", driverCode))
+				.loadClass("ch.bbv.fsm.impl.transfer.testfsms.InternalFsmDriver").newInstance();
+
+		// Act & Assert
+		assertThat(fire(fsm, "Tick"), is(false));
+		assertThat(state(fsm), is("Idle"));
+		assertThat(fire(fsm, "Start"), is(true));
+		assertThat(fire(fsm, "Tick"), is(true));
+		assertThat(fire(fsm, "Tick"), is(true));
+		assertThat(state(fsm), is("Busy"));
+		assertThat(fsm.getClass().getField("count").get(fsm), is((Object) 2));
+	}
+
+	private void assertCompiles(String className, String javaCode) throws IOException {
+		compile(ImmutableMap.of(className, javaCode));
+	}
+
+	/**
+	 * Compiles the sources, keyed by class name, into a class loader of their own.
+	 */
+	private ClassLoader compile(Map<String, String> sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+		File sourceFolder = folder.newFolder();
+		File classes = folder.newFolder();
+		String[] arguments = new String[sources.size() + 2];
+		arguments[0] = "-d";
+		arguments[1] = classes.getPath();
+		int i = 2;
+		for (Map.Entry<String, String> entry : sources.entrySet()) {
+			File source = new File(sourceFolder, entry.getKey() + ".java");
+			Files.write(entry.getValue(), source, Charset.forName("windows-1252"));
+			arguments[i++] = source.getPath();
+		}
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+		int result = compiler.run(null, null, errors, arguments);
+
+		assertThat(errors.toString(), result, is(0));
+		return new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	private static boolean fire(Object fsm, String event) throws Exception {
+		return (Boolean) fsm.getClass().getMethod("fire", String.class).invoke(fsm, event);
+	}
+
+	private static String state(Object fsm) throws Exception {
+		return (String) fsm.getClass().getMethod("state").invoke(fsm);
+	}
 }
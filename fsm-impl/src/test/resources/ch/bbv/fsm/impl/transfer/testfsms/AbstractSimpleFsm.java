@@ -0,0 +1,59 @@
+package ch.bbv.fsm.impl.transfer.testfsms;
+
+// =============================
+// Generated file. DO NOT TOUCH!
+// =============================
+
+enum States {
+	Initial, //
+	Off, //
+	On
+}
+
+enum Events {
+	toggle
+}
+
+public abstract class AbstractSimpleFsm {
+
+	private States state = States.Off;
+
+	public final States getCurrentState() {
+		return state;
+	}
+
+	public final boolean fire(Events event) {
+		switch (state) {
+		case Off:
+			switch (event) {
+			case toggle:
+				turnOn();
+				state = States.On;
+				return true;
+			default:
+				return false;
+			}
+		case On:
+			switch (event) {
+			case toggle:
+				if (notRecentlyUsed()) {
+					turnOff();
+					state = States.Off;
+					return true;
+				}
+				return false;
+			default:
+				return false;
+			}
+		default:
+			return false;
+		}
+	}
+
+	protected abstract void turnOn();
+
+	protected abstract void turnOff();
+
+	protected abstract boolean notRecentlyUsed();
+
+}
@@ -0,0 +1,389 @@
+package ch.bbv.fsm.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import ch.bbv.fsm.table.DefinitionTable;
+import ch.bbv.fsm.table.Hierarchy;
+import ch.bbv.fsm.table.StateActions;
+import ch.bbv.fsm.table.StateMachineTable;
+import ch.bbv.fsm.table.Transition;
+
+/**
+ * Generates a {@link StateMachineTable} for each state machine definition
+ * annotated with {@link DefinitionTable}. The names of the states, events and
+ * methods are resolved at build time, errors are reported on the annotated
+ * definition.
+ */
+@SupportedAnnotationTypes("ch.bbv.fsm.table.DefinitionTable")
+public class DefinitionTableProcessor extends AbstractProcessor {
+
+	private static final String DEFINITION_TYPE = "ch.bbv.fsm.impl.AbstractStateMachineDefinition";
+
+	/**
+	 * Suffix of the generated table classes.
+	 */
+	static final String TABLE_SUFFIX = "Table";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations,
+			final RoundEnvironment roundEnv) {
+		for (final Element element : roundEnv
+				.getElementsAnnotatedWith(DefinitionTable.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				error(element, "@DefinitionTable is only allowed on state machine definitions");
+			} else {
+				process((TypeElement) element);
+			}
+		}
+		return true;
+	}
+
+	private void process(final TypeElement definition) {
+		final List<? extends TypeMirror> typeArguments = definitionTypeArguments(definition
+				.asType());
+		if (typeArguments == null) {
+			error(definition, "%s does not extend %s", definition.getSimpleName(),
+					DEFINITION_TYPE);
+			return;
+		}
+		final List<String> states = enumConstants(typeArguments.get(1));
+		final List<String> events = enumConstants(typeArguments.get(2));
+		if (states == null || events == null
+				|| typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+			error(definition,
+					"The state machine, states and events of %s must be concrete types",
+					definition.getSimpleName());
+			return;
+		}
+
+		final TableWriter table = new TableWriter(this.processingEnv
+				.getElementUtils().getPackageOf(definition).getQualifiedName()
+				.toString(), tableName(definition), definition.getQualifiedName()
+				.toString(), typeArguments.get(0).toString(), typeArguments.get(1)
+				.toString(), typeArguments.get(2).toString(), states.size());
+		final Resolver resolver = new Resolver(definition,
+				(DeclaredType) typeArguments.get(0), states, events);
+		final DefinitionTable annotation = definition
+				.getAnnotation(DefinitionTable.class);
+
+		for (final Hierarchy hierarchy : annotation.hierarchies()) {
+			resolver.hierarchy(table, hierarchy);
+		}
+		resolver.checkHierarchyIsAcyclic(table);
+		for (final StateActions stateActions : annotation.states()) {
+			resolver.stateActions(table, stateActions);
+		}
+		for (final Transition transition : annotation.transitions()) {
+			resolver.transition(table, transition);
+		}
+
+		if (resolver.isValid()) {
+			write(definition, table);
+		}
+	}
+
+	private void write(final TypeElement definition, final TableWriter table) {
+		try {
+			final JavaFileObject file = this.processingEnv.getFiler()
+					.createSourceFile(table.getQualifiedName(), definition);
+			try (Writer writer = file.openWriter()) {
+				table.write(writer);
+			}
+		} catch (final IOException e) {
+			error(definition, "Could not write %s: %s", table.getQualifiedName(),
+					e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the type arguments the definition passes to the abstract
+	 * definition, <code>null</code> if it isn't a definition.
+	 */
+	private List<? extends TypeMirror> definitionTypeArguments(
+			final TypeMirror type) {
+		for (final TypeMirror supertype : this.processingEnv.getTypeUtils()
+				.directSupertypes(type)) {
+			if (supertype.getKind() != TypeKind.DECLARED) {
+				continue;
+			}
+			final TypeElement element = (TypeElement) ((DeclaredType) supertype)
+					.asElement();
+			if (element.getQualifiedName().contentEquals(DEFINITION_TYPE)) {
+				return ((DeclaredType) supertype).getTypeArguments();
+			}
+			if (element.getKind() == ElementKind.CLASS) {
+				return definitionTypeArguments(supertype);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the constants of an enum in ordinal order, <code>null</code> if
+	 * the type isn't an enum.
+	 */
+	private static List<String> enumConstants(final TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED
+				|| ((DeclaredType) type).asElement().getKind() != ElementKind.ENUM) {
+			return null;
+		}
+		final List<String> constants = new ArrayList<>();
+		for (final Element element : ((DeclaredType) type).asElement()
+				.getEnclosedElements()) {
+			if (element.getKind() == ElementKind.ENUM_CONSTANT) {
+				constants.add(element.getSimpleName().toString());
+			}
+		}
+		return constants;
+	}
+
+	/**
+	 * The generated table is named after the definition, nested definitions
+	 * are prefixed with their enclosing types.
+	 */
+	private static String tableName(final TypeElement definition) {
+		String name = definition.getSimpleName().toString();
+		Element enclosing = definition.getEnclosingElement();
+		while (enclosing.getKind().isClass() || enclosing.getKind().isInterface()) {
+			name = enclosing.getSimpleName() + "_" + name;
+			enclosing = enclosing.getEnclosingElement();
+		}
+		return name + TABLE_SUFFIX;
+	}
+
+	private void error(final Element element, final String format,
+			final Object... args) {
+		this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+				String.format(format, args), element);
+	}
+
+	/**
+	 * Resolves the names of one annotated definition into ordinals and
+	 * method calls.
+	 */
+	private final class Resolver {
+
+		private final TypeElement definition;
+		private final DeclaredType stateMachine;
+		private final List<String> states;
+		private final List<String> events;
+		private final String[] superStatesDefinedBy;
+		private boolean valid = true;
+
+		Resolver(final TypeElement definition, final DeclaredType stateMachine,
+				final List<String> states, final List<String> events) {
+			this.definition = definition;
+			this.stateMachine = stateMachine;
+			this.states = states;
+			this.events = events;
+			this.superStatesDefinedBy = new String[states.size()];
+		}
+
+		boolean isValid() {
+			return this.valid;
+		}
+
+		void hierarchy(final TableWriter table, final Hierarchy hierarchy) {
+			final int superState = state(hierarchy.superState());
+			final int initialSubState = state(hierarchy.initialSubState());
+			if (superState < 0 || initialSubState < 0) {
+				return;
+			}
+			if (table.getInitialSubState(superState) != StateMachineTable.NO_STATE) {
+				fail("The hierarchy of %s is defined twice", hierarchy.superState());
+				return;
+			}
+			if (!Arrays.asList(hierarchy.subStates()).contains(
+					hierarchy.initialSubState())) {
+				fail("The initial sub state %s is not a sub state of %s",
+						hierarchy.initialSubState(), hierarchy.superState());
+			}
+			table.setHierarchy(superState, initialSubState, hierarchy.history());
+			for (final String name : hierarchy.subStates()) {
+				final int subState = state(name);
+				if (subState < 0) {
+					continue;
+				}
+				if (subState == superState) {
+					fail("%s can't be a sub state of itself", name);
+				} else if (this.superStatesDefinedBy[subState] != null) {
+					fail("%s is a sub state of both %s and %s", name,
+							this.superStatesDefinedBy[subState],
+							hierarchy.superState());
+				} else {
+					this.superStatesDefinedBy[subState] = hierarchy.superState();
+					table.setSuperState(subState, superState);
+				}
+			}
+		}
+
+		void checkHierarchyIsAcyclic(final TableWriter table) {
+			for (int state = 0; state < this.states.size(); state++) {
+				int superState = table.getSuperState(state);
+				for (int depth = 0; superState != StateMachineTable.NO_STATE; depth++) {
+					if (depth == this.states.size()) {
+						fail("The hierarchy of %s is cyclic", this.states.get(state));
+						return;
+					}
+					superState = table.getSuperState(superState);
+				}
+			}
+		}
+
+		void stateActions(final TableWriter table, final StateActions stateActions) {
+			final int state = state(stateActions.state());
+			if (state < 0) {
+				return;
+			}
+			if (table.hasActions(state)) {
+				fail("The actions of %s are defined twice", stateActions.state());
+				return;
+			}
+			table.setActions(state, action(stateActions.entry()),
+					action(stateActions.exit()));
+		}
+
+		void transition(final TableWriter table, final Transition transition) {
+			final int source = state(transition.source());
+			final int event = event(transition.event());
+			final int target = transition.target().isEmpty() ? StateMachineTable.NO_STATE
+					: state(transition.target());
+			final String guard = guard(transition.guard());
+			final List<String> actions = new ArrayList<>();
+			for (final String action : transition.actions()) {
+				actions.add(action(action));
+			}
+			table.addTransition(source, event, target, guard, actions);
+		}
+
+		private int state(final String name) {
+			final int ordinal = this.states.indexOf(name);
+			if (ordinal < 0) {
+				fail("Unknown state %s", name);
+			}
+			return ordinal;
+		}
+
+		private int event(final String name) {
+			final int ordinal = this.events.indexOf(name);
+			if (ordinal < 0) {
+				fail("Unknown event %s", name);
+			}
+			return ordinal;
+		}
+
+		/**
+		 * Returns the lambda calling the action, <code>null</code> if there is
+		 * none.
+		 */
+		private String action(final String name) {
+			if (name.isEmpty()) {
+				return null;
+			}
+			for (final ExecutableElement method : methods(name)) {
+				if (method.getParameters().isEmpty()) {
+					return "stateMachine -> stateMachine." + name + "()";
+				}
+			}
+			fail("%s has no accessible action method %s()",
+					this.stateMachine.asElement().getSimpleName(), name);
+			return null;
+		}
+
+		/**
+		 * Returns the lambda calling the guard, <code>null</code> if there is
+		 * none.
+		 */
+		private String guard(final String name) {
+			if (name.isEmpty()) {
+				return null;
+			}
+			final TypeMirror arguments = processingEnv.getTypeUtils()
+					.getArrayType(
+							processingEnv.getElementUtils()
+									.getTypeElement(Object.class.getName())
+									.asType());
+			for (final ExecutableElement method : methods(name)) {
+				if (!isBoolean(method.getReturnType())) {
+					continue;
+				}
+				if (method.getParameters().isEmpty()) {
+					return "(stateMachine, arguments) -> stateMachine." + name
+							+ "()";
+				}
+				if (method.getParameters().size() == 1
+						&& processingEnv.getTypeUtils().isSameType(arguments,
+								method.getParameters().get(0).asType())) {
+					return "(stateMachine, arguments) -> stateMachine." + name
+							+ "(arguments)";
+				}
+			}
+			fail("%s has no accessible guard method boolean %s() or boolean %s(Object[])",
+					this.stateMachine.asElement().getSimpleName(), name, name);
+			return null;
+		}
+
+		private boolean isBoolean(final TypeMirror type) {
+			return type.getKind() == TypeKind.BOOLEAN
+					|| type.toString().equals(Boolean.class.getName());
+		}
+
+		/**
+		 * Returns the instance methods of the state machine with the given
+		 * name that the generated table can call.
+		 */
+		private List<ExecutableElement> methods(final String name) {
+			final List<ExecutableElement> methods = new ArrayList<>();
+			for (final Element member : processingEnv.getElementUtils()
+					.getAllMembers((TypeElement) this.stateMachine.asElement())) {
+				if (member.getKind() == ElementKind.METHOD
+						&& member.getSimpleName().contentEquals(name)
+						&& !member.getModifiers().contains(Modifier.STATIC)
+						&& isAccessible(member)) {
+					methods.add((ExecutableElement) member);
+				}
+			}
+			return methods;
+		}
+
+		private boolean isAccessible(final Element member) {
+			if (member.getModifiers().contains(Modifier.PUBLIC)) {
+				return true;
+			}
+			return !member.getModifiers().contains(Modifier.PRIVATE)
+					&& processingEnv.getElementUtils().getPackageOf(member)
+							.equals(processingEnv.getElementUtils().getPackageOf(
+									this.definition));
+		}
+
+		private void fail(final String format, final Object... args) {
+			this.valid = false;
+			error(this.definition, format, args);
+		}
+	}
+}
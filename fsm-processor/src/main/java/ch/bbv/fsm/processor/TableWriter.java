@@ -0,0 +1,232 @@
+package ch.bbv.fsm.processor;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.table.StateMachineTable;
+
+/**
+ * Collects the resolved table of a definition and writes it as Java source.
+ * Everything is referenced by its fully qualified name so the generated class
+ * doesn't depend on the imports of its package.
+ */
+final class TableWriter {
+
+	private static final String TABLE = "ch.bbv.fsm.table.StateMachineTable";
+	private static final String ACTION = "ch.bbv.fsm.action.FsmAction0";
+	private static final String GUARD = "ch.bbv.fsm.guard.Function";
+	private static final String HISTORY_TYPE = "ch.bbv.fsm.HistoryType";
+
+	private final String packageName;
+	private final String simpleName;
+	private final String definition;
+	private final String stateMachineType;
+	private final String stateType;
+	private final String eventType;
+
+	private final int[] superStates;
+	private final int[] initialSubStates;
+	private final HistoryType[] historyTypes;
+	private final String[] entryActions;
+	private final String[] exitActions;
+	private final boolean[] hasActions;
+
+	private final List<Integer> transitionSources = new ArrayList<>();
+	private final List<Integer> transitionEvents = new ArrayList<>();
+	private final List<Integer> transitionTargets = new ArrayList<>();
+	private final List<String> transitionGuards = new ArrayList<>();
+	private final List<List<String>> transitionActions = new ArrayList<>();
+
+	TableWriter(final String packageName, final String simpleName,
+			final String definition, final String stateMachineType,
+			final String stateType, final String eventType, final int stateCount) {
+		this.packageName = packageName;
+		this.simpleName = simpleName;
+		this.definition = definition;
+		this.stateMachineType = stateMachineType;
+		this.stateType = stateType;
+		this.eventType = eventType;
+		this.superStates = new int[stateCount];
+		this.initialSubStates = new int[stateCount];
+		this.historyTypes = new HistoryType[stateCount];
+		this.entryActions = new String[stateCount];
+		this.exitActions = new String[stateCount];
+		this.hasActions = new boolean[stateCount];
+		Arrays.fill(this.superStates, StateMachineTable.NO_STATE);
+		Arrays.fill(this.initialSubStates, StateMachineTable.NO_STATE);
+		Arrays.fill(this.historyTypes, HistoryType.NONE);
+	}
+
+	String getQualifiedName() {
+		return this.packageName.isEmpty() ? this.simpleName : this.packageName
+				+ "." + this.simpleName;
+	}
+
+	int getSuperState(final int state) {
+		return this.superStates[state];
+	}
+
+	int getInitialSubState(final int state) {
+		return this.initialSubStates[state];
+	}
+
+	boolean hasActions(final int state) {
+		return this.hasActions[state];
+	}
+
+	void setHierarchy(final int superState, final int initialSubState,
+			final HistoryType historyType) {
+		this.initialSubStates[superState] = initialSubState;
+		this.historyTypes[superState] = historyType;
+	}
+
+	void setSuperState(final int subState, final int superState) {
+		this.superStates[subState] = superState;
+	}
+
+	void setActions(final int state, final String entryAction,
+			final String exitAction) {
+		this.hasActions[state] = true;
+		this.entryActions[state] = entryAction;
+		this.exitActions[state] = exitAction;
+	}
+
+	void addTransition(final int source, final int event, final int target,
+			final String guard, final List<String> actions) {
+		this.transitionSources.add(source);
+		this.transitionEvents.add(event);
+		this.transitionTargets.add(target);
+		this.transitionGuards.add(guard);
+		this.transitionActions.add(actions);
+	}
+
+	void write(final Writer writer) {
+		final String generics = "<" + this.stateMachineType + ", "
+				+ this.stateType + ", " + this.eventType + ">";
+		final String action = ACTION + generics;
+		final String guard = GUARD + "<" + this.stateMachineType + ", "
+				+ this.stateType + ", " + this.eventType
+				+ ", java.lang.Object[], java.lang.Boolean>";
+
+		final PrintWriter out = new PrintWriter(writer);
+		if (!this.packageName.isEmpty()) {
+			out.println("package " + this.packageName + ";");
+			out.println();
+		}
+		out.println("/**");
+		out.println(" * Precomputed table of {@link " + this.definition + "}.");
+		out.println(" * Generated by the bbvfsm definition table processor, do not edit.");
+		out.println(" */");
+		out.println("final class " + this.simpleName + " implements " + TABLE
+				+ generics + " {");
+		out.println();
+		out.println("\t/**");
+		out.println("\t * The table of {@link " + this.definition + "}.");
+		out.println("\t */");
+		out.println("\tstatic final " + this.simpleName + " INSTANCE = new "
+				+ this.simpleName + "();");
+		out.println();
+		field(out, "int[]", "SUPER_STATES", ints(this.superStates));
+		field(out, "int[]", "INITIAL_SUB_STATES", ints(this.initialSubStates));
+		final List<String> historyTypeNames = new ArrayList<>();
+		for (final HistoryType historyType : this.historyTypes) {
+			historyTypeNames.add(HISTORY_TYPE + "." + historyType.name());
+		}
+		field(out, HISTORY_TYPE + "[]", "HISTORY_TYPES", historyTypeNames);
+		uncheckedField(out, action + "[]", "ENTRY_ACTIONS", ACTION,
+				calls(action, Arrays.asList(this.entryActions)));
+		uncheckedField(out, action + "[]", "EXIT_ACTIONS", ACTION,
+				calls(action, Arrays.asList(this.exitActions)));
+		field(out, "int[]", "TRANSITION_SOURCES",
+				ints(this.transitionSources));
+		field(out, "int[]", "TRANSITION_EVENTS",
+				ints(this.transitionEvents));
+		field(out, "int[]", "TRANSITION_TARGETS",
+				ints(this.transitionTargets));
+		uncheckedField(out, guard + "[]", "TRANSITION_GUARDS", GUARD,
+				calls(guard, this.transitionGuards));
+		final List<String> actions = new ArrayList<>();
+		for (final List<String> transitionActions : this.transitionActions) {
+			actions.add("{ " + String.join(", ", calls(action, transitionActions))
+					+ " }");
+		}
+		uncheckedField(out, action + "[][]", "TRANSITION_ACTIONS", ACTION
+				+ "[]", actions);
+
+		out.println("\tprivate " + this.simpleName + "() {");
+		out.println("\t}");
+		getter(out, "java.lang.Class<" + this.stateType + ">", "getStateType",
+				this.stateType + ".class");
+		getter(out, "java.lang.Class<" + this.eventType + ">", "getEventType",
+				this.eventType + ".class");
+		getter(out, "int[]", "getSuperStates", "SUPER_STATES");
+		getter(out, "int[]", "getInitialSubStates", "INITIAL_SUB_STATES");
+		getter(out, HISTORY_TYPE + "[]", "getHistoryTypes", "HISTORY_TYPES");
+		getter(out, action + "[]", "getEntryActions", "ENTRY_ACTIONS");
+		getter(out, action + "[]", "getExitActions", "EXIT_ACTIONS");
+		getter(out, "int[]", "getTransitionSources", "TRANSITION_SOURCES");
+		getter(out, "int[]", "getTransitionEvents", "TRANSITION_EVENTS");
+		getter(out, "int[]", "getTransitionTargets", "TRANSITION_TARGETS");
+		getter(out, guard + "[]", "getTransitionGuards", "TRANSITION_GUARDS");
+		getter(out, action + "[][]", "getTransitionActions",
+				"TRANSITION_ACTIONS");
+		out.println("}");
+		out.flush();
+	}
+
+	private static List<String> ints(final int[] values) {
+		return Arrays.stream(values).mapToObj(String::valueOf)
+				.collect(Collectors.toList());
+	}
+
+	private static List<String> ints(final List<Integer> values) {
+		return values.stream().map(String::valueOf).collect(Collectors.toList());
+	}
+
+	/**
+	 * Casts the lambdas to their generic type, the arrays are created raw.
+	 */
+	private static List<String> calls(final String type, final List<String> lambdas) {
+		final List<String> calls = new ArrayList<>();
+		for (final String lambda : lambdas) {
+			calls.add(lambda == null ? "null" : "(" + type + ") " + lambda);
+		}
+		return calls;
+	}
+
+	private static void field(final PrintWriter out, final String type,
+			final String name, final List<String> values) {
+		out.println("\tprivate static final " + type + " " + name + " = {");
+		values(out, values);
+	}
+
+	private static void uncheckedField(final PrintWriter out, final String type,
+			final String name, final String rawType, final List<String> values) {
+		out.println("\t@SuppressWarnings(\"unchecked\")");
+		out.println("\tprivate static final " + type + " " + name + " = new "
+				+ rawType + "[] {");
+		values(out, values);
+	}
+
+	private static void values(final PrintWriter out, final List<String> values) {
+		for (final String value : values) {
+			out.println("\t\t\t" + value + ",");
+		}
+		out.println("\t};");
+		out.println();
+	}
+
+	private static void getter(final PrintWriter out, final String type,
+			final String name, final String value) {
+		out.println();
+		out.println("\t@Override");
+		out.println("\tpublic " + type + " " + name + "() {");
+		out.println("\t\treturn " + value + ";");
+		out.println("\t}");
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * Annotation processor generating the tables of definitions annotated with
+ * {@link ch.bbv.fsm.table.DefinitionTable}.
+ */
+package ch.bbv.fsm.processor;
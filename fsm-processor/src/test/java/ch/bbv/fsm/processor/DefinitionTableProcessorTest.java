@@ -0,0 +1,141 @@
+package ch.bbv.fsm.processor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import ch.bbv.fsm.impl.AbstractStateMachineDefinition;
+import ch.bbv.fsm.model.State;
+import ch.bbv.fsm.model.StateMachineModel;
+import ch.bbv.fsm.model.TransitionInfo;
+import ch.bbv.fsm.model.visitor.Visitor;
+import ch.bbv.fsm.processor.PlayerStateMachine.Events;
+import ch.bbv.fsm.processor.PlayerStateMachine.States;
+
+public class DefinitionTableProcessorTest {
+
+	private static PlayerStateMachine run(final AbstractStateMachineDefinition<PlayerStateMachine, States, Events> definition) {
+		final PlayerStateMachine stateMachine = definition.createPassiveStateMachine("player");
+		stateMachine.start();
+		stateMachine.fire(Events.Start);
+		stateMachine.fire(Events.Tick);
+		stateMachine.fire(Events.Suspend);
+		stateMachine.fire(Events.Tick);
+		stateMachine.fire(Events.Stop);
+		stateMachine.fire(Events.Start);
+		stateMachine.fire(Events.Resume);
+		stateMachine.fire(Events.Stop);
+		stateMachine.setEnabled(false);
+		stateMachine.fire(Events.Start);
+		stateMachine.fire(Events.Start, Boolean.TRUE);
+		return stateMachine;
+	}
+
+	@Test
+	public void generatedTableBehavesLikeTheDsl() {
+		final PlayerStateMachine table = run(new PlayerTableDefinition());
+		final PlayerStateMachine dsl = run(new PlayerDslDefinition());
+
+		assertThat(table.getLog(), contains("begin", "enterActive", "enterRunning", "tick", "suspend", "tick", "exitSuspended",
+				"exitActive", "begin", "enterActive", "exitSuspended", "enterRunning", "exitActive", "reject", "enterActive"));
+		assertThat(table.getLog(), equalTo(dsl.getLog()));
+		assertThat(table.getCurrentState(), is(States.Suspended));
+	}
+
+	@Test
+	public void generatedTableBuildsTheSameModel() {
+		final PlayerTableDefinition definition = new PlayerTableDefinition();
+		final PlayerStateMachine stateMachine = definition.createPassiveStateMachine("player", States.Suspended);
+		stateMachine.start();
+		stateMachine.fire(Events.Resume);
+
+		assertThat(stateMachine.getCurrentState(), is(States.Running));
+		assertThat(describe(definition), equalTo(describe(new PlayerDslDefinition())));
+	}
+
+	private static Set<String> describe(final AbstractStateMachineDefinition<PlayerStateMachine, States, Events> definition) {
+		final Set<String> description = new TreeSet<>();
+		definition.traverseModel(new Visitor<PlayerStateMachine, States, Events>() {
+
+			@Override
+			public void visitOnEntry(final StateMachineModel<PlayerStateMachine, States, Events> visitable) {
+			}
+
+			@Override
+			public void visitOnExit(final StateMachineModel<PlayerStateMachine, States, Events> visitable) {
+			}
+
+			@Override
+			public void visitOnEntry(final State<PlayerStateMachine, States, Events> visitable) {
+				description.add(visitable.getId() + "@" + visitable.getLevel());
+			}
+
+			@Override
+			public void visitOnExit(final State<PlayerStateMachine, States, Events> visitable) {
+			}
+
+			@Override
+			public void visitOnEntry(final TransitionInfo<PlayerStateMachine, States, Events> visitable) {
+				description.add(visitable.getSource().getId() + "-" + visitable.getEventId() + "->"
+						+ (visitable.getTarget() == null ? "" : visitable.getTarget().getId()));
+			}
+
+			@Override
+			public void visitOnExit(final TransitionInfo<PlayerStateMachine, States, Events> visitable) {
+			}
+		});
+		return description;
+	}
+
+	@Test
+	public void unknownNamesAreReportedOnTheDefinition() {
+		final String source = "package ch.bbv.fsm.processor;\n" //
+				+ "import ch.bbv.fsm.StateMachine;\n" //
+				+ "import ch.bbv.fsm.impl.AbstractStateMachineDefinition;\n" //
+				+ "import ch.bbv.fsm.processor.PlayerStateMachine.Events;\n" //
+				+ "import ch.bbv.fsm.processor.PlayerStateMachine.States;\n" //
+				+ "import ch.bbv.fsm.table.*;\n" //
+				+ "@DefinitionTable(transitions = { @Transition(source = \"Nowhere\", event = \"Start\", guard = \"exitActive\"),\n" //
+				+ "    @Transition(source = \"Idle\", event = \"Start\", actions = \"missing\") })\n" //
+				+ "public class BrokenDefinition extends AbstractStateMachineDefinition<PlayerStateMachine, States, Events> {\n" //
+				+ "  public BrokenDefinition() { super(States.Idle); }\n" //
+				+ "  protected PlayerStateMachine createStateMachine(StateMachine<States, Events> driver) { return null; }\n" //
+				+ "}\n";
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		final JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///ch/bbv/fsm/processor/BrokenDefinition.java"),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		final JavaCompiler.CompilationTask task = compiler.getTask(new StringWriter(), null, diagnostics,
+				Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path")), null,
+				Collections.singletonList(file));
+		task.setProcessors(Collections.singletonList(new DefinitionTableProcessor()));
+
+		assertThat(task.call(), is(false));
+		final String messages = diagnostics.getDiagnostics().toString();
+		assertThat(messages, containsString("Unknown state Nowhere"));
+		assertThat(messages, containsString("no accessible guard method boolean exitActive()"));
+		assertThat(messages, containsString("no accessible action method missing()"));
+	}
+}
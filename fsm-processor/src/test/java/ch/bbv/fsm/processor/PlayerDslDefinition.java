@@ -0,0 +1,33 @@
+package ch.bbv.fsm.processor;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.AbstractStateMachineDefinition;
+import ch.bbv.fsm.processor.PlayerStateMachine.Events;
+import ch.bbv.fsm.processor.PlayerStateMachine.States;
+
+/**
+ * The DSL counterpart of {@link PlayerTableDefinition}.
+ */
+public class PlayerDslDefinition extends AbstractStateMachineDefinition<PlayerStateMachine, States, Events> {
+
+	public PlayerDslDefinition() {
+		super("PlayerDsl", States.Idle);
+		defineHierarchyOn(States.Active, States.Running, HistoryType.SHALLOW, States.Running, States.Suspended);
+		in(States.Active).executeOnEntry(sm -> sm.enterActive()).executeOnExit(sm -> sm.exitActive());
+		in(States.Running).executeOnEntry(sm -> sm.enterRunning());
+		in(States.Suspended).executeOnExit(sm -> sm.exitSuspended());
+		in(States.Idle).on(Events.Start).goTo(States.Suspended).onlyIf((sm, arguments) -> sm.isForced(arguments));
+		in(States.Idle).on(Events.Start).goTo(States.Active).execute(sm -> sm.begin()).onlyIf((sm, arguments) -> sm.isEnabled());
+		in(States.Idle).on(Events.Start).execute(sm -> sm.reject());
+		in(States.Running).on(Events.Suspend).goTo(States.Suspended).execute(sm -> sm.suspend()).execute(sm -> sm.tick());
+		in(States.Suspended).on(Events.Resume).goTo(States.Running);
+		in(States.Active).on(Events.Stop).goTo(States.Idle);
+		in(States.Running).on(Events.Tick).execute(sm -> sm.tick());
+	}
+
+	@Override
+	protected PlayerStateMachine createStateMachine(final StateMachine<States, Events> driver) {
+		return new PlayerStateMachine(driver);
+	}
+}
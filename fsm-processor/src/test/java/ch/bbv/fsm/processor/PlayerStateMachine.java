@@ -0,0 +1,73 @@
+package ch.bbv.fsm.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.AbstractStateMachine;
+
+public class PlayerStateMachine extends AbstractStateMachine<PlayerStateMachine, PlayerStateMachine.States, PlayerStateMachine.Events> {
+
+	public enum States {
+		Idle, Active, Running, Suspended
+	}
+
+	public enum Events {
+		Start, Suspend, Resume, Stop, Tick
+	}
+
+	private final List<String> log = new ArrayList<>();
+	private boolean enabled = true;
+
+	public PlayerStateMachine(final StateMachine<States, Events> driver) {
+		super(driver);
+	}
+
+	public List<String> getLog() {
+		return log;
+	}
+
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	boolean isForced(final Object[] arguments) {
+		return arguments.length > 0 && Boolean.TRUE.equals(arguments[0]);
+	}
+
+	public void enterActive() {
+		log.add("enterActive");
+	}
+
+	public void exitActive() {
+		log.add("exitActive");
+	}
+
+	public void enterRunning() {
+		log.add("enterRunning");
+	}
+
+	public void exitSuspended() {
+		log.add("exitSuspended");
+	}
+
+	public void begin() {
+		log.add("begin");
+	}
+
+	public void reject() {
+		log.add("reject");
+	}
+
+	public void suspend() {
+		log.add("suspend");
+	}
+
+	public void tick() {
+		log.add("tick");
+	}
+}
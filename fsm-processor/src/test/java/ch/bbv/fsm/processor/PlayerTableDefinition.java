@@ -0,0 +1,33 @@
+package ch.bbv.fsm.processor;
+
+import ch.bbv.fsm.HistoryType;
+import ch.bbv.fsm.StateMachine;
+import ch.bbv.fsm.impl.AbstractStateMachineDefinition;
+import ch.bbv.fsm.processor.PlayerStateMachine.Events;
+import ch.bbv.fsm.processor.PlayerStateMachine.States;
+import ch.bbv.fsm.table.DefinitionTable;
+import ch.bbv.fsm.table.Hierarchy;
+import ch.bbv.fsm.table.StateActions;
+import ch.bbv.fsm.table.Transition;
+
+@DefinitionTable(hierarchies = { @Hierarchy(superState = "Active", initialSubState = "Running", history = HistoryType.SHALLOW, subStates = {
+		"Running", "Suspended" }) }, states = { @StateActions(state = "Active", entry = "enterActive", exit = "exitActive"),
+		@StateActions(state = "Running", entry = "enterRunning"), @StateActions(state = "Suspended", exit = "exitSuspended") }, transitions = {
+		@Transition(source = "Idle", event = "Start", target = "Suspended", guard = "isForced"),
+		@Transition(source = "Idle", event = "Start", target = "Active", guard = "isEnabled", actions = "begin"),
+		@Transition(source = "Idle", event = "Start", actions = "reject"),
+		@Transition(source = "Running", event = "Suspend", target = "Suspended", actions = { "suspend", "tick" }),
+		@Transition(source = "Suspended", event = "Resume", target = "Running"),
+		@Transition(source = "Active", event = "Stop", target = "Idle"),
+		@Transition(source = "Running", event = "Tick", actions = "tick") })
+public class PlayerTableDefinition extends AbstractStateMachineDefinition<PlayerStateMachine, States, Events> {
+
+	public PlayerTableDefinition() {
+		super("PlayerTable", States.Idle, PlayerTableDefinitionTable.INSTANCE);
+	}
+
+	@Override
+	protected PlayerStateMachine createStateMachine(final StateMachine<States, Events> driver) {
+		return new PlayerStateMachine(driver);
+	}
+}